@@ -13,9 +13,22 @@
 
 package org.pentaho.runtime.test;
 
+import org.pentaho.runtime.test.result.RuntimeTestResult;
+
 /**
  * Created by bryan on 8/11/15.
  */
 public interface RuntimeTestProgressCallback {
   void onProgress( RuntimeTestStatus runtimeTestStatus );
+
+  /**
+   * Called whenever a single test changes state (starts running, finishes, times out or is skipped), right before the
+   * {@link #onProgress(RuntimeTestStatus)} call carrying the new overall status. Callbacks that only care about the
+   * test that changed can override this instead of diffing consecutive statuses.
+   *
+   * @param runtimeTestResult the current result of the test that changed, not done if it just started running
+   */
+  default void onTestStateChanged( RuntimeTestResult runtimeTestResult ) {
+    // Noop by default
+  }
 }
@@ -26,60 +26,95 @@ import org.pentaho.runtime.test.test.impl.RuntimeTestDelegateWithMoreDependencie
 import org.pentaho.runtime.test.test.impl.RuntimeTestResultEntryImpl;
 import org.pentaho.runtime.test.test.impl.RuntimeTestResultImpl;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 /**
+ * Runs a set of runtime tests as a dependency graph. Tests become ready once all of their dependencies have passed,
+ * are skipped as soon as one of their dependencies fails (or can never run) and at most {@code maxParallelTests} of
+ * them run on the executor at once. A test that does not finish within {@code testTimeoutMillis} is cancelled and
+ * reported with a warning that it timed out, as a slow service is not known to be broken; its dependents are skipped.
+ * <p>
+ * All scheduling state is owned by the thread calling {@link #runTests()}; the executor threads only hand their
+ * results back through a queue, so no locking is needed and every progress callback is made from that thread.
+ * <p>
  * Created by bryan on 8/11/15.
  */
 public class RuntimeTestRunner {
+  public static final int DEFAULT_MAX_PARALLEL_TESTS = 8;
+  public static final long DEFAULT_TEST_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis( 2 );
   private static final Class<?> PKG = RuntimeTestRunner.class;
-  private final Set<RuntimeTest> remainingTests;
   private final Object objectUnderTest;
   private final RuntimeTestProgressCallback runtimeTestProgressCallback;
   private final ExecutorService executorService;
-  private final Set<String> satisfiedDependencies;
-  private final Set<String> failedDependencies;
-  private final List<String> runtimeModuleList;
+  private final int maxParallelTests;
+  private final long testTimeoutMillis;
+  private final int numberOfTests;
+  private final Map<String, RuntimeTest> testsById;
+  private final Map<String, String> testIdToModule;
   private final Map<String, List<String>> stringRuntimeTestModuleToTestIdMap;
   private final Map<String, RuntimeTestResult> runtimeTestResultMap;
+  private final Map<String, RuntimeTestModuleResults> moduleResultsMap;
+  private final Map<String, Integer> unsatisfiedDependencyCounts;
+  private final Map<String, List<String>> dependentTestIds;
+  private final Deque<RuntimeTest> readyTests;
   private final Set<String> outstandingTestIds;
-  private final Set<String> runningTestIds;
-  private final int numberOfTests;
+  private final Map<String, RunningTest> runningTests;
+  private final Set<String> timedOutTestIds;
+  private final BlockingQueue<RuntimeTestResult> completedResults;
 
-  @SuppressWarnings( "unchecked" )
   public RuntimeTestRunner( Collection<? extends RuntimeTest> runtimeTests, Object objectUnderTest,
                             RuntimeTestProgressCallback runtimeTestProgressCallback, ExecutorService executorService ) {
+    this( runtimeTests, objectUnderTest, runtimeTestProgressCallback, executorService, DEFAULT_MAX_PARALLEL_TESTS,
+      DEFAULT_TEST_TIMEOUT_MILLIS );
+  }
+
+  public RuntimeTestRunner( Collection<? extends RuntimeTest> runtimeTests, Object objectUnderTest,
+                            RuntimeTestProgressCallback runtimeTestProgressCallback, ExecutorService executorService,
+                            int maxParallelTests, long testTimeoutMillis ) {
     this.objectUnderTest = objectUnderTest;
-    runtimeModuleList = new ArrayList<>();
-    stringRuntimeTestModuleToTestIdMap = new HashMap<>();
+    this.runtimeTestProgressCallback = runtimeTestProgressCallback;
+    this.executorService = executorService;
+    this.maxParallelTests = Math.max( 1, maxParallelTests );
+    this.testTimeoutMillis = testTimeoutMillis;
+    testsById = new LinkedHashMap<>();
+    testIdToModule = new HashMap<>();
+    stringRuntimeTestModuleToTestIdMap = new LinkedHashMap<>();
     runtimeTestResultMap = new HashMap<>();
-    outstandingTestIds = new HashSet<>();
-    runningTestIds = new HashSet<>();
+    moduleResultsMap = new LinkedHashMap<>();
+    unsatisfiedDependencyCounts = new HashMap<>();
+    dependentTestIds = new HashMap<>();
+    readyTests = new ArrayDeque<>();
+    outstandingTestIds = new LinkedHashSet<>();
+    runningTests = new HashMap<>();
+    timedOutTestIds = new HashSet<>();
+    completedResults = new LinkedBlockingQueue<>();
 
-    Set<RuntimeTest> initTests = new HashSet<>();
+    List<RuntimeTest> initTests = new ArrayList<>();
     Set<String> initTestIds = new HashSet<>();
-    Set<RuntimeTest> nonInitTests = new HashSet<>();
-    int numberOfTests = 0;
+    List<RuntimeTest> nonInitTests = new ArrayList<>();
     for ( RuntimeTest runtimeTest : runtimeTests ) {
       if ( runtimeTest.accepts( objectUnderTest ) ) {
-        numberOfTests++;
         String runtimeTestModule = runtimeTest.getModule();
-        List<String> runtimeIdsForModule = stringRuntimeTestModuleToTestIdMap.get( runtimeTestModule );
-        if ( runtimeIdsForModule == null ) {
-          runtimeModuleList.add( runtimeTestModule );
-          runtimeIdsForModule = new ArrayList<>();
-          stringRuntimeTestModuleToTestIdMap.put( runtimeTestModule, runtimeIdsForModule );
-        }
         String runtimeTestId = runtimeTest.getId();
-        runtimeIdsForModule.add( runtimeTestId );
+        stringRuntimeTestModuleToTestIdMap.computeIfAbsent( runtimeTestModule, module -> new ArrayList<>() )
+          .add( runtimeTestId );
+        testIdToModule.put( runtimeTestId, runtimeTestModule );
         if ( runtimeTest.isConfigInitTest() ) {
           initTests.add( runtimeTest );
           initTestIds.add( runtimeTestId );
@@ -88,167 +123,251 @@ public class RuntimeTestRunner {
         }
       }
     }
-    this.numberOfTests = numberOfTests;
-    this.remainingTests = new HashSet<>( initTests );
+    for ( RuntimeTest initTest : initTests ) {
+      testsById.put( initTest.getId(), initTest );
+    }
     for ( RuntimeTest nonInitTest : nonInitTests ) {
-      remainingTests.add( new RuntimeTestDelegateWithMoreDependencies( nonInitTest, initTestIds ) );
+      testsById.put( nonInitTest.getId(), new RuntimeTestDelegateWithMoreDependencies( nonInitTest, initTestIds ) );
     }
-    for ( RuntimeTest remainingTest : remainingTests ) {
-      String remainingTestId = remainingTest.getId();
+    this.numberOfTests = testsById.size();
+    for ( RuntimeTest runtimeTest : testsById.values() ) {
+      String runtimeTestId = runtimeTest.getId();
       runtimeTestResultMap
-        .put( remainingTestId, new RuntimeTestResultImpl( remainingTest, false, new RuntimeTestResultSummaryImpl(),
-          0L ) );
-      outstandingTestIds.add( remainingTestId );
-    }
-    this.satisfiedDependencies = new HashSet<>();
-    this.failedDependencies = new HashSet<>();
-    this.runtimeTestProgressCallback = runtimeTestProgressCallback;
-    this.executorService = executorService;
-  }
-
-  private void markSkipped( RuntimeTest runtimeTest ) {
-    Set<String> relevantFailed = new HashSet<>( failedDependencies );
-    relevantFailed.retainAll( runtimeTest.getDependencies() );
-
-    // Get one of the dependencies' names for display
-    String failedDependencyName = "a prerequisite";
-    if ( !relevantFailed.isEmpty() ) {
-      String failedDependencyId = relevantFailed.iterator().next();
-      RuntimeTestResult runtimeTestResult = runtimeTestResultMap.get( failedDependencyId );
-      if ( runtimeTestResult != null ) {
-        failedDependencyName = runtimeTestResult.getRuntimeTest().getName();
+        .put( runtimeTestId, new RuntimeTestResultImpl( runtimeTest, false, new RuntimeTestResultSummaryImpl(), 0L ) );
+      outstandingTestIds.add( runtimeTestId );
+      int unsatisfied = 0;
+      for ( String dependency : runtimeTest.getDependencies() ) {
+        unsatisfied++;
+        dependentTestIds.computeIfAbsent( dependency, id -> new ArrayList<>() ).add( runtimeTestId );
       }
-
+      unsatisfiedDependencyCounts.put( runtimeTestId, unsatisfied );
+    }
+    for ( String module : stringRuntimeTestModuleToTestIdMap.keySet() ) {
+      updateModuleResults( module );
     }
-
-    // We had a dependency fail so we need to skip
-    String runtimeTestId = runtimeTest.getId();
-    failedDependencies.add( runtimeTestId );
-    outstandingTestIds.remove( runtimeTestId );
-    runningTestIds.remove( runtimeTestId );
-    runtimeTestResultMap.put( runtimeTestId, new RuntimeTestResultImpl( runtimeTest, true,
-      new RuntimeTestResultSummaryImpl( new RuntimeTestResultEntryImpl( RuntimeTestEntrySeverity.SKIPPED,
-        BaseMessages.getString( PKG, "RuntimeTestRunner.Skipped.Desc", failedDependencyName ),
-        BaseMessages.getString( PKG, "RuntimeTestRunner.Skipped.Message", runtimeTest.getName(), relevantFailed ), (Throwable) null ) ), 0L ) );
   }
 
-  private void callbackState() {
+  public void runTests() {
     callbackState( false );
-  }
-
-  private void callbackState( boolean done ) {
-    if ( runtimeTestProgressCallback != null ) {
-      List<RuntimeTestModuleResults> moduleResults = new ArrayList<>( runtimeModuleList.size() );
-      for ( String runtimeModule : runtimeModuleList ) {
-        List<RuntimeTestResult> runtimeTestResults = new ArrayList<>();
-        Set<RuntimeTest> runningTests = new HashSet<>();
-        HashSet<RuntimeTest> outstandingTests = new HashSet<>();
-        for ( String testId : stringRuntimeTestModuleToTestIdMap.get( runtimeModule ) ) {
-          RuntimeTestResult runtimeTestResult = runtimeTestResultMap.get( testId );
-          runtimeTestResults.add( runtimeTestResult );
-          if ( runningTestIds.contains( testId ) ) {
-            runningTests.add( runtimeTestResult.getRuntimeTest() );
-          } else if ( outstandingTestIds.contains( testId ) ) {
-            outstandingTests.add( runtimeTestResult.getRuntimeTest() );
+    List<RuntimeTest> unsatisfiable = new ArrayList<>();
+    for ( RuntimeTest runtimeTest : testsById.values() ) {
+      if ( !testsById.keySet().containsAll( runtimeTest.getDependencies() ) ) {
+        unsatisfiable.add( runtimeTest );
+      } else if ( unsatisfiedDependencyCounts.get( runtimeTest.getId() ) == 0 ) {
+        readyTests.add( runtimeTest );
+      }
+    }
+    for ( RuntimeTest runtimeTest : unsatisfiable ) {
+      skip( runtimeTest );
+    }
+    try {
+      while ( !readyTests.isEmpty() || !runningTests.isEmpty() ) {
+        while ( runningTests.size() < maxParallelTests && !readyTests.isEmpty() ) {
+          startTest( readyTests.poll() );
+        }
+        RuntimeTestResult completed = completedResults.poll( millisUntilNextTimeout(), TimeUnit.MILLISECONDS );
+        if ( completed != null ) {
+          onCompleted( completed );
+        }
+        timeOutExpiredTests();
+        if ( readyTests.isEmpty() && runningTests.isEmpty() ) {
+          // Anything still outstanding here waits on a dependency cycle and can never run
+          for ( String outstandingTestId : new ArrayList<>( outstandingTestIds ) ) {
+            skip( testsById.get( outstandingTestId ) );
           }
         }
-        moduleResults
-          .add( new RuntimeTestModuleResultsImpl( runtimeModule, runtimeTestResults, runningTests, outstandingTests ) );
       }
-      int testsRunning = runningTestIds.size();
-      int testsOutstanding = outstandingTestIds.size();
-      int testsDone = numberOfTests - testsOutstanding - testsRunning;
-      runtimeTestProgressCallback.onProgress(
-        new RuntimeTestStatusImpl( Collections.unmodifiableList( moduleResults ), testsDone, testsRunning,
-          testsOutstanding, done ) );
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      for ( RunningTest runningTest : runningTests.values() ) {
+        runningTest.future.cancel( true );
+      }
     }
+    callbackState( true );
   }
 
-  private void runTest( RuntimeTest runtimeTest ) {
-    String eligibleTestId = runtimeTest.getId();
+  private void startTest( final RuntimeTest runtimeTest ) {
+    String runtimeTestId = runtimeTest.getId();
+    outstandingTestIds.remove( runtimeTestId );
+    Future<?> future = executorService.submit( () -> {
+      completedResults.add( runTest( runtimeTest ) );
+    } );
+    long deadline = testTimeoutMillis > 0 ? System.currentTimeMillis() + testTimeoutMillis : Long.MAX_VALUE;
+    runningTests.put( runtimeTestId, new RunningTest( future, deadline < 0 ? Long.MAX_VALUE : deadline ) );
+    updateResult( runtimeTestResultMap.get( runtimeTestId ) );
+  }
+
+  private RuntimeTestResult runTest( RuntimeTest runtimeTest ) {
     RuntimeTestResultSummary runtimeTestResultSummary;
     long before = System.currentTimeMillis();
-    RuntimeTestEntrySeverity overallSeverity;
     try {
       runtimeTestResultSummary = runtimeTest.runTest( objectUnderTest );
-      overallSeverity = runtimeTestResultSummary.getOverallStatusEntry().getSeverity();
     } catch ( Throwable e ) {
-      overallSeverity = RuntimeTestEntrySeverity.FATAL;
       runtimeTestResultSummary = new RuntimeTestResultSummaryImpl(
         new RuntimeTestResultEntryImpl( RuntimeTestEntrySeverity.FATAL,
           BaseMessages.getString( PKG, "RuntimeTestRunner.Error.Desc", runtimeTest.getName() ), e.getMessage(), e ) );
     }
     long after = System.currentTimeMillis();
-    RuntimeTestResult runtimeTestResult =
-      new RuntimeTestResultImpl( runtimeTest, true, runtimeTestResultSummary, after - before );
-    synchronized ( this ) {
-      if ( overallSeverity == RuntimeTestEntrySeverity.ERROR || overallSeverity == RuntimeTestEntrySeverity.FATAL ) {
-        failedDependencies.add( eligibleTestId );
-      } else {
-        satisfiedDependencies.add( eligibleTestId );
+    return new RuntimeTestResultImpl( runtimeTest, true, runtimeTestResultSummary, after - before );
+  }
+
+  private void onCompleted( RuntimeTestResult runtimeTestResult ) {
+    RuntimeTest runtimeTest = runtimeTestResult.getRuntimeTest();
+    if ( runningTests.remove( runtimeTest.getId() ) == null ) {
+      // Already reported as timed out
+      return;
+    }
+    RuntimeTestEntrySeverity overallSeverity;
+    try {
+      overallSeverity = runtimeTestResult.getOverallStatusEntry().getSeverity();
+    } catch ( RuntimeException e ) {
+      overallSeverity = RuntimeTestEntrySeverity.FATAL;
+    }
+    updateResult( runtimeTestResult );
+    if ( overallSeverity == RuntimeTestEntrySeverity.ERROR || overallSeverity == RuntimeTestEntrySeverity.FATAL ) {
+      skipDependents( runtimeTest.getId() );
+    } else {
+      for ( String dependentTestId : dependentTestIds.getOrDefault( runtimeTest.getId(),
+        Collections.<String>emptyList() ) ) {
+        if ( outstandingTestIds.contains( dependentTestId ) ) {
+          int unsatisfied = unsatisfiedDependencyCounts.merge( dependentTestId, -1, Integer::sum );
+          if ( unsatisfied == 0 ) {
+            readyTests.add( testsById.get( dependentTestId ) );
+          }
+        }
       }
-      runtimeTestResultMap.put( eligibleTestId, runtimeTestResult );
-      runningTestIds.remove( eligibleTestId );
-      callbackState();
-      notifyAll();
     }
   }
 
-  public synchronized void runTests() {
-    callbackState();
-    while ( remainingTests.size() > 0 || runningTestIds.size() > 0 ) {
-      Set<RuntimeTest> eligibleTests = new HashSet<>();
-      Set<RuntimeTest> skippingTests = new HashSet<>();
-      Set<String> possibleToSatisfyIds = new HashSet<>( satisfiedDependencies );
-      for ( RuntimeTest remainingTest : remainingTests ) {
-        possibleToSatisfyIds.add( remainingTest.getId() );
+  private long millisUntilNextTimeout() {
+    if ( runningTests.isEmpty() ) {
+      return 0L;
+    }
+    long nextDeadline = Long.MAX_VALUE;
+    for ( RunningTest runningTest : runningTests.values() ) {
+      nextDeadline = Math.min( nextDeadline, runningTest.deadline );
+    }
+    return Math.max( 0L, nextDeadline - System.currentTimeMillis() );
+  }
+
+  private void timeOutExpiredTests() {
+    long now = System.currentTimeMillis();
+    List<String> expiredTestIds = new ArrayList<>();
+    for ( Map.Entry<String, RunningTest> entry : runningTests.entrySet() ) {
+      if ( entry.getValue().deadline <= now ) {
+        expiredTestIds.add( entry.getKey() );
       }
-      possibleToSatisfyIds.addAll( outstandingTestIds );
-      possibleToSatisfyIds.addAll( runningTestIds );
-      for ( RuntimeTest remainingTest : remainingTests ) {
-        Set<String> remainingTestDependencies = remainingTest.getDependencies();
-        if ( satisfiedDependencies.containsAll( remainingTestDependencies ) ) {
-          eligibleTests.add( remainingTest );
-        } else if ( !Collections.disjoint( remainingTestDependencies, failedDependencies ) || !possibleToSatisfyIds
-          .containsAll( remainingTestDependencies ) ) {
-          skippingTests.add( remainingTest );
-          markSkipped( remainingTest );
-        }
+    }
+    for ( String expiredTestId : expiredTestIds ) {
+      runningTests.remove( expiredTestId ).future.cancel( true );
+      timedOutTestIds.add( expiredTestId );
+      RuntimeTest runtimeTest = testsById.get( expiredTestId );
+      updateResult( new RuntimeTestResultImpl( runtimeTest, true, new RuntimeTestResultSummaryImpl(
+        new RuntimeTestResultEntryImpl( RuntimeTestEntrySeverity.WARNING,
+          BaseMessages.getString( PKG, "RuntimeTestRunner.Timeout.Desc", runtimeTest.getName() ),
+          BaseMessages.getString( PKG, "RuntimeTestRunner.Timeout.Message", runtimeTest.getName(),
+            testTimeoutMillis ), (Throwable) null ) ), testTimeoutMillis ) );
+      skipDependents( expiredTestId );
+    }
+  }
+
+  private void skipDependents( String failedTestId ) {
+    for ( String dependentTestId : dependentTestIds.getOrDefault( failedTestId, Collections.<String>emptyList() ) ) {
+      if ( outstandingTestIds.contains( dependentTestId ) ) {
+        skip( testsById.get( dependentTestId ) );
       }
-      remainingTests.removeAll( eligibleTests );
-      remainingTests.removeAll( skippingTests );
-      for ( RuntimeTest eligibleTest : eligibleTests ) {
-        String eligibleTestId = eligibleTest.getId();
-        outstandingTestIds.remove( eligibleTestId );
-        runningTestIds.add( eligibleTestId );
+    }
+  }
+
+  private void skip( RuntimeTest runtimeTest ) {
+    String runtimeTestId = runtimeTest.getId();
+    if ( !outstandingTestIds.remove( runtimeTestId ) ) {
+      return;
+    }
+    readyTests.remove( runtimeTest );
+
+    // Get one of the unsuccessful dependencies' names for display
+    Set<String> relevantFailed = new HashSet<>();
+    for ( String dependency : runtimeTest.getDependencies() ) {
+      RuntimeTestResult dependencyResult = runtimeTestResultMap.get( dependency );
+      if ( dependencyResult == null || timedOutTestIds.contains( dependency )
+        || ( dependencyResult.isDone() && !isSuccessful( dependencyResult ) ) ) {
+        relevantFailed.add( dependency );
       }
-      final int wasRunning = runningTestIds.size();
-      for ( final RuntimeTest eligibleTest : eligibleTests ) {
-        executorService.submit( new Runnable() {
-          @Override
-          public void run() {
-            runTest( eligibleTest );
-          }
-        } );
+    }
+    String failedDependencyName = "a prerequisite";
+    if ( !relevantFailed.isEmpty() ) {
+      RuntimeTestResult runtimeTestResult = runtimeTestResultMap.get( relevantFailed.iterator().next() );
+      if ( runtimeTestResult != null ) {
+        failedDependencyName = runtimeTestResult.getRuntimeTest().getName();
       }
-      // If we skipped test(s) state has changed and we should rerun immediately, otherwise we can wait until one
-      // finishes
-      if ( skippingTests.size() == 0 ) {
-        if ( wasRunning > 0 ) {
-          while ( wasRunning == runningTestIds.size() ) {
-            try {
-              // Wait until a test finishes
-              wait();
-            } catch ( InterruptedException e ) {
-              // Ignore
-            }
-          }
-        }
-      } else {
-        callbackState();
+    }
+
+    updateResult( new RuntimeTestResultImpl( runtimeTest, true,
+      new RuntimeTestResultSummaryImpl( new RuntimeTestResultEntryImpl( RuntimeTestEntrySeverity.SKIPPED,
+        BaseMessages.getString( PKG, "RuntimeTestRunner.Skipped.Desc", failedDependencyName ),
+        BaseMessages.getString( PKG, "RuntimeTestRunner.Skipped.Message", runtimeTest.getName(), relevantFailed ),
+        (Throwable) null ) ), 0L ) );
+    skipDependents( runtimeTestId );
+  }
+
+  private static boolean isSuccessful( RuntimeTestResult runtimeTestResult ) {
+    RuntimeTestEntrySeverity severity = runtimeTestResult.getOverallStatusEntry().getSeverity();
+    return severity != RuntimeTestEntrySeverity.ERROR && severity != RuntimeTestEntrySeverity.FATAL
+      && severity != RuntimeTestEntrySeverity.SKIPPED;
+  }
+
+  /**
+   * Records the new result of a single test, rebuilds only the results of that test's module and notifies the
+   * callback.
+   */
+  private void updateResult( RuntimeTestResult runtimeTestResult ) {
+    String runtimeTestId = runtimeTestResult.getRuntimeTest().getId();
+    runtimeTestResultMap.put( runtimeTestId, runtimeTestResult );
+    updateModuleResults( testIdToModule.get( runtimeTestId ) );
+    if ( runtimeTestProgressCallback != null ) {
+      runtimeTestProgressCallback.onTestStateChanged( runtimeTestResult );
+    }
+    callbackState( false );
+  }
+
+  private void updateModuleResults( String runtimeModule ) {
+    List<RuntimeTestResult> runtimeTestResults = new ArrayList<>();
+    Set<RuntimeTest> moduleRunningTests = new HashSet<>();
+    Set<RuntimeTest> moduleOutstandingTests = new HashSet<>();
+    for ( String testId : stringRuntimeTestModuleToTestIdMap.get( runtimeModule ) ) {
+      RuntimeTestResult runtimeTestResult = runtimeTestResultMap.get( testId );
+      runtimeTestResults.add( runtimeTestResult );
+      if ( runningTests.containsKey( testId ) ) {
+        moduleRunningTests.add( runtimeTestResult.getRuntimeTest() );
+      } else if ( outstandingTestIds.contains( testId ) ) {
+        moduleOutstandingTests.add( runtimeTestResult.getRuntimeTest() );
       }
     }
-    callbackState( true );
+    moduleResultsMap.put( runtimeModule,
+      new RuntimeTestModuleResultsImpl( runtimeModule, runtimeTestResults, moduleRunningTests,
+        moduleOutstandingTests ) );
+  }
+
+  private void callbackState( boolean done ) {
+    if ( runtimeTestProgressCallback != null ) {
+      int testsRunning = runningTests.size();
+      int testsOutstanding = outstandingTestIds.size();
+      int testsDone = numberOfTests - testsOutstanding - testsRunning;
+      runtimeTestProgressCallback.onProgress(
+        new RuntimeTestStatusImpl( Collections.unmodifiableList( new ArrayList<>( moduleResultsMap.values() ) ),
+          testsDone, testsRunning, testsOutstanding, done ) );
+    }
+  }
+
+  private static class RunningTest {
+    private final Future<?> future;
+    private final long deadline;
+
+    private RunningTest( Future<?> future, long deadline ) {
+      this.future = future;
+      this.deadline = deadline;
+    }
   }
 
   public static class Factory {
@@ -257,5 +376,13 @@ public class RuntimeTestRunner {
                                      ExecutorService executorService ) {
       return new RuntimeTestRunner( runtimeTests, objectUnderTest, runtimeTestProgressCallback, executorService );
     }
+
+    public RuntimeTestRunner create( Collection<? extends RuntimeTest> runtimeTests, Object objectUnderTest,
+                                     RuntimeTestProgressCallback runtimeTestProgressCallback,
+                                     ExecutorService executorService, int maxParallelTests,
+                                     long testTimeoutMillis ) {
+      return new RuntimeTestRunner( runtimeTests, objectUnderTest, runtimeTestProgressCallback, executorService,
+        maxParallelTests, testTimeoutMillis );
+    }
   }
 }
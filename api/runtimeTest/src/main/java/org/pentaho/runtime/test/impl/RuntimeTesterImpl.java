@@ -13,25 +13,42 @@
 
 package org.pentaho.runtime.test.impl;
 
+import org.pentaho.di.core.Const;
+import org.pentaho.hadoop.shim.api.cluster.NamedCluster;
 import org.pentaho.runtime.test.RuntimeTest;
 import org.pentaho.runtime.test.RuntimeTestProgressCallback;
+import org.pentaho.runtime.test.RuntimeTestStatus;
 import org.pentaho.runtime.test.RuntimeTester;
+import org.pentaho.runtime.test.module.RuntimeTestModuleResults;
+import org.pentaho.runtime.test.result.RuntimeTestEntrySeverity;
+import org.pentaho.runtime.test.result.RuntimeTestResult;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Created by bryan on 8/12/15.
  */
 public class RuntimeTesterImpl implements RuntimeTester {
+  public static final String MAX_PARALLEL_TESTS_PROPERTY = "KETTLE_RUNTIME_TEST_MAX_PARALLEL_TESTS";
+  public static final String TEST_TIMEOUT_MILLIS_PROPERTY = "KETTLE_RUNTIME_TEST_TIMEOUT_MILLIS";
+  public static final String RESULT_CACHE_TTL_MILLIS_PROPERTY = "KETTLE_RUNTIME_TEST_RESULT_CACHE_TTL_MILLIS";
+  public static final long DEFAULT_RESULT_CACHE_TTL_MILLIS = TimeUnit.MINUTES.toMillis( 1 );
   private final List<RuntimeTest> runtimeTests;
   private final ExecutorService executorService;
   private final RuntimeTestRunner.Factory runtimeTestRunnerFactory;
+  private final Map<String, CachedStatus> cachedStatuses = new ConcurrentHashMap<>();
   private RuntimeTestComparator runtimeTestComparator;
+  private int maxParallelTests = RuntimeTestRunner.DEFAULT_MAX_PARALLEL_TESTS;
+  private long testTimeoutMillis = RuntimeTestRunner.DEFAULT_TEST_TIMEOUT_MILLIS;
+  private long resultCacheTtlMillis = DEFAULT_RESULT_CACHE_TTL_MILLIS;
   private static RuntimeTesterImpl instance;
 
   public RuntimeTesterImpl( List<RuntimeTest> runtimeTests, ExecutorService executorService,
@@ -43,6 +60,12 @@ public class RuntimeTesterImpl implements RuntimeTester {
     if ( instance == null ) {
       List<RuntimeTest> runtimeTests = new ArrayList<>();
       instance = new RuntimeTesterImpl( runtimeTests, Executors.newCachedThreadPool(), "Hadoop Configuration,Hadoop File System,Map Reduce,Oozie,Zookeeper" );
+      instance.setMaxParallelTests( Const.toInt( System.getProperty( MAX_PARALLEL_TESTS_PROPERTY ),
+        RuntimeTestRunner.DEFAULT_MAX_PARALLEL_TESTS ) );
+      instance.setTestTimeoutMillis( Const.toLong( System.getProperty( TEST_TIMEOUT_MILLIS_PROPERTY ),
+        RuntimeTestRunner.DEFAULT_TEST_TIMEOUT_MILLIS ) );
+      instance.setResultCacheTtlMillis(
+        Const.toLong( System.getProperty( RESULT_CACHE_TTL_MILLIS_PROPERTY ), DEFAULT_RESULT_CACHE_TTL_MILLIS ) );
     }
     return instance;
   }
@@ -60,20 +83,139 @@ public class RuntimeTesterImpl implements RuntimeTester {
     runtimeTestComparator = new RuntimeTestComparator( orderedModules );
   }
 
+  /**
+   * Runs the tests that accept the object under test. When the object is a named cluster that was tested successfully
+   * within the result cache TTL and has not been modified since, the cached final status is handed to the callback
+   * instead of running the tests again. Runs with failed, skipped, timed out or otherwise warning tests are not cached,
+   * so testing again after fixing the cause or the service runs the tests again.
+   */
   @Override
   public void runtimeTest( final Object objectUnderTest,
                            final RuntimeTestProgressCallback runtimeTestProgressCallback ) {
+    final String cacheKey = getCacheKey( objectUnderTest );
+    final CachedStatus cachedStatus = cacheKey == null ? null : cachedStatuses.get( cacheKey );
+    if ( cachedStatus != null && cachedStatus.expiry > System.currentTimeMillis() ) {
+      executorService.submit( new Runnable() {
+        @Override public void run() {
+          if ( runtimeTestProgressCallback != null ) {
+            runtimeTestProgressCallback.onProgress( cachedStatus.status );
+          }
+        }
+      } );
+      return;
+    }
     final List<RuntimeTest> runtimeTests = new ArrayList<>( this.runtimeTests );
     Collections.sort( runtimeTests, runtimeTestComparator );
+    final RuntimeTestProgressCallback callback =
+      cacheKey == null ? runtimeTestProgressCallback : new CachingCallback( cacheKey, runtimeTestProgressCallback );
     executorService.submit( new Runnable() {
       @Override public void run() {
-        runtimeTestRunnerFactory.create( runtimeTests, objectUnderTest, runtimeTestProgressCallback, executorService )
-          .runTests();
+        runtimeTestRunnerFactory.create( runtimeTests, objectUnderTest, callback, executorService, maxParallelTests,
+          testTimeoutMillis ).runTests();
       }
     } );
   }
 
   public void addRuntimeTest( RuntimeTest test ) {
     this.runtimeTests.add( test );
+    clearCachedResults();
+  }
+
+  /**
+   * Forgets the cached results for the given object under test so that the next run pings every service again.
+   */
+  public void clearCachedResults( Object objectUnderTest ) {
+    String cacheKey = getCacheKey( objectUnderTest );
+    if ( cacheKey != null ) {
+      cachedStatuses.remove( cacheKey );
+    }
+  }
+
+  public void clearCachedResults() {
+    cachedStatuses.clear();
+  }
+
+  public void setMaxParallelTests( int maxParallelTests ) {
+    this.maxParallelTests = maxParallelTests;
+  }
+
+  /**
+   * @param testTimeoutMillis how long a single test may run before it is cancelled and reported as timed out, 0 or less
+   *                          lets tests run for as long as they take
+   */
+  public void setTestTimeoutMillis( long testTimeoutMillis ) {
+    this.testTimeoutMillis = testTimeoutMillis;
+  }
+
+  /**
+   * @param resultCacheTtlMillis how long the results for a named cluster are reused, 0 or less disables the cache
+   */
+  public void setResultCacheTtlMillis( long resultCacheTtlMillis ) {
+    this.resultCacheTtlMillis = resultCacheTtlMillis;
+    if ( resultCacheTtlMillis <= 0 ) {
+      clearCachedResults();
+    }
+  }
+
+  private String getCacheKey( Object objectUnderTest ) {
+    if ( resultCacheTtlMillis <= 0 || !( objectUnderTest instanceof NamedCluster ) ) {
+      return null;
+    }
+    NamedCluster namedCluster = (NamedCluster) objectUnderTest;
+    // The modification date makes edits to the cluster invalidate its cached results
+    return namedCluster.getName() + ":" + namedCluster.getLastModifiedDate();
+  }
+
+  /**
+   * @return whether all tests of the finished run passed without warnings, the only runs whose status is cached
+   */
+  static boolean isSuccessful( RuntimeTestStatus runtimeTestStatus ) {
+    for ( RuntimeTestModuleResults moduleResults : runtimeTestStatus.getModuleResults() ) {
+      RuntimeTestEntrySeverity maxSeverity = moduleResults.getMaxSeverity();
+      if ( maxSeverity != null && maxSeverity.ordinal() >= RuntimeTestEntrySeverity.WARNING.ordinal() ) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static class CachedStatus {
+    private final RuntimeTestStatus status;
+    private final long expiry;
+
+    private CachedStatus( RuntimeTestStatus status, long expiry ) {
+      this.status = status;
+      this.expiry = expiry;
+    }
+  }
+
+  private class CachingCallback implements RuntimeTestProgressCallback {
+    private final String cacheKey;
+    private final RuntimeTestProgressCallback delegate;
+
+    private CachingCallback( String cacheKey, RuntimeTestProgressCallback delegate ) {
+      this.cacheKey = cacheKey;
+      this.delegate = delegate;
+    }
+
+    @Override public void onProgress( RuntimeTestStatus runtimeTestStatus ) {
+      if ( runtimeTestStatus.isDone() ) {
+        if ( isSuccessful( runtimeTestStatus ) ) {
+          cachedStatuses
+            .put( cacheKey, new CachedStatus( runtimeTestStatus, System.currentTimeMillis() + resultCacheTtlMillis ) );
+        } else {
+          cachedStatuses.remove( cacheKey );
+        }
+      }
+      if ( delegate != null ) {
+        delegate.onProgress( runtimeTestStatus );
+      }
+    }
+
+    @Override public void onTestStateChanged( RuntimeTestResult runtimeTestResult ) {
+      if ( delegate != null ) {
+        delegate.onTestStateChanged( runtimeTestResult );
+      }
+    }
   }
 }
@@ -37,6 +37,7 @@ import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
@@ -152,6 +153,63 @@ public class RuntimeTestRunnerTest {
         unsatisfiableDependencyA ) );
   }
 
+  @Test
+  public void testTimeoutSkipsDependents() {
+    RuntimeTestResultEntryImpl overallEntry =
+      new RuntimeTestResultEntryImpl( RuntimeTestEntrySeverity.INFO, "testDesc", "testMessage" );
+    TestRuntimeTest slowTest =
+      new TestRuntimeTest( "moduleA", "slowTest", "Slow", new HashSet<TestRuntimeTest>(), 10000, overallEntry,
+        new ArrayList<RuntimeTestResultEntry>(), true );
+    TestRuntimeTest dependentTest =
+      new TestRuntimeTest( "moduleA", "dependentTest", "Dependent", new HashSet<>( Arrays.asList( slowTest ) ), 5,
+        overallEntry, new ArrayList<RuntimeTestResultEntry>(), false );
+    final List<RuntimeTestStatus> runtimeTestStatuses = Collections.synchronizedList( new ArrayList<>() );
+
+    long before = System.currentTimeMillis();
+    new RuntimeTestRunner( Arrays.asList( slowTest, dependentTest ), objectUnderTest, runtimeTestStatuses::add,
+      executorService, 2, 200 ).runTests();
+    assertTrue( System.currentTimeMillis() - before < 10000 );
+
+    RuntimeTestStatus last = runtimeTestStatuses.get( runtimeTestStatuses.size() - 1 );
+    assertTrue( last.isDone() );
+    assertEquals( 2, last.getTestsDone() );
+    for ( RuntimeTestResult runtimeTestResult : last.getModuleResults().get( 0 ).getRuntimeTestResults() ) {
+      RuntimeTestEntrySeverity expected = "slowTest".equals( runtimeTestResult.getRuntimeTest().getId() )
+        ? RuntimeTestEntrySeverity.WARNING : RuntimeTestEntrySeverity.SKIPPED;
+      assertEquals( expected, runtimeTestResult.getOverallStatusEntry().getSeverity() );
+    }
+  }
+
+  @Test
+  public void testMaxParallelTests() {
+    final AtomicInteger running = new AtomicInteger();
+    final AtomicInteger maxRunning = new AtomicInteger();
+    List<RuntimeTest> runtimeTests = new ArrayList<>();
+    for ( int i = 0; i < 6; i++ ) {
+      runtimeTests.add( new BaseRuntimeTest( Object.class, "moduleA", "parallelTest" + i, "Parallel " + i,
+        new HashSet<String>() ) {
+        @Override public RuntimeTestResultSummary runTest( Object objectUnderTest ) {
+          maxRunning.accumulateAndGet( running.incrementAndGet(), Math::max );
+          try {
+            Thread.sleep( 20 );
+          } catch ( InterruptedException e ) {
+            // Ignore
+          }
+          running.decrementAndGet();
+          return new RuntimeTestResultSummaryImpl(
+            new RuntimeTestResultEntryImpl( RuntimeTestEntrySeverity.INFO, "testDesc", "testMessage" ) );
+        }
+      } );
+    }
+    final List<RuntimeTestStatus> runtimeTestStatuses = Collections.synchronizedList( new ArrayList<>() );
+    new RuntimeTestRunner( runtimeTests, objectUnderTest, runtimeTestStatuses::add, executorService, 2,
+      RuntimeTestRunner.DEFAULT_TEST_TIMEOUT_MILLIS ).runTests();
+
+    assertTrue( runtimeTestStatuses.get( runtimeTestStatuses.size() - 1 ).isDone() );
+    assertEquals( 6, runtimeTestStatuses.get( runtimeTestStatuses.size() - 1 ).getTestsDone() );
+    assertTrue( maxRunning.get() <= 2 );
+  }
+
   private void testScenario( List<TestRuntimeTest> runtimeTests ) {
     final List<RuntimeTestStatus> runtimeTestStatuses = Collections.synchronizedList( new ArrayList
       <RuntimeTestStatus>() );
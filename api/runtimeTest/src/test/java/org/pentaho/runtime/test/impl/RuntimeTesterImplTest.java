@@ -17,14 +17,23 @@ import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
 import org.pentaho.runtime.test.RuntimeTest;
+import org.pentaho.hadoop.shim.api.cluster.NamedCluster;
 import org.pentaho.runtime.test.RuntimeTestProgressCallback;
+import org.pentaho.runtime.test.RuntimeTestStatus;
+import org.pentaho.runtime.test.module.RuntimeTestModuleResults;
+import org.pentaho.runtime.test.result.RuntimeTestEntrySeverity;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -58,10 +67,78 @@ public class RuntimeTesterImplTest {
     verify( executorService ).submit( runnableArgumentCaptor.capture() );
     RuntimeTestRunner runtimeTestRunner = mock( RuntimeTestRunner.class );
     when(
-      runtimeTestRunnerFactory.create( runtimeTests, objectUnderTest, runtimeTestProgressCallback, executorService ) )
+      runtimeTestRunnerFactory.create( runtimeTests, objectUnderTest, runtimeTestProgressCallback, executorService,
+        RuntimeTestRunner.DEFAULT_MAX_PARALLEL_TESTS, RuntimeTestRunner.DEFAULT_TEST_TIMEOUT_MILLIS ) )
       .thenReturn(
         runtimeTestRunner );
     runnableArgumentCaptor.getValue().run();
     verify( runtimeTestRunner ).runTests();
   }
+
+  @Test
+  public void testCachedResultsForNamedCluster() {
+    NamedCluster namedCluster = mock( NamedCluster.class );
+    when( namedCluster.getName() ).thenReturn( "cluster" );
+    when( namedCluster.getLastModifiedDate() ).thenReturn( 1L );
+    RuntimeTestProgressCallback runtimeTestProgressCallback = mock( RuntimeTestProgressCallback.class );
+    RuntimeTestStatus doneStatus = mock( RuntimeTestStatus.class );
+    when( doneStatus.isDone() ).thenReturn( true );
+
+    runtimeTester.runtimeTest( namedCluster, runtimeTestProgressCallback );
+    ArgumentCaptor<RuntimeTestProgressCallback> callbackArgumentCaptor =
+      ArgumentCaptor.forClass( RuntimeTestProgressCallback.class );
+    ArgumentCaptor<Runnable> runnableArgumentCaptor = ArgumentCaptor.forClass( Runnable.class );
+    verify( executorService ).submit( runnableArgumentCaptor.capture() );
+    RuntimeTestRunner runtimeTestRunner = mock( RuntimeTestRunner.class );
+    when( runtimeTestRunnerFactory.create( eq( runtimeTests ), eq( namedCluster ), callbackArgumentCaptor.capture(),
+      eq( executorService ), anyInt(), anyLong() ) ).thenReturn( runtimeTestRunner );
+    runnableArgumentCaptor.getValue().run();
+    callbackArgumentCaptor.getValue().onProgress( doneStatus );
+    verify( runtimeTestProgressCallback ).onProgress( doneStatus );
+
+    // Second run is answered from the cache without creating a runner
+    runtimeTester.runtimeTest( namedCluster, runtimeTestProgressCallback );
+    verify( executorService, times( 2 ) ).submit( runnableArgumentCaptor.capture() );
+    runnableArgumentCaptor.getValue().run();
+    verify( runtimeTestProgressCallback, times( 2 ) ).onProgress( doneStatus );
+    verify( runtimeTestRunnerFactory, times( 1 ) )
+      .create( eq( runtimeTests ), eq( namedCluster ), any( RuntimeTestProgressCallback.class ), eq( executorService ),
+        anyInt(), anyLong() );
+
+    // A modified cluster is tested again
+    when( namedCluster.getLastModifiedDate() ).thenReturn( 2L );
+    runtimeTester.runtimeTest( namedCluster, runtimeTestProgressCallback );
+    verify( executorService, times( 3 ) ).submit( runnableArgumentCaptor.capture() );
+    runnableArgumentCaptor.getValue().run();
+    verify( runtimeTestRunner, times( 2 ) ).runTests();
+  }
+
+  @Test
+  public void testFailedResultsAreNotCached() {
+    NamedCluster namedCluster = mock( NamedCluster.class );
+    when( namedCluster.getName() ).thenReturn( "cluster" );
+    when( namedCluster.getLastModifiedDate() ).thenReturn( 1L );
+    RuntimeTestModuleResults moduleResults = mock( RuntimeTestModuleResults.class );
+    when( moduleResults.getMaxSeverity() ).thenReturn( RuntimeTestEntrySeverity.WARNING );
+    RuntimeTestStatus failedStatus = mock( RuntimeTestStatus.class );
+    when( failedStatus.isDone() ).thenReturn( true );
+    when( failedStatus.getModuleResults() ).thenReturn( Arrays.asList( moduleResults ) );
+    RuntimeTestRunner runtimeTestRunner = mock( RuntimeTestRunner.class );
+    ArgumentCaptor<RuntimeTestProgressCallback> callbackArgumentCaptor =
+      ArgumentCaptor.forClass( RuntimeTestProgressCallback.class );
+    when( runtimeTestRunnerFactory.create( eq( runtimeTests ), eq( namedCluster ), callbackArgumentCaptor.capture(),
+      eq( executorService ), anyInt(), anyLong() ) ).thenReturn( runtimeTestRunner );
+    ArgumentCaptor<Runnable> runnableArgumentCaptor = ArgumentCaptor.forClass( Runnable.class );
+
+    runtimeTester.runtimeTest( namedCluster, mock( RuntimeTestProgressCallback.class ) );
+    verify( executorService ).submit( runnableArgumentCaptor.capture() );
+    runnableArgumentCaptor.getValue().run();
+    callbackArgumentCaptor.getValue().onProgress( failedStatus );
+
+    // A run with a timed out or failed test is tested again
+    runtimeTester.runtimeTest( namedCluster, mock( RuntimeTestProgressCallback.class ) );
+    verify( executorService, times( 2 ) ).submit( runnableArgumentCaptor.capture() );
+    runnableArgumentCaptor.getValue().run();
+    verify( runtimeTestRunner, times( 2 ) ).runTests();
+  }
 }
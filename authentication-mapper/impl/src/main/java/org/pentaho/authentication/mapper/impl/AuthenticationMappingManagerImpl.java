@@ -15,48 +15,86 @@ package org.pentaho.authentication.mapper.impl;
 import java.io.IOException;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.pentaho.authentication.mapper.api.AuthenticationMappingManager;
 import org.pentaho.authentication.mapper.api.AuthenticationMappingService;
 import org.pentaho.authentication.mapper.api.MappingException;
 
-import com.google.common.collect.Multimaps;
-import com.google.common.collect.SortedSetMultimap;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 
 /**
+ * Looks up mappings without taking any lock: the ranked services are kept in an immutable snapshot that is swapped
+ * atomically when a service is added or removed. Each snapshot carries its own bounded cache of mapping results, so a
+ * change of services also starts over with an empty cache. Only mappings of value inputs such as user names are
+ * cached; an input with an identity of its own, like a subject or a session, is mapped by the services every time, as
+ * two such inputs that happen to be equal must not share what they were mapped to.
+ *
  * @author bryan
  */
 public class AuthenticationMappingManagerImpl implements AuthenticationMappingManager {
+  static final long MAPPING_CACHE_TTL_SECONDS = 60;
+  static final int MAPPING_CACHE_SIZE = 1000;
+  private static final ImmutableSet<Class<?>> VALUE_TYPES = ImmutableSet.of( String.class, Boolean.class,
+    Character.class, Byte.class, Short.class, Integer.class, Long.class, Float.class, Double.class );
 
-  private final SortedSetMultimap<TypePair, RankedAuthService> serviceMap = Multimaps.synchronizedSortedSetMultimap(
-      Multimaps.newSortedSetMultimap( new HashMap<>(), TreeSet::new )
-  );
+  private final Ticker ticker;
+  private final AtomicReference<Snapshot> snapshot;
 
   public AuthenticationMappingManagerImpl() throws IOException {
+    this( Ticker.systemTicker() );
   }
 
   public AuthenticationMappingManagerImpl( AuthenticationMappingService service ) throws IOException {
-    serviceMap.put( new TypePair( service ), new RankedAuthService( 50, service ) );
+    this();
+    addService( 50, service );
+  }
+
+  AuthenticationMappingManagerImpl( Ticker ticker ) {
+    this.ticker = ticker;
+    this.snapshot = new AtomicReference<>( new Snapshot( ImmutableMap.of(), ticker ) );
   }
 
   @Override
   @SuppressWarnings( "unchecked" )
   public <InputType, OutputType> OutputType getMapping( Class<InputType> inputType, InputType input,
                                                         Class<OutputType> outputType ) throws MappingException {
-    AuthenticationMappingService<InputType, OutputType> service;
-    synchronized ( serviceMap ) {
-      service = serviceMap.get( new TypePair( inputType, outputType ) ).stream()
-        .filter( ( rankedService ) -> rankedService.getService().accepts( input ) )
-        .findFirst()
-        .map( RankedAuthService::getService )
-        .orElse( null );
+    Snapshot current = snapshot.get();
+    TypePair typePair = new TypePair( inputType, outputType );
+    MappingKey key = isValue( input ) ? new MappingKey( typePair, input ) : null;
+    Optional<Object> cached = key != null ? current.mappings.getIfPresent( key ) : null;
+    if ( cached != null ) {
+      return (OutputType) cached.orElse( null );
     }
 
-    return service != null ? service.getMapping( input, null ) : null;
+    AuthenticationMappingService<InputType, OutputType> service = null;
+    for ( RankedAuthService rankedService : current.getServices( typePair ) ) {
+      if ( rankedService.getService().accepts( input ) ) {
+        service = rankedService.getService();
+        break;
+      }
+    }
+
+    OutputType mapping = service != null ? service.getMapping( input, null ) : null;
+    if ( key != null ) {
+      current.mappings.put( key, Optional.ofNullable( mapping ) );
+    }
+    return mapping;
+  }
+
+  private static boolean isValue( Object input ) {
+    return input == null || input instanceof Enum || VALUE_TYPES.contains( input.getClass() );
   }
 
   public void onMappingServiceAdded( AuthenticationMappingService service, Map config ) {
@@ -67,7 +105,7 @@ public class AuthenticationMappingManagerImpl implements AuthenticationMappingMa
     int ranking = Optional.ofNullable( config.get( RANKING_CONFIG ) )
         .map( String::valueOf ).map( Integer::parseInt ).orElse( 50 );
 
-    serviceMap.put( new TypePair( service ), new RankedAuthService( ranking, service ) );
+    addService( ranking, service );
   }
 
   public void onMappingServiceRemoved( AuthenticationMappingService service ) {
@@ -75,9 +113,77 @@ public class AuthenticationMappingManagerImpl implements AuthenticationMappingMa
       return;
     }
 
-    synchronized ( serviceMap ) {
-      serviceMap.get( new TypePair( service ) )
-        .removeIf( rankedAuthService -> rankedAuthService.service.equals( service ) );
+    TypePair typePair = new TypePair( service );
+    snapshot.updateAndGet( current -> {
+      TreeSet<RankedAuthService> services = new TreeSet<>( current.getServices( typePair ) );
+      services.removeIf( rankedAuthService -> rankedAuthService.service.equals( service ) );
+      return current.with( typePair, services, ticker );
+    } );
+  }
+
+  private void addService( int ranking, AuthenticationMappingService service ) {
+    TypePair typePair = new TypePair( service );
+    RankedAuthService rankedService = new RankedAuthService( ranking, service );
+    snapshot.updateAndGet( current -> {
+      TreeSet<RankedAuthService> services = new TreeSet<>( current.getServices( typePair ) );
+      services.add( rankedService );
+      return current.with( typePair, services, ticker );
+    } );
+  }
+
+  /**
+   * The services by type pair, highest ranking first, along with the mappings resolved through them.
+   */
+  private static class Snapshot {
+    final ImmutableMap<TypePair, ImmutableList<RankedAuthService>> services;
+    final Cache<MappingKey, Optional<Object>> mappings;
+
+    Snapshot( ImmutableMap<TypePair, ImmutableList<RankedAuthService>> services, Ticker ticker ) {
+      this.services = services;
+      this.mappings = CacheBuilder.newBuilder()
+        .maximumSize( MAPPING_CACHE_SIZE )
+        .expireAfterWrite( MAPPING_CACHE_TTL_SECONDS, TimeUnit.SECONDS )
+        .ticker( ticker )
+        .build();
+    }
+
+    List<RankedAuthService> getServices( TypePair typePair ) {
+      return services.getOrDefault( typePair, ImmutableList.of() );
+    }
+
+    Snapshot with( TypePair typePair, TreeSet<RankedAuthService> ranked, Ticker ticker ) {
+      Map<TypePair, ImmutableList<RankedAuthService>> copy = new HashMap<>( services );
+      if ( ranked.isEmpty() ) {
+        copy.remove( typePair );
+      } else {
+        copy.put( typePair, ImmutableList.copyOf( ranked ) );
+      }
+      return new Snapshot( ImmutableMap.copyOf( copy ), ticker );
+    }
+  }
+
+  private static class MappingKey {
+    final TypePair typePair;
+    final Object input;
+
+    MappingKey( TypePair typePair, Object input ) {
+      this.typePair = typePair;
+      this.input = input;
+    }
+
+    @Override public boolean equals( Object o ) {
+      if ( this == o ) {
+        return true;
+      }
+      if ( !( o instanceof MappingKey ) ) {
+        return false;
+      }
+      MappingKey mappingKey = (MappingKey) o;
+      return typePair.equals( mappingKey.typePair ) && Objects.equals( input, mappingKey.input );
+    }
+
+    @Override public int hashCode() {
+      return Objects.hash( typePair, input );
     }
   }
 
@@ -12,6 +12,8 @@
 
 package org.pentaho.authentication.mapper.impl;
 
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import org.junit.Before;
 import org.junit.Rule;
@@ -28,9 +30,13 @@ import org.pentaho.authentication.mapper.api.MappingException;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.hamcrest.Matchers.allOf;
 import static org.hamcrest.Matchers.hasEntry;
+import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.nullValue;
 import static org.junit.Assert.assertThat;
 
@@ -86,6 +92,109 @@ public class AuthenticationMappingManagerImplTest {
     assertThat( manager.getMapping( String.class, "some value", List.class ), nullValue() );
   }
 
+  @Test
+  public void mappingsAreCached() throws Exception {
+    FakeTicker ticker = new FakeTicker();
+    manager = new AuthenticationMappingManagerImpl( ticker );
+    CountingService service = new CountingService( "counting" );
+    manager.onMappingServiceAdded( service, ImmutableMap.of() );
+
+    manager.getMapping( String.class, "input", Map.class );
+    manager.getMapping( String.class, "input", Map.class );
+    assertThat( service.calls.get(), is( 1 ) );
+
+    manager.getMapping( String.class, "other input", Map.class );
+    assertThat( service.calls.get(), is( 2 ) );
+
+    // expired
+    ticker.advance( AuthenticationMappingManagerImpl.MAPPING_CACHE_TTL_SECONDS + 1, TimeUnit.SECONDS );
+    manager.getMapping( String.class, "input", Map.class );
+    assertThat( service.calls.get(), is( 3 ) );
+
+    // a change of services starts over with an empty cache
+    CountingService preferred = new CountingService( "preferred" );
+    manager.onMappingServiceAdded( preferred, ImmutableMap.of( AuthenticationMappingManager.RANKING_CONFIG, 100 ) );
+    Map<String, ?> result = manager.getMapping( String.class, "input", Map.class );
+    assertThat( result, hasEntry( "id", "preferred" ) );
+    assertThat( preferred.calls.get(), is( 1 ) );
+  }
+
+  @Test
+  public void noMappingIsCached() throws Exception {
+    CountingService service = new CountingService( "declining" ) {
+      @Override public boolean accepts( Object input ) {
+        calls.incrementAndGet();
+        return false;
+      }
+    };
+    manager.onMappingServiceAdded( service, ImmutableMap.of() );
+
+    assertThat( manager.getMapping( String.class, "input", Map.class ), nullValue() );
+    assertThat( manager.getMapping( String.class, "input", Map.class ), nullValue() );
+    assertThat( service.calls.get(), is( 1 ) );
+  }
+
+  @Test
+  public void mappingsOfObjectInputsAreNotCached() throws Exception {
+    AtomicInteger calls = new AtomicInteger();
+    manager.onMappingServiceAdded( new AuthenticationMappingService<Object, Map>() {
+      @Override public String getId() {
+        return "objects";
+      }
+
+      @Override public Class<Object> getInputType() {
+        return Object.class;
+      }
+
+      @Override public Class<Map> getOutputType() {
+        return Map.class;
+      }
+
+      @Override public boolean accepts( Object input ) {
+        return true;
+      }
+
+      @Override public Map getMapping( Object input, Map<String, ?> config ) {
+        calls.incrementAndGet();
+        return ImmutableMap.of( "input", input );
+      }
+    }, ImmutableMap.of() );
+
+    // equal, but not the same input
+    manager.getMapping( Object.class, ImmutableList.of( "user" ), Map.class );
+    manager.getMapping( Object.class, ImmutableList.of( "user" ), Map.class );
+    assertThat( calls.get(), is( 2 ) );
+
+    manager.getMapping( Object.class, "user", Map.class );
+    manager.getMapping( Object.class, "user", Map.class );
+    assertThat( calls.get(), is( 3 ) );
+  }
+
+  static class FakeTicker extends Ticker {
+    private final AtomicLong nanos = new AtomicLong();
+
+    void advance( long time, TimeUnit unit ) {
+      nanos.addAndGet( unit.toNanos( time ) );
+    }
+
+    @Override public long read() {
+      return nanos.get();
+    }
+  }
+
+  class CountingService extends TestService {
+    final AtomicInteger calls = new AtomicInteger();
+
+    CountingService( String id ) {
+      super( id );
+    }
+
+    @Override public Map getMapping( String input, Map<String, ?> config ) throws MappingException {
+      calls.incrementAndGet();
+      return super.getMapping( input, config );
+    }
+  }
+
   class TestService implements AuthenticationMappingService<String, Map> {
 
     final String id;
@@ -24,6 +24,7 @@ import org.pentaho.hadoop.shim.api.cluster.NamedClusterServiceLocator;
 import org.pentaho.hadoop.shim.api.cluster.ClusterInitializationException;
 import org.pentaho.big.data.impl.cluster.tests.ClusterRuntimeTestEntry;
 import org.pentaho.big.data.impl.cluster.tests.Constants;
+import org.pentaho.big.data.impl.shim.jaas.KerberosJaasConfigService;
 import org.pentaho.hadoop.shim.api.jaas.JaasConfigService;
 import org.pentaho.di.core.variables.Variables;
 import org.pentaho.runtime.test.i18n.MessageGetter;
@@ -34,6 +35,8 @@ import org.pentaho.runtime.test.result.org.pentaho.runtime.test.result.impl.Runt
 import org.pentaho.runtime.test.test.impl.BaseRuntimeTest;
 import org.pentaho.runtime.test.test.impl.RuntimeTestResultEntryImpl;
 
+import javax.security.auth.Subject;
+import javax.security.auth.login.LoginException;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
@@ -97,6 +100,9 @@ public class KafkaConnectTest extends BaseRuntimeTest {
         if ( jaasConfigService.isKerberos() ) {
           configs.put( SaslConfigs.SASL_JAAS_CONFIG, jaasConfigService.getJaasConfig() );
           configs.put( CommonClientConfigs.SECURITY_PROTOCOL_CONFIG, "SASL_PLAINTEXT" );
+          if ( jaasConfigService instanceof KerberosJaasConfigService ) {
+            useSharedLogin( configs, (KerberosJaasConfigService) jaasConfigService );
+          }
         }
       }
     } catch ( ClusterInitializationException e ) {
@@ -120,5 +126,20 @@ public class KafkaConnectTest extends BaseRuntimeTest {
         ClusterRuntimeTestEntry.DocAnchor.KAFKA ) );
     }
   }
-}
 
+  /**
+   * Has the consumer use the Kerberos login shared by all the services rather than log in on its own. When that login
+   * fails the consumer is left to log in from the JAAS config, which reports the problem.
+   */
+  private void useSharedLogin( Map<String, Object> configs, KerberosJaasConfigService jaasConfigService ) {
+    try {
+      Subject subject = jaasConfigService.getKerberosSubject();
+      if ( subject != null ) {
+        configs.put( SaslConfigs.SASL_LOGIN_CLASS, SharedSubjectLogin.class );
+        configs.put( SharedSubjectLogin.SUBJECT_CONFIG, subject );
+      }
+    } catch ( LoginException e ) {
+      // let the consumer try on its own
+    }
+  }
+}
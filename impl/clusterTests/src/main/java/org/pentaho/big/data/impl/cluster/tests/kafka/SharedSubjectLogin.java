@@ -0,0 +1,85 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.big.data.impl.cluster.tests.kafka;
+
+import org.apache.kafka.common.config.SaslConfigs;
+import org.apache.kafka.common.security.auth.AuthenticateCallbackHandler;
+import org.apache.kafka.common.security.auth.Login;
+import org.pentaho.big.data.impl.shim.jaas.KerberosJaasConfigService;
+
+import javax.security.auth.Subject;
+import javax.security.auth.login.AppConfigurationEntry;
+import javax.security.auth.login.Configuration;
+import javax.security.auth.login.LoginContext;
+import javax.security.auth.login.LoginException;
+import java.util.Map;
+
+/**
+ * Kafka login that hands Kafka the subject of the shared Kerberos login, see
+ * {@link KerberosJaasConfigService#getKerberosSubject()}, instead of logging in to the KDC for every client. The
+ * subject is passed in the client configs under {@link #SUBJECT_CONFIG}; its tickets are renewed by the login cache,
+ * not by Kafka.
+ */
+public class SharedSubjectLogin implements Login {
+  public static final String SUBJECT_CONFIG = "pentaho.kerberos.subject";
+  private static final String SERVICE_NAME_OPTION = "serviceName";
+
+  private Subject subject;
+  private String contextName;
+  private Configuration jaasConfiguration;
+  private String serviceName;
+
+  @Override
+  public void configure( Map<String, ?> configs, String contextName, Configuration jaasConfiguration,
+                         AuthenticateCallbackHandler loginCallbackHandler ) {
+    this.subject = (Subject) configs.get( SUBJECT_CONFIG );
+    this.contextName = contextName;
+    this.jaasConfiguration = jaasConfiguration;
+    Object configuredServiceName = configs.get( SaslConfigs.SASL_KERBEROS_SERVICE_NAME );
+    serviceName = configuredServiceName == null ? null : configuredServiceName.toString();
+    AppConfigurationEntry[] entries = jaasConfiguration.getAppConfigurationEntry( contextName );
+    if ( serviceName == null && entries != null ) {
+      for ( AppConfigurationEntry entry : entries ) {
+        Object option = entry.getOptions().get( SERVICE_NAME_OPTION );
+        if ( option != null ) {
+          serviceName = option.toString();
+        }
+      }
+    }
+  }
+
+  @Override
+  public LoginContext login() throws LoginException {
+    if ( subject == null ) {
+      throw new LoginException( "No Kerberos subject given in " + SUBJECT_CONFIG );
+    }
+    // the subject is logged in already, the context only carries it
+    return new LoginContext( contextName, subject, null, jaasConfiguration );
+  }
+
+  @Override
+  public Subject subject() {
+    return subject;
+  }
+
+  @Override
+  public String serviceName() {
+    return serviceName;
+  }
+
+  @Override
+  public void close() {
+    // the login cache owns the subject
+  }
+}
@@ -23,16 +23,19 @@ import org.mockito.runners.MockitoJUnitRunner;
 import org.pentaho.hadoop.shim.api.cluster.NamedCluster;
 import org.pentaho.hadoop.shim.api.cluster.NamedClusterServiceLocator;
 import org.pentaho.big.data.impl.cluster.tests.ClusterRuntimeTestEntry;
+import org.pentaho.big.data.impl.shim.jaas.KerberosJaasConfigService;
 import org.pentaho.hadoop.shim.api.jaas.JaasConfigService;
 import org.pentaho.runtime.test.i18n.MessageGetter;
 import org.pentaho.runtime.test.i18n.MessageGetterFactory;
 import org.pentaho.runtime.test.result.RuntimeTestEntrySeverity;
 import org.pentaho.runtime.test.result.RuntimeTestResultSummary;
 
+import javax.security.auth.Subject;
 import java.util.Collections;
 import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.never;
@@ -47,6 +50,7 @@ public class KafkaConnectTestTest {
   @Mock MessageGetter messageGetter;
   @Mock MessageGetterFactory messageGetterFactory;
   @Mock JaasConfigService jaasConfigService;
+  @Mock KerberosJaasConfigService kerberosJaasConfigService;
 
   @Before
   public void setUp() throws Exception {
@@ -82,6 +86,26 @@ public class KafkaConnectTestTest {
     assertEquals( "success message", summary.getOverallStatusEntry().getMessage() );
   }
 
+  @Test
+  public void testKerberosUsesTheSharedLogin() throws Exception {
+    final Subject subject = new Subject();
+    when( consumer.listTopics() ).thenReturn( Collections.emptyMap() );
+    when( namedCluster.getKafkaBootstrapServers() ).thenReturn( "kafkaHost:9092" );
+    when( messageGetter.getMessage( anyString() ) ).thenReturn( "success message" );
+    when( namedClusterServiceLocator.getService( namedCluster, JaasConfigService.class ) )
+      .thenReturn( kerberosJaasConfigService );
+    when( kerberosJaasConfigService.isKerberos() ).thenReturn( true );
+    when( kerberosJaasConfigService.getJaasConfig() ).thenReturn( "pretend-jaas-config" );
+    when( kerberosJaasConfigService.getKerberosSubject() ).thenReturn( subject );
+    KafkaConnectTest kafkaConnectTest = new KafkaConnectTest( messageGetterFactory, ( map ) -> {
+      assertEquals( SharedSubjectLogin.class, map.get( SaslConfigs.SASL_LOGIN_CLASS ) );
+      assertSame( subject, map.get( SharedSubjectLogin.SUBJECT_CONFIG ) );
+      return assertConsumer( map );
+    }, namedClusterServiceLocator );
+    RuntimeTestResultSummary summary = kafkaConnectTest.runTest( namedCluster );
+    assertEquals( RuntimeTestEntrySeverity.INFO, summary.getOverallStatusEntry().getSeverity() );
+  }
+
   @Test
   public void testError() throws Exception {
     when( consumer.listTopics() ).thenThrow( new KafkaException( "oops" ) );
@@ -12,18 +12,23 @@
 
 package org.pentaho.big.data.impl.shim.jaas;
 
-import org.pentaho.hadoop.shim.api.jaas.JaasConfigService;
-
+import javax.security.auth.Subject;
+import javax.security.auth.login.LoginException;
 import java.util.Properties;
 
-public class JaasConfigServiceImpl implements JaasConfigService {
+public class JaasConfigServiceImpl implements KerberosJaasConfigService {
   public static final String KERBEROS_PRINCIPAL = "pentaho.authentication.default.kerberos.principal";
   public static final String KERBEROS_KEYTAB = "pentaho.authentication.default.kerberos.keytabLocation";
   private Properties configProperties;
+  private final KerberosLoginCache loginCache;
 
   public JaasConfigServiceImpl( Properties configProperties ) {
+    this( configProperties, null );
+  }
 
+  JaasConfigServiceImpl( Properties configProperties, KerberosLoginCache loginCache ) {
     this.configProperties = configProperties;
+    this.loginCache = loginCache;
   }
 
   @Override public String getJaasConfig() {
@@ -40,4 +45,13 @@ public class JaasConfigServiceImpl implements JaasConfigService {
     Object keytab = configProperties.get( KERBEROS_KEYTAB );
     return principal != null && keytab != null && !"".equals( principal ) && !"".equals( keytab );
   }
+
+  @Override public Subject getKerberosSubject() throws LoginException {
+    if ( !isKerberos() ) {
+      return null;
+    }
+    KerberosLoginCache cache = loginCache != null ? loginCache : KerberosLoginCache.getInstance();
+    return cache.getSubject( configProperties.getProperty( KERBEROS_PRINCIPAL ),
+      configProperties.getProperty( KERBEROS_KEYTAB ) );
+  }
 }
@@ -0,0 +1,31 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.big.data.impl.shim.jaas;
+
+import org.pentaho.hadoop.shim.api.jaas.JaasConfigService;
+
+import javax.security.auth.Subject;
+import javax.security.auth.login.LoginException;
+
+/**
+ * A {@link JaasConfigService} that also hands out the logged in subject of its principal, taken from the
+ * {@link KerberosLoginCache} shared by all the services. Consumers that can act as a given subject use it instead of
+ * logging in from the JAAS config on their own.
+ */
+public interface KerberosJaasConfigService extends JaasConfigService {
+  /**
+   * @return the logged in subject, or null when Kerberos is not configured
+   * @throws LoginException when the principal can't log in
+   */
+  Subject getKerberosSubject() throws LoginException;
+}
@@ -0,0 +1,252 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.big.data.impl.shim.jaas;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.security.auth.Subject;
+import javax.security.auth.kerberos.KerberosTicket;
+import javax.security.auth.login.AppConfigurationEntry;
+import javax.security.auth.login.Configuration;
+import javax.security.auth.login.LoginContext;
+import javax.security.auth.login.LoginException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Keeps one Kerberos login per principal and keytab for the whole JVM, so the services of all the steps and job
+ * entries share a single {@link Subject} rather than each logging in to the KDC on its own.
+ * <p>
+ * The ticket granting ticket is renewed from a background thread once most of its lifetime has passed, by logging in
+ * again and moving the new credentials into the shared subject. Should a ticket still get close to its expiry, the
+ * first thread to notice logs in again while the others wait for it, so the KDC only sees one request.
+ */
+public class KerberosLoginCache {
+  /**
+   * The background renewal happens once this fraction of the ticket lifetime has passed
+   */
+  static final double RENEW_FRACTION = 0.8;
+  /**
+   * Past this fraction of the ticket lifetime callers log in again themselves rather than use the ticket
+   */
+  static final double REFRESH_FRACTION = 0.9;
+  /**
+   * Lifetime assumed when the login doesn't produce a ticket granting ticket with an end time
+   */
+  static final long DEFAULT_LIFETIME_MS = TimeUnit.HOURS.toMillis( 1 );
+  /**
+   * Delay before a failed background renewal is tried again
+   */
+  static final long RETRY_DELAY_MS = TimeUnit.MINUTES.toMillis( 1 );
+
+  private static final String KRB5_LOGIN_MODULE = "com.sun.security.auth.module.Krb5LoginModule";
+  private static final String TGT_PREFIX = "krbtgt/";
+  private static final Logger logger = LoggerFactory.getLogger( KerberosLoginCache.class );
+  private static KerberosLoginCache instance;
+
+  private final ConcurrentMap<Key, Login> logins = new ConcurrentHashMap<>();
+  private final ScheduledExecutorService renewer;
+  private final KeytabLogin keytabLogin;
+  private final LongSupplier clock;
+
+  /**
+   * Logs a principal in from a keytab.
+   */
+  public interface KeytabLogin {
+    Subject login( String principal, String keytab ) throws LoginException;
+  }
+
+  public KerberosLoginCache( ScheduledExecutorService renewer, KeytabLogin keytabLogin, LongSupplier clock ) {
+    this.renewer = renewer;
+    this.keytabLogin = keytabLogin;
+    this.clock = clock;
+  }
+
+  public static synchronized KerberosLoginCache getInstance() {
+    if ( instance == null ) {
+      instance = new KerberosLoginCache( Executors.newSingleThreadScheduledExecutor( runnable -> {
+        Thread thread = new Thread( runnable, "kerberos-login-renewer" );
+        thread.setDaemon( true );
+        return thread;
+      } ), KerberosLoginCache::loginFromKeytab, System::currentTimeMillis );
+    }
+    return instance;
+  }
+
+  /**
+   * Returns the logged in subject of a principal, logging in first if needed. The same subject is returned for as
+   * long as the login is cached, its credentials are replaced in place on renewal.
+   *
+   * @param principal the Kerberos principal
+   * @param keytab    the location of the keytab of the principal
+   * @return the subject holding the tickets of the principal
+   * @throws LoginException when the principal can't log in
+   */
+  public Subject getSubject( String principal, String keytab ) throws LoginException {
+    return logins.computeIfAbsent( new Key( principal, keytab ), Login::new ).getSubject();
+  }
+
+  /**
+   * Forgets the login of a principal, the next request logs in again.
+   */
+  public void invalidate( String principal, String keytab ) {
+    Login login = logins.remove( new Key( principal, keytab ) );
+    if ( login != null ) {
+      login.cancelRenewal();
+    }
+  }
+
+  static Subject loginFromKeytab( String principal, String keytab ) throws LoginException {
+    Map<String, String> options = new HashMap<>();
+    options.put( "useKeyTab", "true" );
+    options.put( "keyTab", keytab );
+    options.put( "principal", principal );
+    options.put( "storeKey", "true" );
+    options.put( "doNotPrompt", "true" );
+    options.put( "refreshKrb5Config", "true" );
+    final AppConfigurationEntry[] entries = new AppConfigurationEntry[] {
+      new AppConfigurationEntry( KRB5_LOGIN_MODULE, AppConfigurationEntry.LoginModuleControlFlag.REQUIRED, options )
+    };
+    Subject subject = new Subject();
+    LoginContext loginContext = new LoginContext( KerberosLoginCache.class.getName(), subject, null,
+      new Configuration() {
+        @Override public AppConfigurationEntry[] getAppConfigurationEntry( String name ) {
+          return entries;
+        }
+      } );
+    loginContext.login();
+    return subject;
+  }
+
+  /**
+   * @return the end time of the ticket granting ticket of the subject, or -1 if it has none
+   */
+  static long getTgtEndTime( Subject subject ) {
+    long endTime = -1;
+    for ( KerberosTicket ticket : subject.getPrivateCredentials( KerberosTicket.class ) ) {
+      if ( ticket.getServer() != null && ticket.getServer().getName().startsWith( TGT_PREFIX )
+        && ticket.getEndTime() != null ) {
+        endTime = Math.max( endTime, ticket.getEndTime().getTime() );
+      }
+    }
+    return endTime;
+  }
+
+  private class Login {
+    private final Key key;
+    private final Subject subject = new Subject();
+    private volatile boolean loggedIn;
+    private volatile long refreshAt;
+    private ScheduledFuture<?> renewal;
+
+    Login( Key key ) {
+      this.key = key;
+    }
+
+    Subject getSubject() throws LoginException {
+      if ( loggedIn && clock.getAsLong() < refreshAt ) {
+        return subject;
+      }
+      synchronized ( this ) {
+        // whoever held the lock before may have logged in already
+        if ( !loggedIn || clock.getAsLong() >= refreshAt ) {
+          login();
+        }
+      }
+      return subject;
+    }
+
+    private synchronized void login() throws LoginException {
+      Subject fresh = keytabLogin.login( key.principal, key.keytab );
+      long now = clock.getAsLong();
+      long endTime = getTgtEndTime( fresh );
+      long lifetime = endTime > now ? endTime - now : DEFAULT_LIFETIME_MS;
+
+      // move the new credentials into the subject the services already hold on to
+      Set<Object> credentials = subject.getPrivateCredentials();
+      synchronized ( credentials ) {
+        List<Object> stale = new ArrayList<>( credentials );
+        stale.removeAll( fresh.getPrivateCredentials() );
+        credentials.addAll( fresh.getPrivateCredentials() );
+        credentials.removeAll( stale );
+      }
+      subject.getPrincipals().addAll( fresh.getPrincipals() );
+      subject.getPublicCredentials().addAll( fresh.getPublicCredentials() );
+
+      refreshAt = now + (long) ( lifetime * REFRESH_FRACTION );
+      loggedIn = true;
+      scheduleRenewal( (long) ( lifetime * RENEW_FRACTION ) );
+    }
+
+    private synchronized void scheduleRenewal( long delayMs ) {
+      cancelRenewal();
+      renewal = renewer.schedule( this::renew, delayMs, TimeUnit.MILLISECONDS );
+    }
+
+    synchronized void cancelRenewal() {
+      if ( renewal != null ) {
+        renewal.cancel( false );
+        renewal = null;
+      }
+    }
+
+    private void renew() {
+      if ( logins.get( key ) != this ) {
+        return;
+      }
+      try {
+        login();
+      } catch ( LoginException | RuntimeException e ) {
+        logger.warn( "Unable to renew the Kerberos login of " + key.principal, e );
+        scheduleRenewal( RETRY_DELAY_MS );
+      }
+    }
+  }
+
+  private static class Key {
+    final String principal;
+    final String keytab;
+
+    Key( String principal, String keytab ) {
+      this.principal = Objects.requireNonNull( principal );
+      this.keytab = Objects.requireNonNull( keytab );
+    }
+
+    @Override public boolean equals( Object o ) {
+      if ( this == o ) {
+        return true;
+      }
+      if ( !( o instanceof Key ) ) {
+        return false;
+      }
+      Key other = (Key) o;
+      return principal.equals( other.principal ) && keytab.equals( other.keytab );
+    }
+
+    @Override public int hashCode() {
+      return Objects.hash( principal, keytab );
+    }
+  }
+}
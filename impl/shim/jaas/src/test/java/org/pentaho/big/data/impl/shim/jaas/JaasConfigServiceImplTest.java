@@ -14,7 +14,11 @@ package org.pentaho.big.data.impl.shim.jaas;
 
 import org.junit.Test;
 
+import javax.security.auth.Subject;
 import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.*;
 
@@ -51,4 +55,31 @@ public class JaasConfigServiceImplTest {
         + "principal=\"user@domain.com\";",
       service.getJaasConfig() );
   }
+
+  @Test
+  public void testKerberosSubjectComesFromTheLoginCache() throws Exception {
+    Properties configProperties = new Properties();
+    configProperties.setProperty( JaasConfigServiceImpl.KERBEROS_PRINCIPAL, "user@domain.com" );
+    configProperties.setProperty( JaasConfigServiceImpl.KERBEROS_KEYTAB, "/user/path/file.keytab" );
+    AtomicInteger logins = new AtomicInteger();
+    ScheduledExecutorService renewer = Executors.newSingleThreadScheduledExecutor();
+    try {
+      KerberosLoginCache cache = new KerberosLoginCache( renewer, ( principal, keytab ) -> {
+        logins.incrementAndGet();
+        return new Subject();
+      }, System::currentTimeMillis );
+
+      Subject subject = new JaasConfigServiceImpl( configProperties, cache ).getKerberosSubject();
+      // another service of the same principal doesn't log in again
+      assertSame( subject, new JaasConfigServiceImpl( configProperties, cache ).getKerberosSubject() );
+      assertEquals( 1, logins.get() );
+    } finally {
+      renewer.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testNoKerberosSubjectWithoutKerberos() throws Exception {
+    assertNull( new JaasConfigServiceImpl( new Properties() ).getKerberosSubject() );
+  }
 }
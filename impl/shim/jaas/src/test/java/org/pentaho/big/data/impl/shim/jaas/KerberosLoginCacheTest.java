@@ -0,0 +1,147 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.big.data.impl.shim.jaas;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.security.auth.Subject;
+import javax.security.auth.kerberos.KerberosPrincipal;
+import javax.security.auth.kerberos.KerberosTicket;
+import javax.security.auth.login.LoginException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class KerberosLoginCacheTest {
+  private static final String PRINCIPAL = "user@EXAMPLE.COM";
+  private static final String KEYTAB = "/path/user.keytab";
+
+  private ScheduledExecutorService renewer;
+  private AtomicInteger logins;
+  private AtomicLong now;
+  private long lifetime;
+
+  @Before
+  public void setup() {
+    renewer = Executors.newSingleThreadScheduledExecutor();
+    logins = new AtomicInteger();
+    now = new AtomicLong( System.currentTimeMillis() );
+    lifetime = TimeUnit.HOURS.toMillis( 10 );
+  }
+
+  @After
+  public void teardown() {
+    renewer.shutdownNow();
+  }
+
+  private Subject login( String principal, String keytab ) throws LoginException {
+    logins.incrementAndGet();
+    Subject subject = new Subject();
+    long start = now.get();
+    subject.getPrivateCredentials().add( new KerberosTicket( new byte[] { 1 }, new KerberosPrincipal( principal ),
+      new KerberosPrincipal( "krbtgt/EXAMPLE.COM@EXAMPLE.COM" ), new byte[] { 2 }, 1, new boolean[ 32 ],
+      new Date( start ), new Date( start ), new Date( start + lifetime ), null, null ) );
+    return subject;
+  }
+
+  @Test
+  public void testLoginIsShared() throws Exception {
+    KerberosLoginCache cache = new KerberosLoginCache( renewer, this::login, now::get );
+
+    Subject subject = cache.getSubject( PRINCIPAL, KEYTAB );
+    assertSame( subject, cache.getSubject( PRINCIPAL, KEYTAB ) );
+    assertEquals( 1, logins.get() );
+    assertEquals( now.get() + lifetime, KerberosLoginCache.getTgtEndTime( subject ) );
+
+    cache.getSubject( "other@EXAMPLE.COM", KEYTAB );
+    assertEquals( 2, logins.get() );
+  }
+
+  @Test
+  public void testSecondLoginWithinTheTicketLifetimeDoesNotContactTheKdc() throws Exception {
+    KerberosLoginCache cache = new KerberosLoginCache( renewer, this::login, now::get );
+    Subject subject = cache.getSubject( PRINCIPAL, KEYTAB );
+
+    now.addAndGet( lifetime / 2 );
+    assertSame( subject, cache.getSubject( PRINCIPAL, KEYTAB ) );
+    assertEquals( 1, logins.get() );
+  }
+
+  @Test
+  public void testExpiredTicketIsRefreshedOnce() throws Exception {
+    final KerberosLoginCache cache = new KerberosLoginCache( renewer, ( principal, keytab ) -> {
+      try {
+        // give the other threads the time to pile up
+        Thread.sleep( 50 );
+      } catch ( InterruptedException e ) {
+        Thread.currentThread().interrupt();
+      }
+      return login( principal, keytab );
+    }, now::get );
+    final Subject subject = cache.getSubject( PRINCIPAL, KEYTAB );
+
+    now.addAndGet( lifetime );
+    ExecutorService callers = Executors.newFixedThreadPool( 10 );
+    final CountDownLatch start = new CountDownLatch( 1 );
+    List<Future<Subject>> results = new ArrayList<>();
+    for ( int i = 0; i < 10; i++ ) {
+      results.add( callers.submit( new Callable<Subject>() {
+        @Override public Subject call() throws Exception {
+          start.await();
+          return cache.getSubject( PRINCIPAL, KEYTAB );
+        }
+      } ) );
+    }
+    start.countDown();
+    for ( Future<Subject> result : results ) {
+      assertSame( subject, result.get( 5, TimeUnit.SECONDS ) );
+    }
+    callers.shutdown();
+
+    assertEquals( 2, logins.get() );
+    // the old ticket made way for the new one
+    assertEquals( 1, subject.getPrivateCredentials( KerberosTicket.class ).size() );
+    assertEquals( now.get() + lifetime, KerberosLoginCache.getTgtEndTime( subject ) );
+  }
+
+  @Test
+  public void testTicketIsRenewedInTheBackground() throws Exception {
+    lifetime = 200;
+    KerberosLoginCache cache = new KerberosLoginCache( renewer, this::login, System::currentTimeMillis );
+    Subject subject = cache.getSubject( PRINCIPAL, KEYTAB );
+
+    long deadline = System.currentTimeMillis() + 5000;
+    while ( logins.get() < 2 && System.currentTimeMillis() < deadline ) {
+      Thread.sleep( 10 );
+    }
+    assertTrue( logins.get() >= 2 );
+    assertSame( subject, cache.getSubject( PRINCIPAL, KEYTAB ) );
+
+    cache.invalidate( PRINCIPAL, KEYTAB );
+  }
+}
@@ -0,0 +1,433 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.big.data.kettle.plugins.formats.impl.hive.bulkload;
+
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.FileSystemException;
+import org.pentaho.big.data.kettle.plugins.formats.impl.hive.bulkload.HiveBulkLoadMeta.FileFormat;
+import org.pentaho.big.data.kettle.plugins.formats.impl.hive.bulkload.HiveBulkLoadMeta.LoadMethod;
+import org.pentaho.big.data.kettle.plugins.formats.impl.output.PvfsFileAliaser;
+import org.pentaho.big.data.kettle.plugins.formats.orc.OrcTypeConverter;
+import org.pentaho.big.data.kettle.plugins.formats.orc.output.OrcOutputField;
+import org.pentaho.big.data.kettle.plugins.formats.parquet.ParquetTypeConverter;
+import org.pentaho.big.data.kettle.plugins.formats.parquet.output.ParquetOutputField;
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.RowMetaAndData;
+import org.pentaho.di.core.database.Database;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.exception.KettleFileException;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.vfs.AliasedFileObject;
+import org.pentaho.di.core.vfs.KettleVFS;
+import org.pentaho.di.i18n.BaseMessages;
+import org.pentaho.di.trans.Trans;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.step.BaseStep;
+import org.pentaho.di.trans.step.StepDataInterface;
+import org.pentaho.di.trans.step.StepInterface;
+import org.pentaho.di.trans.step.StepMeta;
+import org.pentaho.di.trans.step.StepMetaInterface;
+import org.pentaho.hadoop.shim.api.cluster.ClusterInitializationException;
+import org.pentaho.hadoop.shim.api.format.FormatService;
+import org.pentaho.hadoop.shim.api.format.IPentahoOrcOutputFormat;
+import org.pentaho.hadoop.shim.api.format.IPentahoParquetOutputFormat;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stages the incoming rows as a single ORC or Parquet file per step copy, through the output formats of the cluster
+ * holding the staging directory. The copies of the step share one staging directory, which the first copy loads into
+ * the table with a single statement once every copy is done. The rows are passed on unchanged.
+ */
+public class HiveBulkLoad extends BaseStep implements StepInterface {
+  private static final Class<?> PKG = HiveBulkLoadMeta.class;
+  private static final String STAGING_TABLE_PREFIX = "pdi_bulkload_";
+  private static final String STAGING_RUN_KEY = "HiveBulkLoad.stagingRun.";
+  private static final Object STAGING_RUNS_LOCK = new Object();
+
+  /**
+   * The staging directory shared by the copies of the step in a transformation
+   */
+  static class StagingRun {
+    final String directory;
+    /** counted down by every copy once its file is closed, or it stopped */
+    final CountDownLatch staged;
+    /** the copies that haven't been disposed yet, the last one removes the directory */
+    final AtomicInteger active;
+    final AtomicLong rows = new AtomicLong();
+    volatile RowMetaInterface rowMeta;
+    volatile boolean failed;
+
+    StagingRun( String directory, int copies ) {
+      this.directory = directory;
+      this.staged = new CountDownLatch( copies );
+      this.active = new AtomicInteger( copies );
+    }
+  }
+
+  private HiveBulkLoadMeta meta;
+
+  private HiveBulkLoadData data;
+
+  private StagingRun run;
+
+  private boolean staged;
+
+  public HiveBulkLoad( StepMeta stepMeta, StepDataInterface stepDataInterface, int copyNr, TransMeta transMeta,
+                       Trans trans ) {
+    super( stepMeta, stepDataInterface, copyNr, transMeta, trans );
+  }
+
+  @Override
+  public boolean processRow( StepMetaInterface smi, StepDataInterface sdi ) throws KettleException {
+    meta = (HiveBulkLoadMeta) smi;
+    data = (HiveBulkLoadData) sdi;
+
+    Object[] row = getRow();
+    if ( row == null ) {
+      if ( data.writer != null ) {
+        closeStagingFile();
+        run.rows.addAndGet( data.stagedRows );
+      }
+      markStaged();
+      if ( getCopy() == 0 ) {
+        loadStagingRun();
+      }
+      setOutputDone();
+      return false;
+    }
+
+    if ( first ) {
+      first = false;
+      openStagingFile();
+    }
+
+    try {
+      data.writer.write( new RowMetaAndData( data.stagedRowMeta, row ) );
+    } catch ( Exception e ) {
+      throw new KettleException( e );
+    }
+    data.stagedRows++;
+    putRow( getInputRowMeta(), row );
+    return true;
+  }
+
+  void openStagingFile() throws KettleException {
+    data.namedCluster = meta.getNamedClusterResolver().resolveNamedCluster( data.stagingDirectory );
+    FormatService formatService;
+    try {
+      formatService = meta.getNamedClusterResolver().getNamedClusterServiceLocator()
+        .getService( data.namedCluster, FormatService.class );
+    } catch ( ClusterInitializationException e ) {
+      throw new KettleException( "can't get service format shim ", e );
+    }
+
+    data.stagedRowMeta = getInputRowMeta().clone();
+    run.rowMeta = data.stagedRowMeta;
+    FileFormat format = meta.getFileFormat();
+    // every copy stages a file of its own in the shared directory
+    String stagingFile = data.stagingDirectory + "/part-" + String.format( "%05d", getCopy() ) + "."
+      + format.name().toLowerCase();
+    logBasic( BaseMessages.getString( PKG, "HiveBulkLoad.Log.Staging", stagingFile ) );
+
+    try {
+      if ( format == FileFormat.PARQUET ) {
+        IPentahoParquetOutputFormat output =
+          formatService.createOutputFormat( IPentahoParquetOutputFormat.class, data.namedCluster );
+        data.pvfsFileAliaser = new PvfsFileAliaser( getTransMeta().getBowl(), stagingFile, getTransMeta(), output,
+          true, getLogChannel() );
+        output.setOutputFile( data.pvfsFileAliaser.generateAlias(), true );
+        output.setFields( getParquetFields( data.stagedRowMeta ) );
+        data.writer = output.createRecordWriter();
+      } else {
+        IPentahoOrcOutputFormat output =
+          formatService.createOutputFormat( IPentahoOrcOutputFormat.class, data.namedCluster );
+        data.pvfsFileAliaser = new PvfsFileAliaser( getTransMeta().getBowl(), stagingFile, getTransMeta(), output,
+          true, getLogChannel() );
+        output.setOutputFile( data.pvfsFileAliaser.generateAlias(), true );
+        output.setFields( getOrcFields( data.stagedRowMeta ) );
+        data.writer = output.createRecordWriter();
+      }
+    } catch ( KettleException e ) {
+      throw e;
+    } catch ( Exception e ) {
+      throw new KettleException( e );
+    }
+  }
+
+  static List<OrcOutputField> getOrcFields( RowMetaInterface rowMeta ) {
+    List<OrcOutputField> fields = new ArrayList<>( rowMeta.size() );
+    for ( ValueMetaInterface valueMeta : rowMeta.getValueMetaList() ) {
+      OrcOutputField field = new OrcOutputField();
+      field.setFormatFieldName( valueMeta.getName() );
+      field.setPentahoFieldName( valueMeta.getName() );
+      field.setPentahoType( valueMeta.getType() );
+      field.setFormatType( OrcTypeConverter.convertToOrcType( valueMeta.getType() ) );
+      if ( field.isDecimalType() ) {
+        // a missing length or precision falls back to the defaults of the format
+        field.setPrecision( Integer.toString( valueMeta.getLength() ) );
+        field.setScale( Integer.toString( valueMeta.getPrecision() ) );
+      }
+      field.setAllowNull( true );
+      fields.add( field );
+    }
+    return fields;
+  }
+
+  static List<ParquetOutputField> getParquetFields( RowMetaInterface rowMeta ) {
+    List<ParquetOutputField> fields = new ArrayList<>( rowMeta.size() );
+    for ( ValueMetaInterface valueMeta : rowMeta.getValueMetaList() ) {
+      ParquetOutputField field = new ParquetOutputField();
+      field.setFormatFieldName( valueMeta.getName() );
+      field.setPentahoFieldName( valueMeta.getName() );
+      field.setPentahoType( valueMeta.getType() );
+      field.setFormatType( ParquetTypeConverter.convertToParquetType( valueMeta.getType() ) );
+      if ( field.isDecimalType() ) {
+        // a missing length or precision falls back to the defaults of the format
+        field.setPrecision( Integer.toString( valueMeta.getLength() ) );
+        field.setScale( Integer.toString( valueMeta.getPrecision() ) );
+      }
+      field.setAllowNull( true );
+      fields.add( field );
+    }
+    return fields;
+  }
+
+  private void closeStagingFile() throws KettleException {
+    try {
+      data.writer.close();
+      data.writer = null;
+      data.pvfsFileAliaser.copyFileToFinalDestination();
+    } catch ( IOException e ) {
+      throw new KettleException( e );
+    } finally {
+      data.pvfsFileAliaser.deleteTempFileAndFolder();
+    }
+  }
+
+  /**
+   * Counts this copy as done with staging, once.
+   */
+  private void markStaged() {
+    if ( !staged ) {
+      staged = true;
+      run.staged.countDown();
+    }
+  }
+
+  /**
+   * Waits until every copy of the step closed its staged file, and loads the shared directory unless a copy failed or
+   * nothing was staged.
+   */
+  private void loadStagingRun() throws KettleException {
+    try {
+      while ( !run.staged.await( 1, TimeUnit.SECONDS ) ) {
+        if ( isStopped() ) {
+          return;
+        }
+      }
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      throw new KettleException( e );
+    }
+    if ( run.failed || isStopped() || run.rows.get() == 0 ) {
+      return;
+    }
+    if ( data.namedCluster == null ) {
+      data.namedCluster = meta.getNamedClusterResolver().resolveNamedCluster( data.stagingDirectory );
+    }
+    data.stagedRowMeta = run.rowMeta;
+    load();
+  }
+
+  /**
+   * Loads the staged directory into the table with a single LOAD DATA, or INSERT ... SELECT from a temporary external
+   * table over the directory.
+   */
+  void load() throws KettleException {
+    String location = getClusterLocation( data.stagingDirectory );
+    HiveBulkLoadStatements statements = new HiveBulkLoadStatements( meta.getDatabaseMeta(),
+      environmentSubstitute( meta.getSchemaName() ), environmentSubstitute( meta.getTableName() ) );
+    String partitionField = environmentSubstitute( meta.getPartitionField() );
+    boolean partitioned = !Const.isEmpty( partitionField );
+    if ( partitioned && data.stagedRowMeta.indexOfValue( partitionField ) < 0 ) {
+      throw new KettleException(
+        BaseMessages.getString( PKG, "HiveBulkLoad.Error.PartitionFieldNotFound", partitionField ) );
+    }
+
+    Database db = connect();
+    try {
+      if ( meta.getLoadMethod() == LoadMethod.LOAD_DATA ) {
+        execute( db, statements.loadData( location, meta.isOverwrite() ) );
+      } else {
+        String stagingTable = STAGING_TABLE_PREFIX + UUID.randomUUID().toString().replace( "-", "" );
+        execute( db, statements.createStagingTable( stagingTable, location, data.stagedRowMeta,
+          meta.getFileFormat() ) );
+        try {
+          for ( String sql : statements.insertSelect( stagingTable, data.stagedRowMeta, partitionField,
+            meta.isOverwrite() ) ) {
+            execute( db, sql );
+          }
+        } finally {
+          execute( db, statements.dropStagingTable( stagingTable ) );
+        }
+      }
+      logBasic(
+        BaseMessages.getString( PKG, "HiveBulkLoad.Log.Loaded", String.valueOf( run.rows.get() ), location ) );
+    } finally {
+      db.disconnect();
+    }
+  }
+
+  private void execute( Database db, String sql ) throws KettleException {
+    if ( isDetailed() ) {
+      logDetailed( sql );
+    }
+    db.execStatement( sql );
+  }
+
+  /**
+   * Connects to the database of the table, the statements are run outside of any transaction of the transformation.
+   */
+  Database connect() throws KettleException {
+    if ( meta.getDatabaseMeta() == null ) {
+      throw new KettleException( BaseMessages.getString( PKG, "HiveBulkLoad.Error.NoConnection" ) );
+    }
+    Database db = new Database( this, meta.getDatabaseMeta() );
+    db.shareVariablesWith( this );
+    db.connect( getPartitionID() );
+    return db;
+  }
+
+  /**
+   * @return the location of a directory as the cluster sees it, rather than through a VFS connection or named
+   * cluster
+   */
+  String getClusterLocation( String directory ) throws KettleFileException {
+    String location = directory;
+    FileObject fileObject = KettleVFS.getInstance( getTransMeta().getBowl() ).getFileObject( location, this );
+    if ( AliasedFileObject.isAliasedFile( fileObject ) ) {
+      location = ( (AliasedFileObject) fileObject ).getOriginalURIString();
+    }
+    if ( data.namedCluster != null ) {
+      location = data.namedCluster.processURLsubstitution( location, getTransMeta().getMetaStore(), this );
+    }
+    return location;
+  }
+
+  private void deleteStagingDirectory() {
+    try {
+      KettleVFS.getInstance( getTransMeta().getBowl() ).getFileObject( data.stagingDirectory, this ).deleteAll();
+    } catch ( FileSystemException | KettleFileException e ) {
+      logError( BaseMessages.getString( PKG, "HiveBulkLoad.Error.DeletingStagingDirectory", data.stagingDirectory ),
+        e );
+    }
+  }
+
+  /**
+   * Joins the staging run of the copies of this step in the transformation, starting it for the first copy.
+   */
+  private StagingRun joinStagingRun( String stagingRoot ) {
+    Trans trans = getTrans();
+    synchronized ( STAGING_RUNS_LOCK ) {
+      Map<String, Object> runs = trans.getExtensionDataMap();
+      StagingRun stagingRun = (StagingRun) runs.get( STAGING_RUN_KEY + getStepname() );
+      if ( stagingRun == null ) {
+        int copies = Math.max( 1, trans.findStepInterfaces( getStepname() ).size() );
+        stagingRun = new StagingRun( stripTrailingSlash( stagingRoot ) + "/"
+          + safeName( trans.getName() + "_" + getStepname() ) + "_" + UUID.randomUUID(), copies );
+        runs.put( STAGING_RUN_KEY + getStepname(), stagingRun );
+      }
+      return stagingRun;
+    }
+  }
+
+  private void leaveStagingRun() {
+    if ( run.active.decrementAndGet() == 0 ) {
+      // the last copy out removes the directory, whether it was loaded or not
+      deleteStagingDirectory();
+      synchronized ( STAGING_RUNS_LOCK ) {
+        getTrans().getExtensionDataMap().remove( STAGING_RUN_KEY + getStepname() );
+      }
+    }
+  }
+
+  private static String safeName( String name ) {
+    return name.replaceAll( "[^A-Za-z0-9_-]", "_" );
+  }
+
+  private static String stripTrailingSlash( String directory ) {
+    return directory.endsWith( "/" ) ? directory.substring( 0, directory.length() - 1 ) : directory;
+  }
+
+  @Override
+  public boolean init( StepMetaInterface smi, StepDataInterface sdi ) {
+    meta = (HiveBulkLoadMeta) smi;
+    data = (HiveBulkLoadData) sdi;
+    if ( meta.getLoadMethod() == LoadMethod.LOAD_DATA && !Const.isEmpty( meta.getPartitionField() ) ) {
+      // found out before any row gets staged
+      logError( BaseMessages.getString( PKG, "HiveBulkLoad.Error.PartitionNeedsInsert" ) );
+      return false;
+    }
+    if ( !super.init( smi, sdi ) ) {
+      return false;
+    }
+    if ( meta.isOverwrite() && getClusterSize() > 1 ) {
+      // every slave server would load its own directory, each replacing what the others loaded
+      logError( BaseMessages.getString( PKG, "HiveBulkLoad.Error.OverwriteClustered" ) );
+      return false;
+    }
+    String stagingRoot = environmentSubstitute( meta.getStagingDirectory() );
+    if ( Const.isEmpty( stagingRoot ) ) {
+      logError( BaseMessages.getString( PKG, "HiveBulkLoad.Error.NoStagingDirectory" ) );
+      return false;
+    }
+    run = joinStagingRun( stagingRoot );
+    data.stagingDirectory = run.directory;
+    return true;
+  }
+
+  @Override
+  public void dispose( StepMetaInterface smi, StepDataInterface sdi ) {
+    meta = (HiveBulkLoadMeta) smi;
+    data = (HiveBulkLoadData) sdi;
+    if ( data.writer != null ) {
+      // stopped or failed before the load, the staged rows must not be loaded
+      try {
+        data.writer.close();
+      } catch ( IOException e ) {
+        logError( e.getMessage(), e );
+      }
+      data.writer = null;
+      data.pvfsFileAliaser.deleteTempFileAndFolder();
+      run.failed = true;
+    }
+    if ( run != null ) {
+      // don't keep the first copy waiting for this one
+      markStaged();
+      leaveStagingRun();
+      run = null;
+    }
+    super.dispose( smi, sdi );
+  }
+}
@@ -0,0 +1,34 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.big.data.kettle.plugins.formats.impl.hive.bulkload;
+
+import org.pentaho.big.data.kettle.plugins.formats.impl.output.PvfsFileAliaser;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.trans.step.BaseStepData;
+import org.pentaho.di.trans.step.StepDataInterface;
+import org.pentaho.hadoop.shim.api.cluster.NamedCluster;
+import org.pentaho.hadoop.shim.api.format.IPentahoOutputFormat.IPentahoRecordWriter;
+
+public class HiveBulkLoadData extends BaseStepData implements StepDataInterface {
+
+  public NamedCluster namedCluster;
+  /**
+   * Directory holding the files staged by all copies of the step, loaded by the first copy
+   */
+  public String stagingDirectory;
+  public PvfsFileAliaser pvfsFileAliaser;
+  public IPentahoRecordWriter writer;
+  public RowMetaInterface stagedRowMeta;
+  public long stagedRows;
+}
@@ -0,0 +1,258 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.big.data.kettle.plugins.formats.impl.hive.bulkload;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.custom.CCombo;
+import org.eclipse.swt.events.ModifyListener;
+import org.eclipse.swt.events.SelectionAdapter;
+import org.eclipse.swt.events.SelectionEvent;
+import org.eclipse.swt.events.ShellAdapter;
+import org.eclipse.swt.events.ShellEvent;
+import org.eclipse.swt.layout.FormAttachment;
+import org.eclipse.swt.layout.FormData;
+import org.eclipse.swt.layout.FormLayout;
+import org.eclipse.swt.widgets.Button;
+import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Label;
+import org.eclipse.swt.widgets.Shell;
+import org.eclipse.swt.widgets.Text;
+import org.pentaho.big.data.kettle.plugins.formats.impl.hive.bulkload.HiveBulkLoadMeta.FileFormat;
+import org.pentaho.big.data.kettle.plugins.formats.impl.hive.bulkload.HiveBulkLoadMeta.LoadMethod;
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.i18n.BaseMessages;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.step.BaseStepMeta;
+import org.pentaho.di.trans.step.StepDialogInterface;
+import org.pentaho.di.ui.core.widget.ComboVar;
+import org.pentaho.di.ui.core.widget.TextVar;
+import org.pentaho.di.ui.trans.step.BaseStepDialog;
+
+public class HiveBulkLoadDialog extends BaseStepDialog implements StepDialogInterface {
+  private static final Class<?> PKG = HiveBulkLoadMeta.class;
+
+  private final HiveBulkLoadMeta input;
+
+  private CCombo wConnectionName;
+  private TextVar wSchema;
+  private TextVar wTable;
+  private TextVar wStagingDirectory;
+  private CCombo wFileFormat;
+  private CCombo wLoadMethod;
+  private ComboVar wPartitionField;
+  private Button wOverwrite;
+
+  public HiveBulkLoadDialog( Shell parent, Object in, TransMeta tr, String sname ) {
+    super( parent, (BaseStepMeta) in, tr, sname );
+    input = (HiveBulkLoadMeta) in;
+  }
+
+  @Override
+  public String open() {
+    Shell parent = getParent();
+    Display display = parent.getDisplay();
+
+    shell = new Shell( parent, SWT.DIALOG_TRIM | SWT.RESIZE | SWT.MAX | SWT.MIN );
+    props.setLook( shell );
+    setShellImage( shell, input );
+
+    ModifyListener lsMod = e -> input.setChanged();
+    changed = input.hasChanged();
+
+    FormLayout formLayout = new FormLayout();
+    formLayout.marginWidth = Const.FORM_MARGIN;
+    formLayout.marginHeight = Const.FORM_MARGIN;
+    shell.setLayout( formLayout );
+    shell.setText( BaseMessages.getString( PKG, "HiveBulkLoadDialog.Shell.Title" ) );
+
+    int middle = props.getMiddlePct();
+    int margin = Const.MARGIN;
+
+    // Stepname line
+    wlStepname = new Label( shell, SWT.RIGHT );
+    wlStepname.setText( BaseMessages.getString( PKG, "HiveBulkLoadDialog.Stepname.Label" ) );
+    props.setLook( wlStepname );
+    fdlStepname = new FormData();
+    fdlStepname.left = new FormAttachment( 0, 0 );
+    fdlStepname.right = new FormAttachment( middle, -margin );
+    fdlStepname.top = new FormAttachment( 0, margin );
+    wlStepname.setLayoutData( fdlStepname );
+    wStepname = new Text( shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    wStepname.setText( stepname );
+    props.setLook( wStepname );
+    wStepname.addModifyListener( lsMod );
+    fdStepname = new FormData();
+    fdStepname.left = new FormAttachment( middle, 0 );
+    fdStepname.top = new FormAttachment( 0, margin );
+    fdStepname.right = new FormAttachment( 100, 0 );
+    wStepname.setLayoutData( fdStepname );
+
+    wConnectionName = addConnectionLine( shell, wStepname, middle, margin );
+    wConnectionName.addModifyListener( lsMod );
+    Control lastControl = wConnectionName;
+
+    wSchema = new TextVar( transMeta, shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    lastControl = addLine( "HiveBulkLoadDialog.Schema.Label", wSchema, lastControl, middle, margin );
+    wSchema.addModifyListener( lsMod );
+
+    wTable = new TextVar( transMeta, shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    lastControl = addLine( "HiveBulkLoadDialog.Table.Label", wTable, lastControl, middle, margin );
+    wTable.addModifyListener( lsMod );
+
+    wStagingDirectory = new TextVar( transMeta, shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    lastControl = addLine( "HiveBulkLoadDialog.StagingDirectory.Label", wStagingDirectory, lastControl, middle,
+      margin );
+    wStagingDirectory.addModifyListener( lsMod );
+
+    wFileFormat = new CCombo( shell, SWT.BORDER | SWT.READ_ONLY );
+    for ( FileFormat format : FileFormat.values() ) {
+      wFileFormat.add( format.name() );
+    }
+    lastControl = addLine( "HiveBulkLoadDialog.FileFormat.Label", wFileFormat, lastControl, middle, margin );
+    wFileFormat.addModifyListener( lsMod );
+
+    wLoadMethod = new CCombo( shell, SWT.BORDER | SWT.READ_ONLY );
+    for ( LoadMethod method : LoadMethod.values() ) {
+      wLoadMethod.add( BaseMessages.getString( PKG, "HiveBulkLoadDialog.LoadMethod." + method.name() ) );
+    }
+    lastControl = addLine( "HiveBulkLoadDialog.LoadMethod.Label", wLoadMethod, lastControl, middle, margin );
+    wLoadMethod.addModifyListener( lsMod );
+
+    wPartitionField = new ComboVar( transMeta, shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    try {
+      RowMetaInterface prev = transMeta.getPrevStepFields( stepname );
+      wPartitionField.setItems( prev.getFieldNames() );
+    } catch ( KettleException e ) {
+      log.logError( BaseMessages.getString( PKG, "HiveBulkLoadDialog.Log.UnableToGetFields" ), e );
+    }
+    lastControl = addLine( "HiveBulkLoadDialog.PartitionField.Label", wPartitionField, lastControl, middle, margin );
+    wPartitionField.addModifyListener( lsMod );
+
+    wOverwrite = new Button( shell, SWT.CHECK );
+    lastControl = addLine( "HiveBulkLoadDialog.Overwrite.Label", wOverwrite, lastControl, middle, margin );
+    wOverwrite.addSelectionListener( new SelectionAdapter() {
+      @Override
+      public void widgetSelected( SelectionEvent e ) {
+        input.setChanged();
+      }
+    } );
+
+    // Some buttons
+    wOK = new Button( shell, SWT.PUSH );
+    wOK.setText( BaseMessages.getString( PKG, "System.Button.OK" ) );
+    wCancel = new Button( shell, SWT.PUSH );
+    wCancel.setText( BaseMessages.getString( PKG, "System.Button.Cancel" ) );
+    setButtonPositions( new Button[] { wOK, wCancel }, margin, lastControl );
+
+    wOK.addListener( SWT.Selection, e -> ok() );
+    wCancel.addListener( SWT.Selection, e -> cancel() );
+
+    lsDef = new SelectionAdapter() {
+      @Override
+      public void widgetDefaultSelected( SelectionEvent e ) {
+        ok();
+      }
+    };
+    wStepname.addSelectionListener( lsDef );
+    wSchema.addSelectionListener( lsDef );
+    wTable.addSelectionListener( lsDef );
+    wStagingDirectory.addSelectionListener( lsDef );
+
+    // Detect X or ALT-F4 or something that kills this window...
+    shell.addShellListener( new ShellAdapter() {
+      @Override
+      public void shellClosed( ShellEvent e ) {
+        cancel();
+      }
+    } );
+
+    getData();
+    input.setChanged( changed );
+
+    // Set the shell size, based upon previous time...
+    setSize();
+
+    shell.open();
+    while ( !shell.isDisposed() ) {
+      if ( !display.readAndDispatch() ) {
+        display.sleep();
+      }
+    }
+    return stepname;
+  }
+
+  private Control addLine( String labelKey, Control control, Control previous, int middle, int margin ) {
+    Label label = new Label( shell, SWT.RIGHT );
+    label.setText( BaseMessages.getString( PKG, labelKey ) );
+    props.setLook( label );
+    FormData fdLabel = new FormData();
+    fdLabel.left = new FormAttachment( 0, 0 );
+    fdLabel.right = new FormAttachment( middle, -margin );
+    fdLabel.top = new FormAttachment( previous, margin );
+    label.setLayoutData( fdLabel );
+
+    props.setLook( control );
+    FormData fdControl = new FormData();
+    fdControl.left = new FormAttachment( middle, 0 );
+    fdControl.top = new FormAttachment( previous, margin );
+    fdControl.right = new FormAttachment( 100, 0 );
+    control.setLayoutData( fdControl );
+    return control;
+  }
+
+  /**
+   * Copy information from the meta-data input to the dialog fields.
+   */
+  public void getData() {
+    if ( input.getDatabaseMeta() != null ) {
+      wConnectionName.setText( input.getDatabaseMeta().getName() );
+    }
+    wSchema.setText( Const.NVL( input.getSchemaName(), "" ) );
+    wTable.setText( Const.NVL( input.getTableName(), "" ) );
+    wStagingDirectory.setText( Const.NVL( input.getStagingDirectory(), "" ) );
+    wFileFormat.select( input.getFileFormat().ordinal() );
+    wLoadMethod.select( input.getLoadMethod().ordinal() );
+    wPartitionField.setText( Const.NVL( input.getPartitionField(), "" ) );
+    wOverwrite.setSelection( input.isOverwrite() );
+
+    wStepname.selectAll();
+  }
+
+  private void cancel() {
+    stepname = null;
+    input.setChanged( changed );
+    dispose();
+  }
+
+  private void ok() {
+    if ( Const.isEmpty( wStepname.getText() ) ) {
+      return;
+    }
+    stepname = wStepname.getText();
+
+    input.setDatabaseMeta( transMeta.findDatabase( wConnectionName.getText() ) );
+    input.setSchemaName( wSchema.getText() );
+    input.setTableName( wTable.getText() );
+    input.setStagingDirectory( wStagingDirectory.getText() );
+    input.setFileFormat( FileFormat.values()[ Math.max( 0, wFileFormat.getSelectionIndex() ) ] );
+    input.setLoadMethod( LoadMethod.values()[ Math.max( 0, wLoadMethod.getSelectionIndex() ) ] );
+    input.setPartitionField( wPartitionField.getText() );
+    input.setOverwrite( wOverwrite.getSelection() );
+
+    dispose();
+  }
+}
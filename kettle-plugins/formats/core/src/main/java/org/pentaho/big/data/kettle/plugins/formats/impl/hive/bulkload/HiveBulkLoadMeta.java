@@ -0,0 +1,332 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.big.data.kettle.plugins.formats.impl.hive.bulkload;
+
+import org.pentaho.big.data.kettle.plugins.formats.impl.NamedClusterResolver;
+import org.pentaho.di.core.CheckResult;
+import org.pentaho.di.core.CheckResultInterface;
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.annotations.Step;
+import org.pentaho.di.core.database.DatabaseMeta;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.exception.KettleXMLException;
+import org.pentaho.di.core.injection.Injection;
+import org.pentaho.di.core.injection.InjectionSupported;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.variables.VariableSpace;
+import org.pentaho.di.core.xml.XMLHandler;
+import org.pentaho.di.i18n.BaseMessages;
+import org.pentaho.di.repository.ObjectId;
+import org.pentaho.di.repository.Repository;
+import org.pentaho.di.trans.Trans;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.step.BaseStepMeta;
+import org.pentaho.di.trans.step.StepDataInterface;
+import org.pentaho.di.trans.step.StepInterface;
+import org.pentaho.di.trans.step.StepMeta;
+import org.pentaho.di.trans.step.StepMetaInterface;
+import org.pentaho.metastore.api.IMetaStore;
+import org.w3c.dom.Node;
+
+import java.util.List;
+
+/**
+ * Bulk loads the incoming rows into a Hive or Impala table: the rows are staged as ORC or Parquet files on the
+ * cluster of the table, which are then loaded with a single statement.
+ */
+@Step( id = "HiveBulkLoad", image = "OO.svg", name = "HiveBulkLoad.Name", description = "HiveBulkLoad.Description",
+  categoryDescription = "i18n:org.pentaho.di.trans.step:BaseStep.Category.Bulk",
+  i18nPackageName = "org.pentaho.big.data.kettle.plugins.formats.impl.hive.bulkload" )
+@InjectionSupported( localizationPrefix = "HiveBulkLoad.Injection." )
+public class HiveBulkLoadMeta extends BaseStepMeta implements StepMetaInterface {
+  private static final Class<?> PKG = HiveBulkLoadMeta.class;
+
+  /**
+   * Format of the staged files
+   */
+  public enum FileFormat {
+    ORC, PARQUET
+  }
+
+  /**
+   * How the staged files get into the table
+   */
+  public enum LoadMethod {
+    /**
+     * Moves the staged files into the table, they must match the storage format of the table
+     */
+    LOAD_DATA,
+    /**
+     * Reads the staged files through a temporary external table, which allows dynamic partitions and any storage
+     * format for the table
+     */
+    INSERT_SELECT
+  }
+
+  private final NamedClusterResolver namedClusterResolver;
+
+  private DatabaseMeta databaseMeta;
+
+  @Injection( name = "SCHEMA_NAME" )
+  private String schemaName;
+
+  @Injection( name = "TABLE_NAME" )
+  private String tableName;
+
+  @Injection( name = "STAGING_DIRECTORY" )
+  private String stagingDirectory;
+
+  private FileFormat fileFormat = FileFormat.ORC;
+
+  private LoadMethod loadMethod = LoadMethod.LOAD_DATA;
+
+  @Injection( name = "PARTITION_FIELD" )
+  private String partitionField;
+
+  @Injection( name = "OVERWRITE" )
+  private boolean overwrite;
+
+  public HiveBulkLoadMeta() {
+    this( NamedClusterResolver.getInstance() );
+  }
+
+  public HiveBulkLoadMeta( NamedClusterResolver namedClusterResolver ) {
+    this.namedClusterResolver = namedClusterResolver;
+  }
+
+  public NamedClusterResolver getNamedClusterResolver() {
+    return namedClusterResolver;
+  }
+
+  public DatabaseMeta getDatabaseMeta() {
+    return databaseMeta;
+  }
+
+  public void setDatabaseMeta( DatabaseMeta databaseMeta ) {
+    this.databaseMeta = databaseMeta;
+  }
+
+  @Injection( name = "CONNECTION_NAME" )
+  public void setConnection( String connectionName ) {
+    databaseMeta = DatabaseMeta.findDatabase( getParentStepMeta().getParentTransMeta().getDatabases(), connectionName );
+  }
+
+  public String getSchemaName() {
+    return schemaName;
+  }
+
+  public void setSchemaName( String schemaName ) {
+    this.schemaName = schemaName;
+  }
+
+  public String getTableName() {
+    return tableName;
+  }
+
+  public void setTableName( String tableName ) {
+    this.tableName = tableName;
+  }
+
+  public String getStagingDirectory() {
+    return stagingDirectory;
+  }
+
+  public void setStagingDirectory( String stagingDirectory ) {
+    this.stagingDirectory = stagingDirectory;
+  }
+
+  public FileFormat getFileFormat() {
+    return fileFormat;
+  }
+
+  public void setFileFormat( FileFormat fileFormat ) {
+    this.fileFormat = fileFormat;
+  }
+
+  @Injection( name = "FILE_FORMAT" )
+  public void setFileFormat( String fileFormat ) {
+    this.fileFormat = parse( fileFormat, FileFormat.values(), FileFormat.ORC );
+  }
+
+  public LoadMethod getLoadMethod() {
+    return loadMethod;
+  }
+
+  public void setLoadMethod( LoadMethod loadMethod ) {
+    this.loadMethod = loadMethod;
+  }
+
+  @Injection( name = "LOAD_METHOD" )
+  public void setLoadMethod( String loadMethod ) {
+    this.loadMethod = parse( loadMethod, LoadMethod.values(), LoadMethod.LOAD_DATA );
+  }
+
+  public String getPartitionField() {
+    return partitionField;
+  }
+
+  public void setPartitionField( String partitionField ) {
+    this.partitionField = partitionField;
+  }
+
+  public boolean isOverwrite() {
+    return overwrite;
+  }
+
+  public void setOverwrite( boolean overwrite ) {
+    this.overwrite = overwrite;
+  }
+
+  private static <T extends Enum<T>> T parse( String name, T[] values, T defaultValue ) {
+    for ( T value : values ) {
+      if ( value.name().equalsIgnoreCase( Const.trim( name ) ) ) {
+        return value;
+      }
+    }
+    return defaultValue;
+  }
+
+  @Override
+  public void setDefault() {
+    databaseMeta = null;
+    schemaName = "";
+    tableName = "";
+    stagingDirectory = "";
+    fileFormat = FileFormat.ORC;
+    loadMethod = LoadMethod.LOAD_DATA;
+    partitionField = "";
+    overwrite = false;
+  }
+
+  @Override
+  public String getXML() {
+    StringBuilder retval = new StringBuilder( 300 );
+    retval.append( "    " )
+      .append( XMLHandler.addTagValue( "connection", databaseMeta == null ? "" : databaseMeta.getName() ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( "schema", schemaName ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( "table", tableName ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( "staging_directory", stagingDirectory ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( "file_format", fileFormat.name() ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( "load_method", loadMethod.name() ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( "partition_field", partitionField ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( "overwrite", overwrite ) );
+    return retval.toString();
+  }
+
+  @Override
+  public void loadXML( Node stepnode, List<DatabaseMeta> databases, IMetaStore metaStore )
+    throws KettleXMLException {
+    try {
+      databaseMeta = DatabaseMeta.findDatabase( databases, XMLHandler.getTagValue( stepnode, "connection" ) );
+      schemaName = XMLHandler.getTagValue( stepnode, "schema" );
+      tableName = XMLHandler.getTagValue( stepnode, "table" );
+      stagingDirectory = XMLHandler.getTagValue( stepnode, "staging_directory" );
+      setFileFormat( XMLHandler.getTagValue( stepnode, "file_format" ) );
+      setLoadMethod( XMLHandler.getTagValue( stepnode, "load_method" ) );
+      partitionField = XMLHandler.getTagValue( stepnode, "partition_field" );
+      overwrite = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "overwrite" ) );
+    } catch ( Exception e ) {
+      throw new KettleXMLException( BaseMessages.getString( PKG, "HiveBulkLoadMeta.Exception.UnableToReadStepInfo" ),
+        e );
+    }
+  }
+
+  @Override
+  public void readRep( Repository rep, IMetaStore metaStore, ObjectId id_step, List<DatabaseMeta> databases )
+    throws KettleException {
+    try {
+      databaseMeta = rep.loadDatabaseMetaFromStepAttribute( id_step, "id_connection", databases );
+      schemaName = rep.getStepAttributeString( id_step, "schema" );
+      tableName = rep.getStepAttributeString( id_step, "table" );
+      stagingDirectory = rep.getStepAttributeString( id_step, "staging_directory" );
+      setFileFormat( rep.getStepAttributeString( id_step, "file_format" ) );
+      setLoadMethod( rep.getStepAttributeString( id_step, "load_method" ) );
+      partitionField = rep.getStepAttributeString( id_step, "partition_field" );
+      overwrite = rep.getStepAttributeBoolean( id_step, "overwrite" );
+    } catch ( Exception e ) {
+      throw new KettleException( BaseMessages.getString( PKG, "HiveBulkLoadMeta.Exception.UnableToReadStepInfo" ),
+        e );
+    }
+  }
+
+  @Override
+  public void saveRep( Repository rep, IMetaStore metaStore, ObjectId id_transformation, ObjectId id_step )
+    throws KettleException {
+    try {
+      rep.saveDatabaseMetaStepAttribute( id_transformation, id_step, "id_connection", databaseMeta );
+      rep.saveStepAttribute( id_transformation, id_step, "schema", schemaName );
+      rep.saveStepAttribute( id_transformation, id_step, "table", tableName );
+      rep.saveStepAttribute( id_transformation, id_step, "staging_directory", stagingDirectory );
+      rep.saveStepAttribute( id_transformation, id_step, "file_format", fileFormat.name() );
+      rep.saveStepAttribute( id_transformation, id_step, "load_method", loadMethod.name() );
+      rep.saveStepAttribute( id_transformation, id_step, "partition_field", partitionField );
+      rep.saveStepAttribute( id_transformation, id_step, "overwrite", overwrite );
+      if ( databaseMeta != null ) {
+        rep.insertStepDatabase( id_transformation, id_step, databaseMeta.getObjectId() );
+      }
+    } catch ( Exception e ) {
+      throw new KettleException( BaseMessages.getString( PKG, "HiveBulkLoadMeta.Exception.UnableToSaveStepInfo" ),
+        e );
+    }
+  }
+
+  @Override
+  public void check( List<CheckResultInterface> remarks, TransMeta transMeta, StepMeta stepMeta,
+                     RowMetaInterface prev, String[] input, String[] output, RowMetaInterface info,
+                     VariableSpace space, Repository repository, IMetaStore metaStore ) {
+    if ( databaseMeta == null ) {
+      remarks.add( new CheckResult( CheckResultInterface.TYPE_RESULT_ERROR,
+        BaseMessages.getString( PKG, "HiveBulkLoadMeta.CheckResult.NoConnection" ), stepMeta ) );
+    }
+    if ( Const.isEmpty( tableName ) ) {
+      remarks.add( new CheckResult( CheckResultInterface.TYPE_RESULT_ERROR,
+        BaseMessages.getString( PKG, "HiveBulkLoadMeta.CheckResult.NoTable" ), stepMeta ) );
+    }
+    if ( Const.isEmpty( stagingDirectory ) ) {
+      remarks.add( new CheckResult( CheckResultInterface.TYPE_RESULT_ERROR,
+        BaseMessages.getString( PKG, "HiveBulkLoadMeta.CheckResult.NoStagingDirectory" ), stepMeta ) );
+    }
+    if ( !Const.isEmpty( partitionField ) ) {
+      if ( loadMethod == LoadMethod.LOAD_DATA ) {
+        remarks.add( new CheckResult( CheckResultInterface.TYPE_RESULT_ERROR,
+          BaseMessages.getString( PKG, "HiveBulkLoadMeta.CheckResult.PartitionNeedsInsert" ), stepMeta ) );
+      }
+      if ( prev != null && prev.indexOfValue( partitionField ) < 0 ) {
+        remarks.add( new CheckResult( CheckResultInterface.TYPE_RESULT_ERROR,
+          BaseMessages.getString( PKG, "HiveBulkLoadMeta.CheckResult.PartitionFieldNotFound", partitionField ),
+          stepMeta ) );
+      }
+    }
+    if ( input.length == 0 ) {
+      remarks.add( new CheckResult( CheckResultInterface.TYPE_RESULT_ERROR,
+        BaseMessages.getString( PKG, "HiveBulkLoadMeta.CheckResult.NoInput" ), stepMeta ) );
+    }
+  }
+
+  @Override
+  public DatabaseMeta[] getUsedDatabaseConnections() {
+    return databaseMeta == null ? super.getUsedDatabaseConnections() : new DatabaseMeta[] { databaseMeta };
+  }
+
+  @Override
+  public StepInterface getStep( StepMeta stepMeta, StepDataInterface stepDataInterface, int copyNr,
+                                TransMeta transMeta, Trans trans ) {
+    return new HiveBulkLoad( stepMeta, stepDataInterface, copyNr, transMeta, trans );
+  }
+
+  @Override
+  public StepDataInterface getStepData() {
+    return new HiveBulkLoadData();
+  }
+}
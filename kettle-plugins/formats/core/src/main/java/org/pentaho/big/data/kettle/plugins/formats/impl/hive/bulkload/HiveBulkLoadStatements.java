@@ -0,0 +1,112 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.big.data.kettle.plugins.formats.impl.hive.bulkload;
+
+import org.pentaho.big.data.kettle.plugins.formats.impl.hive.bulkload.HiveBulkLoadMeta.FileFormat;
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.database.DatabaseMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds the statements loading staged files into a table, in the SQL of the Hive or Impala connection.
+ */
+class HiveBulkLoadStatements {
+  private static final String IMPALA_PLUGIN_PREFIX = "IMPALA";
+
+  private final DatabaseMeta databaseMeta;
+  private final String schemaName;
+  private final String tableName;
+
+  HiveBulkLoadStatements( DatabaseMeta databaseMeta, String schemaName, String tableName ) {
+    this.databaseMeta = databaseMeta;
+    this.schemaName = schemaName;
+    this.tableName = tableName;
+  }
+
+  /**
+   * @return the statement moving all the files of a directory into the table
+   */
+  String loadData( String location, boolean overwrite ) {
+    return "LOAD DATA INPATH " + literal( location ) + ( overwrite ? " OVERWRITE" : "" ) + " INTO TABLE "
+      + qualified( tableName );
+  }
+
+  /**
+   * @return the statement exposing the files of a directory as an external table with the given fields
+   */
+  String createStagingTable( String stagingTable, String location, RowMetaInterface fields, FileFormat format ) {
+    StringBuilder sql = new StringBuilder( "CREATE EXTERNAL TABLE " ).append( qualified( stagingTable ) )
+      .append( " (" );
+    for ( int i = 0; i < fields.size(); i++ ) {
+      ValueMetaInterface field = fields.getValueMeta( i );
+      sql.append( i == 0 ? " " : ", " ).append( databaseMeta.quoteField( field.getName() ) ).append( ' ' )
+        .append( databaseMeta.getFieldDefinition( field, null, null, false, false, false ) );
+    }
+    return sql.append( " ) STORED AS " ).append( format.name() ).append( " LOCATION " ).append( literal( location ) )
+      .toString();
+  }
+
+  /**
+   * Returns the statements copying the rows of the staging table into the table, the partition field, if any, going
+   * last into a dynamic partition.
+   */
+  List<String> insertSelect( String stagingTable, RowMetaInterface fields, String partitionField,
+                             boolean overwrite ) {
+    List<String> statements = new ArrayList<>();
+    boolean partitioned = !Const.isEmpty( partitionField );
+    if ( partitioned && !isImpala() ) {
+      statements.add( "SET hive.exec.dynamic.partition=true" );
+      statements.add( "SET hive.exec.dynamic.partition.mode=nonstrict" );
+    }
+
+    StringBuilder columns = new StringBuilder();
+    for ( int i = 0; i < fields.size(); i++ ) {
+      String name = fields.getValueMeta( i ).getName();
+      if ( !partitioned || !name.equalsIgnoreCase( partitionField ) ) {
+        columns.append( columns.length() == 0 ? "" : ", " ).append( databaseMeta.quoteField( name ) );
+      }
+    }
+    StringBuilder sql = new StringBuilder( "INSERT " ).append( overwrite ? "OVERWRITE" : "INTO" ).append( " TABLE " )
+      .append( qualified( tableName ) );
+    if ( partitioned ) {
+      String partition = databaseMeta.quoteField( partitionField );
+      sql.append( " PARTITION (" ).append( partition ).append( ')' );
+      columns.append( columns.length() == 0 ? "" : ", " ).append( partition );
+    }
+    sql.append( " SELECT " ).append( columns ).append( " FROM " ).append( qualified( stagingTable ) );
+    statements.add( sql.toString() );
+    return statements;
+  }
+
+  String dropStagingTable( String stagingTable ) {
+    return "DROP TABLE IF EXISTS " + qualified( stagingTable );
+  }
+
+  boolean isImpala() {
+    String pluginId = databaseMeta.getPluginId();
+    return pluginId != null && pluginId.toUpperCase().startsWith( IMPALA_PLUGIN_PREFIX );
+  }
+
+  private String qualified( String table ) {
+    return databaseMeta.getQuotedSchemaTableCombination( schemaName, table );
+  }
+
+  static String literal( String value ) {
+    return "'" + value.replace( "\\", "\\\\" ).replace( "'", "\\'" ) + "'";
+  }
+}
@@ -0,0 +1,113 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.big.data.kettle.plugins.formats.impl.hive.bulkload;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.big.data.kettle.plugins.formats.impl.hive.bulkload.HiveBulkLoadMeta.FileFormat;
+import org.pentaho.di.core.database.DatabaseMeta;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaString;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class HiveBulkLoadStatementsTest {
+  private DatabaseMeta databaseMeta;
+  private RowMeta fields;
+
+  @Before
+  public void setUp() {
+    databaseMeta = mockDatabaseMeta( "HIVE2" );
+    fields = new RowMeta();
+    fields.addValueMeta( new ValueMetaString( "name" ) );
+    fields.addValueMeta( new ValueMetaInteger( "day" ) );
+  }
+
+  static DatabaseMeta mockDatabaseMeta( String pluginId ) {
+    DatabaseMeta databaseMeta = mock( DatabaseMeta.class );
+    when( databaseMeta.getPluginId() ).thenReturn( pluginId );
+    when( databaseMeta.quoteField( anyString() ) ).thenAnswer( invocation -> "`" + invocation.getArgument( 0 ) + "`" );
+    when( databaseMeta.getQuotedSchemaTableCombination( anyString(), anyString() ) )
+      .thenAnswer( invocation -> "`" + invocation.getArgument( 0 ) + "`.`" + invocation.getArgument( 1 ) + "`" );
+    when( databaseMeta.getFieldDefinition( any( ValueMetaInterface.class ), isNull(), isNull(), anyBoolean(),
+      anyBoolean(), anyBoolean() ) ).thenAnswer( invocation ->
+        ( (ValueMetaInterface) invocation.getArgument( 0 ) ).isString() ? "STRING" : "BIGINT" );
+    return databaseMeta;
+  }
+
+  @Test
+  public void testLoadData() {
+    HiveBulkLoadStatements statements = new HiveBulkLoadStatements( databaseMeta, "sales", "orders" );
+
+    assertEquals( "LOAD DATA INPATH 'hdfs://nn:8020/tmp/stage' INTO TABLE `sales`.`orders`",
+      statements.loadData( "hdfs://nn:8020/tmp/stage", false ) );
+    assertEquals( "LOAD DATA INPATH 'hdfs://nn:8020/tmp/stage' OVERWRITE INTO TABLE `sales`.`orders`",
+      statements.loadData( "hdfs://nn:8020/tmp/stage", true ) );
+  }
+
+  @Test
+  public void testCreateStagingTable() {
+    HiveBulkLoadStatements statements = new HiveBulkLoadStatements( databaseMeta, "sales", "orders" );
+
+    assertEquals( "CREATE EXTERNAL TABLE `sales`.`tmp` ( `name` STRING, `day` BIGINT ) STORED AS PARQUET "
+        + "LOCATION 'hdfs://nn:8020/tmp/stage'",
+      statements.createStagingTable( "tmp", "hdfs://nn:8020/tmp/stage", fields, FileFormat.PARQUET ) );
+    assertEquals( "DROP TABLE IF EXISTS `sales`.`tmp`", statements.dropStagingTable( "tmp" ) );
+  }
+
+  @Test
+  public void testInsertSelect() {
+    HiveBulkLoadStatements statements = new HiveBulkLoadStatements( databaseMeta, "sales", "orders" );
+
+    assertEquals( Arrays.asList( "INSERT INTO TABLE `sales`.`orders` SELECT `name`, `day` FROM `sales`.`tmp`" ),
+      statements.insertSelect( "tmp", fields, null, false ) );
+  }
+
+  @Test
+  public void testInsertSelectIntoDynamicPartition() {
+    HiveBulkLoadStatements statements = new HiveBulkLoadStatements( databaseMeta, "sales", "orders" );
+
+    fields.addValueMeta( new ValueMetaString( "region" ) );
+    assertEquals( Arrays.asList( "SET hive.exec.dynamic.partition=true",
+        "SET hive.exec.dynamic.partition.mode=nonstrict",
+        "INSERT OVERWRITE TABLE `sales`.`orders` PARTITION (`day`) SELECT `name`, `region`, `day` FROM `sales`.`tmp`" ),
+      statements.insertSelect( "tmp", fields, "day", true ) );
+  }
+
+  @Test
+  public void testImpalaNeedsNoSettings() {
+    HiveBulkLoadStatements statements =
+      new HiveBulkLoadStatements( mockDatabaseMeta( "IMPALA" ), "sales", "orders" );
+
+    assertEquals( Arrays.asList(
+        "INSERT INTO TABLE `sales`.`orders` PARTITION (`day`) SELECT `name`, `day` FROM `sales`.`tmp`" ),
+      statements.insertSelect( "tmp", fields, "day", false ) );
+  }
+
+  @Test
+  public void testLiteral() {
+    assertEquals( "'/tmp/it\\'s'", HiveBulkLoadStatements.literal( "/tmp/it's" ) );
+    assertEquals( "'c:\\\\stage'", HiveBulkLoadStatements.literal( "c:\\stage" ) );
+  }
+}
@@ -0,0 +1,290 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.big.data.kettle.plugins.formats.impl.hive.bulkload;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
+import org.pentaho.big.data.kettle.plugins.formats.impl.NamedClusterResolver;
+import org.pentaho.big.data.kettle.plugins.formats.impl.hive.bulkload.HiveBulkLoadMeta.FileFormat;
+import org.pentaho.big.data.kettle.plugins.formats.impl.hive.bulkload.HiveBulkLoadMeta.LoadMethod;
+import org.pentaho.di.core.bowl.DefaultBowl;
+import org.pentaho.di.core.database.Database;
+import org.pentaho.di.core.logging.KettleLogStore;
+import org.pentaho.di.core.logging.LogLevel;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.di.trans.Trans;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.step.RowHandler;
+import org.pentaho.di.trans.step.StepInterface;
+import org.pentaho.di.trans.step.StepMeta;
+import org.pentaho.hadoop.shim.api.cluster.NamedCluster;
+import org.pentaho.hadoop.shim.api.cluster.NamedClusterServiceLocator;
+import org.pentaho.hadoop.shim.api.format.FormatService;
+import org.pentaho.hadoop.shim.api.format.IPentahoOrcOutputFormat;
+import org.pentaho.hadoop.shim.api.format.IPentahoOutputFormat.IPentahoRecordWriter;
+import org.pentaho.hadoop.shim.api.format.IPentahoParquetOutputFormat;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.nullable;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class HiveBulkLoadTest {
+  private static final String STEP_NAME = "Hive Bulk Load";
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private HiveBulkLoadMeta meta;
+  private HiveBulkLoadData data;
+  private Database database;
+  private IPentahoRecordWriter writer;
+  private HiveBulkLoad step;
+  private Queue<Object[]> rows;
+  private File stagingRoot;
+  private File stagingFile;
+  private List<File> stagingFiles = new ArrayList<>();
+  private StepMeta stepMeta;
+  private TransMeta transMeta;
+  private Trans trans;
+  private RowMeta inputRowMeta;
+
+  @Before
+  public void setUp() throws Exception {
+    KettleLogStore.init();
+    stagingRoot = temporaryFolder.newFolder( "staging" );
+
+    NamedClusterServiceLocator serviceLocator = mock( NamedClusterServiceLocator.class );
+    NamedClusterResolver namedClusterResolver = mock( NamedClusterResolver.class );
+    when( namedClusterResolver.getNamedClusterServiceLocator() ).thenReturn( serviceLocator );
+    FormatService formatService = mock( FormatService.class );
+    when( serviceLocator.getService( nullable( NamedCluster.class ), any( Class.class ) ) )
+      .thenReturn( formatService );
+
+    // the staged file shows up on the local file system as soon as the output format gets it
+    writer = mock( IPentahoRecordWriter.class );
+    IPentahoOrcOutputFormat orcOutput = mock( IPentahoOrcOutputFormat.class );
+    doAnswer( invocation -> createStagingFile( invocation.getArgument( 0 ) ) ).when( orcOutput )
+      .setOutputFile( anyString(), anyBoolean() );
+    when( orcOutput.createRecordWriter() ).thenReturn( writer );
+    when( formatService.createOutputFormat( IPentahoOrcOutputFormat.class, null ) ).thenReturn( orcOutput );
+    IPentahoParquetOutputFormat parquetOutput = mock( IPentahoParquetOutputFormat.class );
+    doAnswer( invocation -> createStagingFile( invocation.getArgument( 0 ) ) ).when( parquetOutput )
+      .setOutputFile( anyString(), anyBoolean() );
+    when( parquetOutput.createRecordWriter() ).thenReturn( writer );
+    when( formatService.createOutputFormat( IPentahoParquetOutputFormat.class, null ) ).thenReturn( parquetOutput );
+
+    meta = new HiveBulkLoadMeta( namedClusterResolver );
+    meta.setDefault();
+    meta.setDatabaseMeta( HiveBulkLoadStatementsTest.mockDatabaseMeta( "HIVE2" ) );
+    meta.setSchemaName( "sales" );
+    meta.setTableName( "orders" );
+    meta.setStagingDirectory( stagingRoot.getAbsolutePath() );
+    data = new HiveBulkLoadData();
+
+    stepMeta = mock( StepMeta.class );
+    when( stepMeta.getName() ).thenReturn( STEP_NAME );
+    transMeta = mock( TransMeta.class );
+    when( transMeta.findStep( STEP_NAME ) ).thenReturn( stepMeta );
+    when( transMeta.getBowl() ).thenReturn( DefaultBowl.getInstance() );
+    trans = mock( Trans.class );
+    when( trans.getName() ).thenReturn( "load orders" );
+
+    inputRowMeta = new RowMeta();
+    inputRowMeta.addValueMeta( new ValueMetaString( "name" ) );
+    inputRowMeta.addValueMeta( new ValueMetaInteger( "day" ) );
+    rows = new LinkedList<>();
+    rows.add( new Object[] { "first", 1L } );
+    rows.add( new Object[] { "second", 2L } );
+
+    database = mock( Database.class );
+    step = createStep( data, 0, rows );
+  }
+
+  private HiveBulkLoad createStep( HiveBulkLoadData stepData, int copy, Queue<Object[]> stepRows ) throws Exception {
+    RowHandler rowHandler = mock( RowHandler.class );
+    when( rowHandler.getRow() ).thenAnswer( invocation -> stepRows.poll() );
+
+    HiveBulkLoad bulkLoad = spy( new HiveBulkLoad( stepMeta, stepData, copy, transMeta, trans ) );
+    doReturn( database ).when( bulkLoad ).connect();
+    bulkLoad.setTransMeta( transMeta );
+    bulkLoad.setInputRowMeta( inputRowMeta );
+    bulkLoad.setRowHandler( rowHandler );
+    bulkLoad.setLogLevel( LogLevel.ERROR );
+    return bulkLoad;
+  }
+
+  private Object createStagingFile( String path ) throws Exception {
+    stagingFile = new File( path );
+    stagingFile.getParentFile().mkdirs();
+    assertTrue( stagingFile.createNewFile() );
+    stagingFiles.add( stagingFile );
+    return null;
+  }
+
+  private static void processAll( HiveBulkLoad bulkLoad, HiveBulkLoadMeta stepMeta, HiveBulkLoadData stepData )
+    throws Exception {
+    while ( bulkLoad.processRow( stepMeta, stepData ) ) {
+      // all rows go through
+    }
+  }
+
+  private List<String> run() throws Exception {
+    assertTrue( step.init( meta, data ) );
+    processAll( step, meta, data );
+    step.dispose( meta, data );
+    ArgumentCaptor<String> statements = ArgumentCaptor.forClass( String.class );
+    verify( database, atLeastOnce() ).execStatement( statements.capture() );
+    verify( database ).disconnect();
+    return statements.getAllValues();
+  }
+
+  @Test
+  public void testLoadData() throws Exception {
+    List<String> statements = run();
+
+    verify( writer, times( 2 ) ).write( any() );
+    assertTrue( stagingFile.getName().endsWith( ".orc" ) );
+    String stagingDirectory = stagingFile.getParent();
+    assertTrue( stagingDirectory.startsWith( stagingRoot.getAbsolutePath() + File.separator + "load_orders_"
+      + "Hive_Bulk_Load_" ) );
+    assertEquals( "part-00000.orc", stagingFile.getName() );
+    assertEquals( 1, statements.size() );
+    assertEquals( "LOAD DATA INPATH '" + stagingDirectory + "' INTO TABLE `sales`.`orders`", statements.get( 0 ) );
+    // the rows are loaded, the staging directory is no longer needed
+    assertFalse( new File( stagingDirectory ).exists() );
+    assertEquals( 2, data.stagedRows );
+  }
+
+  @Test
+  public void testInsertSelectIntoPartitions() throws Exception {
+    meta.setFileFormat( FileFormat.PARQUET );
+    meta.setLoadMethod( LoadMethod.INSERT_SELECT );
+    meta.setPartitionField( "day" );
+
+    List<String> statements = run();
+
+    assertTrue( stagingFile.getName().endsWith( ".parquet" ) );
+    assertEquals( 5, statements.size() );
+    assertTrue( statements.get( 0 ).startsWith( "CREATE EXTERNAL TABLE `sales`.`pdi_bulkload_" ) );
+    assertTrue( statements.get( 0 ).endsWith( "STORED AS PARQUET LOCATION '" + stagingFile.getParent() + "'" ) );
+    assertEquals( "SET hive.exec.dynamic.partition=true", statements.get( 1 ) );
+    assertEquals( "SET hive.exec.dynamic.partition.mode=nonstrict", statements.get( 2 ) );
+    assertTrue( statements.get( 3 ).startsWith( "INSERT INTO TABLE `sales`.`orders` PARTITION (`day`) "
+      + "SELECT `name`, `day` FROM `sales`.`pdi_bulkload_" ) );
+    assertTrue( statements.get( 4 ).startsWith( "DROP TABLE IF EXISTS `sales`.`pdi_bulkload_" ) );
+    assertFalse( stagingFile.getParentFile().exists() );
+  }
+
+  @Test
+  public void testCopiesOverwriteTheTableWithOneStatement() throws Exception {
+    meta.setOverwrite( true );
+    HiveBulkLoadData secondData = new HiveBulkLoadData();
+    Queue<Object[]> secondRows = new LinkedList<>();
+    secondRows.add( new Object[] { "third", 3L } );
+    HiveBulkLoad second = createStep( secondData, 1, secondRows );
+    when( trans.findStepInterfaces( STEP_NAME ) ).thenReturn( Arrays.<StepInterface>asList( step, second ) );
+    when( trans.getExtensionDataMap() ).thenReturn( new HashMap<>() );
+
+    assertTrue( step.init( meta, data ) );
+    assertTrue( second.init( meta, secondData ) );
+    processAll( second, meta, secondData );
+    second.dispose( meta, secondData );
+    // the second copy leaves the loading to the first one
+    verify( second, never() ).connect();
+    List<String> statements = run();
+
+    // both copies staged into one directory, which a single statement loads
+    assertEquals( 2, stagingFiles.size() );
+    assertEquals( "part-00001.orc", stagingFiles.get( 0 ).getName() );
+    String stagingDirectory = stagingFiles.get( 0 ).getParent();
+    assertEquals( stagingDirectory, stagingFiles.get( 1 ).getParent() );
+    assertEquals( 1, statements.size() );
+    assertEquals( "LOAD DATA INPATH '" + stagingDirectory + "' OVERWRITE INTO TABLE `sales`.`orders`",
+      statements.get( 0 ) );
+    verify( writer, times( 3 ) ).write( any() );
+    assertFalse( new File( stagingDirectory ).exists() );
+  }
+
+  @Test
+  public void testNothingIsLoadedWhenACopyFails() throws Exception {
+    meta.setOverwrite( true );
+    HiveBulkLoadData secondData = new HiveBulkLoadData();
+    Queue<Object[]> secondRows = new LinkedList<>();
+    secondRows.add( new Object[] { "third", 3L } );
+    HiveBulkLoad second = createStep( secondData, 1, secondRows );
+    when( trans.findStepInterfaces( STEP_NAME ) ).thenReturn( Arrays.<StepInterface>asList( step, second ) );
+    when( trans.getExtensionDataMap() ).thenReturn( new HashMap<>() );
+
+    assertTrue( step.init( meta, data ) );
+    assertTrue( second.init( meta, secondData ) );
+    // the second copy stops with its file still open
+    assertTrue( second.processRow( meta, secondData ) );
+    second.dispose( meta, secondData );
+    processAll( step, meta, data );
+    step.dispose( meta, data );
+
+    verify( database, never() ).execStatement( anyString() );
+    assertFalse( stagingFile.getParentFile().exists() );
+  }
+
+  @Test
+  public void testClusteredOverwriteIsRejected() {
+    meta.setOverwrite( true );
+    doReturn( 2 ).when( step ).getClusterSize();
+
+    assertFalse( step.init( meta, data ) );
+  }
+
+  @Test
+  public void testPartitionedLoadDataIsRejected() {
+    meta.setPartitionField( "day" );
+
+    assertFalse( step.init( meta, data ) );
+  }
+
+  @Test
+  public void testNothingIsLoadedWithoutRows() throws Exception {
+    rows.clear();
+
+    assertTrue( step.init( meta, data ) );
+    assertFalse( step.processRow( meta, data ) );
+    verify( database, never() ).execStatement( anyString() );
+  }
+}
@@ -15,8 +15,11 @@ package org.pentaho.big.data.kettle.plugins.hbase.input;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.pentaho.hadoop.shim.api.cluster.NamedClusterServiceLocator;
 import org.pentaho.big.data.kettle.plugins.hbase.mapping.HBaseRowToKettleTuple;
@@ -34,8 +37,10 @@ import org.pentaho.hadoop.shim.api.hbase.table.ResultScannerBuilder;
 import org.pentaho.di.core.Const;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.core.row.ValueMetaInterface;
 import org.pentaho.di.core.util.StringUtil;
+import org.pentaho.di.core.vfs.KettleVFS;
 import org.pentaho.di.i18n.BaseMessages;
 import org.pentaho.di.trans.Trans;
 import org.pentaho.di.trans.TransMeta;
@@ -60,6 +65,17 @@ public class HBaseInput extends BaseStep implements StepInterface {
   private HBaseService hBaseService;
   private HBaseTable m_hbAdminTable;
   private ResultScanner resultScanner;
+  /** The key ranges read by this copy, one scan after the other */
+  private List<KeyRange> keyRanges;
+  private int keyRangeIndex;
+  private String dateOrNumberConversionMaskForKey;
+  /** The snapshot read instead of scanning the table, and the regions of it read by this copy */
+  private HBaseSnapshotReader snapshotReader;
+  private List<HBaseSnapshotReader.Region> snapshotRegions;
+  private int snapshotRegionIndex;
+  private HBaseSnapshotReader.RegionRows snapshotRows;
+  private Set<String> snapshotFamilies;
+  private List<byte[][]> snapshotKeyRanges;
   private HBaseValueMetaInterfaceFactory hBaseValueMetaInterfaceFactory;
 
   public HBaseInput( StepMeta stepMeta, StepDataInterface stepDataInterface, int copyNr, TransMeta transMeta,
@@ -129,25 +145,30 @@ public class HBaseInput extends BaseStep implements StepInterface {
       if ( StringUtil.isEmpty( sourceName ) ) {
         throw new KettleException( BaseMessages.getString( HBaseInputMeta.PKG, "HBaseInput.TableName.Missing" ) );
       }
-      HBaseTable hBaseTable;
-      try {
-        hBaseTable = m_hbAdmin.getTable( sourceName );
-      } catch ( IOException e ) {
-        throw new KettleException( BaseMessages.getString( HBaseInputMeta.PKG, "HBaseInput.Error.CantGetTable", sourceName ), e );
-      }
-      try {
-        if ( !hBaseTable.exists() ) {
-          throw new KettleException( BaseMessages.getString( HBaseInputMeta.PKG,
-              "HBaseInput.Error.SourceTableDoesNotExist", sourceName ) );
+      String snapshotName = environmentSubstitute( m_meta.getSnapshotName() );
+      // a snapshot is read from the file system, even while its table is disabled
+      if ( Const.isEmpty( snapshotName ) ) {
+        HBaseTable hBaseTable;
+        try {
+          hBaseTable = m_hbAdmin.getTable( sourceName );
+        } catch ( IOException e ) {
+          throw new KettleException( BaseMessages.getString( HBaseInputMeta.PKG, "HBaseInput.Error.CantGetTable",
+            sourceName ), e );
         }
+        try {
+          if ( !hBaseTable.exists() ) {
+            throw new KettleException( BaseMessages.getString( HBaseInputMeta.PKG,
+                "HBaseInput.Error.SourceTableDoesNotExist", sourceName ) );
+          }
 
-        if ( hBaseTable.disabled() || !hBaseTable.available() ) {
+          if ( hBaseTable.disabled() || !hBaseTable.available() ) {
+            throw new KettleException( BaseMessages.getString( HBaseInputMeta.PKG,
+                "HBaseInput.Error.SourceTableIsNotAvailable", sourceName ) );
+          }
+        } catch ( Exception ex ) {
           throw new KettleException( BaseMessages.getString( HBaseInputMeta.PKG,
-              "HBaseInput.Error.SourceTableIsNotAvailable", sourceName ) );
+              "HBaseInput.Error.AvailabilityReadinessProblem", sourceName ), ex );
         }
-      } catch ( Exception ex ) {
-        throw new KettleException( BaseMessages.getString( HBaseInputMeta.PKG,
-            "HBaseInput.Error.AvailabilityReadinessProblem", sourceName ), ex );
       }
 
       if ( m_meta.getMapping() != null && Const.isEmpty( m_meta.getSourceMappingName() ) ) {
@@ -187,7 +208,7 @@ public class HBaseInput extends BaseStep implements StepInterface {
       // This can come from user-specified field information OR it can be
       // provided in the keyStart/keyStop values by suffixing the value with
       // "@converionMask"
-      String dateOrNumberConversionMaskForKey = null;
+      dateOrNumberConversionMaskForKey = null;
 
       // if there are any user-chosen output fields in the meta data then
       // check them against table mapping. All selected fields must be present
@@ -206,35 +227,25 @@ public class HBaseInput extends BaseStep implements StepInterface {
         }
       }
 
-      try {
-        m_hbAdminTable = m_hbAdmin.getTable( sourceName );
-      } catch ( Exception ex ) {
-        throw new KettleException( BaseMessages.getString( HBaseInputMeta.PKG,
-            "HBaseInput.Error.UnableToSetSourceTableForScan" ), ex );
-      }
-
-      ResultScannerBuilder scannerBuilder = m_hbAdminTable
-        .createScannerBuilder( m_tableMapping, dateOrNumberConversionMaskForKey, m_meta.getKeyStartValue(),
-          m_meta.getKeyStopValue(), m_meta.getScannerCacheSize(), log, this );
-
-      // LIMIT THE SCAN TO JUST THE COLUMNS IN THE MAPPING
-      // User-selected output columns?
-      if ( m_userOutputColumns != null && m_userOutputColumns.size() > 0 && !m_tableMapping.isTupleMapping() ) {
-        HBaseInputData.setScanColumns( scannerBuilder, m_userOutputColumns, m_tableMapping );
-      }
+      if ( !Const.isEmpty( snapshotName ) ) {
+        openSnapshot( snapshotName );
+      } else {
+        try {
+          m_hbAdminTable = m_hbAdmin.getTable( sourceName );
+        } catch ( Exception ex ) {
+          throw new KettleException( BaseMessages.getString( HBaseInputMeta.PKG,
+              "HBaseInput.Error.UnableToSetSourceTableForScan" ), ex );
+        }
 
-      // set any filters
-      if ( m_meta.getColumnFilters() != null && m_meta.getColumnFilters().size() > 0 ) {
-        HBaseInputData.setScanFilters( scannerBuilder, m_meta.getColumnFilters(), m_meta.getMatchAnyFilter(),
-          m_columnsMappedByAlias, this );
+        keyRanges = planKeyRanges();
+        if ( log.isDetailed() ) {
+          logDetailed( BaseMessages.getString( HBaseInputMeta.PKG, "HBaseInput.KeyRanges", keyRanges.size() ) );
+        }
       }
 
       if ( !isStopped() ) {
-        try {
-          resultScanner = scannerBuilder.build();
-        } catch ( Exception e ) {
-          throw new KettleException( BaseMessages.getString( HBaseInputMeta.PKG,
-              "HBaseInput.Error.UnableToExecuteSourceTableScan" ), e );
+        if ( snapshotReader == null ) {
+          resultScanner = nextScanner();
         }
 
         // set up the output fields (using the mapping)
@@ -244,18 +255,29 @@ public class HBaseInput extends BaseStep implements StepInterface {
       }
     }
 
-    Result next = null;
-    if ( !isStopped() ) {
+    Object next = null;
+    if ( snapshotReader != null ) {
+      next = nextSnapshotRow();
+    }
+    while ( !isStopped() && resultScanner != null ) {
       try {
         next = resultScanner.next();
       } catch ( Exception e ) {
         throw new KettleException( e.getMessage(), e );
       }
+      if ( next != null ) {
+        break;
+      }
+      // this range is done, go on with the next one
+      resultScanner = nextScanner();
     }
 
     if ( next == null ) {
+      closeSnapshotRegion();
       try {
-        m_hbAdminTable.close();
+        if ( m_hbAdminTable != null ) {
+          m_hbAdminTable.close();
+        }
         m_hbAdmin.close();
       } catch ( Exception e ) {
         throw new KettleException( BaseMessages.getString( HBaseInputMeta.PKG,
@@ -275,14 +297,253 @@ public class HBaseInput extends BaseStep implements StepInterface {
       }
       return true;
     } else {
-      Object[] outRowData =
-          HBaseInputData.getOutputRow( next, m_userOutputColumns, m_columnsMappedByAlias, m_tableMapping, m_data
-              .getOutputRowMeta() );
+      Object[] outRowData = next instanceof SnapshotRow
+          ? HBaseInputData.getOutputRow( (SnapshotRow) next, m_userOutputColumns, m_columnsMappedByAlias,
+              m_tableMapping, m_data.getOutputRowMeta() )
+          : HBaseInputData.getOutputRow( (Result) next, m_userOutputColumns, m_columnsMappedByAlias, m_tableMapping,
+              m_data.getOutputRowMeta() );
       putRow( m_data.getOutputRowMeta(), outRowData );
       return true;
     }
   }
 
+  /**
+   * Works out the key ranges this copy reads: the ranges of the incoming rows, the configured ranges or the start/stop
+   * range, expanded over the salt buckets of the table and, when they are spread over the step copies, only the ranges
+   * of this copy. The ranges of the incoming rows are not spread again, as the rows are already divided between the
+   * copies.
+   */
+  List<KeyRange> planKeyRanges() throws KettleException {
+    List<KeyRange> ranges = new ArrayList<>();
+    String startField = environmentSubstitute( m_meta.getKeyRangeStartField() );
+    boolean fromRows = !Const.isEmpty( startField );
+    if ( fromRows ) {
+      String stopField = environmentSubstitute( m_meta.getKeyRangeStopField() );
+      int startIndex = -1;
+      int stopIndex = -1;
+      Object[] row;
+      while ( ( row = getRow() ) != null ) {
+        RowMetaInterface inputRowMeta = getInputRowMeta();
+        if ( startIndex < 0 ) {
+          startIndex = inputRowMeta.indexOfValue( startField );
+          if ( startIndex < 0 ) {
+            throw new KettleException( BaseMessages.getString( HBaseInputMeta.PKG,
+              "HBaseInput.Error.KeyRangeFieldNotFound", startField ) );
+          }
+          if ( !Const.isEmpty( stopField ) ) {
+            stopIndex = inputRowMeta.indexOfValue( stopField );
+            if ( stopIndex < 0 ) {
+              throw new KettleException( BaseMessages.getString( HBaseInputMeta.PKG,
+                "HBaseInput.Error.KeyRangeFieldNotFound", stopField ) );
+            }
+          }
+        }
+        ranges.add( new KeyRange( inputRowMeta.getString( row, startIndex ),
+          stopIndex < 0 ? null : inputRowMeta.getString( row, stopIndex ) ) );
+      }
+    } else if ( m_meta.getKeyRanges() != null && !m_meta.getKeyRanges().isEmpty() ) {
+      for ( KeyRange range : m_meta.getKeyRanges() ) {
+        ranges.add( new KeyRange( environmentSubstitute( range.getStart() ),
+          environmentSubstitute( range.getStop() ) ) );
+      }
+    } else {
+      ranges.add( new KeyRange( environmentSubstitute( m_meta.getKeyStartValue() ),
+        environmentSubstitute( m_meta.getKeyStopValue() ) ) );
+    }
+
+    int saltBuckets = Const.toInt( environmentSubstitute( m_meta.getSaltBuckets() ), 0 );
+    if ( saltBuckets > 0 ) {
+      if ( m_tableMapping.getKeyType() != Mapping.KeyType.STRING ) {
+        throw new KettleException( BaseMessages.getString( HBaseInputMeta.PKG,
+          "HBaseInput.Error.SaltRequiresStringKeys" ) );
+      }
+      ranges = KeyRange.salt( ranges, saltBuckets, Const.NVL( environmentSubstitute( m_meta.getSaltPrefixFormat() ),
+        HBaseInputMeta.DEFAULT_SALT_PREFIX_FORMAT ) );
+    }
+    // only string keys sort like their values, other ranges are read as they are given
+    ranges = m_tableMapping.getKeyType() == Mapping.KeyType.STRING ? KeyRange.merge( ranges )
+      : KeyRange.distinct( ranges );
+
+    // the regions of a snapshot are divided between the copies instead of the ranges
+    if ( m_meta.getSpreadRangesOverCopies() && snapshotReader == null && !fromRows ) {
+      ranges = KeyRange.forCopy( ranges, getUniqueStepNrAcrossSlaves(), getUniqueStepCountAcrossSlaves() );
+    }
+    return ranges;
+  }
+
+  /**
+   * Closes the scanner of the current key range and opens the one of the next range.
+   *
+   * @return the scanner of the next range, or null if all ranges were read
+   */
+  private ResultScanner nextScanner() throws KettleException {
+    if ( resultScanner != null ) {
+      try {
+        resultScanner.close();
+      } catch ( Exception e ) {
+        logError( BaseMessages.getString( HBaseInputMeta.PKG, "HBaseInput.Error.ProblemClosingScanner",
+          e.getMessage() ), e );
+      }
+    }
+    if ( keyRangeIndex >= keyRanges.size() ) {
+      return null;
+    }
+    KeyRange range = keyRanges.get( keyRangeIndex++ );
+    if ( log.isDetailed() ) {
+      logDetailed( BaseMessages.getString( HBaseInputMeta.PKG, "HBaseInput.ScanningKeyRange", range ) );
+    }
+
+    ResultScannerBuilder scannerBuilder = m_hbAdminTable
+      .createScannerBuilder( m_tableMapping, dateOrNumberConversionMaskForKey, range.getStart(), range.getStop(),
+        m_meta.getScannerCacheSize(), log, this );
+
+    // LIMIT THE SCAN TO JUST THE COLUMNS IN THE MAPPING
+    // User-selected output columns?
+    if ( m_userOutputColumns != null && m_userOutputColumns.size() > 0 && !m_tableMapping.isTupleMapping() ) {
+      HBaseInputData.setScanColumns( scannerBuilder, m_userOutputColumns, m_tableMapping );
+    }
+
+    // set any filters
+    if ( m_meta.getColumnFilters() != null && m_meta.getColumnFilters().size() > 0 ) {
+      HBaseInputData.setScanFilters( scannerBuilder, m_meta.getColumnFilters(), m_meta.getMatchAnyFilter(),
+        m_columnsMappedByAlias, this );
+    }
+
+    try {
+      return scannerBuilder.build();
+    } catch ( Exception e ) {
+      throw new KettleException( BaseMessages.getString( HBaseInputMeta.PKG,
+          "HBaseInput.Error.UnableToExecuteSourceTableScan" ), e );
+    }
+  }
+
+  /**
+   * Opens the snapshot and works out the regions this copy reads: the regions holding keys of the key ranges, divided
+   * between the step copies.
+   */
+  private void openSnapshot( String snapshotName ) throws KettleException {
+    if ( m_meta.getColumnFilters() != null && m_meta.getColumnFilters().size() > 0 ) {
+      throw new KettleException( BaseMessages.getString( HBaseInputMeta.PKG, "HBaseInput.Error.SnapshotFilters" ) );
+    }
+    String rootDir = environmentSubstitute( m_meta.getSnapshotRootDir() );
+    if ( Const.isEmpty( rootDir ) ) {
+      throw new KettleException( BaseMessages.getString( HBaseInputMeta.PKG,
+        "HBaseInput.Error.SnapshotRootDirMissing" ) );
+    }
+    try {
+      snapshotReader = new HBaseSnapshotReader(
+        KettleVFS.getInstance( getTransMeta().getBowl() ).getFileObject( rootDir, this ), snapshotName );
+    } catch ( IOException | KettleException e ) {
+      throw new KettleException( BaseMessages.getString( HBaseInputMeta.PKG, "HBaseInput.Error.UnableToReadSnapshot",
+        snapshotName ), e );
+    }
+
+    List<KeyRange> ranges = planKeyRanges();
+    boolean allKeys = ranges.size() == 1 && Const.isEmpty( ranges.get( 0 ).getStart() )
+      && Const.isEmpty( ranges.get( 0 ).getStop() );
+    snapshotKeyRanges = null;
+    if ( !allKeys ) {
+      // the files hold the encoded keys, which only sort like the key values for string keys
+      if ( m_tableMapping.getKeyType() != Mapping.KeyType.STRING ) {
+        throw new KettleException( BaseMessages.getString( HBaseInputMeta.PKG, "HBaseInput.Error.SnapshotKeyRanges" ) );
+      }
+      snapshotKeyRanges = new ArrayList<>();
+      for ( KeyRange range : ranges ) {
+        snapshotKeyRanges.add( new byte[][] { toKeyBytes( range.getStart() ), toKeyBytes( range.getStop() ) } );
+      }
+    }
+
+    List<HBaseSnapshotReader.Region> regions = new ArrayList<>();
+    for ( HBaseSnapshotReader.Region region : snapshotReader.getRegions() ) {
+      if ( snapshotKeyRanges == null
+        || snapshotKeyRanges.stream().anyMatch( range -> region.overlaps( range[ 0 ], range[ 1 ] ) ) ) {
+        regions.add( region );
+      }
+    }
+    snapshotRegions = KeyRange.forCopy( regions, getUniqueStepNrAcrossSlaves(), getUniqueStepCountAcrossSlaves() );
+    snapshotFamilies = getSnapshotFamilies();
+    if ( log.isDetailed() ) {
+      logDetailed( BaseMessages.getString( HBaseInputMeta.PKG, "HBaseInput.SnapshotRegions", snapshotRegions.size(),
+        snapshotReader.getRegions().size(), snapshotName ) );
+    }
+  }
+
+  private byte[] toKeyBytes( String key ) {
+    return Const.isEmpty( key ) ? null : m_bytesUtil.toBytes( key );
+  }
+
+  /**
+   * @return the families holding the output columns, or null if all families are output
+   */
+  private Set<String> getSnapshotFamilies() {
+    Set<String> families = new HashSet<>();
+    if ( m_tableMapping.isTupleMapping() ) {
+      if ( Const.isEmpty( m_tableMapping.getTupleFamilies() ) ) {
+        return null;
+      }
+      for ( String family : m_tableMapping.getTupleFamiliesSplit() ) {
+        families.add( family.trim() );
+      }
+      return families;
+    }
+    Collection<HBaseValueMetaInterface> columns = m_userOutputColumns != null && m_userOutputColumns.size() > 0
+      ? m_userOutputColumns : m_columnsMappedByAlias.values();
+    for ( HBaseValueMetaInterface column : columns ) {
+      if ( !column.isKey() ) {
+        families.add( column.getColumnFamily() );
+      }
+    }
+    return families;
+  }
+
+  /**
+   * @return the next row of the snapshot regions read by this copy, or null if all were read
+   */
+  private SnapshotRow nextSnapshotRow() throws KettleException {
+    try {
+      while ( !isStopped() ) {
+        if ( snapshotRows != null ) {
+          SnapshotRow row = snapshotRows.next();
+          if ( row != null ) {
+            return row;
+          }
+          // this region is done, go on with the next one
+          closeSnapshotRegion();
+        }
+        if ( snapshotRegionIndex >= snapshotRegions.size() ) {
+          return null;
+        }
+        HBaseSnapshotReader.Region region = snapshotRegions.get( snapshotRegionIndex++ );
+        if ( log.isDetailed() ) {
+          logDetailed( BaseMessages.getString( HBaseInputMeta.PKG, "HBaseInput.ReadingSnapshotRegion", region ) );
+        }
+        snapshotRows = snapshotReader.openRegion( region, snapshotFamilies, snapshotKeyRanges );
+      }
+      return null;
+    } catch ( IOException e ) {
+      throw new KettleException( BaseMessages.getString( HBaseInputMeta.PKG, "HBaseInput.Error.UnableToReadSnapshot",
+        environmentSubstitute( m_meta.getSnapshotName() ) ), e );
+    }
+  }
+
+  private void closeSnapshotRegion() {
+    if ( snapshotRows != null ) {
+      try {
+        snapshotRows.close();
+      } catch ( IOException e ) {
+        logError( BaseMessages.getString( HBaseInputMeta.PKG, "HBaseInput.Error.ProblemClosingSnapshotRegion",
+          e.getMessage() ), e );
+      }
+      snapshotRows = null;
+    }
+  }
+
+  @Override
+  public void dispose( StepMetaInterface smi, StepDataInterface sdi ) {
+    closeSnapshotRegion();
+    super.dispose( smi, sdi );
+  }
+
   @Override
   public boolean init( StepMetaInterface smi, StepDataInterface sdi ) {
     if ( super.init( smi, sdi ) ) {
@@ -294,6 +555,12 @@ public class HBaseInput extends BaseStep implements StepInterface {
             getTransMeta().getEmbeddedMetastoreProviderKey() );
           meta.applyInjection( this );
         }
+        // a mapping loaded from the table is checked once it is read
+        if ( Const.toInt( environmentSubstitute( meta.getSaltBuckets() ), 0 ) > 0 && meta.getMapping() != null
+          && meta.getMapping().getKeyType() != Mapping.KeyType.STRING ) {
+          logError( BaseMessages.getString( HBaseInputMeta.PKG, "HBaseInput.Error.SaltRequiresStringKeys" ) );
+          return false;
+        }
         return true;
 
       } catch ( KettleException e ) {
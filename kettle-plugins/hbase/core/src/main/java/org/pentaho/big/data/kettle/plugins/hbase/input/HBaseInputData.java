@@ -50,6 +50,15 @@ public class HBaseInputData extends BaseStepData implements StepDataInterface {
   /** The output data format */
   protected RowMetaInterface m_outputRowMeta;
 
+  /**
+   * The key and column values of a row, as read by a scan or from a snapshot
+   */
+  interface RowCells {
+    byte[] getRow() throws Exception;
+
+    byte[] getValue( String colFamilyName, String qualifier, boolean binaryColName ) throws Exception;
+  }
+
   /**
    * Get the output row format
    * 
@@ -181,7 +190,7 @@ public class HBaseInputData extends BaseStepData implements StepDataInterface {
    * @param hBaseService
    *          the hBaseService
    * @param result
-   *          the result to use
+   *          the result or snapshot row to use
    * @param userOutputColumns
    *          user-specified subset of columns (if any) from the mapping
    * @param columnsMappedByAlias
@@ -196,7 +205,7 @@ public class HBaseInputData extends BaseStepData implements StepDataInterface {
    * @throws KettleException
    *           if a problem occurs
    */
-  public static List<Object[]> getTupleOutputRows( HBaseService hBaseService, Result result, List<HBaseValueMetaInterface> userOutputColumns,
+  public static List<Object[]> getTupleOutputRows( HBaseService hBaseService, Object result, List<HBaseValueMetaInterface> userOutputColumns,
                                                    Map<String, HBaseValueMetaInterface> columnsMappedByAlias, Mapping tableMapping, HBaseRowToKettleTuple tupleHandler,
                                                    RowMetaInterface outputRowMeta ) throws KettleException {
 
@@ -226,6 +235,26 @@ public class HBaseInputData extends BaseStepData implements StepDataInterface {
    */
   public static Object[] getOutputRow( Result result, List<HBaseValueMetaInterface> userOutputColumns,
       Map<String, HBaseValueMetaInterface> columnsMappedByAlias, Mapping tableMapping, RowMetaInterface outputRowMeta ) throws KettleException {
+    RowCells cells = new RowCells() {
+      @Override
+      public byte[] getRow() throws Exception {
+        return result.getRow();
+      }
+
+      @Override
+      public byte[] getValue( String colFamilyName, String qualifier, boolean binaryColName ) throws Exception {
+        return result.getValue( colFamilyName, qualifier, binaryColName );
+      }
+    };
+    return getOutputRow( cells, userOutputColumns, columnsMappedByAlias, tableMapping, outputRowMeta );
+  }
+
+  /**
+   * Convert/decode a row read from a scan or from a snapshot into a kettle row
+   */
+  static Object[] getOutputRow( RowCells result, List<HBaseValueMetaInterface> userOutputColumns,
+      Map<String, HBaseValueMetaInterface> columnsMappedByAlias, Mapping tableMapping, RowMetaInterface outputRowMeta )
+    throws KettleException {
 
     int size = ( userOutputColumns != null && userOutputColumns.size() > 0 ) ? userOutputColumns.size()
       : tableMapping.numMappedColumns() + 1; // + 1 for the key
@@ -31,6 +31,7 @@ import org.eclipse.swt.layout.FormData;
 import org.eclipse.swt.layout.FormLayout;
 import org.eclipse.swt.widgets.Button;
 import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Control;
 import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Event;
 import org.eclipse.swt.widgets.FileDialog;
@@ -159,6 +160,20 @@ public class HBaseInputDialog extends BaseStepDialog implements StepDialogInterf
   private Button m_matchAllBut;
   private Button m_matchAnyBut;
 
+  // key ranges widgets
+  private CTabItem m_wRangesTab;
+  private TextVar m_keyRangeStartFieldText;
+  private TextVar m_keyRangeStopFieldText;
+  private TextVar m_saltBucketsText;
+  private TextVar m_saltPrefixFormatText;
+  private Button m_spreadRangesBut;
+  private TableView m_keyRangesView;
+
+  // snapshot widgets
+  private CTabItem m_wSnapshotTab;
+  private TextVar m_snapshotNameText;
+  private TextVar m_snapshotRootDirText;
+
   // mapping editor composite
   private MappingEditor m_mappingEditor;
 
@@ -837,6 +852,103 @@ public class HBaseInputDialog extends BaseStepDialog implements StepDialogInterf
     wFilterComp.layout();
     m_wFilterTab.setControl( wFilterComp );
 
+    // ----- Start of the key ranges tab --------
+    m_wRangesTab = new CTabItem( m_wTabFolder, SWT.NONE );
+    m_wRangesTab.setText( Messages.getString( "HBaseInputDialog.RangesTab.TabTitle" ) );
+
+    Composite wRangesComp = new Composite( m_wTabFolder, SWT.NONE );
+    props.setLook( wRangesComp );
+
+    FormLayout rangesLayout = new FormLayout();
+    rangesLayout.marginWidth = 3;
+    rangesLayout.marginHeight = 3;
+    wRangesComp.setLayout( rangesLayout );
+
+    m_keyRangeStartFieldText = addLabeledText( wRangesComp, null, "HBaseInputDialog.KeyRangeStartField", lsMod );
+    m_keyRangeStopFieldText =
+      addLabeledText( wRangesComp, m_keyRangeStartFieldText, "HBaseInputDialog.KeyRangeStopField", lsMod );
+    m_saltBucketsText = addLabeledText( wRangesComp, m_keyRangeStopFieldText, "HBaseInputDialog.SaltBuckets", lsMod );
+    m_saltPrefixFormatText =
+      addLabeledText( wRangesComp, m_saltBucketsText, "HBaseInputDialog.SaltPrefixFormat", lsMod );
+
+    Label spreadRangesLab = new Label( wRangesComp, SWT.RIGHT );
+    spreadRangesLab.setText( Messages.getString( "HBaseInputDialog.SpreadRangesOverCopies.Label" ) );
+    spreadRangesLab.setToolTipText( Messages.getString( "HBaseInputDialog.SpreadRangesOverCopies.TipText" ) );
+    props.setLook( spreadRangesLab );
+    fd = new FormData();
+    fd.left = new FormAttachment( 0, 0 );
+    fd.top = new FormAttachment( m_saltPrefixFormatText, margin );
+    fd.right = new FormAttachment( middle, -margin );
+    spreadRangesLab.setLayoutData( fd );
+
+    m_spreadRangesBut = new Button( wRangesComp, SWT.CHECK );
+    m_spreadRangesBut.setToolTipText( Messages.getString( "HBaseInputDialog.SpreadRangesOverCopies.TipText" ) );
+    props.setLook( m_spreadRangesBut );
+    fd = new FormData();
+    fd.left = new FormAttachment( middle, 0 );
+    fd.top = new FormAttachment( m_saltPrefixFormatText, margin );
+    m_spreadRangesBut.setLayoutData( fd );
+    m_spreadRangesBut.addSelectionListener( new SelectionAdapter() {
+      @Override
+      public void widgetSelected( SelectionEvent e ) {
+        m_currentMeta.setChanged();
+      }
+    } );
+
+    final ColumnInfo[] colinf3 =
+      new ColumnInfo[] {
+        new ColumnInfo( Messages.getString( "HBaseInputDialog.KeyRanges.START" ), ColumnInfo.COLUMN_TYPE_TEXT,
+          false ),
+        new ColumnInfo( Messages.getString( "HBaseInputDialog.KeyRanges.STOP" ), ColumnInfo.COLUMN_TYPE_TEXT,
+          false ) };
+    colinf3[ 0 ].setUsingVariables( true );
+    colinf3[ 1 ].setUsingVariables( true );
+
+    m_keyRangesView = new TableView( transMeta, wRangesComp, SWT.FULL_SELECTION | SWT.MULTI, colinf3, 1, lsMod, props );
+
+    fd = new FormData();
+    fd.top = new FormAttachment( m_spreadRangesBut, margin * 2 );
+    fd.bottom = new FormAttachment( 100, -margin * 2 );
+    fd.left = new FormAttachment( 0, 0 );
+    fd.right = new FormAttachment( 100, 0 );
+    m_keyRangesView.setLayoutData( fd );
+
+    fd = new FormData();
+    fd.left = new FormAttachment( 0, 0 );
+    fd.top = new FormAttachment( 0, 0 );
+    fd.right = new FormAttachment( 100, 0 );
+    fd.bottom = new FormAttachment( 100, 0 );
+    wRangesComp.setLayoutData( fd );
+
+    wRangesComp.layout();
+    m_wRangesTab.setControl( wRangesComp );
+
+    // ----- Start of the snapshot tab --------
+    m_wSnapshotTab = new CTabItem( m_wTabFolder, SWT.NONE );
+    m_wSnapshotTab.setText( Messages.getString( "HBaseInputDialog.SnapshotTab.TabTitle" ) );
+
+    Composite wSnapshotComp = new Composite( m_wTabFolder, SWT.NONE );
+    props.setLook( wSnapshotComp );
+
+    FormLayout snapshotLayout = new FormLayout();
+    snapshotLayout.marginWidth = 3;
+    snapshotLayout.marginHeight = 3;
+    wSnapshotComp.setLayout( snapshotLayout );
+
+    m_snapshotNameText = addLabeledText( wSnapshotComp, null, "HBaseInputDialog.SnapshotName", lsMod );
+    m_snapshotRootDirText =
+      addLabeledText( wSnapshotComp, m_snapshotNameText, "HBaseInputDialog.SnapshotRootDir", lsMod );
+
+    fd = new FormData();
+    fd.left = new FormAttachment( 0, 0 );
+    fd.top = new FormAttachment( 0, 0 );
+    fd.right = new FormAttachment( 100, 0 );
+    fd.bottom = new FormAttachment( 100, 0 );
+    wSnapshotComp.setLayoutData( fd );
+
+    wSnapshotComp.layout();
+    m_wSnapshotTab.setControl( wSnapshotComp );
+
     fd = new FormData();
     fd.left = new FormAttachment( 0, 0 );
     fd.top = new FormAttachment( m_stepnameText, margin );
@@ -1013,6 +1125,19 @@ public class HBaseInputDialog extends BaseStepDialog implements StepDialogInterf
     m_currentMeta.setKeyStopValue( m_keyStopText.getText() );
     m_currentMeta.setScannerCacheSize( m_scanCacheText.getText() );
     m_currentMeta.setMatchAnyFilter( m_matchAnyBut.getSelection() );
+    m_currentMeta.setKeyRangeStartField( m_keyRangeStartFieldText.getText() );
+    m_currentMeta.setKeyRangeStopField( m_keyRangeStopFieldText.getText() );
+    m_currentMeta.setSaltBuckets( m_saltBucketsText.getText() );
+    m_currentMeta.setSaltPrefixFormat( m_saltPrefixFormatText.getText() );
+    m_currentMeta.setSpreadRangesOverCopies( m_spreadRangesBut.getSelection() );
+    List<KeyRange> keyRanges = new ArrayList<>();
+    for ( int i = 0; i < m_keyRangesView.nrNonEmpty(); i++ ) {
+      TableItem item = m_keyRangesView.getNonEmpty( i );
+      keyRanges.add( new KeyRange( item.getText( 1 ).trim(), item.getText( 2 ).trim() ) );
+    }
+    m_currentMeta.setKeyRanges( keyRanges );
+    m_currentMeta.setSnapshotName( m_snapshotNameText.getText() );
+    m_currentMeta.setSnapshotRootDir( m_snapshotRootDirText.getText() );
 
     int numNonEmpty = m_fieldsView.nrNonEmpty();
     if ( numNonEmpty > 0 ) {
@@ -1153,6 +1278,32 @@ public class HBaseInputDialog extends BaseStepDialog implements StepDialogInterf
     dispose();
   }
 
+  private TextVar addLabeledText( Composite parent, Control above, String messageKey, ModifyListener lsMod ) {
+    int middle = props.getMiddlePct();
+    int margin = Const.MARGIN;
+
+    Label label = new Label( parent, SWT.RIGHT );
+    label.setText( Messages.getString( messageKey + ".Label" ) );
+    label.setToolTipText( Messages.getString( messageKey + ".TipText" ) );
+    props.setLook( label );
+    FormData fd = new FormData();
+    fd.left = new FormAttachment( 0, 0 );
+    fd.top = above == null ? new FormAttachment( 0, 0 ) : new FormAttachment( above, margin );
+    fd.right = new FormAttachment( middle, -margin );
+    label.setLayoutData( fd );
+
+    TextVar text = new TextVar( transMeta, parent, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    text.setToolTipText( Messages.getString( messageKey + ".TipText" ) );
+    text.addModifyListener( lsMod );
+    props.setLook( text );
+    fd = new FormData();
+    fd.right = new FormAttachment( 100, 0 );
+    fd.left = new FormAttachment( middle, 0 );
+    fd.top = above == null ? new FormAttachment( 0, 0 ) : new FormAttachment( above, margin );
+    text.setLayoutData( fd );
+    return text;
+  }
+
   private void getData() {
 
     namedClusterWidget.setSelectedNamedCluster( m_currentMeta.getNamedCluster().getName() );
@@ -1188,6 +1339,27 @@ public class HBaseInputDialog extends BaseStepDialog implements StepDialogInterf
     m_matchAnyBut.setSelection( m_currentMeta.getMatchAnyFilter() );
     m_matchAllBut.setSelection( !m_currentMeta.getMatchAnyFilter() );
 
+    // key ranges
+    m_keyRangeStartFieldText.setText( Const.NVL( m_currentMeta.getKeyRangeStartField(), "" ) );
+    m_keyRangeStopFieldText.setText( Const.NVL( m_currentMeta.getKeyRangeStopField(), "" ) );
+    m_saltBucketsText.setText( Const.NVL( m_currentMeta.getSaltBuckets(), "" ) );
+    m_saltPrefixFormatText.setText( Const.NVL( m_currentMeta.getSaltPrefixFormat(), "" ) );
+    m_spreadRangesBut.setSelection( m_currentMeta.getSpreadRangesOverCopies() );
+    if ( m_currentMeta.getKeyRanges() != null && m_currentMeta.getKeyRanges().size() > 0 ) {
+      for ( KeyRange range : m_currentMeta.getKeyRanges() ) {
+        TableItem item = new TableItem( m_keyRangesView.table, SWT.NONE );
+        item.setText( 1, Const.NVL( range.getStart(), "" ) );
+        item.setText( 2, Const.NVL( range.getStop(), "" ) );
+      }
+      m_keyRangesView.removeEmptyRows();
+      m_keyRangesView.setRowNums();
+      m_keyRangesView.optWidth( true );
+    }
+
+    // snapshot
+    m_snapshotNameText.setText( Const.NVL( m_currentMeta.getSnapshotName(), "" ) );
+    m_snapshotRootDirText.setText( Const.NVL( m_currentMeta.getSnapshotRootDir(), "" ) );
+
     // filters
     if ( m_currentMeta.getColumnFilters() != null && m_currentMeta.getColumnFilters().size() > 0 ) {
       for ( ColumnFilter f : m_currentMeta.getColumnFilters() ) {
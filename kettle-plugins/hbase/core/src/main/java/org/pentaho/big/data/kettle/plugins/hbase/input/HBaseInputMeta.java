@@ -91,11 +91,14 @@ import java.util.Set;
     categoryDescription = "i18n:org.pentaho.di.trans.step:BaseStep.Category.BigData",
     documentationUrl = "mk-95pdia003/pdi-transformation-steps/hbase-input",
     i18nPackageName = "org.pentaho.di.trans.steps.hbaseinput" )
-@InjectionSupported( localizationPrefix = "HBaseInput.Injection.", groups = {"OUTPUT_FIELDS", "MAPPING", "FILTER"} )
+@InjectionSupported( localizationPrefix = "HBaseInput.Injection.", groups = {"OUTPUT_FIELDS", "MAPPING", "FILTER",
+  "KEY_RANGES"} )
 public class HBaseInputMeta extends BaseStepMeta implements StepMetaInterface {
 
   protected static Class<?> PKG = HBaseInputMeta.class;
 
+  public static final String DEFAULT_SALT_PREFIX_FORMAT = "%d";
+
   private final NamedClusterLoadSaveUtil namedClusterLoadSaveUtil;
   private final NamedClusterService namedClusterService;
   private final NamedClusterServiceLocator namedClusterServiceLocator;
@@ -141,6 +144,54 @@ public class HBaseInputMeta extends BaseStepMeta implements StepMetaInterface {
   @Injection( name = "STOP_KEY_VALUE" )
   protected String m_keyStop;
 
+  /**
+   * Key ranges to read instead of the start/stop range. Overlapping ranges are only read once
+   */
+  @InjectionDeep
+  protected List<KeyRange> m_keyRanges = new ArrayList<>();
+
+  /**
+   * Incoming field holding the start keys of the ranges to read, null to not read the ranges from the input
+   */
+  @Injection( name = "KEY_RANGE_START_FIELD" )
+  protected String m_keyRangeStartField;
+
+  /**
+   * Incoming field holding the stop keys of the ranges to read
+   */
+  @Injection( name = "KEY_RANGE_STOP_FIELD" )
+  protected String m_keyRangeStopField;
+
+  /**
+   * Number of salt buckets prefixed to the keys of the table, each range is read in every bucket
+   */
+  @Injection( name = "SALT_BUCKETS" )
+  protected String m_saltBuckets;
+
+  /**
+   * Format of the salt prefix of the keys, given the bucket number
+   */
+  @Injection( name = "SALT_PREFIX_FORMAT" )
+  protected String m_saltPrefixFormat;
+
+  /**
+   * If true, the ranges are divided between the step copies instead of each copy reading all of them
+   */
+  @Injection( name = "SPREAD_RANGES_OVER_COPIES" )
+  protected boolean m_spreadRangesOverCopies;
+
+  /**
+   * Name of the snapshot to read straight from its HFiles instead of scanning the table
+   */
+  @Injection( name = "SNAPSHOT_NAME" )
+  protected String m_snapshotName;
+
+  /**
+   * The HBase root directory holding the snapshot
+   */
+  @Injection( name = "SNAPSHOT_ROOT_DIR" )
+  protected String m_snapshotRootDir;
+
   /**
    * Scanner caching
    */
@@ -367,6 +418,120 @@ public class HBaseInputMeta extends BaseStepMeta implements StepMetaInterface {
     return m_keyStop;
   }
 
+  /**
+   * Set the key ranges to read. When not empty they replace the start and stop key values
+   *
+   * @param keyRanges the key ranges to read
+   */
+  public void setKeyRanges( List<KeyRange> keyRanges ) {
+    m_keyRanges = keyRanges;
+  }
+
+  /**
+   * Get the key ranges to read
+   *
+   * @return the key ranges to read, empty if the start and stop key values are used
+   */
+  public List<KeyRange> getKeyRanges() {
+    return m_keyRanges;
+  }
+
+  /**
+   * Set the incoming field holding the start keys of the ranges to read. When set, the ranges are read from the
+   * incoming rows instead of the step settings
+   *
+   * @param field the name of the incoming field, or null
+   */
+  public void setKeyRangeStartField( String field ) {
+    m_keyRangeStartField = field;
+  }
+
+  public String getKeyRangeStartField() {
+    return m_keyRangeStartField;
+  }
+
+  /**
+   * Set the incoming field holding the stop keys of the ranges to read
+   *
+   * @param field the name of the incoming field, or null to read each range to the end of the table
+   */
+  public void setKeyRangeStopField( String field ) {
+    m_keyRangeStopField = field;
+  }
+
+  public String getKeyRangeStopField() {
+    return m_keyRangeStopField;
+  }
+
+  /**
+   * Set the number of salt buckets of the table. The keys of a salted table start with the number of their bucket,
+   * formatted with the salt prefix format, and each range is read in every bucket
+   *
+   * @param buckets the number of buckets, blank if the keys aren't salted
+   */
+  public void setSaltBuckets( String buckets ) {
+    m_saltBuckets = buckets;
+  }
+
+  public String getSaltBuckets() {
+    return m_saltBuckets;
+  }
+
+  /**
+   * Set the format of the salt prefix of the keys, a {@link String#format(String, Object...)} pattern given the bucket
+   * number. Defaults to {@value #DEFAULT_SALT_PREFIX_FORMAT}
+   *
+   * @param format the format of the salt prefix
+   */
+  public void setSaltPrefixFormat( String format ) {
+    m_saltPrefixFormat = format;
+  }
+
+  public String getSaltPrefixFormat() {
+    return m_saltPrefixFormat;
+  }
+
+  /**
+   * Set whether the ranges are divided between the step copies, so that each range is read by one copy only. Ranges
+   * taken from incoming rows are already divided between the copies with the rows and are not divided again
+   *
+   * @param spread true to divide the ranges between the copies
+   */
+  public void setSpreadRangesOverCopies( boolean spread ) {
+    m_spreadRangesOverCopies = spread;
+  }
+
+  public boolean getSpreadRangesOverCopies() {
+    return m_spreadRangesOverCopies;
+  }
+
+  /**
+   * Set the name of an existing snapshot of the source table to read. The rows are then read from the HFiles of the
+   * snapshot, with its regions divided between the step copies, instead of being scanned through the RegionServers
+   *
+   * @param name the name of the snapshot, blank to scan the table
+   */
+  public void setSnapshotName( String name ) {
+    m_snapshotName = name;
+  }
+
+  public String getSnapshotName() {
+    return m_snapshotName;
+  }
+
+  /**
+   * Set the HBase root directory (hbase.rootdir) holding the snapshot, as a VFS URL such as hc://cluster/hbase
+   *
+   * @param rootDir the root directory
+   */
+  public void setSnapshotRootDir( String rootDir ) {
+    m_snapshotRootDir = rootDir;
+  }
+
+  public String getSnapshotRootDir() {
+    return m_snapshotRootDir;
+  }
+
   /**
    * Set the number of rows to cache for scans. Higher values result in improved performance since there will be fewer
    * requests to HBase but at the expense of increased memory consumption.
@@ -432,6 +597,14 @@ public class HBaseInputMeta extends BaseStepMeta implements StepMetaInterface {
     m_sourceMappingName = null;
     m_keyStart = null;
     m_keyStop = null;
+    m_keyRanges = new ArrayList<>();
+    m_keyRangeStartField = null;
+    m_keyRangeStopField = null;
+    m_saltBuckets = null;
+    m_saltPrefixFormat = null;
+    m_spreadRangesOverCopies = false;
+    m_snapshotName = null;
+    m_snapshotRootDir = null;
     namedCluster = namedClusterService.getClusterTemplate();
   }
 
@@ -606,6 +779,36 @@ public class HBaseInputMeta extends BaseStepMeta implements StepMetaInterface {
     if ( !Const.isEmpty( m_keyStop ) ) {
       retval.append( "\n    " ).append( XMLHandler.addTagValue( "key_stop", m_keyStop ) );
     }
+    if ( m_keyRanges != null && m_keyRanges.size() > 0 ) {
+      retval.append( "\n    " ).append( XMLHandler.openTag( "key_ranges" ) );
+      for ( KeyRange range : m_keyRanges ) {
+        retval.append( "\n      " ).append( XMLHandler.openTag( "key_range" ) );
+        retval.append( "\n        " ).append( XMLHandler.addTagValue( "start", range.getStart() ) );
+        retval.append( "\n        " ).append( XMLHandler.addTagValue( "stop", range.getStop() ) );
+        retval.append( "\n      " ).append( XMLHandler.closeTag( "key_range" ) );
+      }
+      retval.append( "\n    " ).append( XMLHandler.closeTag( "key_ranges" ) );
+    }
+    if ( !Const.isEmpty( m_keyRangeStartField ) ) {
+      retval.append( "\n    " ).append( XMLHandler.addTagValue( "key_range_start_field", m_keyRangeStartField ) );
+    }
+    if ( !Const.isEmpty( m_keyRangeStopField ) ) {
+      retval.append( "\n    " ).append( XMLHandler.addTagValue( "key_range_stop_field", m_keyRangeStopField ) );
+    }
+    if ( !Const.isEmpty( m_saltBuckets ) ) {
+      retval.append( "\n    " ).append( XMLHandler.addTagValue( "salt_buckets", m_saltBuckets ) );
+    }
+    if ( !Const.isEmpty( m_saltPrefixFormat ) ) {
+      retval.append( "\n    " ).append( XMLHandler.addTagValue( "salt_prefix_format", m_saltPrefixFormat ) );
+    }
+    retval.append( "\n    " ).append( XMLHandler.addTagValue( "spread_ranges_over_copies",
+      m_spreadRangesOverCopies ) );
+    if ( !Const.isEmpty( m_snapshotName ) ) {
+      retval.append( "\n    " ).append( XMLHandler.addTagValue( "snapshot_name", m_snapshotName ) );
+    }
+    if ( !Const.isEmpty( m_snapshotRootDir ) ) {
+      retval.append( "\n    " ).append( XMLHandler.addTagValue( "snapshot_root_dir", m_snapshotRootDir ) );
+    }
     if ( !Const.isEmpty( m_scannerCacheSize ) ) {
       retval.append( "\n    " ).append( XMLHandler.addTagValue( "scanner_cache_size", m_scannerCacheSize ) );
     }
@@ -663,6 +866,21 @@ public class HBaseInputMeta extends BaseStepMeta implements StepMetaInterface {
     m_sourceMappingName = XMLHandler.getTagValue( stepnode, "source_mapping_name" );
     m_keyStart = XMLHandler.getTagValue( stepnode, "key_start" );
     m_keyStop = XMLHandler.getTagValue( stepnode, "key_stop" );
+    m_keyRanges = new ArrayList<>();
+    Node ranges = XMLHandler.getSubNode( stepnode, "key_ranges" );
+    if ( ranges != null ) {
+      for ( Node range : XMLHandler.getNodes( ranges, "key_range" ) ) {
+        m_keyRanges.add( new KeyRange( XMLHandler.getTagValue( range, "start" ),
+          XMLHandler.getTagValue( range, "stop" ) ) );
+      }
+    }
+    m_keyRangeStartField = XMLHandler.getTagValue( stepnode, "key_range_start_field" );
+    m_keyRangeStopField = XMLHandler.getTagValue( stepnode, "key_range_stop_field" );
+    m_saltBuckets = XMLHandler.getTagValue( stepnode, "salt_buckets" );
+    m_saltPrefixFormat = XMLHandler.getTagValue( stepnode, "salt_prefix_format" );
+    m_spreadRangesOverCopies = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "spread_ranges_over_copies" ) );
+    m_snapshotName = XMLHandler.getTagValue( stepnode, "snapshot_name" );
+    m_snapshotRootDir = XMLHandler.getTagValue( stepnode, "snapshot_root_dir" );
     m_scannerCacheSize = XMLHandler.getTagValue( stepnode, "scanner_cache_size" );
     String m = XMLHandler.getTagValue( stepnode, "match_any_filter" );
     if ( !Const.isEmpty( m ) ) {
@@ -765,6 +983,32 @@ public class HBaseInputMeta extends BaseStepMeta implements StepMetaInterface {
     if ( !Const.isEmpty( m_keyStop ) ) {
       rep.saveStepAttribute( id_transformation, id_step, 0, "key_stop", m_keyStop );
     }
+    if ( m_keyRanges != null ) {
+      for ( int i = 0; i < m_keyRanges.size(); i++ ) {
+        rep.saveStepAttribute( id_transformation, id_step, i, "key_range_start",
+          Const.NVL( m_keyRanges.get( i ).getStart(), "" ) );
+        rep.saveStepAttribute( id_transformation, id_step, i, "key_range_stop", m_keyRanges.get( i ).getStop() );
+      }
+    }
+    if ( !Const.isEmpty( m_keyRangeStartField ) ) {
+      rep.saveStepAttribute( id_transformation, id_step, 0, "key_range_start_field", m_keyRangeStartField );
+    }
+    if ( !Const.isEmpty( m_keyRangeStopField ) ) {
+      rep.saveStepAttribute( id_transformation, id_step, 0, "key_range_stop_field", m_keyRangeStopField );
+    }
+    if ( !Const.isEmpty( m_saltBuckets ) ) {
+      rep.saveStepAttribute( id_transformation, id_step, 0, "salt_buckets", m_saltBuckets );
+    }
+    if ( !Const.isEmpty( m_saltPrefixFormat ) ) {
+      rep.saveStepAttribute( id_transformation, id_step, 0, "salt_prefix_format", m_saltPrefixFormat );
+    }
+    rep.saveStepAttribute( id_transformation, id_step, 0, "spread_ranges_over_copies", m_spreadRangesOverCopies );
+    if ( !Const.isEmpty( m_snapshotName ) ) {
+      rep.saveStepAttribute( id_transformation, id_step, 0, "snapshot_name", m_snapshotName );
+    }
+    if ( !Const.isEmpty( m_snapshotRootDir ) ) {
+      rep.saveStepAttribute( id_transformation, id_step, 0, "snapshot_root_dir", m_snapshotRootDir );
+    }
     if ( !Const.isEmpty( m_scannerCacheSize ) ) {
       rep.saveStepAttribute( id_transformation, id_step, 0, "scanner_cache_size", m_scannerCacheSize );
     }
@@ -813,6 +1057,19 @@ public class HBaseInputMeta extends BaseStepMeta implements StepMetaInterface {
     m_sourceMappingName = rep.getStepAttributeString( id_step, 0, "source_mapping_name" );
     m_keyStart = rep.getStepAttributeString( id_step, 0, "key_start" );
     m_keyStop = rep.getStepAttributeString( id_step, 0, "key_stop" );
+    m_keyRanges = new ArrayList<>();
+    int nrRanges = rep.countNrStepAttributes( id_step, "key_range_start" );
+    for ( int i = 0; i < nrRanges; i++ ) {
+      m_keyRanges.add( new KeyRange( rep.getStepAttributeString( id_step, i, "key_range_start" ),
+        rep.getStepAttributeString( id_step, i, "key_range_stop" ) ) );
+    }
+    m_keyRangeStartField = rep.getStepAttributeString( id_step, 0, "key_range_start_field" );
+    m_keyRangeStopField = rep.getStepAttributeString( id_step, 0, "key_range_stop_field" );
+    m_saltBuckets = rep.getStepAttributeString( id_step, 0, "salt_buckets" );
+    m_saltPrefixFormat = rep.getStepAttributeString( id_step, 0, "salt_prefix_format" );
+    m_spreadRangesOverCopies = rep.getStepAttributeBoolean( id_step, 0, "spread_ranges_over_copies" );
+    m_snapshotName = rep.getStepAttributeString( id_step, 0, "snapshot_name" );
+    m_snapshotRootDir = rep.getStepAttributeString( id_step, 0, "snapshot_root_dir" );
     m_matchAnyFilter = rep.getStepAttributeBoolean( id_step, 0, "match_any_filter" );
     m_scannerCacheSize = rep.getStepAttributeString( id_step, 0, "scanner_cache_size" );
 
@@ -856,6 +1113,13 @@ public class HBaseInputMeta extends BaseStepMeta implements StepMetaInterface {
       CheckResult cr =
           new CheckResult( CheckResult.TYPE_RESULT_OK, "Step can connect to HBase. Named mapping exists", stepMeta );
       remarks.add( cr );
+
+      // salt prefixes are strings, and only string keys can carry them
+      if ( Const.toInt( transMeta.environmentSubstitute( m_saltBuckets ), 0 ) > 0 && m_cachedMapping != null
+        && m_cachedMapping.getKeyType() != Mapping.KeyType.STRING ) {
+        remarks.add( new CheckResult( CheckResult.TYPE_RESULT_ERROR,
+          Messages.getString( "HBaseInput.Error.SaltRequiresStringKeys" ), stepMeta ) );
+      }
     } catch ( Exception ex ) {
       CheckResult cr = new CheckResult( CheckResult.TYPE_RESULT_ERROR, ex.getMessage(), stepMeta );
       remarks.add( cr );
@@ -0,0 +1,446 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.big.data.kettle.plugins.hbase.input;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.vfs2.FileObject;
+
+import java.io.Closeable;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reads the rows of an HBase snapshot straight from its HFiles, without going through the RegionServers. The snapshot
+ * is found under the HBase root directory, which can be on any file system Kettle VFS reaches, such as the HDFS of a
+ * named cluster or a local directory.
+ * <p>
+ * The reader understands the version 2 snapshot manifests HBase writes from 0.98 on. Snapshots holding reference
+ * files of freshly split regions have to be taken again after the daughter regions were compacted.
+ */
+public class HBaseSnapshotReader {
+  public static final String SNAPSHOT_DIR = ".hbase-snapshot";
+  public static final String DATA_MANIFEST = "data.manifest";
+  public static final String DEFAULT_NAMESPACE = "default";
+
+  /** the name of a link to an HFile of another table, as written when cloning a snapshot */
+  private static final Pattern HFILE_LINK = Pattern.compile( "(?:([^=]+)=)?([^=]+)=([0-9a-f]+)-(.+)" );
+
+  private final FileObject rootDir;
+  private final String snapshotName;
+  private final List<Region> regions = new ArrayList<>();
+
+  /**
+   * A region of the snapshot and the HFiles holding its cells
+   */
+  public static class Region {
+    private String namespace = DEFAULT_NAMESPACE;
+    private String table;
+    private long regionId;
+    private byte[] startKey = new byte[ 0 ];
+    private byte[] endKey = new byte[ 0 ];
+    private boolean offline;
+    private boolean split;
+    private int replicaId;
+    private final Map<String, List<String>> storeFiles = new LinkedHashMap<>();
+
+    public String getNamespace() {
+      return namespace;
+    }
+
+    public String getTable() {
+      return table;
+    }
+
+    public byte[] getStartKey() {
+      return startKey;
+    }
+
+    public byte[] getEndKey() {
+      return endKey;
+    }
+
+    /**
+     * @return the names of the HFiles of the region by family
+     */
+    public Map<String, List<String>> getStoreFiles() {
+      return storeFiles;
+    }
+
+    /**
+     * @return the name of the region directory, the MD5 hash of the region name
+     */
+    public String getEncodedName() {
+      String tableName = DEFAULT_NAMESPACE.equals( namespace ) ? table : namespace + ":" + table;
+      String regionName = tableName + "," + new String( startKey, StandardCharsets.ISO_8859_1 ) + "," + regionId
+        + ( replicaId > 0 ? String.format( "_%04X", replicaId ) : "" );
+      try {
+        byte[] digest = MessageDigest.getInstance( "MD5" ).digest( regionName.getBytes( StandardCharsets.ISO_8859_1 ) );
+        StringBuilder hex = new StringBuilder();
+        for ( byte b : digest ) {
+          hex.append( String.format( "%02x", b & 0xff ) );
+        }
+        return hex.toString();
+      } catch ( NoSuchAlgorithmException e ) {
+        throw new IllegalStateException( e );
+      }
+    }
+
+    /**
+     * @param start the first key of the range, or null
+     * @param stop  the key after the range, or null
+     * @return true if the region holds keys of the range
+     */
+    public boolean overlaps( byte[] start, byte[] stop ) {
+      return ( stop == null || startKey.length == 0 || SnapshotRow.compareBytes( startKey, stop ) < 0 )
+        && ( start == null || endKey.length == 0 || SnapshotRow.compareBytes( start, endKey ) < 0 );
+    }
+
+    @Override
+    public String toString() {
+      return getEncodedName();
+    }
+  }
+
+  /**
+   * Reads the manifest of the snapshot.
+   *
+   * @param rootDir      the HBase root directory (hbase.rootdir)
+   * @param snapshotName the name of the snapshot
+   */
+  public HBaseSnapshotReader( FileObject rootDir, String snapshotName ) throws IOException {
+    this.rootDir = rootDir;
+    this.snapshotName = snapshotName;
+    FileObject manifest = rootDir.resolveFile( SNAPSHOT_DIR + "/" + snapshotName + "/" + DATA_MANIFEST );
+    if ( !manifest.exists() ) {
+      throw new FileNotFoundException( "No version 2 manifest found for snapshot " + snapshotName + ": "
+        + manifest.getName().getURI() );
+    }
+    byte[] bytes;
+    try ( InputStream in = manifest.getContent().getInputStream() ) {
+      bytes = IOUtils.toByteArray( in );
+    }
+    ProtoReader proto = new ProtoReader( bytes );
+    while ( proto.next() ) {
+      if ( proto.getField() == 2 ) {
+        Region region = readRegionManifest( proto.readMessage() );
+        // split parents stay in the snapshot next to their daughters, whose files cover the same cells
+        if ( !( region.offline && region.split ) && region.replicaId == 0 ) {
+          regions.add( region );
+        }
+      } else {
+        proto.skip();
+      }
+    }
+    regions.sort( ( a, b ) -> SnapshotRow.compareBytes( a.startKey, b.startKey ) );
+  }
+
+  private Region readRegionManifest( ProtoReader proto ) throws IOException {
+    Region region = new Region();
+    while ( proto.next() ) {
+      switch ( proto.getField() ) {
+        case 2:
+          readRegionInfo( proto.readMessage(), region );
+          break;
+        case 3:
+          readFamilyFiles( proto.readMessage(), region );
+          break;
+        default:
+          proto.skip();
+      }
+    }
+    return region;
+  }
+
+  private void readRegionInfo( ProtoReader proto, Region region ) throws IOException {
+    while ( proto.next() ) {
+      switch ( proto.getField() ) {
+        case 1:
+          region.regionId = proto.readVarint();
+          break;
+        case 2:
+          ProtoReader tableName = proto.readMessage();
+          while ( tableName.next() ) {
+            if ( tableName.getField() == 1 ) {
+              region.namespace = tableName.readString();
+            } else if ( tableName.getField() == 2 ) {
+              region.table = tableName.readString();
+            } else {
+              tableName.skip();
+            }
+          }
+          break;
+        case 3:
+          region.startKey = proto.readBytes();
+          break;
+        case 4:
+          region.endKey = proto.readBytes();
+          break;
+        case 5:
+          region.offline = proto.readBool();
+          break;
+        case 6:
+          region.split = proto.readBool();
+          break;
+        case 7:
+          region.replicaId = (int) proto.readVarint();
+          break;
+        default:
+          proto.skip();
+      }
+    }
+  }
+
+  private void readFamilyFiles( ProtoReader proto, Region region ) throws IOException {
+    String family = null;
+    List<String> files = new ArrayList<>();
+    while ( proto.next() ) {
+      if ( proto.getField() == 1 ) {
+        family = proto.readString();
+      } else if ( proto.getField() == 2 ) {
+        ProtoReader storeFile = proto.readMessage();
+        while ( storeFile.next() ) {
+          if ( storeFile.getField() == 1 ) {
+            files.add( storeFile.readString() );
+          } else if ( storeFile.getField() == 2 ) {
+            throw new IOException( "Snapshot " + snapshotName + " holds reference files of split regions, "
+              + "take it again once the table was compacted" );
+          } else {
+            storeFile.skip();
+          }
+        }
+      } else {
+        proto.skip();
+      }
+    }
+    region.storeFiles.computeIfAbsent( family, f -> new ArrayList<>() ).addAll( files );
+  }
+
+  /**
+   * @return the regions of the snapshot in key order
+   */
+  public List<Region> getRegions() {
+    return regions;
+  }
+
+  /**
+   * Opens the rows of a region.
+   *
+   * @param region   a region of the snapshot
+   * @param families the families to read, or null for all of them
+   * @param ranges   the key ranges (start inclusive, stop exclusive, null for an open end) to read, or null for all
+   *                 keys
+   * @return the rows of the region in key order
+   */
+  public RegionRows openRegion( Region region, Set<String> families, List<byte[][]> ranges ) throws IOException {
+    RegionRows rows = new RegionRows( ranges );
+    try {
+      for ( Map.Entry<String, List<String>> entry : region.storeFiles.entrySet() ) {
+        if ( families != null && !families.contains( entry.getKey() ) ) {
+          continue;
+        }
+        for ( String file : entry.getValue() ) {
+          rows.add( new HFileReader( resolveStoreFile( region, entry.getKey(), file ) ) );
+        }
+      }
+    } catch ( IOException e ) {
+      rows.close();
+      throw e;
+    }
+    return rows;
+  }
+
+  /**
+   * Finds an HFile of the snapshot, which is either still in the table directory or was archived after a compaction.
+   */
+  FileObject resolveStoreFile( Region region, String family, String file ) throws IOException {
+    String namespace = region.namespace;
+    String table = region.table;
+    String encodedName = region.getEncodedName();
+    Matcher link = HFILE_LINK.matcher( file );
+    if ( link.matches() ) {
+      namespace = link.group( 1 ) == null ? DEFAULT_NAMESPACE : link.group( 1 );
+      table = link.group( 2 );
+      encodedName = link.group( 3 );
+      file = link.group( 4 );
+    }
+    String path = "data/" + namespace + "/" + table + "/" + encodedName + "/" + family + "/" + file;
+    FileObject storeFile = rootDir.resolveFile( path );
+    if ( !storeFile.exists() ) {
+      storeFile = rootDir.resolveFile( "archive/" + path );
+    }
+    if ( !storeFile.exists() ) {
+      throw new FileNotFoundException( "HFile " + path + " of snapshot " + snapshotName + " not found" );
+    }
+    return storeFile;
+  }
+
+  /**
+   * The rows of a region, merged from the HFiles of its families. Deleted cells are left out, and only the latest
+   * version of each column is kept, as a scan returns it.
+   */
+  public static class RegionRows implements Closeable {
+    private final List<HFileReader> readers = new ArrayList<>();
+    private final PriorityQueue<Source> sources = new PriorityQueue<>();
+    private final List<byte[][]> ranges;
+
+    /**
+     * An HFile and its next cell
+     */
+    private static class Source implements Comparable<Source> {
+      private final HFileReader reader;
+      private HFileReader.Cell cell;
+
+      Source( HFileReader reader ) {
+        this.reader = reader;
+      }
+
+      @Override
+      public int compareTo( Source other ) {
+        return HFileReader.CELL_ORDER.compare( cell, other.cell );
+      }
+    }
+
+    RegionRows( List<byte[][]> ranges ) {
+      this.ranges = ranges;
+    }
+
+    void add( HFileReader reader ) throws IOException {
+      readers.add( reader );
+      Source source = new Source( reader );
+      source.cell = reader.next();
+      if ( source.cell != null ) {
+        sources.add( source );
+      }
+    }
+
+    private HFileReader.Cell nextCell() throws IOException {
+      Source source = sources.poll();
+      HFileReader.Cell cell = source.cell;
+      source.cell = source.reader.next();
+      if ( source.cell != null ) {
+        sources.add( source );
+      }
+      return cell;
+    }
+
+    /**
+     * @return the next row of the region with a visible cell, or null after the last one
+     */
+    public SnapshotRow next() throws IOException {
+      while ( !sources.isEmpty() ) {
+        byte[] key = sources.peek().cell.row;
+        boolean inRange = inRange( key );
+        SnapshotRow row = new SnapshotRow( key );
+
+        byte[] family = null;
+        long familyDeleted = Long.MIN_VALUE;
+        Set<Long> familyVersionsDeleted = new HashSet<>();
+        byte[] qualifier = null;
+        long columnDeleted = Long.MIN_VALUE;
+        Set<Long> versionsDeleted = new HashSet<>();
+        boolean columnDone = false;
+
+        while ( !sources.isEmpty() && SnapshotRow.compareBytes( sources.peek().cell.row, key ) == 0 ) {
+          HFileReader.Cell cell = nextCell();
+          if ( !inRange ) {
+            continue;
+          }
+          if ( family == null || SnapshotRow.compareBytes( family, cell.family ) != 0 ) {
+            family = cell.family;
+            familyDeleted = Long.MIN_VALUE;
+            familyVersionsDeleted.clear();
+            qualifier = null;
+          }
+          if ( qualifier == null || SnapshotRow.compareBytes( qualifier, cell.qualifier ) != 0 ) {
+            qualifier = cell.qualifier;
+            columnDeleted = Long.MIN_VALUE;
+            versionsDeleted.clear();
+            columnDone = false;
+          }
+          // the delete markers sort before the cells they delete
+          switch ( cell.type ) {
+            case HFileReader.TYPE_DELETE_FAMILY:
+              familyDeleted = Math.max( familyDeleted, cell.timestamp );
+              break;
+            case HFileReader.TYPE_DELETE_FAMILY_VERSION:
+              familyVersionsDeleted.add( cell.timestamp );
+              break;
+            case HFileReader.TYPE_DELETE_COLUMN:
+              columnDeleted = Math.max( columnDeleted, cell.timestamp );
+              break;
+            case HFileReader.TYPE_DELETE:
+              versionsDeleted.add( cell.timestamp );
+              break;
+            case HFileReader.TYPE_PUT:
+              if ( !columnDone && cell.timestamp > familyDeleted && cell.timestamp > columnDeleted
+                && !familyVersionsDeleted.contains( cell.timestamp ) && !versionsDeleted.contains( cell.timestamp ) ) {
+                row.add( cell.family, cell.qualifier, cell.timestamp, cell.value );
+                columnDone = true;
+              }
+              break;
+            default:
+              break;
+          }
+        }
+        if ( !row.isEmpty() ) {
+          return row;
+        }
+      }
+      return null;
+    }
+
+    private boolean inRange( byte[] key ) {
+      if ( ranges == null ) {
+        return true;
+      }
+      for ( byte[][] range : ranges ) {
+        if ( ( range[ 0 ] == null || SnapshotRow.compareBytes( key, range[ 0 ] ) >= 0 )
+          && ( range[ 1 ] == null || SnapshotRow.compareBytes( key, range[ 1 ] ) < 0 ) ) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    @Override
+    public void close() throws IOException {
+      IOException failure = null;
+      for ( HFileReader reader : readers ) {
+        try {
+          reader.close();
+        } catch ( IOException e ) {
+          failure = e;
+        }
+      }
+      readers.clear();
+      sources.clear();
+      if ( failure != null ) {
+        throw failure;
+      }
+    }
+  }
+}
@@ -0,0 +1,360 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.big.data.kettle.plugins.hbase.input;
+
+import org.apache.commons.vfs2.FileObject;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads the cells of an HFile (format version 2 with protobuf trailer, or 3) in file order, one data block after the
+ * other. Only blocks written without data block encoding, either uncompressed or compressed with GZ, can be read.
+ */
+class HFileReader implements Closeable {
+  static final byte TYPE_PUT = 4;
+  static final byte TYPE_DELETE = 8;
+  static final byte TYPE_DELETE_FAMILY_VERSION = 10;
+  static final byte TYPE_DELETE_COLUMN = 12;
+  static final byte TYPE_DELETE_FAMILY = 14;
+
+  static final int COMPRESSION_GZ = 1;
+  static final int COMPRESSION_NONE = 2;
+
+  static final String TRAILER_MAGIC = "TRABLK\"$";
+  static final String DATA_BLOCK_MAGIC = "DATABLK*";
+  static final String ENCODED_DATA_BLOCK_MAGIC = "ENCODBLK";
+  static final String PBUF_MAGIC = "PBUF";
+
+  static final String MAX_TAGS_LEN = "hfile.MAX_TAGS_LEN";
+  static final String KEY_VALUE_VERSION = "KEY_VALUE_VERSION";
+  static final String DATA_BLOCK_ENCODING = "DATA_BLOCK_ENCODING";
+
+  /**
+   * Orders cells like HBase: by row, family and qualifier, then newest first, delete markers before puts
+   */
+  static final Comparator<Cell> CELL_ORDER = ( a, b ) -> {
+    int cmp = SnapshotRow.compareBytes( a.row, b.row );
+    if ( cmp == 0 ) {
+      cmp = SnapshotRow.compareBytes( a.family, b.family );
+    }
+    if ( cmp == 0 ) {
+      cmp = SnapshotRow.compareBytes( a.qualifier, b.qualifier );
+    }
+    if ( cmp == 0 ) {
+      cmp = Long.compare( b.timestamp, a.timestamp );
+    }
+    if ( cmp == 0 ) {
+      cmp = Integer.compare( b.type & 0xff, a.type & 0xff );
+    }
+    return cmp == 0 ? Long.compare( b.sequenceId, a.sequenceId ) : cmp;
+  };
+
+  /**
+   * A key value of the file
+   */
+  static class Cell {
+    final byte[] row;
+    final byte[] family;
+    final byte[] qualifier;
+    final long timestamp;
+    final byte type;
+    final long sequenceId;
+    final byte[] value;
+
+    Cell( byte[] row, byte[] family, byte[] qualifier, long timestamp, byte type, long sequenceId, byte[] value ) {
+      this.row = row;
+      this.family = family;
+      this.qualifier = qualifier;
+      this.timestamp = timestamp;
+      this.type = type;
+      this.sequenceId = sequenceId;
+      this.value = value;
+    }
+  }
+
+  /**
+   * A block of the file
+   */
+  private static class Block {
+    String magic;
+    /** the size of the block in the file, including header and checksums */
+    long onDiskSize;
+    /** the uncompressed data, without header and checksums */
+    byte[] data;
+  }
+
+  private final FileObject file;
+  private final String name;
+  private int majorVersion;
+  private int minorVersion;
+  private int compression = COMPRESSION_NONE;
+  private long fileInfoOffset = -1;
+  private long firstDataBlockOffset = -1;
+  private long lastDataBlockOffset = -1;
+  private long entryCount;
+  private boolean includesTags;
+  private boolean includesMvcc;
+
+  private DataInputStream in;
+  private long offset;
+  private ByteBuffer block;
+
+  HFileReader( FileObject file ) throws IOException {
+    this.file = file;
+    this.name = file.getName().getURI();
+    readTrailer();
+    readFileInfo();
+  }
+
+  private void readTrailer() throws IOException {
+    long size = file.getContent().getSize();
+    if ( size < 4 ) {
+      throw new IOException( "Not an HFile: " + name );
+    }
+    int version = ByteBuffer.wrap( read( size - 4, 4 ) ).getInt();
+    majorVersion = version & 0x00ffffff;
+    minorVersion = version >>> 24;
+    if ( majorVersion != 3 && ( majorVersion != 2 || minorVersion < 2 ) ) {
+      throw new IOException( "Unsupported HFile version " + majorVersion + "." + minorVersion + ": " + name );
+    }
+    int trailerSize = majorVersion == 2 ? 212 : 4096;
+    if ( size < trailerSize ) {
+      throw new IOException( "Not an HFile: " + name );
+    }
+    byte[] trailer = read( size - trailerSize, trailerSize );
+    if ( !TRAILER_MAGIC.equals( new String( trailer, 0, 8, StandardCharsets.ISO_8859_1 ) ) ) {
+      throw new IOException( "Missing HFile trailer: " + name );
+    }
+    ProtoReader proto = ProtoReader.delimited( trailer, 8, trailerSize - 12 );
+    while ( proto.next() ) {
+      switch ( proto.getField() ) {
+        case 1:
+          fileInfoOffset = proto.readVarint();
+          break;
+        case 7:
+          entryCount = proto.readVarint();
+          break;
+        case 9:
+          firstDataBlockOffset = proto.readVarint();
+          break;
+        case 10:
+          lastDataBlockOffset = proto.readVarint();
+          break;
+        case 12:
+          compression = (int) proto.readVarint();
+          break;
+        case 13:
+          throw new IOException( "Encrypted HFiles are not supported: " + name );
+        default:
+          proto.skip();
+      }
+    }
+    if ( compression != COMPRESSION_NONE && compression != COMPRESSION_GZ ) {
+      throw new IOException( "Unsupported HFile compression codec " + compression + ": " + name );
+    }
+  }
+
+  private void readFileInfo() throws IOException {
+    Map<String, byte[]> fileInfo = new HashMap<>();
+    try ( DataInputStream blockIn = open( fileInfoOffset ) ) {
+      byte[] data = readBlock( blockIn ).data;
+      if ( !PBUF_MAGIC.equals( new String( data, 0, 4, StandardCharsets.ISO_8859_1 ) ) ) {
+        throw new IOException( "Unsupported HFile file info: " + name );
+      }
+      ProtoReader proto = ProtoReader.delimited( data, 4, data.length - 4 );
+      while ( proto.next() ) {
+        if ( proto.getField() == 1 ) {
+          ProtoReader entry = proto.readMessage();
+          String key = null;
+          byte[] value = null;
+          while ( entry.next() ) {
+            if ( entry.getField() == 1 ) {
+              key = entry.readString();
+            } else if ( entry.getField() == 2 ) {
+              value = entry.readBytes();
+            } else {
+              entry.skip();
+            }
+          }
+          fileInfo.put( key, value );
+        } else {
+          proto.skip();
+        }
+      }
+    }
+    byte[] encoding = fileInfo.get( DATA_BLOCK_ENCODING );
+    if ( encoding != null && !"NONE".equals( new String( encoding, StandardCharsets.UTF_8 ) ) ) {
+      throw new IOException( "Unsupported data block encoding " + new String( encoding, StandardCharsets.UTF_8 )
+        + ": " + name );
+    }
+    includesTags = fileInfo.containsKey( MAX_TAGS_LEN );
+    byte[] keyValueVersion = fileInfo.get( KEY_VALUE_VERSION );
+    includesMvcc = keyValueVersion != null && ByteBuffer.wrap( keyValueVersion ).getInt() == 1;
+  }
+
+  /**
+   * @return the next cell of the file, or null after the last one
+   */
+  Cell next() throws IOException {
+    while ( block == null || !block.hasRemaining() ) {
+      if ( !nextDataBlock() ) {
+        return null;
+      }
+    }
+    int keyLength = block.getInt();
+    int valueLength = block.getInt();
+    int keyStart = block.position();
+    byte[] row = new byte[ block.getShort() & 0xffff ];
+    block.get( row );
+    byte[] family = new byte[ block.get() & 0xff ];
+    block.get( family );
+    byte[] qualifier = new byte[ keyStart + keyLength - 9 - block.position() ];
+    block.get( qualifier );
+    long timestamp = block.getLong();
+    byte type = block.get();
+    byte[] value = new byte[ valueLength ];
+    block.get( value );
+    if ( includesTags ) {
+      int tagsLength = block.getShort() & 0xffff;
+      block.position( block.position() + tagsLength );
+    }
+    long sequenceId = includesMvcc ? readVLong( block ) : 0;
+    return new Cell( row, family, qualifier, timestamp, type, sequenceId, value );
+  }
+
+  private boolean nextDataBlock() throws IOException {
+    if ( entryCount == 0 || firstDataBlockOffset < 0 ) {
+      return false;
+    }
+    if ( in == null ) {
+      in = open( firstDataBlockOffset );
+      offset = firstDataBlockOffset;
+    }
+    // the data blocks may be interleaved with leaf index and bloom blocks
+    while ( offset <= lastDataBlockOffset ) {
+      Block next = readBlock( in );
+      offset += next.onDiskSize;
+      if ( DATA_BLOCK_MAGIC.equals( next.magic ) ) {
+        block = ByteBuffer.wrap( next.data );
+        return true;
+      }
+      if ( ENCODED_DATA_BLOCK_MAGIC.equals( next.magic ) ) {
+        throw new IOException( "Encoded data blocks are not supported: " + name );
+      }
+    }
+    block = null;
+    return false;
+  }
+
+  /**
+   * Reads the block at the current position of the stream.
+   */
+  private Block readBlock( DataInputStream blockIn ) throws IOException {
+    byte[] header = new byte[ headerSize() ];
+    blockIn.readFully( header );
+    ByteBuffer headerBuffer = ByteBuffer.wrap( header );
+    Block result = new Block();
+    result.magic = new String( header, 0, 8, StandardCharsets.ISO_8859_1 );
+    int onDiskSizeWithoutHeader = headerBuffer.getInt( 8 );
+    int uncompressedSize = headerBuffer.getInt( 12 );
+    // the checksums follow the data of the block
+    int dataSize = header.length > 24 ? headerBuffer.getInt( 29 ) - header.length : onDiskSizeWithoutHeader;
+    result.onDiskSize = header.length + onDiskSizeWithoutHeader;
+
+    byte[] onDisk = new byte[ onDiskSizeWithoutHeader ];
+    blockIn.readFully( onDisk );
+    if ( compression == COMPRESSION_NONE ) {
+      result.data = dataSize == onDisk.length ? onDisk : Arrays.copyOf( onDisk, dataSize );
+    } else {
+      result.data = new byte[ uncompressedSize ];
+      try ( DataInputStream gzip = new DataInputStream(
+        new GZIPInputStream( new ByteArrayInputStream( onDisk, 0, dataSize ) ) ) ) {
+        gzip.readFully( result.data );
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return the size of the block headers, which carry the checksum settings in all version 3 files (HBase 1.x
+   * writes them with minor version 0) and in version 2 files from minor version 1 on
+   */
+  private int headerSize() {
+    return majorVersion == 3 || minorVersion >= 1 ? 33 : 24;
+  }
+
+  private byte[] read( long position, int length ) throws IOException {
+    byte[] bytes = new byte[ length ];
+    try ( DataInputStream stream = open( position ) ) {
+      stream.readFully( bytes );
+    }
+    return bytes;
+  }
+
+  private DataInputStream open( long position ) throws IOException {
+    InputStream stream = file.getContent().getInputStream();
+    try {
+      long remaining = position;
+      while ( remaining > 0 ) {
+        long skipped = stream.skip( remaining );
+        if ( skipped <= 0 ) {
+          if ( stream.read() < 0 ) {
+            throw new IOException( "Unexpected end of file: " + name );
+          }
+          skipped = 1;
+        }
+        remaining -= skipped;
+      }
+      return new DataInputStream( stream );
+    } catch ( IOException e ) {
+      stream.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Reads a variable length long as written by Hadoop's WritableUtils.
+   */
+  static long readVLong( ByteBuffer buffer ) {
+    byte first = buffer.get();
+    if ( first >= -112 ) {
+      return first;
+    }
+    int length = first < -120 ? -120 - first : -112 - first;
+    long value = 0;
+    for ( int i = 0; i < length; i++ ) {
+      value = ( value << 8 ) | ( buffer.get() & 0xff );
+    }
+    return first < -120 ? ~value : value;
+  }
+
+  @Override
+  public void close() throws IOException {
+    if ( in != null ) {
+      in.close();
+      in = null;
+    }
+  }
+}
@@ -0,0 +1,176 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.big.data.kettle.plugins.hbase.input;
+
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.injection.Injection;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A range of keys (start inclusive, stop exclusive) read by HBase Input. Blank values leave the range open at that end.
+ */
+public class KeyRange {
+
+  @Injection( name = "KEY_RANGE_START", group = "KEY_RANGES" )
+  private String start;
+
+  @Injection( name = "KEY_RANGE_STOP", group = "KEY_RANGES" )
+  private String stop;
+
+  public KeyRange() {
+  }
+
+  public KeyRange( String start, String stop ) {
+    this.start = start;
+    this.stop = stop;
+  }
+
+  public String getStart() {
+    return start;
+  }
+
+  public void setStart( String start ) {
+    this.start = start;
+  }
+
+  public String getStop() {
+    return stop;
+  }
+
+  public void setStop( String stop ) {
+    this.stop = stop;
+  }
+
+  @Override
+  public boolean equals( Object o ) {
+    if ( !( o instanceof KeyRange ) ) {
+      return false;
+    }
+    KeyRange other = (KeyRange) o;
+    return Const.NVL( start, "" ).equals( Const.NVL( other.start, "" ) )
+      && Const.NVL( stop, "" ).equals( Const.NVL( other.stop, "" ) );
+  }
+
+  @Override
+  public int hashCode() {
+    return Const.NVL( start, "" ).hashCode() * 31 + Const.NVL( stop, "" ).hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return "[" + Const.NVL( start, "" ) + ", " + Const.NVL( stop, "" ) + ")";
+  }
+
+  /**
+   * Expands each range over the salt buckets of the table, whose keys start with the bucket number formatted with
+   * {@code prefixFormat}. A range open at its end is closed at the end of its bucket.
+   *
+   * @param ranges       the logical ranges, without salt
+   * @param buckets      the number of salt buckets
+   * @param prefixFormat the format of the salt prefix, given the bucket number
+   * @return one range per logical range and bucket
+   */
+  public static List<KeyRange> salt( List<KeyRange> ranges, int buckets, String prefixFormat ) {
+    List<KeyRange> salted = new ArrayList<>( ranges.size() * buckets );
+    for ( int bucket = 0; bucket < buckets; bucket++ ) {
+      String prefix = String.format( prefixFormat, bucket );
+      for ( KeyRange range : ranges ) {
+        salted.add( new KeyRange( prefix + Const.NVL( range.start, "" ),
+          Const.isEmpty( range.stop ) ? prefixSuccessor( prefix ) : prefix + range.stop ) );
+      }
+    }
+    return salted;
+  }
+
+  /**
+   * @return the smallest key greater than every key starting with {@code prefix}
+   */
+  static String prefixSuccessor( String prefix ) {
+    int end = prefix.length();
+    while ( end > 0 && prefix.charAt( end - 1 ) == Character.MAX_VALUE ) {
+      end--;
+    }
+    if ( end == 0 ) {
+      // every key starts with a prefix no key can exceed
+      return null;
+    }
+    return prefix.substring( 0, end - 1 ) + (char) ( prefix.charAt( end - 1 ) + 1 );
+  }
+
+  /**
+   * Sorts the ranges by their start and merges the overlapping and adjoining ones, so that every key is read once and
+   * the table is read in key order. This requires the key values to sort like the encoded keys, as for string keys.
+   *
+   * @return the merged ranges
+   */
+  public static List<KeyRange> merge( List<KeyRange> ranges ) {
+    List<KeyRange> sorted = new ArrayList<>( ranges );
+    sorted.sort( ( a, b ) -> compareKeys( Const.NVL( a.start, "" ), Const.NVL( b.start, "" ) ) );
+    List<KeyRange> merged = new ArrayList<>();
+    KeyRange current = null;
+    for ( KeyRange range : sorted ) {
+      if ( !Const.isEmpty( range.start ) && !Const.isEmpty( range.stop ) && compareKeys( range.start, range.stop ) >= 0 ) {
+        // a range without keys
+        continue;
+      }
+      boolean overlaps = current != null && ( Const.isEmpty( current.stop )
+        || compareKeys( Const.NVL( range.start, "" ), current.stop ) <= 0 );
+      if ( overlaps ) {
+        if ( Const.isEmpty( range.stop )
+          || !Const.isEmpty( current.stop ) && compareKeys( range.stop, current.stop ) > 0 ) {
+          current.stop = range.stop;
+        }
+      } else {
+        current = new KeyRange( range.start, range.stop );
+        merged.add( current );
+      }
+    }
+    return merged;
+  }
+
+  /**
+   * Compares two string keys the way HBase orders them, by the unsigned bytes of their UTF-8 encoding. This differs
+   * from {@link String#compareTo(String)} for characters outside the basic multilingual plane.
+   */
+  static int compareKeys( String a, String b ) {
+    return SnapshotRow.compareBytes( a.getBytes( StandardCharsets.UTF_8 ), b.getBytes( StandardCharsets.UTF_8 ) );
+  }
+
+  /**
+   * Drops the ranges listed more than once, keeping the order of the others.
+   */
+  public static List<KeyRange> distinct( List<KeyRange> ranges ) {
+    List<KeyRange> distinct = new ArrayList<>();
+    for ( KeyRange range : ranges ) {
+      if ( !distinct.contains( range ) ) {
+        distinct.add( range );
+      }
+    }
+    return distinct;
+  }
+
+  /**
+   * @return the ranges (or snapshot regions) read by a step copy when they are spread over {@code copies} copies
+   */
+  public static <T> List<T> forCopy( List<T> ranges, int copy, int copies ) {
+    List<T> own = new ArrayList<>();
+    for ( int i = copy; i < ranges.size(); i += Math.max( 1, copies ) ) {
+      own.add( ranges.get( i ) );
+    }
+    return own;
+  }
+}
@@ -0,0 +1,144 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.big.data.kettle.plugins.hbase.input;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Minimal reader of the protocol buffers wire format, enough to read the snapshot manifests and HFile trailers and
+ * file infos without the HBase protocol classes on the classpath.
+ */
+class ProtoReader {
+  static final int VARINT = 0;
+  static final int FIXED64 = 1;
+  static final int LENGTH_DELIMITED = 2;
+  static final int FIXED32 = 5;
+
+  private final byte[] buffer;
+  private int position;
+  private final int limit;
+  private int tag;
+
+  ProtoReader( byte[] buffer ) {
+    this( buffer, 0, buffer.length );
+  }
+
+  ProtoReader( byte[] buffer, int offset, int length ) {
+    this.buffer = buffer;
+    this.position = offset;
+    this.limit = offset + length;
+  }
+
+  /**
+   * Reads the next field tag.
+   *
+   * @return false at the end of the message
+   */
+  boolean next() throws IOException {
+    if ( position >= limit ) {
+      return false;
+    }
+    tag = (int) readVarint();
+    return true;
+  }
+
+  int getField() {
+    return tag >>> 3;
+  }
+
+  long readVarint() throws IOException {
+    long value = 0;
+    for ( int shift = 0; shift < 64; shift += 7 ) {
+      byte b = readByte();
+      value |= (long) ( b & 0x7f ) << shift;
+      if ( ( b & 0x80 ) == 0 ) {
+        return value;
+      }
+    }
+    throw new IOException( "Malformed varint" );
+  }
+
+  boolean readBool() throws IOException {
+    return readVarint() != 0;
+  }
+
+  byte[] readBytes() throws IOException {
+    int length = (int) readVarint();
+    if ( length < 0 || position + length > limit ) {
+      throw new IOException( "Truncated message" );
+    }
+    byte[] bytes = Arrays.copyOfRange( buffer, position, position + length );
+    position += length;
+    return bytes;
+  }
+
+  String readString() throws IOException {
+    return new String( readBytes(), StandardCharsets.UTF_8 );
+  }
+
+  /**
+   * @return a reader of the embedded message of the current field
+   */
+  ProtoReader readMessage() throws IOException {
+    int length = (int) readVarint();
+    if ( length < 0 || position + length > limit ) {
+      throw new IOException( "Truncated message" );
+    }
+    ProtoReader message = new ProtoReader( buffer, position, length );
+    position += length;
+    return message;
+  }
+
+  /**
+   * Skips the value of the current field.
+   */
+  void skip() throws IOException {
+    switch ( tag & 0x7 ) {
+      case VARINT:
+        readVarint();
+        break;
+      case FIXED64:
+        position += 8;
+        break;
+      case LENGTH_DELIMITED:
+        int length = (int) readVarint();
+        position += length;
+        break;
+      case FIXED32:
+        position += 4;
+        break;
+      default:
+        throw new IOException( "Unsupported wire type " + ( tag & 0x7 ) );
+    }
+    if ( position > limit ) {
+      throw new IOException( "Truncated message" );
+    }
+  }
+
+  /**
+   * @return a reader of the message written with writeDelimitedTo at {@code offset}
+   */
+  static ProtoReader delimited( byte[] buffer, int offset, int length ) throws IOException {
+    return new ProtoReader( buffer, offset, length ).readMessage();
+  }
+
+  private byte readByte() throws IOException {
+    if ( position >= limit ) {
+      throw new IOException( "Truncated message" );
+    }
+    return buffer[ position++ ];
+  }
+}
@@ -0,0 +1,98 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.big.data.kettle.plugins.hbase.input;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * A row read from a snapshot, holding the latest visible value of each of its columns. It offers the accessors of the
+ * scan results HBase Input decodes, so that both are decoded alike.
+ */
+public class SnapshotRow implements HBaseInputData.RowCells {
+  private final byte[] row;
+  private final NavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, byte[]>>> map =
+    new TreeMap<>( SnapshotRow::compareBytes );
+
+  public SnapshotRow( byte[] row ) {
+    this.row = row;
+  }
+
+  @Override
+  public byte[] getRow() {
+    return row;
+  }
+
+  /**
+   * @return the values of the row by family, qualifier and timestamp
+   */
+  public NavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, byte[]>>> getMap() {
+    return map;
+  }
+
+  public void add( byte[] family, byte[] qualifier, long timestamp, byte[] value ) {
+    map.computeIfAbsent( family, f -> new TreeMap<>( SnapshotRow::compareBytes ) )
+      .computeIfAbsent( qualifier, q -> new TreeMap<>() ).put( timestamp, value );
+  }
+
+  public boolean isEmpty() {
+    return map.isEmpty();
+  }
+
+  @Override
+  public byte[] getValue( String colFamilyName, String qualifier, boolean binaryColName ) {
+    NavigableMap<byte[], NavigableMap<Long, byte[]>> columns =
+      map.get( colFamilyName.getBytes( StandardCharsets.UTF_8 ) );
+    if ( columns == null ) {
+      return null;
+    }
+    NavigableMap<Long, byte[]> versions =
+      columns.get( binaryColName ? toBytesBinary( qualifier ) : qualifier.getBytes( StandardCharsets.UTF_8 ) );
+    return versions == null || versions.isEmpty() ? null : versions.lastEntry().getValue();
+  }
+
+  /**
+   * Reads a binary column name the way HBase prints it, with \xNN escapes for the bytes that are not printable.
+   */
+  static byte[] toBytesBinary( String value ) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream( value.length() );
+    for ( int i = 0; i < value.length(); i++ ) {
+      char c = value.charAt( i );
+      if ( c == '\\' && i + 3 < value.length() && value.charAt( i + 1 ) == 'x'
+        && Character.digit( value.charAt( i + 2 ), 16 ) >= 0 && Character.digit( value.charAt( i + 3 ), 16 ) >= 0 ) {
+        bytes.write( Integer.parseInt( value.substring( i + 2, i + 4 ), 16 ) );
+        i += 3;
+      } else {
+        bytes.write( (byte) c );
+      }
+    }
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Compares byte arrays as unsigned bytes, the order of HBase keys.
+   */
+  static int compareBytes( byte[] a, byte[] b ) {
+    int length = Math.min( a.length, b.length );
+    for ( int i = 0; i < length; i++ ) {
+      int cmp = ( a[ i ] & 0xff ) - ( b[ i ] & 0xff );
+      if ( cmp != 0 ) {
+        return cmp;
+      }
+    }
+    return a.length - b.length;
+  }
+}
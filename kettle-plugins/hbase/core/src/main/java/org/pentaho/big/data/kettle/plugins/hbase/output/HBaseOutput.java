@@ -21,6 +21,7 @@ import java.util.Map;
 import org.pentaho.hadoop.shim.api.cluster.NamedClusterServiceLocator;
 import org.pentaho.big.data.kettle.plugins.hbase.mapping.MappingAdmin;
 import org.pentaho.big.data.kettle.plugins.hbase.output.KettleRowToHBaseTuple.FieldException;
+import org.pentaho.big.data.kettle.plugins.hbase.output.KettleRowToHBaseTuple.TuplePut;
 import org.pentaho.hadoop.shim.api.hbase.ByteConversionUtil;
 import org.pentaho.hadoop.shim.api.hbase.HBaseConnection;
 import org.pentaho.hadoop.shim.api.hbase.HBaseService;
@@ -105,10 +106,16 @@ public class HBaseOutput extends BaseStep implements StepInterface {
       if ( targetTable != null ) {
         if ( targetTableWriteOperationManager != null ) {
           try {
+            if ( tupleRowConverter != null ) {
+              // the tuples of the last key are still waiting for another key
+              executeTuplePut( tupleRowConverter.flushTuplePut() );
+            }
             if ( !targetTableWriteOperationManager.isAutoFlush() ) {
               logBasic( BaseMessages.getString( HBaseOutputMeta.PKG, "HBaseOutput.FlushingWriteBuffer" ) );
               targetTableWriteOperationManager.flushCommits();
             }
+          } catch ( KettleException ex ) {
+            throw ex;
           } catch ( Exception ex ) {
             throw new KettleException( BaseMessages.getString( HBaseOutputMeta.PKG,
                 "HBaseOutput.Error.ProblemFlushingBufferedData", ex.getMessage() ), ex );
@@ -315,14 +322,16 @@ public class HBaseOutput extends BaseStep implements StepInterface {
 
     } else {
       // Put the data
-      HBasePut hBasePut;
+      HBasePut hBasePut = null;
+      TuplePut tuplePut = null;
 
       if ( tupleRowConverter != null ) {
 
         try {
 
-          hBasePut =
-              tupleRowConverter.createTuplePut( targetTableWriteOperationManager, m_bytesUtil, r, !m_meta
+          // consecutive tuples of one key are collected into a single put, executed once the key changes
+          tuplePut =
+              tupleRowConverter.addTuple( targetTableWriteOperationManager, m_bytesUtil, r, !m_meta
                   .getDisableWriteToWAL() );
         } catch ( Exception ex ) {
 
@@ -375,17 +384,21 @@ public class HBaseOutput extends BaseStep implements StepInterface {
             m_bytesUtil );
       }
 
-      try {
-        hBasePut.execute();
-      } catch ( Exception e ) {
-        String errorDescriptions =
-            BaseMessages.getString( HBaseOutputMeta.PKG, "HBaseOutput.Error.ProblemInsertingRowIntoHBase", e
-                .getMessage() );
-        if ( getStepMeta().isDoingErrorHandling() ) {
-          String errorFields = "Unknown";
-          putError( getInputRowMeta(), r, 1, errorDescriptions, errorFields, "HBaseOutput002" );
-        } else {
-          throw new KettleException( errorDescriptions, e );
+      if ( tupleRowConverter != null ) {
+        executeTuplePut( tuplePut );
+      } else {
+        try {
+          hBasePut.execute();
+        } catch ( Exception e ) {
+          String errorDescriptions =
+              BaseMessages.getString( HBaseOutputMeta.PKG, "HBaseOutput.Error.ProblemInsertingRowIntoHBase", e
+                  .getMessage() );
+          if ( getStepMeta().isDoingErrorHandling() ) {
+            String errorFields = "Unknown";
+            putError( getInputRowMeta(), r, 1, errorDescriptions, errorFields, "HBaseOutput002" );
+          } else {
+            throw new KettleException( errorDescriptions, e );
+          }
         }
       }
     }
@@ -404,6 +417,35 @@ public class HBaseOutput extends BaseStep implements StepInterface {
     return true;
   }
 
+  /**
+   * Executes a completed put of tuples. If it fails, every incoming row whose tuple went into the put is sent to error
+   * handling, rather than the row that happened to complete it.
+   *
+   * @param tuplePut
+   *          the put to execute, may be null
+   * @throws KettleException
+   *           if the put fails and the step doesn't do error handling
+   */
+  private void executeTuplePut( TuplePut tuplePut ) throws KettleException {
+    if ( tuplePut == null ) {
+      return;
+    }
+    try {
+      tuplePut.execute();
+    } catch ( Exception e ) {
+      String errorDescriptions =
+          BaseMessages.getString( HBaseOutputMeta.PKG, "HBaseOutput.Error.ProblemInsertingRowIntoHBase", e
+              .getMessage() );
+      if ( getStepMeta().isDoingErrorHandling() ) {
+        for ( Object[] row : tuplePut.getRows() ) {
+          putError( getInputRowMeta(), row, 1, errorDescriptions, "Unknown", "HBaseOutput002" );
+        }
+      } else {
+        throw new KettleException( errorDescriptions, e );
+      }
+    }
+  }
+
   @Override
   public boolean init( StepMetaInterface smi, StepDataInterface sdi ) {
     if ( super.init( smi, sdi ) ) {
@@ -13,6 +13,11 @@
 
 package org.pentaho.big.data.kettle.plugins.hbase.output;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.pentaho.big.data.kettle.plugins.hbase.mapping.MappingUtils;
@@ -29,6 +34,12 @@ import org.pentaho.di.i18n.BaseMessages;
 
 public class KettleRowToHBaseTuple {
 
+  /** The most cells a coalesced put may hold before it is handed back to be executed */
+  public static final int DEFAULT_MAX_PUT_CELLS = 1000;
+
+  /** The most bytes of column names and values a coalesced put may hold before it is handed back to be executed */
+  public static final long DEFAULT_MAX_PUT_BYTES = 2L * 1024 * 1024;
+
   private int keyIndex = -1;
   private ValueMetaInterface keyInMeta;
   private KeyType keyType;
@@ -47,6 +58,12 @@ public class KettleRowToHBaseTuple {
   private ValueMetaInterface visibilityInMeta;
   private HBaseValueMetaInterface visibilityMeta;
 
+  private int maxPutCells = DEFAULT_MAX_PUT_CELLS;
+  private long maxPutBytes = DEFAULT_MAX_PUT_BYTES;
+
+  /** The put collecting the tuples of the current key, null if none is pending */
+  private TuplePut pendingPut;
+
   /**
    * Creates a conversion class that converts an incoming row object with values for the various Tuple fields <KEY,
    * Family, Column, Value> into an HBasePut
@@ -123,6 +140,71 @@ public class KettleRowToHBaseTuple {
   public HBasePut createTuplePut( HBaseTableWriteOperationManager hBaseTableWriteOperationManager,
       ByteConversionUtil bu, Object[] row, boolean writeToWAL ) throws Exception {
 
+    Tuple tuple = encodeTuple( bu, row );
+    HBasePut put = hBaseTableWriteOperationManager.createPut( tuple.key );
+    tuple.addTo( put );
+    put.setWriteToWAL( writeToWAL );
+    return put;
+  }
+
+  /**
+   * Adds the tuple of a row to the put collecting the tuples of its key, so that consecutive tuples of one HBase row
+   * are written with a single put. The put is handed back to be executed once a tuple of another key arrives or the
+   * put reached its size cap. A row whose tuple can't be encoded leaves the pending put as it was. As all cells of a
+   * put share one timestamp, a later tuple for a column already in the put replaces the earlier value.
+   *
+   * @param hBaseTableWriteOperationManager
+   *          HBase write manager
+   * @param bu
+   *          The Byte Conversion utility (Required for key conversion)
+   * @param row
+   *          Object containing row data
+   * @param writeToWAL
+   *          Should data be written to WAL?
+   * @return the completed put to execute, or null if the tuple is still pending
+   * @throws Exception
+   */
+  public TuplePut addTuple( HBaseTableWriteOperationManager hBaseTableWriteOperationManager, ByteConversionUtil bu,
+      Object[] row, boolean writeToWAL ) throws Exception {
+
+    Tuple tuple = encodeTuple( bu, row );
+
+    TuplePut completed = null;
+    if ( pendingPut != null && !Arrays.equals( pendingPut.key, tuple.key ) ) {
+      completed = flushTuplePut();
+    }
+    if ( pendingPut == null ) {
+      pendingPut = new TuplePut( hBaseTableWriteOperationManager, tuple.key, writeToWAL );
+    }
+    pendingPut.add( tuple, row );
+
+    if ( completed == null && ( pendingPut.cells >= maxPutCells || pendingPut.bytes >= maxPutBytes ) ) {
+      completed = flushTuplePut();
+    }
+    return completed;
+  }
+
+  /**
+   * Hands back the put collecting the tuples of the current key, which is no longer pending afterwards.
+   *
+   * @return the put to execute, or null if no tuple is pending
+   */
+  public TuplePut flushTuplePut() {
+    TuplePut put = pendingPut;
+    pendingPut = null;
+    return put;
+  }
+
+  public void setMaxPutCells( int maxPutCells ) {
+    this.maxPutCells = maxPutCells;
+  }
+
+  public void setMaxPutBytes( long maxPutBytes ) {
+    this.maxPutBytes = maxPutBytes;
+  }
+
+  private Tuple encodeTuple( ByteConversionUtil bu, Object[] row ) throws Exception {
+
     if ( keyInMeta.isNull( row[keyIndex] ) ) {
       throw new FieldException( Mapping.TupleMapping.KEY );
     }
@@ -136,31 +218,127 @@ public class KettleRowToHBaseTuple {
       throw new FieldException( Mapping.TupleMapping.VALUE );
     }
 
-    byte[] encodedKey = bu.encodeKeyValue( row[keyIndex], keyInMeta, keyType );
-
-    HBasePut put = hBaseTableWriteOperationManager.createPut( encodedKey );
+    Tuple tuple = new Tuple();
+    tuple.key = bu.encodeKeyValue( row[keyIndex], keyInMeta, keyType );
 
     // Note: Families must always be string with the implementation of HBasePut
-    String columnFamily = familyInMeta.getString( row[familyIndex] );
+    tuple.columnFamily = familyInMeta.getString( row[familyIndex] );
 
-    boolean binaryColName = false;
-    String columnName = columnInMeta.getString( row[columnIndex] );
-    if ( columnName.startsWith( "@@@binary@@@" ) ) {
+    tuple.columnName = columnInMeta.getString( row[columnIndex] );
+    if ( tuple.columnName.startsWith( "@@@binary@@@" ) ) {
       // assume hex encoded column name
-      columnName = columnName.replace( "@@@binary@@@", "" );
-      binaryColName = true;
+      tuple.columnName = tuple.columnName.replace( "@@@binary@@@", "" );
+      tuple.binaryColName = true;
     }
 
-    byte[] encodedValue = valueMeta.encodeColumnValue( row[valueIndex], valueInMeta );
-    put.addColumn( columnFamily, columnName, binaryColName, encodedValue );
+    tuple.value = valueMeta.encodeColumnValue( row[valueIndex], valueInMeta );
 
     if ( visibilityIndex >= 0 && !visibilityInMeta.isNull( row[visibilityIndex] ) ) {
-      byte[] encodedVisibility = visibilityMeta.encodeColumnValue( row[visibilityIndex], visibilityInMeta );
-      put.addColumn( columnFamily, MappingUtils.TUPLE_MAPPING_VISIBILITY, false, encodedVisibility );
+      tuple.visibility = visibilityMeta.encodeColumnValue( row[visibilityIndex], visibilityInMeta );
     }
+    return tuple;
+  }
 
-    put.setWriteToWAL( writeToWAL );
-    return put;
+  /**
+   * The encoded cells of one incoming tuple
+   */
+  private static class Tuple {
+    private byte[] key;
+    private String columnFamily;
+    private String columnName;
+    private boolean binaryColName;
+    private byte[] value;
+    private byte[] visibility;
+
+    private void addTo( HBasePut put ) throws Exception {
+      put.addColumn( columnFamily, columnName, binaryColName, value );
+      if ( visibility != null ) {
+        put.addColumn( columnFamily, MappingUtils.TUPLE_MAPPING_VISIBILITY, false, visibility );
+      }
+    }
+
+    private String getColumnKey() {
+      return ( binaryColName ? "b" : "s" ) + columnFamily + ":" + columnName;
+    }
+
+    private int getCells() {
+      return visibility != null ? 2 : 1;
+    }
+
+    private long getBytes() {
+      long bytes = columnName.length() + ( value != null ? value.length : 0 );
+      if ( visibility != null ) {
+        bytes += MappingUtils.TUPLE_MAPPING_VISIBILITY.length() + visibility.length;
+      }
+      return bytes;
+    }
+  }
+
+  /**
+   * The tuples of consecutive rows with the same key, together with those rows so that a failing put can be reported
+   * against all of them
+   */
+  public static class TuplePut {
+    private final HBaseTableWriteOperationManager hBaseTableWriteOperationManager;
+    private final byte[] key;
+    private final boolean writeToWAL;
+    /** The last tuple of each column, by family and column name */
+    private final Map<String, Tuple> tuples = new LinkedHashMap<>();
+    private final List<Object[]> rows = new ArrayList<>();
+    private int cells;
+    private long bytes;
+
+    private TuplePut( HBaseTableWriteOperationManager hBaseTableWriteOperationManager, byte[] key,
+        boolean writeToWAL ) {
+      this.hBaseTableWriteOperationManager = hBaseTableWriteOperationManager;
+      this.key = key;
+      this.writeToWAL = writeToWAL;
+    }
+
+    private void add( Tuple tuple, Object[] row ) {
+      Tuple replaced = tuples.remove( tuple.getColumnKey() );
+      if ( replaced != null ) {
+        cells -= replaced.getCells();
+        bytes -= replaced.getBytes();
+      }
+      tuples.put( tuple.getColumnKey(), tuple );
+      rows.add( row );
+      cells += tuple.getCells();
+      bytes += tuple.getBytes();
+    }
+
+    /**
+     * @return the incoming rows whose tuples make up the put
+     */
+    public List<Object[]> getRows() {
+      return Collections.unmodifiableList( rows );
+    }
+
+    /**
+     * Creates the HBasePut holding the tuples. A family gets the visibility of its last tuple that has one.
+     *
+     * @return the put for the tuples
+     * @throws Exception
+     */
+    public HBasePut createPut() throws Exception {
+      HBasePut put = hBaseTableWriteOperationManager.createPut( key );
+      put.setWriteToWAL( writeToWAL );
+      Map<String, byte[]> visibilities = new LinkedHashMap<>();
+      for ( Tuple tuple : tuples.values() ) {
+        put.addColumn( tuple.columnFamily, tuple.columnName, tuple.binaryColName, tuple.value );
+        if ( tuple.visibility != null ) {
+          visibilities.put( tuple.columnFamily, tuple.visibility );
+        }
+      }
+      for ( Map.Entry<String, byte[]> visibility : visibilities.entrySet() ) {
+        put.addColumn( visibility.getKey(), MappingUtils.TUPLE_MAPPING_VISIBILITY, false, visibility.getValue() );
+      }
+      return put;
+    }
+
+    public void execute() throws Exception {
+      createPut().execute();
+    }
   }
 
   public static class FieldException extends Exception {
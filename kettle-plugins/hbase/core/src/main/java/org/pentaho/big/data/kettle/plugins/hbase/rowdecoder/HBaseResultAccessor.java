@@ -0,0 +1,56 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.big.data.kettle.plugins.hbase.rowdecoder;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * Reads the row key and column values of an HBase row object (a Result loaded by the shim's class loader, so it can't
+ * be referenced directly) through method handles that are looked up once per row object class rather than once per
+ * row.
+ */
+class HBaseResultAccessor {
+  private static final MethodType GET_ROW_TYPE = MethodType.methodType( byte[].class, Object.class );
+  private static final MethodType GET_VALUE_TYPE =
+    MethodType.methodType( byte[].class, Object.class, byte[].class, byte[].class );
+
+  private final Class<?> resultClass;
+  private final MethodHandle getRow;
+  private final MethodHandle getValue;
+
+  HBaseResultAccessor( Class<?> resultClass ) throws NoSuchMethodException, IllegalAccessException {
+    this.resultClass = resultClass;
+    MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+    getRow = lookup.unreflect( resultClass.getMethod( "getRow" ) ).asType( GET_ROW_TYPE );
+    getValue =
+      lookup.unreflect( resultClass.getMethod( "getValue", byte[].class, byte[].class ) ).asType( GET_VALUE_TYPE );
+  }
+
+  /**
+   * @return true if the handles of this accessor can be applied to the given row object
+   */
+  boolean accepts( Object result ) {
+    return result.getClass() == resultClass;
+  }
+
+  byte[] getRow( Object result ) throws Throwable {
+    return (byte[]) getRow.invokeExact( result );
+  }
+
+  byte[] getValue( Object result, byte[] family, byte[] qualifier ) throws Throwable {
+    return (byte[]) getValue.invokeExact( result, family, qualifier );
+  }
+}
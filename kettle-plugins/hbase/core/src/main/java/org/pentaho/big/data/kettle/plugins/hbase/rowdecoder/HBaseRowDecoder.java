@@ -90,6 +90,22 @@ public class HBaseRowDecoder extends BaseStep implements StepInterface {
    */
   protected ByteConversionUtil mBytesUtil;
 
+  /**
+   * Encoded column family and qualifier of each output column, in the order of mOutputColumns
+   */
+  protected byte[][] mColumnFamilies;
+  protected byte[][] mColumnQualifiers;
+
+  /**
+   * Class of the incoming keys that are already ImmutableBytesWritable, and don't need converting
+   */
+  private Class<?> mConvertedKeyClass;
+
+  /**
+   * Row key and column value accessors for the class of the incoming HBase rows
+   */
+  private HBaseResultAccessor mResultAccessor;
+
   @Override
   public boolean processRow( StepMetaInterface smi, StepDataInterface sdi ) throws KettleException {
 
@@ -129,9 +145,15 @@ public class HBaseRowDecoder extends BaseStep implements StepInterface {
       }
 
       mOutputColumns = new HBaseValueMetaInterface[ mTableMapping.getMappedColumns().keySet().size() ];
+      mColumnFamilies = new byte[ mOutputColumns.length ][];
+      mColumnQualifiers = new byte[ mOutputColumns.length ][];
       int k = 0;
       for ( String alias : mTableMapping.getMappedColumns().keySet() ) {
-        mOutputColumns[ k++ ] = mTableMapping.getMappedColumns().get( alias );
+        HBaseValueMetaInterface column = mTableMapping.getMappedColumns().get( alias );
+        mOutputColumns[ k ] = column;
+        mColumnFamilies[ k ] = column.getColumnFamily().getBytes();
+        mColumnQualifiers[ k ] = column.getColumnName().getBytes();
+        k++;
       }
 
       hBaseRowDecoderData.setOutputRowMeta( getInputRowMeta().clone() );
@@ -148,19 +170,16 @@ public class HBaseRowDecoder extends BaseStep implements StepInterface {
           BaseMessages.getString( hBaseRowDecoderMetaClass, "HBaseRowDecoder.Error.UnableToFindHBaseKey", inKey ) );
       }
 
-      try {
-        inputRow[ mKeyInIndex ] = mBytesUtil.convertToImmutableBytesWritable( inputRow[ mKeyInIndex ] );
-      } catch ( InvocationTargetException | IllegalAccessException | NoSuchMethodException e ) {
-        throw new KettleException( BaseMessages.getString( hBaseRowDecoderMetaClass,
-          HBASE_ROW_DECODER_ERROR_NOT_IMMUTABLE_BYTES_WRITABLE,
-          hBaseRowDecoderMeta.getIncomingKeyField() ) );
-      }
+      inputRow[ mKeyInIndex ] = convertKey( inputRow[ mKeyInIndex ] );
 
       if ( !mBytesUtil.isImmutableBytesWritable( inputRow[ mKeyInIndex ] ) ) {
         throw new KettleException( BaseMessages.getString( hBaseRowDecoderMetaClass,
           HBASE_ROW_DECODER_ERROR_NOT_IMMUTABLE_BYTES_WRITABLE,
           hBaseRowDecoderMeta.getIncomingKeyField() ) );
       }
+      if ( inputRow[ mKeyInIndex ] != null ) {
+        mConvertedKeyClass = inputRow[ mKeyInIndex ].getClass();
+      }
 
       String inResult = environmentSubstitute( hBaseRowDecoderMeta.getIncomingResultField() );
       mResultInIndex = inputMeta.indexOfValue( inResult );
@@ -168,14 +187,11 @@ public class HBaseRowDecoder extends BaseStep implements StepInterface {
         throw new KettleException(
           BaseMessages.getString( hBaseRowDecoderMetaClass, "HBaseRowDecoder.Error.UnableToFindHBaseRow", inResult ) );
       }
-    }
-
-    try {
-      inputRow[ mKeyInIndex ] = mBytesUtil.convertToImmutableBytesWritable( inputRow[ mKeyInIndex ] );
-    } catch ( InvocationTargetException | IllegalAccessException | NoSuchMethodException e ) {
-      throw new KettleException( BaseMessages.getString( hBaseRowDecoderMetaClass,
-        HBASE_ROW_DECODER_ERROR_NOT_IMMUTABLE_BYTES_WRITABLE,
-        hBaseRowDecoderMeta.getIncomingKeyField() ) );
+    } else {
+      Object key = inputRow[ mKeyInIndex ];
+      if ( key != null && key.getClass() != mConvertedKeyClass ) {
+        inputRow[ mKeyInIndex ] = convertKey( key );
+      }
     }
 
     Object hRow = inputRow[ mResultInIndex ];
@@ -192,10 +208,12 @@ public class HBaseRowDecoder extends BaseStep implements StepInterface {
       } else {
         Object[] outputRowData = RowDataUtil.allocateRowData( mOutputColumns.length + 1 ); // + 1 for key
 
+        HBaseResultAccessor resultAccessor = getResultAccessor( hRow );
+
         byte[] rowKey = null;
         try {
-          rowKey = (byte[]) hRow.getClass().getMethod( "getRow" ).invoke( hRow );
-        } catch ( Exception ex ) {
+          rowKey = resultAccessor.getRow( hRow );
+        } catch ( Throwable ex ) {
           throw new KettleException(
             BaseMessages.getString( hBaseRowDecoderMetaClass, "HBaseRowDecoder.Error.UnableToGetRowKey" ), ex );
         }
@@ -203,23 +221,16 @@ public class HBaseRowDecoder extends BaseStep implements StepInterface {
         outputRowData[ 0 ] = decodedKey;
 
         for ( int i = 0; i < mOutputColumns.length; i++ ) {
-          HBaseValueMetaInterface current = mOutputColumns[ i ];
-
-          byte[] colFamilyName = current.getColumnFamily().getBytes();
-          byte[] qualifier = current.getColumnName().getBytes();
-
           byte[] kv = null;
           try {
-            kv = (byte[]) hRow.getClass().getMethod( "getValue", byte[].class, byte[].class )
-              .invoke( hRow, colFamilyName, qualifier );
-          } catch ( Exception ex ) {
+            kv = resultAccessor.getValue( hRow, mColumnFamilies[ i ], mColumnQualifiers[ i ] );
+          } catch ( Throwable ex ) {
             throw new KettleException(
               BaseMessages.getString( hBaseRowDecoderMetaClass, "HBaseRowDecoder.Error.UnableToGetColumnValue" ),
               ex );
           }
 
-          Object decodedVal = current.decodeColumnValue( ( kv == null ) ? null : kv );
-          outputRowData[ i + 1 ] = decodedVal;
+          outputRowData[ i + 1 ] = mOutputColumns[ i ].decodeColumnValue( kv );
         }
 
         // output the row
@@ -230,6 +241,33 @@ public class HBaseRowDecoder extends BaseStep implements StepInterface {
     return true;
   }
 
+  private Object convertKey( Object key ) throws KettleException {
+    try {
+      return mBytesUtil.convertToImmutableBytesWritable( key );
+    } catch ( InvocationTargetException | IllegalAccessException | NoSuchMethodException e ) {
+      throw new KettleException( BaseMessages.getString( hBaseRowDecoderMetaClass,
+        HBASE_ROW_DECODER_ERROR_NOT_IMMUTABLE_BYTES_WRITABLE,
+        hBaseRowDecoderMeta.getIncomingKeyField() ) );
+    }
+  }
+
+  /**
+   * The row objects all come from the same table input format, so the accessor is normally only looked up for the
+   * first row.
+   */
+  private HBaseResultAccessor getResultAccessor( Object hRow ) throws KettleException {
+    if ( mResultAccessor == null || !mResultAccessor.accepts( hRow ) ) {
+      try {
+        mResultAccessor = new HBaseResultAccessor( hRow.getClass() );
+      } catch ( NoSuchMethodException | IllegalAccessException ex ) {
+        throw new KettleException(
+          BaseMessages.getString( hBaseRowDecoderMetaClass, HBASE_ROW_DECODER_ERROR_NOT_RESULT,
+            hBaseRowDecoderMeta.getIncomingResultField() ), ex );
+      }
+    }
+    return mResultAccessor;
+  }
+
   @Override
   public boolean init( StepMetaInterface smi, StepDataInterface sdi ) {
     if ( super.init( smi, sdi ) ) {
@@ -79,6 +79,51 @@ public class HBaseInputMetaInjectionTest extends BaseMetadataInjectionTest<HBase
         return meta.getMatchAnyFilter();
       }
     } );
+    check( "KEY_RANGE_START_FIELD", new StringGetter() {
+      public String get() {
+        return meta.getKeyRangeStartField();
+      }
+    } );
+    check( "KEY_RANGE_STOP_FIELD", new StringGetter() {
+      public String get() {
+        return meta.getKeyRangeStopField();
+      }
+    } );
+    check( "SALT_BUCKETS", new StringGetter() {
+      public String get() {
+        return meta.getSaltBuckets();
+      }
+    } );
+    check( "SALT_PREFIX_FORMAT", new StringGetter() {
+      public String get() {
+        return meta.getSaltPrefixFormat();
+      }
+    } );
+    check( "SPREAD_RANGES_OVER_COPIES", new BooleanGetter() {
+      public boolean get() {
+        return meta.getSpreadRangesOverCopies();
+      }
+    } );
+    check( "SNAPSHOT_NAME", new StringGetter() {
+      public String get() {
+        return meta.getSnapshotName();
+      }
+    } );
+    check( "SNAPSHOT_ROOT_DIR", new StringGetter() {
+      public String get() {
+        return meta.getSnapshotRootDir();
+      }
+    } );
+    check( "KEY_RANGE_START", new StringGetter() {
+      public String get() {
+        return meta.getKeyRanges().get( 0 ).getStart();
+      }
+    } );
+    check( "KEY_RANGE_STOP", new StringGetter() {
+      public String get() {
+        return meta.getKeyRanges().get( 0 ).getStop();
+      }
+    } );
 
     check( "OUTPUT_FIELD_KEY", new BooleanGetter() {
       public boolean get() {
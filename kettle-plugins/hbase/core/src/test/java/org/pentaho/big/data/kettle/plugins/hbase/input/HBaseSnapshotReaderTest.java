@@ -0,0 +1,330 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.big.data.kettle.plugins.hbase.input;
+
+import org.apache.commons.vfs2.VFS;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Reads a snapshot laid out on the local file system the way HBase writes it.
+ */
+public class HBaseSnapshotReaderTest {
+  private static final String FIRST_REGION = "91f2504ec60f8514c120df16d1a1e57e";
+  private static final String SECOND_REGION = "10375c1a2ade6eb8435c0f3a1270120a";
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private File rootDir;
+
+  @Before
+  public void setUp() throws Exception {
+    rootDir = temporaryFolder.getRoot();
+    String table = "data/default/orders/";
+
+    writeHFile( table + FIRST_REGION + "/cf/f1", 3, HFileReader.COMPRESSION_NONE,
+      cell( "a", "cf", "q1", 1, HFileReader.TYPE_PUT, "1" ),
+      cell( "b", "cf", "q1", 1, HFileReader.TYPE_PUT, "old" ),
+      cell( "c", "cf", "q1", 1, HFileReader.TYPE_PUT, "deleted" ),
+      cell( "d", "cf", "q1", 3, HFileReader.TYPE_PUT, "3" ),
+      cell( "d", "cf", "q1", 2, HFileReader.TYPE_PUT, "2" ) );
+    // compacted away after the snapshot was taken
+    writeHFile( "archive/" + table + FIRST_REGION + "/cf/f2", 3, HFileReader.COMPRESSION_NONE,
+      cell( "b", "cf", "q1", 2, HFileReader.TYPE_PUT, "new" ),
+      cell( "c", "cf", "q1", 5, HFileReader.TYPE_DELETE_COLUMN, "" ),
+      cell( "d", "cf", "q1", 3, HFileReader.TYPE_DELETE, "" ) );
+    writeHFile( table + FIRST_REGION + "/f2/f3", 3, HFileReader.COMPRESSION_NONE,
+      cell( "a", "f2", "x", 1, HFileReader.TYPE_PUT, "y" ) );
+    // HBase 1.x writes version 3 files with minor version 0, still with checksummed block headers
+    writeHFile( table + SECOND_REGION + "/cf/f4", 0, HFileReader.COMPRESSION_GZ,
+      cell( "m", "cf", "q1", 1, HFileReader.TYPE_PUT, "m" ),
+      cell( "z", "cf", "q1", 1, HFileReader.TYPE_PUT, "z" ) );
+
+    byte[] tableName = message( bytesField( 1, "default" ), bytesField( 2, "orders" ) );
+    byte[] manifest = message(
+      bytesField( 1, message( bytesField( 1, tableName ) ) ),
+      // the second region is listed first, the reader sorts them
+      bytesField( 2, regionManifest( tableName, 2, "m", "", false, familyFiles( "cf", "f4" ) ) ),
+      bytesField( 2, regionManifest( tableName, 1, "", "m", false, familyFiles( "cf", "f1", "f2" ),
+        familyFiles( "f2", "f3" ) ) ),
+      // a split parent, whose cells are in its daughters
+      bytesField( 2, regionManifest( tableName, 0, "", "", true ) ) );
+    File manifestFile = new File( rootDir, ".hbase-snapshot/orders_snapshot/data.manifest" );
+    manifestFile.getParentFile().mkdirs();
+    Files.write( manifestFile.toPath(), manifest );
+  }
+
+  private HBaseSnapshotReader reader() throws IOException {
+    return new HBaseSnapshotReader( VFS.getManager().toFileObject( rootDir ), "orders_snapshot" );
+  }
+
+  private static List<SnapshotRow> readAll( HBaseSnapshotReader.RegionRows regionRows ) throws IOException {
+    List<SnapshotRow> rows = new ArrayList<>();
+    try {
+      SnapshotRow row;
+      while ( ( row = regionRows.next() ) != null ) {
+        rows.add( row );
+      }
+    } finally {
+      regionRows.close();
+    }
+    return rows;
+  }
+
+  private static String key( SnapshotRow row ) {
+    return new String( row.getRow(), StandardCharsets.UTF_8 );
+  }
+
+  private static String value( SnapshotRow row, String family, String qualifier ) {
+    byte[] value = row.getValue( family, qualifier, false );
+    return value == null ? null : new String( value, StandardCharsets.UTF_8 );
+  }
+
+  @Test
+  public void testRegionsAreReadFromTheManifest() throws Exception {
+    List<HBaseSnapshotReader.Region> regions = reader().getRegions();
+
+    assertEquals( 2, regions.size() );
+    assertEquals( FIRST_REGION, regions.get( 0 ).getEncodedName() );
+    assertEquals( SECOND_REGION, regions.get( 1 ).getEncodedName() );
+    assertEquals( "orders", regions.get( 0 ).getTable() );
+    assertEquals( Arrays.asList( "f1", "f2" ), regions.get( 0 ).getStoreFiles().get( "cf" ) );
+    assertTrue( regions.get( 0 ).overlaps( "b".getBytes(), "c".getBytes() ) );
+    assertFalse( regions.get( 1 ).overlaps( null, "m".getBytes() ) );
+    assertTrue( regions.get( 1 ).overlaps( "a".getBytes(), null ) );
+  }
+
+  @Test
+  public void testRowsAreMergedFromTheHFilesOfTheRegion() throws Exception {
+    HBaseSnapshotReader reader = reader();
+    List<SnapshotRow> rows = readAll( reader.openRegion( reader.getRegions().get( 0 ), null, null ) );
+
+    // c was deleted, and of d only the version before the deleted one is left
+    assertEquals( 3, rows.size() );
+    assertEquals( "a", key( rows.get( 0 ) ) );
+    assertEquals( "1", value( rows.get( 0 ), "cf", "q1" ) );
+    assertEquals( "y", value( rows.get( 0 ), "f2", "x" ) );
+    assertEquals( "b", key( rows.get( 1 ) ) );
+    assertEquals( "new", value( rows.get( 1 ), "cf", "q1" ) );
+    assertEquals( Long.valueOf( 2 ), rows.get( 1 ).getMap().get( "cf".getBytes() ).get( "q1".getBytes() ).lastKey() );
+    assertEquals( "d", key( rows.get( 2 ) ) );
+    assertEquals( "2", value( rows.get( 2 ), "cf", "q1" ) );
+    assertNull( value( rows.get( 2 ), "cf", "q2" ) );
+  }
+
+  @Test
+  public void testOnlyTheRequestedFamiliesAndRangesAreRead() throws Exception {
+    HBaseSnapshotReader reader = reader();
+    List<SnapshotRow> rows =
+      readAll( reader.openRegion( reader.getRegions().get( 0 ), Collections.singleton( "cf" ), null ) );
+    assertEquals( 3, rows.size() );
+    assertNull( value( rows.get( 0 ), "f2", "x" ) );
+
+    rows = readAll( reader.openRegion( reader.getRegions().get( 1 ), null,
+      Collections.singletonList( new byte[][] { "n".getBytes(), null } ) ) );
+    assertEquals( 1, rows.size() );
+    assertEquals( "z", value( rows.get( 0 ), "cf", "q1" ) );
+  }
+
+  @Test
+  public void testVersion3FilesWithMinorVersion0AreRead() throws Exception {
+    File file = new File( rootDir, "data/default/orders/" + SECOND_REGION + "/cf/f4" );
+    try ( HFileReader reader = new HFileReader( VFS.getManager().toFileObject( file ) ) ) {
+      HFileReader.Cell cell = reader.next();
+      assertEquals( "m", new String( cell.row, StandardCharsets.UTF_8 ) );
+      assertEquals( "z", new String( reader.next().row, StandardCharsets.UTF_8 ) );
+      assertNull( reader.next() );
+    }
+  }
+
+  @Test
+  public void testToBytesBinary() {
+    assertArrayEquals( new byte[] { 'a', 0, (byte) 0xff, 'b' }, SnapshotRow.toBytesBinary( "a\\x00\\xFFb" ) );
+  }
+
+  private static byte[] cell( String row, String family, String qualifier, long timestamp, byte type, String value )
+    throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream( bytes );
+    byte[] rowBytes = row.getBytes( StandardCharsets.UTF_8 );
+    byte[] familyBytes = family.getBytes( StandardCharsets.UTF_8 );
+    byte[] qualifierBytes = qualifier.getBytes( StandardCharsets.UTF_8 );
+    byte[] valueBytes = value.getBytes( StandardCharsets.UTF_8 );
+    out.writeInt( 2 + rowBytes.length + 1 + familyBytes.length + qualifierBytes.length + 9 );
+    out.writeInt( valueBytes.length );
+    out.writeShort( rowBytes.length );
+    out.write( rowBytes );
+    out.writeByte( familyBytes.length );
+    out.write( familyBytes );
+    out.write( qualifierBytes );
+    out.writeLong( timestamp );
+    out.writeByte( type );
+    out.write( valueBytes );
+    // no tags, and the sequence id as a one byte vlong
+    out.writeShort( 0 );
+    out.writeByte( (int) timestamp );
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Writes an HFile of version 3 with one data block per cell and a bloom block in between.
+   */
+  private void writeHFile( String path, int minorVersion, int compression, byte[]... cells ) throws IOException {
+    ByteArrayOutputStream file = new ByteArrayOutputStream();
+    long lastDataBlockOffset = 0;
+    for ( int i = 0; i < cells.length; i++ ) {
+      lastDataBlockOffset = file.size();
+      writeBlock( file, "DATABLK*", cells[ i ], compression );
+      if ( i == 0 ) {
+        writeBlock( file, "BLMFBLK2", new byte[ 16 ], compression );
+      }
+    }
+    long fileInfoOffset = file.size();
+    // the cells carry tags and sequence ids
+    byte[] fileInfo = message( fileInfoEntry( HFileReader.KEY_VALUE_VERSION, 1 ),
+      fileInfoEntry( HFileReader.MAX_TAGS_LEN, 0 ) );
+    ByteArrayOutputStream fileInfoBlock = new ByteArrayOutputStream();
+    fileInfoBlock.write( HFileReader.PBUF_MAGIC.getBytes( StandardCharsets.ISO_8859_1 ) );
+    fileInfoBlock.write( delimited( fileInfo ) );
+    writeBlock( file, "FILEINF2", fileInfoBlock.toByteArray(), compression );
+
+    byte[] trailer = new byte[ 4096 ];
+    byte[] magic = HFileReader.TRAILER_MAGIC.getBytes( StandardCharsets.ISO_8859_1 );
+    System.arraycopy( magic, 0, trailer, 0, magic.length );
+    byte[] proto = delimited( message( varintField( 1, fileInfoOffset ), varintField( 7, cells.length ),
+      varintField( 9, 0 ), varintField( 10, lastDataBlockOffset ), varintField( 12, compression ) ) );
+    System.arraycopy( proto, 0, trailer, magic.length, proto.length );
+    int version = 3 | ( minorVersion << 24 );
+    trailer[ 4092 ] = (byte) ( version >>> 24 );
+    trailer[ 4095 ] = (byte) version;
+    file.write( trailer );
+
+    File target = new File( rootDir, path );
+    target.getParentFile().mkdirs();
+    Files.write( target.toPath(), file.toByteArray() );
+  }
+
+  private static void writeBlock( ByteArrayOutputStream file, String magic, byte[] data, int compression )
+    throws IOException {
+    byte[] onDisk = data;
+    if ( compression == HFileReader.COMPRESSION_GZ ) {
+      ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+      try ( GZIPOutputStream gzip = new GZIPOutputStream( compressed ) ) {
+        gzip.write( data );
+      }
+      onDisk = compressed.toByteArray();
+    }
+    byte[] checksums = new byte[ 4 ];
+    DataOutputStream out = new DataOutputStream( file );
+    out.write( magic.getBytes( StandardCharsets.ISO_8859_1 ) );
+    out.writeInt( onDisk.length + checksums.length );
+    out.writeInt( data.length );
+    out.writeLong( -1 );
+    out.writeByte( 1 );
+    out.writeInt( 16384 );
+    out.writeInt( 33 + onDisk.length );
+    out.write( onDisk );
+    out.write( checksums );
+  }
+
+  private static byte[] regionManifest( byte[] tableName, long regionId, String startKey, String endKey,
+                                        boolean splitParent, byte[]... familyFiles ) throws IOException {
+    byte[] regionInfo = message( varintField( 1, regionId ), bytesField( 2, tableName ), bytesField( 3, startKey ),
+      bytesField( 4, endKey ), varintField( 5, splitParent ? 1 : 0 ), varintField( 6, splitParent ? 1 : 0 ) );
+    byte[][] fields = new byte[ familyFiles.length + 2 ][];
+    fields[ 0 ] = varintField( 1, 2 );
+    fields[ 1 ] = bytesField( 2, regionInfo );
+    for ( int i = 0; i < familyFiles.length; i++ ) {
+      fields[ i + 2 ] = bytesField( 3, familyFiles[ i ] );
+    }
+    return message( fields );
+  }
+
+  private static byte[] familyFiles( String family, String... files ) throws IOException {
+    byte[][] fields = new byte[ files.length + 1 ][];
+    fields[ 0 ] = bytesField( 1, family );
+    for ( int i = 0; i < files.length; i++ ) {
+      fields[ i + 1 ] = bytesField( 2, message( bytesField( 1, files[ i ] ), varintField( 3, 1024 ) ) );
+    }
+    return message( fields );
+  }
+
+  private static byte[] fileInfoEntry( String key, int value ) throws IOException {
+    return bytesField( 1, message( bytesField( 1, key ),
+      bytesField( 2, new byte[] { (byte) ( value >>> 24 ), (byte) ( value >>> 16 ), (byte) ( value >>> 8 ),
+        (byte) value } ) ) );
+  }
+
+  private static byte[] message( byte[]... fields ) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    for ( byte[] field : fields ) {
+      out.write( field );
+    }
+    return out.toByteArray();
+  }
+
+  private static byte[] varintField( int number, long value ) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    writeVarint( out, (long) number << 3 | ProtoReader.VARINT );
+    writeVarint( out, value );
+    return out.toByteArray();
+  }
+
+  private static byte[] bytesField( int number, String value ) throws IOException {
+    return bytesField( number, value.getBytes( StandardCharsets.UTF_8 ) );
+  }
+
+  private static byte[] bytesField( int number, byte[] value ) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    writeVarint( out, (long) number << 3 | ProtoReader.LENGTH_DELIMITED );
+    out.write( delimited( value ) );
+    return out.toByteArray();
+  }
+
+  private static byte[] delimited( byte[] message ) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    writeVarint( out, message.length );
+    out.write( message );
+    return out.toByteArray();
+  }
+
+  private static void writeVarint( ByteArrayOutputStream out, long value ) {
+    while ( ( value & ~0x7fL ) != 0 ) {
+      out.write( (int) ( value & 0x7f ) | 0x80 );
+      value >>>= 7;
+    }
+    out.write( (int) value );
+  }
+}
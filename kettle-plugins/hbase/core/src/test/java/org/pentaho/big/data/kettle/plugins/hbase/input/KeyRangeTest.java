@@ -0,0 +1,98 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.big.data.kettle.plugins.hbase.input;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class KeyRangeTest {
+
+  @Test
+  public void testSaltExpandsEachRangeOverTheBuckets() {
+    List<KeyRange> salted = KeyRange.salt( Arrays.asList( new KeyRange( "20240101", "20240102" ),
+      new KeyRange( "20240301", null ) ), 3, "%02d|" );
+
+    assertEquals( Arrays.asList(
+      new KeyRange( "00|20240101", "00|20240102" ), new KeyRange( "00|20240301", "00}" ),
+      new KeyRange( "01|20240101", "01|20240102" ), new KeyRange( "01|20240301", "01}" ),
+      new KeyRange( "02|20240101", "02|20240102" ), new KeyRange( "02|20240301", "02}" ) ), salted );
+  }
+
+  @Test
+  public void testSaltOfAFullScanReadsEveryBucket() {
+    List<KeyRange> salted = KeyRange.salt( Collections.singletonList( new KeyRange( null, null ) ), 2, "%d" );
+
+    assertEquals( Arrays.asList( new KeyRange( "0", "1" ), new KeyRange( "1", "2" ) ), salted );
+    // adjoining buckets are read with one scan
+    assertEquals( Collections.singletonList( new KeyRange( "0", "2" ) ), KeyRange.merge( salted ) );
+  }
+
+  @Test
+  public void testPrefixSuccessor() {
+    assertEquals( "ab", KeyRange.prefixSuccessor( "aa" ) );
+    assertEquals( "b", KeyRange.prefixSuccessor( "a" + Character.MAX_VALUE ) );
+    assertNull( KeyRange.prefixSuccessor( String.valueOf( Character.MAX_VALUE ) ) );
+  }
+
+  @Test
+  public void testMergeSortsAndJoinsOverlappingRanges() {
+    List<KeyRange> merged = KeyRange.merge( Arrays.asList( new KeyRange( "m", "p" ), new KeyRange( "a", "c" ),
+      new KeyRange( "b", "d" ), new KeyRange( "n", "o" ), new KeyRange( "x", "x" ), new KeyRange( "o", null ) ) );
+
+    assertEquals( Arrays.asList( new KeyRange( "a", "d" ), new KeyRange( "m", null ) ), merged );
+  }
+
+  @Test
+  public void testMergeOrdersLikeTheEncodedKeys() {
+    // U+FFFD sorts before U+1F600 in UTF-8, although its UTF-16 char is greater than the surrogate pair of U+1F600
+    String smiley = new String( Character.toChars( 0x1F600 ) );
+    List<KeyRange> merged = KeyRange.merge( Arrays.asList( new KeyRange( smiley, null ),
+      new KeyRange( "\uFFFD", "\uFFFE" ) ) );
+
+    assertEquals( Arrays.asList( new KeyRange( "\uFFFD", "\uFFFE" ), new KeyRange( smiley, null ) ), merged );
+    assertTrue( KeyRange.compareKeys( "\uFFFD", smiley ) < 0 );
+  }
+
+  @Test
+  public void testOpenStartCoversTheRangesBefore() {
+    List<KeyRange> merged = KeyRange.merge( Arrays.asList( new KeyRange( "c", "e" ), new KeyRange( null, "d" ) ) );
+
+    assertEquals( Collections.singletonList( new KeyRange( null, "e" ) ), merged );
+  }
+
+  @Test
+  public void testDistinctKeepsTheOrder() {
+    List<KeyRange> ranges = Arrays.asList( new KeyRange( "5", "9" ), new KeyRange( "1", "2" ),
+      new KeyRange( "5", "9" ) );
+
+    assertEquals( Arrays.asList( new KeyRange( "5", "9" ), new KeyRange( "1", "2" ) ), KeyRange.distinct( ranges ) );
+  }
+
+  @Test
+  public void testForCopy() {
+    List<KeyRange> ranges = Arrays.asList( new KeyRange( "a", "b" ), new KeyRange( "c", "d" ),
+      new KeyRange( "e", "f" ) );
+
+    assertEquals( Arrays.asList( new KeyRange( "a", "b" ), new KeyRange( "e", "f" ) ),
+      KeyRange.forCopy( ranges, 0, 2 ) );
+    assertEquals( Collections.singletonList( new KeyRange( "c", "d" ) ), KeyRange.forCopy( ranges, 1, 2 ) );
+    assertEquals( ranges, KeyRange.forCopy( ranges, 0, 1 ) );
+  }
+}
@@ -21,6 +21,7 @@ import org.mockito.Mockito;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.pentaho.big.data.kettle.plugins.hbase.mapping.MappingUtils;
 import org.pentaho.big.data.kettle.plugins.hbase.output.KettleRowToHBaseTuple.FieldException;
+import org.pentaho.big.data.kettle.plugins.hbase.output.KettleRowToHBaseTuple.TuplePut;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.core.row.value.ValueMetaString;
@@ -32,10 +33,13 @@ import org.pentaho.hadoop.shim.api.hbase.meta.HBaseValueMetaInterface;
 import org.pentaho.hadoop.shim.api.hbase.table.HBasePut;
 import org.pentaho.hadoop.shim.api.hbase.table.HBaseTableWriteOperationManager;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -133,6 +137,120 @@ public class KettleRowToHBaseTupleTest {
 
   }
 
+  @Test
+  public void testTuplesOfTheSameKeyAreCoalesced() throws Exception {
+
+    RowMetaInterface inputRowMeta = Mockito.mock( RowMetaInterface.class );
+    when( inputRowMeta.indexOfValue( Mapping.TupleMapping.KEY.toString() ) ).thenReturn( 0 );
+    when( inputRowMeta.indexOfValue( Mapping.TupleMapping.FAMILY.toString() ) ).thenReturn( 1 );
+    when( inputRowMeta.indexOfValue( Mapping.TupleMapping.COLUMN.toString() ) ).thenReturn( 2 );
+    when( inputRowMeta.indexOfValue( Mapping.TupleMapping.VALUE.toString() ) ).thenReturn( 3 );
+    when( inputRowMeta.indexOfValue( MappingUtils.TUPLE_MAPPING_VISIBILITY ) ).thenReturn( -1 );
+
+    ValueMetaString keyMeta = new ValueMetaString( Mapping.TupleMapping.KEY.toString() );
+    ValueMetaString valueMeta = new ValueMetaString( Mapping.TupleMapping.VALUE.toString() );
+    when( inputRowMeta.getValueMeta( 0 ) ).thenReturn( keyMeta );
+    when( inputRowMeta.getValueMeta( 1 ) ).thenReturn( new ValueMetaString( TupleMapping.FAMILY.toString() ) );
+    when( inputRowMeta.getValueMeta( 2 ) ).thenReturn( new ValueMetaString( TupleMapping.COLUMN.toString() ) );
+    when( inputRowMeta.getValueMeta( 3 ) ).thenReturn( valueMeta );
+
+    HBaseValueMetaInterface hvmi = Mockito.mock( HBaseValueMetaInterface.class );
+    when( hvmi.encodeColumnValue( any(), eq( valueMeta ) ) ).thenReturn( new byte[ 10 ] );
+    Map<String, HBaseValueMetaInterface> columnMap = new HashMap<>();
+    columnMap.put( valueMeta.getName(), hvmi );
+
+    KettleRowToHBaseTuple rowConverter = new KettleRowToHBaseTuple( inputRowMeta, tupleMapping, columnMap );
+    rowConverter.setMaxPutCells( 3 );
+
+    ByteConversionUtil byteConversionUtil = Mockito.mock( ByteConversionUtil.class );
+    when( byteConversionUtil.encodeKeyValue( any(), eq( keyMeta ), eq( KeyType.STRING ) ) )
+      .thenAnswer( invocation -> ( (String) invocation.getArgument( 0 ) ).getBytes() );
+    HBaseTableWriteOperationManager writeManager = Mockito.mock( HBaseTableWriteOperationManager.class );
+    HBasePut first = Mockito.mock( HBasePut.class );
+    HBasePut second = Mockito.mock( HBasePut.class );
+    HBasePut third = Mockito.mock( HBasePut.class );
+    when( writeManager.createPut( "a".getBytes() ) ).thenReturn( first, third );
+    when( writeManager.createPut( "b".getBytes() ) ).thenReturn( second );
+
+    String[] firstRow = new String[] { "a", "f", "c1", "1" };
+    String[] secondRow = new String[] { "a", "f", "c2", "2" };
+    Assert.assertNull( rowConverter.addTuple( writeManager, byteConversionUtil, firstRow, false ) );
+    Assert.assertNull( rowConverter.addTuple( writeManager, byteConversionUtil, secondRow, false ) );
+    // a new key hands back the put of the previous one, along with the rows that make it up
+    TuplePut tuplePut =
+      rowConverter.addTuple( writeManager, byteConversionUtil, new String[] { "b", "f", "c1", "3" }, false );
+    Assert.assertEquals( Arrays.asList( firstRow, secondRow ), tuplePut.getRows() );
+    tuplePut.execute();
+    verify( first, times( 2 ) ).addColumn( eq( "f" ), anyString(), eq( false ), any() );
+    verify( first ).setWriteToWAL( false );
+    verify( first ).execute();
+
+    // a row that can't be encoded leaves the pending put as it was
+    try {
+      rowConverter.addTuple( writeManager, byteConversionUtil, new String[] { "b", "f", "c2", null }, false );
+      Assert.fail();
+    } catch ( FieldException fe ) {
+      Assert.assertEquals( TupleMapping.VALUE.toString(), fe.getFieldString() );
+    }
+    Assert.assertNull( rowConverter.addTuple( writeManager, byteConversionUtil, new String[] { "b", "f", "c2", "4" },
+      false ) );
+    // the size cap hands back the full put right away
+    tuplePut = rowConverter.addTuple( writeManager, byteConversionUtil, new String[] { "b", "f", "c3", "5" }, false );
+    Assert.assertEquals( 3, tuplePut.getRows().size() );
+    Assert.assertSame( second, tuplePut.createPut() );
+    verify( second, times( 3 ) ).addColumn( eq( "f" ), anyString(), eq( false ), any() );
+
+    Assert.assertNull( rowConverter.addTuple( writeManager, byteConversionUtil, new String[] { "a", "f", "c1", "6" },
+      false ) );
+    Assert.assertSame( third, rowConverter.flushTuplePut().createPut() );
+    Assert.assertNull( rowConverter.flushTuplePut() );
+  }
+
+  @Test
+  public void testRepeatedColumnKeepsTheLastValue() throws Exception {
+
+    RowMetaInterface inputRowMeta = Mockito.mock( RowMetaInterface.class );
+    when( inputRowMeta.indexOfValue( Mapping.TupleMapping.KEY.toString() ) ).thenReturn( 0 );
+    when( inputRowMeta.indexOfValue( Mapping.TupleMapping.FAMILY.toString() ) ).thenReturn( 1 );
+    when( inputRowMeta.indexOfValue( Mapping.TupleMapping.COLUMN.toString() ) ).thenReturn( 2 );
+    when( inputRowMeta.indexOfValue( Mapping.TupleMapping.VALUE.toString() ) ).thenReturn( 3 );
+    when( inputRowMeta.indexOfValue( MappingUtils.TUPLE_MAPPING_VISIBILITY ) ).thenReturn( -1 );
+
+    ValueMetaString keyMeta = new ValueMetaString( Mapping.TupleMapping.KEY.toString() );
+    ValueMetaString valueMeta = new ValueMetaString( Mapping.TupleMapping.VALUE.toString() );
+    when( inputRowMeta.getValueMeta( 0 ) ).thenReturn( keyMeta );
+    when( inputRowMeta.getValueMeta( 1 ) ).thenReturn( new ValueMetaString( TupleMapping.FAMILY.toString() ) );
+    when( inputRowMeta.getValueMeta( 2 ) ).thenReturn( new ValueMetaString( TupleMapping.COLUMN.toString() ) );
+    when( inputRowMeta.getValueMeta( 3 ) ).thenReturn( valueMeta );
+
+    HBaseValueMetaInterface hvmi = Mockito.mock( HBaseValueMetaInterface.class );
+    when( hvmi.encodeColumnValue( any(), eq( valueMeta ) ) )
+      .thenAnswer( invocation -> ( (String) invocation.getArgument( 0 ) ).getBytes() );
+    Map<String, HBaseValueMetaInterface> columnMap = new HashMap<>();
+    columnMap.put( valueMeta.getName(), hvmi );
+
+    KettleRowToHBaseTuple rowConverter = new KettleRowToHBaseTuple( inputRowMeta, tupleMapping, columnMap );
+
+    ByteConversionUtil byteConversionUtil = Mockito.mock( ByteConversionUtil.class );
+    when( byteConversionUtil.encodeKeyValue( any(), eq( keyMeta ), eq( KeyType.STRING ) ) )
+      .thenAnswer( invocation -> ( (String) invocation.getArgument( 0 ) ).getBytes() );
+    HBaseTableWriteOperationManager writeManager = Mockito.mock( HBaseTableWriteOperationManager.class );
+    HBasePut put = Mockito.mock( HBasePut.class );
+    when( writeManager.createPut( "a".getBytes() ) ).thenReturn( put );
+
+    rowConverter.addTuple( writeManager, byteConversionUtil, new String[] { "a", "f", "c1", "old" }, false );
+    rowConverter.addTuple( writeManager, byteConversionUtil, new String[] { "a", "f", "c2", "other" }, false );
+    rowConverter.addTuple( writeManager, byteConversionUtil, new String[] { "a", "f", "c1", "new" }, false );
+    TuplePut tuplePut = rowConverter.flushTuplePut();
+
+    // all rows are still reported with the put, but the cells of one put share a timestamp
+    Assert.assertEquals( 3, tuplePut.getRows().size() );
+    Assert.assertSame( put, tuplePut.createPut() );
+    verify( put ).addColumn( "f", "c1", false, "new".getBytes() );
+    verify( put ).addColumn( "f", "c2", false, "other".getBytes() );
+    verify( put, times( 2 ) ).addColumn( anyString(), anyString(), anyBoolean(), any() );
+  }
+
   @Test
   public void testMissingValues() {
 
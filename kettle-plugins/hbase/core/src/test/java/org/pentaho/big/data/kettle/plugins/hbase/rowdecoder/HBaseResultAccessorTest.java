@@ -0,0 +1,70 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.big.data.kettle.plugins.hbase.rowdecoder;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class HBaseResultAccessorTest {
+
+  @Test
+  public void testReadsRowAndValues() throws Throwable {
+    FakeResult result = new FakeResult( "key".getBytes(), "cf".getBytes(), "q".getBytes(), "value".getBytes() );
+    HBaseResultAccessor accessor = new HBaseResultAccessor( FakeResult.class );
+
+    assertTrue( accessor.accepts( result ) );
+    assertArrayEquals( "key".getBytes(), accessor.getRow( result ) );
+    assertArrayEquals( "value".getBytes(), accessor.getValue( result, "cf".getBytes(), "q".getBytes() ) );
+    assertNull( accessor.getValue( result, "cf".getBytes(), "other".getBytes() ) );
+  }
+
+  @Test
+  public void testDoesNotAcceptOtherClasses() throws Throwable {
+    HBaseResultAccessor accessor = new HBaseResultAccessor( FakeResult.class );
+    assertFalse( accessor.accepts( "not a result" ) );
+  }
+
+  @Test( expected = NoSuchMethodException.class )
+  public void testNotAResult() throws Throwable {
+    new HBaseResultAccessor( String.class );
+  }
+
+  public static class FakeResult {
+    private final byte[] row;
+    private final byte[] family;
+    private final byte[] qualifier;
+    private final byte[] value;
+
+    public FakeResult( byte[] row, byte[] family, byte[] qualifier, byte[] value ) {
+      this.row = row;
+      this.family = family;
+      this.qualifier = qualifier;
+      this.value = value;
+    }
+
+    public byte[] getRow() {
+      return row;
+    }
+
+    public byte[] getValue( byte[] family, byte[] qualifier ) {
+      return Arrays.equals( this.family, family ) && Arrays.equals( this.qualifier, qualifier ) ? value : null;
+    }
+  }
+}
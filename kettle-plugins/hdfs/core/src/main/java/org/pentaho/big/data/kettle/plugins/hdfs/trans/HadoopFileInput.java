@@ -0,0 +1,57 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+
+package org.pentaho.big.data.kettle.plugins.hdfs.trans;
+
+import org.apache.commons.vfs2.FileSystemException;
+import org.pentaho.di.i18n.BaseMessages;
+import org.pentaho.di.trans.Trans;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.step.StepDataInterface;
+import org.pentaho.di.trans.step.StepMeta;
+import org.pentaho.di.trans.step.StepMetaInterface;
+import org.pentaho.di.trans.steps.fileinput.text.TextFileInput;
+
+/**
+ * Text file input that, when asked to, shares large files between its copies instead of every copy reading whole
+ * files.
+ */
+public class HadoopFileInput extends TextFileInput {
+  private static final Class<?> PKG = HadoopFileInputMeta.class; // for i18n purposes, needed by Translator2!!
+
+  public HadoopFileInput( StepMeta stepMeta, StepDataInterface stepDataInterface, int copyNr, TransMeta transMeta,
+                          Trans trans ) {
+    super( stepMeta, stepDataInterface, copyNr, transMeta, trans );
+  }
+
+  @Override
+  public boolean init( StepMetaInterface smi, StepDataInterface sdi ) {
+    if ( !super.init( smi, sdi ) ) {
+      return false;
+    }
+    HadoopFileInputMeta hadoopMeta = (HadoopFileInputMeta) smi;
+    int stepCount = getUniqueStepCountAcrossSlaves();
+    if ( !hadoopMeta.isSplitFiles() || hadoopMeta.inputFiles.acceptingFilenames || stepCount <= 1 ) {
+      return true;
+    }
+    try {
+      data.files = new HadoopFileSplitter( hadoopMeta ).assign( data.files, getUniqueStepNrAcrossSlaves(), stepCount );
+      logBasic( BaseMessages.getString( PKG, "HadoopFileInput.Log.SplitsAssigned", data.files.nrOfFiles() ) );
+      return true;
+    } catch ( FileSystemException e ) {
+      logError( BaseMessages.getString( PKG, "HadoopFileInput.Error.SplittingFiles" ), e );
+      return false;
+    }
+  }
+}
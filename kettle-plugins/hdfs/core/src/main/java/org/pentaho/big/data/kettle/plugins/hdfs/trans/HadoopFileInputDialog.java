@@ -271,6 +271,8 @@ public class HadoopFileInputDialog extends BaseStepDialog implements StepDialogI
 
   private Button wAddResult;
 
+  private Button wSplitFiles;
+
   private HadoopFileInputMeta input;
 
   // Wizard info...
@@ -1347,6 +1349,22 @@ public class HadoopFileInputDialog extends BaseStepDialog implements StepDialogI
     // / END OF AddFileResult GROUP
     // ///////////////////////////////////////////////////////////
 
+    Label wlSplitFiles = new Label( wContentComp, SWT.RIGHT );
+    wlSplitFiles.setText( BaseMessages.getString( PKG, "HadoopFileInputDialog.SplitFiles.Label" ) );
+    props.setLook( wlSplitFiles );
+    FormData fdlSplitFiles = new FormData();
+    fdlSplitFiles.left = new FormAttachment( 0, 0 );
+    fdlSplitFiles.top = new FormAttachment( wAddFileResult, margin );
+    fdlSplitFiles.right = new FormAttachment( middle, -margin );
+    wlSplitFiles.setLayoutData( fdlSplitFiles );
+    wSplitFiles = new Button( wContentComp, SWT.CHECK );
+    props.setLook( wSplitFiles );
+    wSplitFiles.setToolTipText( BaseMessages.getString( PKG, "HadoopFileInputDialog.SplitFiles.Tooltip" ) );
+    FormData fdSplitFiles = new FormData();
+    fdSplitFiles.left = new FormAttachment( middle, 0 );
+    fdSplitFiles.top = new FormAttachment( wAddFileResult, margin );
+    wSplitFiles.setLayoutData( fdSplitFiles );
+
     wContentComp.pack();
     // What's the size:
     Rectangle bounds = wContentComp.getBounds();
@@ -2014,6 +2032,7 @@ public class HadoopFileInputDialog extends BaseStepDialog implements StepDialogI
     wRownumByFile.setSelection( in.content.rowNumberByFile );
     wDateLenient.setSelection( in.content.dateFormatLenient );
     wAddResult.setSelection( in.inputFiles.isaddresult );
+    wSplitFiles.setSelection( in.isSplitFiles() );
 
     if ( in.content.filenameField != null ) {
       wInclFilenameField.setText( in.content.filenameField );
@@ -2218,6 +2237,7 @@ public class HadoopFileInputDialog extends BaseStepDialog implements StepDialogI
     meta.content.filenameField = wInclFilenameField.getText();
     meta.content.rowNumberField = wInclRownumField.getText();
     meta.inputFiles.isaddresult = wAddResult.getSelection();
+    meta.setSplitFiles( wSplitFiles.getSelection() );
 
     meta.content.includeFilename = wInclFilename.getSelection();
     meta.content.includeRowNumber = wInclRownum.getSelection();
@@ -20,8 +20,10 @@ import org.pentaho.di.core.Const;
 import org.pentaho.di.core.annotations.Step;
 import org.pentaho.di.core.bowl.Bowl;
 import org.pentaho.di.core.bowl.DefaultBowl;
+import org.pentaho.di.core.database.DatabaseMeta;
 import org.pentaho.di.core.encryption.Encr;
 import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.exception.KettleXMLException;
 import org.pentaho.di.core.fileinput.FileInputList;
 import org.pentaho.di.core.fileinput.NonAccessibleFileObject;
 import org.pentaho.di.core.injection.Injection;
@@ -32,6 +34,11 @@ import org.pentaho.di.core.variables.Variables;
 import org.pentaho.di.core.xml.XMLHandler;
 import org.pentaho.di.repository.ObjectId;
 import org.pentaho.di.repository.Repository;
+import org.pentaho.di.trans.Trans;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.step.StepDataInterface;
+import org.pentaho.di.trans.step.StepInterface;
+import org.pentaho.di.trans.step.StepMeta;
 import org.pentaho.di.trans.steps.fileinput.text.TextFileInputMeta;
 import org.pentaho.hadoop.shim.api.cluster.ClusterInitializationException;
 import org.pentaho.hadoop.shim.api.cluster.NamedCluster;
@@ -44,6 +51,7 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.security.InvalidParameterException;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import static org.pentaho.big.data.kettle.plugins.hdfs.trans.HadoopFileInputDialog.LOCAL_ENVIRONMENT;
@@ -85,6 +93,12 @@ public class HadoopFileInputMeta extends TextFileInputMeta implements HadoopFile
   @Injection( name = "ENVIRONMENT", group = "FILENAME_LINES" )
   public String[] environment = {};
 
+  /**
+   * Whether the copies of the step share the files, reading block aligned ranges of large files
+   */
+  @Injection( name = "SPLIT_FILES" )
+  private boolean splitFiles;
+
   public HadoopFileInputMeta() {
     this( NamedClusterManager.getInstance(), null );
   }
@@ -95,6 +109,46 @@ public class HadoopFileInputMeta extends TextFileInputMeta implements HadoopFile
     namedClusterURLMapping = new HashMap<>();
   }
 
+  @Override
+  public void loadXML( Node stepnode, List<DatabaseMeta> databases, IMetaStore metaStore )
+    throws KettleXMLException {
+    super.loadXML( stepnode, databases, metaStore );
+    splitFiles = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "split_files" ) );
+  }
+
+  @Override
+  public String getXML() {
+    return super.getXML() + "    " + XMLHandler.addTagValue( "split_files", splitFiles );
+  }
+
+  @Override
+  public void readRep( Repository rep, IMetaStore metaStore, ObjectId id_step, List<DatabaseMeta> databases )
+    throws KettleException {
+    super.readRep( rep, metaStore, id_step, databases );
+    splitFiles = rep.getStepAttributeBoolean( id_step, "split_files" );
+  }
+
+  @Override
+  public void saveRep( Repository rep, IMetaStore metaStore, ObjectId id_transformation, ObjectId id_step )
+    throws KettleException {
+    super.saveRep( rep, metaStore, id_transformation, id_step );
+    rep.saveStepAttribute( id_transformation, id_step, "split_files", splitFiles );
+  }
+
+  @Override
+  public StepInterface getStep( StepMeta stepMeta, StepDataInterface stepDataInterface, int cnr, TransMeta tr,
+                                Trans trans ) {
+    return new HadoopFileInput( stepMeta, stepDataInterface, cnr, tr, trans );
+  }
+
+  public boolean isSplitFiles() {
+    return splitFiles;
+  }
+
+  public void setSplitFiles( boolean splitFiles ) {
+    this.splitFiles = splitFiles;
+  }
+
   @Override
   protected String loadSource( Node filenode, Node filenamenode, int i, IMetaStore metaStore ) {
     String source_filefolder = XMLHandler.getNodeValue( filenamenode );
@@ -0,0 +1,120 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.big.data.kettle.plugins.hdfs.trans;
+
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.i18n.BaseMessages;
+import org.pentaho.di.trans.Trans;
+import org.pentaho.di.trans.TransAdapter;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.step.StepDataInterface;
+import org.pentaho.di.trans.step.StepMeta;
+import org.pentaho.di.trans.step.StepMetaInterface;
+import org.pentaho.di.trans.steps.textfileoutput.TextFileOutput;
+
+/**
+ * Text file output that, in parallel output mode, has every copy write its own part files into a temporary attempt
+ * directory, which are only moved into the output directory once the transformation succeeded.
+ * <p>
+ * The commit is done by the first copy when its transformation finished, which only knows about the copies running
+ * in the same transformation, so parallel output mode is not supported in clustered transformations.
+ */
+public class HadoopFileOutput extends TextFileOutput {
+  private static final Class<?> PKG = HadoopFileOutputMeta.class; // for i18n purposes, needed by Translator2!!
+
+  private HadoopFileOutputCommitter committer;
+
+  public HadoopFileOutput( StepMeta stepMeta, StepDataInterface stepDataInterface, int copyNr, TransMeta transMeta,
+                           Trans trans ) {
+    super( stepMeta, stepDataInterface, copyNr, transMeta, trans );
+  }
+
+  @Override
+  public boolean init( StepMetaInterface smi, StepDataInterface sdi ) {
+    HadoopFileOutputMeta hadoopMeta = (HadoopFileOutputMeta) smi;
+    if ( hadoopMeta.isParallelOutput() && !hadoopMeta.isFileNameInField() ) {
+      if ( isClustered() ) {
+        logError( BaseMessages.getString( PKG, "HadoopFileOutput.Error.Clustered" ) );
+        return false;
+      }
+      // the file name is the output directory, all copies of this run share the attempt directory below it
+      HadoopFileOutputCommitter stepCommitter = new HadoopFileOutputCommitter( getTransMeta().getBowl(), this,
+        environmentSubstitute( hadoopMeta.getFileName() ), getTrans().getLogChannelId() );
+      try {
+        stepCommitter.setupTask( getUniqueStepNrAcrossSlaves() );
+      } catch ( KettleException e ) {
+        logError( e.getMessage(), e );
+        return false;
+      }
+      committer = stepCommitter;
+      if ( getUniqueStepNrAcrossSlaves() == 0 ) {
+        int copies = getUniqueStepCountAcrossSlaves();
+        getTrans().addTransListener( new TransAdapter() {
+          @Override
+          public void transFinished( Trans trans ) throws KettleException {
+            if ( trans.getErrors() == 0 && !trans.isStopped() ) {
+              try {
+                stepCommitter.commitJob( copies );
+              } catch ( KettleException e ) {
+                // don't leave the part files of a failed commit behind
+                try {
+                  stepCommitter.abortJob();
+                } catch ( KettleException abortError ) {
+                  logError( abortError.getMessage(), abortError );
+                }
+                throw e;
+              }
+              logBasic( BaseMessages.getString( PKG, "HadoopFileOutput.Log.JobCommitted", copies ) );
+            } else {
+              stepCommitter.abortJob();
+            }
+          }
+        } );
+      }
+    }
+    return super.init( smi, sdi );
+  }
+
+  /**
+   * @return whether this step runs clustered, on slave servers that would each commit their own copies
+   */
+  boolean isClustered() {
+    return getStepMeta().isClustered() || !Const.isEmpty( getVariable( Const.INTERNAL_VARIABLE_CLUSTER_SIZE ) );
+  }
+
+  @Override
+  public String buildFilename( String filename, boolean ziparchive ) {
+    if ( committer == null ) {
+      return super.buildFilename( filename, ziparchive );
+    }
+    return committer.getTaskDir( getUniqueStepNrAcrossSlaves() ) + "/" + HadoopFileOutputCommitter.partName(
+      getUniqueStepNrAcrossSlaves(), data.splitnr, environmentSubstitute( meta.getExtension() ) );
+  }
+
+  @Override
+  public void dispose( StepMetaInterface smi, StepDataInterface sdi ) {
+    // closes the part files of this copy
+    super.dispose( smi, sdi );
+    if ( committer != null && getErrors() == 0 && !isStopped() ) {
+      try {
+        committer.commitTask( getUniqueStepNrAcrossSlaves() );
+      } catch ( KettleException e ) {
+        // the job commit finds the task missing and the attempt is aborted
+        logError( e.getMessage(), e );
+        setErrors( 1 );
+      }
+    }
+  }
+}
@@ -0,0 +1,187 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.big.data.kettle.plugins.hdfs.trans;
+
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.FileSystemException;
+import org.apache.commons.vfs2.FileType;
+import org.pentaho.di.core.bowl.Bowl;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.exception.KettleFileException;
+import org.pentaho.di.core.variables.VariableSpace;
+import org.pentaho.di.core.vfs.KettleVFS;
+import org.pentaho.di.i18n.BaseMessages;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Commits the part files written by the copies of a Hadoop File Output step, in the way of Hadoop's
+ * <code>FileOutputCommitter</code>.
+ * <p>
+ * Every copy writes into its own task directory below <code>&lt;output&gt;/_temporary/&lt;attempt&gt;</code>. A copy
+ * that finished without errors commits its task by renaming the task directory, and once the transformation succeeded
+ * all committed part files are renamed into the output directory and a <code>_SUCCESS</code> marker is written. On
+ * HDFS both renames only change the namespace, no data is copied. A failed attempt leaves nothing in the output
+ * directory and its temporary directory is removed.
+ */
+public class HadoopFileOutputCommitter {
+  private static final Class<?> PKG = HadoopFileOutputMeta.class; // for i18n purposes, needed by Translator2!!
+
+  public static final String TEMPORARY_DIR = "_temporary";
+  public static final String SUCCESS_FILE = "_SUCCESS";
+  static final String PENDING_TASK_PREFIX = "_task_";
+  static final String COMMITTED_TASK_PREFIX = "task_";
+  static final String PART_PREFIX = "part-";
+
+  private final Bowl bowl;
+  private final VariableSpace space;
+  private final String outputDir;
+  private final String attemptDir;
+
+  /**
+   * @param outputDir the directory the part files are committed to
+   * @param attemptId identifies the run of the transformation, shared by all copies of the step
+   */
+  public HadoopFileOutputCommitter( Bowl bowl, VariableSpace space, String outputDir, String attemptId ) {
+    this.bowl = bowl;
+    this.space = space;
+    this.outputDir = trimSeparator( outputDir );
+    this.attemptDir = this.outputDir + "/" + TEMPORARY_DIR + "/" + attemptId;
+  }
+
+  /**
+   * @return the directory the copy writes its part files to
+   */
+  public String getTaskDir( int copyNr ) {
+    return attemptDir + "/" + PENDING_TASK_PREFIX + copyNr;
+  }
+
+  /**
+   * @return the name of a part file, <code>part-00003</code> or <code>part-00003-1.txt</code> for the second file of
+   * copy 3 when the output is split
+   */
+  public static String partName( int copyNr, int splitNr, String extension ) {
+    StringBuilder name = new StringBuilder( String.format( Locale.ROOT, "part-%05d", copyNr ) );
+    if ( splitNr > 0 ) {
+      name.append( '-' ).append( splitNr );
+    }
+    if ( extension != null && !extension.isEmpty() ) {
+      name.append( '.' ).append( extension );
+    }
+    return name.toString();
+  }
+
+  /**
+   * Creates the task directory of the copy.
+   */
+  public void setupTask( int copyNr ) throws KettleException {
+    try {
+      getFileObject( getTaskDir( copyNr ) ).createFolder();
+    } catch ( FileSystemException e ) {
+      throw new KettleException(
+        BaseMessages.getString( PKG, "HadoopFileOutput.Error.SetupTask", getTaskDir( copyNr ) ), e );
+    }
+  }
+
+  /**
+   * Marks the part files of the copy as complete by renaming its task directory.
+   */
+  public void commitTask( int copyNr ) throws KettleException {
+    try {
+      FileObject taskDir = getFileObject( getTaskDir( copyNr ) );
+      if ( taskDir.exists() ) {
+        taskDir.moveTo( getFileObject( attemptDir + "/" + COMMITTED_TASK_PREFIX + copyNr ) );
+      }
+    } catch ( FileSystemException e ) {
+      throw new KettleException( BaseMessages.getString( PKG, "HadoopFileOutput.Error.CommitTask", copyNr ), e );
+    }
+  }
+
+  /**
+   * Moves the part files of all committed tasks into the output directory and writes the <code>_SUCCESS</code> marker.
+   * The part files and marker of an earlier run are removed first, so that the output directory only holds the part
+   * files of this run, even when it had fewer copies or split the output less.
+   *
+   * @param copies the number of copies that have to have committed their task
+   */
+  public void commitJob( int copies ) throws KettleException {
+    try {
+      FileObject attempt = getFileObject( attemptDir );
+      List<FileObject> tasks = new ArrayList<>();
+      for ( int copyNr = 0; copyNr < copies; copyNr++ ) {
+        FileObject task = attempt.resolveFile( COMMITTED_TASK_PREFIX + copyNr );
+        if ( !task.exists() ) {
+          throw new KettleException( BaseMessages.getString( PKG, "HadoopFileOutput.Error.TaskNotCommitted", copyNr ) );
+        }
+        tasks.add( task );
+      }
+
+      FileObject output = getFileObject( outputDir );
+      if ( output.exists() ) {
+        for ( FileObject previous : output.getChildren() ) {
+          String name = previous.getName().getBaseName();
+          if ( previous.getType() == FileType.FILE
+            && ( name.startsWith( PART_PREFIX ) || SUCCESS_FILE.equals( name ) ) ) {
+            previous.delete();
+          }
+        }
+      }
+      for ( FileObject task : tasks ) {
+        for ( FileObject part : task.getChildren() ) {
+          if ( part.getType() == FileType.FILE ) {
+            part.moveTo( output.resolveFile( part.getName().getBaseName() ) );
+          }
+        }
+      }
+      cleanup();
+      output.resolveFile( SUCCESS_FILE ).createFile();
+    } catch ( FileSystemException e ) {
+      throw new KettleException( BaseMessages.getString( PKG, "HadoopFileOutput.Error.CommitJob", outputDir ), e );
+    }
+  }
+
+  /**
+   * Removes everything written by the attempt.
+   */
+  public void abortJob() throws KettleException {
+    try {
+      cleanup();
+    } catch ( FileSystemException e ) {
+      throw new KettleException( BaseMessages.getString( PKG, "HadoopFileOutput.Error.AbortJob", attemptDir ), e );
+    }
+  }
+
+  private void cleanup() throws FileSystemException, KettleFileException {
+    getFileObject( attemptDir ).deleteAll();
+    // other attempts may still be writing to the temporary directory
+    FileObject temporary = getFileObject( outputDir + "/" + TEMPORARY_DIR );
+    if ( temporary.exists() && temporary.getChildren().length == 0 ) {
+      temporary.delete();
+    }
+  }
+
+  private FileObject getFileObject( String path ) throws KettleFileException {
+    return KettleVFS.getInstance( bowl ).getFileObject( path, space );
+  }
+
+  private static String trimSeparator( String path ) {
+    String trimmed = path;
+    while ( trimmed.length() > 1 && ( trimmed.endsWith( "/" ) || trimmed.endsWith( "\\" ) ) ) {
+      trimmed = trimmed.substring( 0, trimmed.length() - 1 );
+    }
+    return trimmed;
+  }
+}
@@ -205,6 +205,10 @@ public class HadoopFileOutputDialog extends BaseStepDialog implements StepDialog
   private Button wAddToResult;
   private FormData fdlAddToResult, fdAddToResult;
 
+  private Label wlParallelOutput;
+  private Button wParallelOutput;
+  private FormData fdlParallelOutput, fdParallelOutput;
+
   private Label wlDoNotOpenNewFileInit;
   private Button wDoNotOpenNewFileInit;
   private FormData fdlDoNotOpenNewFileInit, fdDoNotOpenNewFileInit;
@@ -660,6 +664,25 @@ public class HadoopFileOutputDialog extends BaseStepDialog implements StepDialog
     };
     wAddToResult.addSelectionListener( lsSelR );
 
+    // Write part files per copy and commit them once the transformation succeeded
+    wlParallelOutput = new Label( wFileComp, SWT.RIGHT );
+    wlParallelOutput.setText( BaseMessages.getString( PKG, "HadoopFileOutputDialog.ParallelOutput.Label" ) );
+    props.setLook( wlParallelOutput );
+    fdlParallelOutput = new FormData();
+    fdlParallelOutput.left = new FormAttachment( 0, 0 );
+    fdlParallelOutput.top = new FormAttachment( wAddToResult, margin );
+    fdlParallelOutput.right = new FormAttachment( middle, -margin );
+    wlParallelOutput.setLayoutData( fdlParallelOutput );
+    wParallelOutput = new Button( wFileComp, SWT.CHECK );
+    wParallelOutput.setToolTipText( BaseMessages.getString( PKG, "HadoopFileOutputDialog.ParallelOutput.Tooltip" ) );
+    props.setLook( wParallelOutput );
+    fdParallelOutput = new FormData();
+    fdParallelOutput.left = new FormAttachment( middle, 0 );
+    fdParallelOutput.top = new FormAttachment( wAddToResult, margin );
+    fdParallelOutput.right = new FormAttachment( 100, 0 );
+    wParallelOutput.setLayoutData( fdParallelOutput );
+    wParallelOutput.addSelectionListener( lsSelR );
+
     fdFileComp = new FormData();
     fdFileComp.left = new FormAttachment( 0, 0 );
     fdFileComp.top = new FormAttachment( 0, 0 );
@@ -1504,6 +1527,7 @@ public class HadoopFileOutputDialog extends BaseStepDialog implements StepDialog
     wPad.setSelection( input.isPadded() );
     wFastDump.setSelection( input.isFastDump() );
     wAddToResult.setSelection( input.isAddToResultFiles() );
+    wParallelOutput.setSelection( input.isParallelOutput() );
 
     logDebug( "getting fields info..." );
 
@@ -1591,6 +1615,7 @@ public class HadoopFileOutputDialog extends BaseStepDialog implements StepDialog
     tfoi.setSpecifyingFormat( wSpecifyFormat.getSelection() );
     tfoi.setPadded( wPad.getSelection() );
     tfoi.setAddToResultFiles( wAddToResult.getSelection() );
+    tfoi.setParallelOutput( wParallelOutput.getSelection() );
     tfoi.setFastDump( wFastDump.getSelection() );
 
     int i;
@@ -20,7 +20,10 @@ import org.pentaho.hadoop.shim.api.cluster.NamedClusterService;
 import org.pentaho.di.core.Const;
 import org.pentaho.di.core.annotations.Step;
 import org.pentaho.di.core.bowl.Bowl;
+import org.pentaho.di.core.database.DatabaseMeta;
 import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.exception.KettleXMLException;
+import org.pentaho.di.core.injection.Injection;
 import org.pentaho.di.core.injection.InjectionSupported;
 import org.pentaho.di.core.variables.VariableSpace;
 import org.pentaho.di.core.variables.Variables;
@@ -29,6 +32,11 @@ import org.pentaho.di.metastore.MetaStoreConst;
 import org.pentaho.di.repository.ObjectId;
 import org.pentaho.di.repository.Repository;
 import org.pentaho.di.resource.ResourceNamingInterface;
+import org.pentaho.di.trans.Trans;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.step.StepDataInterface;
+import org.pentaho.di.trans.step.StepInterface;
+import org.pentaho.di.trans.step.StepMeta;
 import org.pentaho.di.trans.steps.textfileoutput.TextFileOutputMeta;
 import org.pentaho.metastore.api.IMetaStore;
 import org.pentaho.runtime.test.RuntimeTester;
@@ -37,6 +45,7 @@ import org.pentaho.runtime.test.action.impl.RuntimeTestActionServiceImpl;
 import org.pentaho.runtime.test.impl.RuntimeTesterImpl;
 import org.w3c.dom.Node;
 
+import java.util.List;
 import java.util.Map;
 
 @Step( id = "HadoopFileOutputPlugin", image = "HDO.svg", name = "HadoopFileOutputPlugin.Name",
@@ -54,6 +63,14 @@ public class HadoopFileOutputMeta extends TextFileOutputMeta implements HadoopFi
   private String sourceConfigurationName;
 
   private static final String SOURCE_CONFIGURATION_NAME = "source_configuration_name";
+  private static final String PARALLEL_OUTPUT = "parallel_output";
+
+  /**
+   * Whether every copy writes part files into a temporary attempt directory below the output directory, which are
+   * committed once the transformation succeeded
+   */
+  @Injection( name = "PARALLEL_OUTPUT" )
+  private boolean parallelOutput;
 
   private final NamedClusterService namedClusterService;
   private final RuntimeTestActionService runtimeTestActionService;
@@ -84,6 +101,41 @@ public class HadoopFileOutputMeta extends TextFileOutputMeta implements HadoopFi
     setFileName( "" );
   }
 
+  @Override
+  public void loadXML( Node stepnode, List<DatabaseMeta> databases, IMetaStore metaStore )
+    throws KettleXMLException {
+    super.loadXML( stepnode, databases, metaStore );
+    parallelOutput = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, PARALLEL_OUTPUT ) );
+  }
+
+  @Override
+  public void readRep( Repository rep, IMetaStore metaStore, ObjectId id_step, List<DatabaseMeta> databases )
+    throws KettleException {
+    super.readRep( rep, metaStore, id_step, databases );
+    parallelOutput = rep.getStepAttributeBoolean( id_step, PARALLEL_OUTPUT );
+  }
+
+  @Override
+  public void saveRep( Repository rep, IMetaStore metaStore, ObjectId id_transformation, ObjectId id_step )
+    throws KettleException {
+    super.saveRep( rep, metaStore, id_transformation, id_step );
+    rep.saveStepAttribute( id_transformation, id_step, PARALLEL_OUTPUT, parallelOutput );
+  }
+
+  @Override
+  public StepInterface getStep( StepMeta stepMeta, StepDataInterface stepDataInterface, int cnr, TransMeta tr,
+                                Trans trans ) {
+    return new HadoopFileOutput( stepMeta, stepDataInterface, cnr, tr, trans );
+  }
+
+  public boolean isParallelOutput() {
+    return parallelOutput;
+  }
+
+  public void setParallelOutput( boolean parallelOutput ) {
+    this.parallelOutput = parallelOutput;
+  }
+
   public String getSourceConfigurationName() {
     return sourceConfigurationName;
   }
@@ -152,7 +204,7 @@ public class HadoopFileOutputMeta extends TextFileOutputMeta implements HadoopFi
 
   @Override
   public String getXML() {
-    String xml = super.getXML();
+    String xml = super.getXML() + "    " + XMLHandler.addTagValue( PARALLEL_OUTPUT, parallelOutput );
     NamedCluster c = namedClusterService.getNamedClusterByName( sourceConfigurationName, metaStore );
     if ( c != null ) {
       xml = xml + c.toXmlForEmbed( "NamedCluster" )  + Const.CR;
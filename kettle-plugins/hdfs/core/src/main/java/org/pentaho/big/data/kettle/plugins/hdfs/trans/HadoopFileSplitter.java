@@ -0,0 +1,288 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+
+package org.pentaho.big.data.kettle.plugins.hdfs.trans;
+
+import org.apache.commons.vfs2.FileContent;
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.FileSystemException;
+import org.apache.commons.vfs2.impl.DecoratedFileObject;
+import org.pentaho.di.core.fileinput.FileInputList;
+import org.pentaho.di.core.util.Utils;
+import org.pentaho.di.trans.steps.fileinput.text.TextFileInputMeta;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Shares the files of a text file input between the copies of the step.
+ * <p>
+ * Uncompressed files are cut into byte ranges aligned to the HDFS block size, other files are read whole. The ranges
+ * and files are dealt out to the copies in turn, so that every copy reads different blocks of a large file. Like the
+ * LineRecordReader of Hadoop, a range reads the lines that start in it, so the records must not contain line breaks.
+ */
+public class HadoopFileSplitter {
+  /**
+   * The default HDFS block size
+   */
+  public static final long SPLIT_SIZE = 128L * 1024L * 1024L;
+
+  private final TextFileInputMeta meta;
+  private final long splitSize;
+
+  public HadoopFileSplitter( TextFileInputMeta meta ) {
+    this( meta, SPLIT_SIZE );
+  }
+
+  HadoopFileSplitter( TextFileInputMeta meta, long splitSize ) {
+    this.meta = meta;
+    this.splitSize = splitSize;
+  }
+
+  /**
+   * @param files     the files of the step
+   * @param stepNr    the number of this copy of the step
+   * @param stepCount the number of copies of the step
+   * @return the files and ranges of files this copy reads
+   */
+  public FileInputList assign( FileInputList files, int stepNr, int stepCount ) throws FileSystemException {
+    boolean splittable = isSplittable();
+    FileInputList assigned = new FileInputList();
+    int split = 0;
+    for ( FileObject file : files.getFiles() ) {
+      long size = splittable ? file.getContent().getSize() : 0;
+      if ( size <= splitSize ) {
+        if ( split++ % stepCount == stepNr ) {
+          assigned.addFile( file );
+        }
+        continue;
+      }
+      for ( long start = 0; start < size; start += splitSize ) {
+        if ( split++ % stepCount == stepNr ) {
+          assigned.addFile( new SplitFileObject( file, start, Math.min( size, start + splitSize ), size,
+            fillerLines( meta.content.header, meta.content.nrHeaderLines ),
+            fillerLines( meta.content.footer, meta.content.nrFooterLines ) ) );
+        }
+      }
+    }
+    return assigned;
+  }
+
+  /**
+   * Only plain line based files can be cut: the compressions Kettle supports can't be read from the middle of a file,
+   * and paged or wrapped layouts span several lines per record.
+   */
+  boolean isSplittable() {
+    String compression = meta.content.fileCompression;
+    if ( !Utils.isEmpty( compression ) && !"None".equalsIgnoreCase( compression ) ) {
+      return false;
+    }
+    if ( meta.content.layoutPaged || meta.content.lineWrapped || meta.content.includeRowNumber ) {
+      return false;
+    }
+    // the line breaks are searched as bytes, which needs an encoding extending ASCII
+    String encoding = meta.getEncoding();
+    Charset charset = Utils.isEmpty( encoding ) ? Charset.defaultCharset() : Charset.forName( encoding );
+    return Arrays.equals( "\r\n".getBytes( charset ), "\r\n".getBytes( StandardCharsets.US_ASCII ) );
+  }
+
+  /**
+   * Ranges after the first have no header and ranges before the last have no footer. Empty lines stand in for them,
+   * so that the reader skips the same number of lines in every range.
+   */
+  private byte[] fillerLines( boolean enabled, int lines ) {
+    if ( !enabled || lines <= 0 ) {
+      return new byte[ 0 ];
+    }
+    byte[] lineBreak = "DOS".equalsIgnoreCase( meta.content.fileFormat ) ? new byte[] { '\r', '\n' }
+      : new byte[] { '\n' };
+    byte[] filler = new byte[ lineBreak.length * lines ];
+    for ( int i = 0; i < lines; i++ ) {
+      System.arraycopy( lineBreak, 0, filler, i * lineBreak.length, lineBreak.length );
+    }
+    return filler;
+  }
+
+  /**
+   * A file whose content is one range of the lines of the decorated file.
+   */
+  static class SplitFileObject extends DecoratedFileObject {
+    private final long start;
+    private final long end;
+    private final long size;
+    private final byte[] header;
+    private final byte[] footer;
+
+    SplitFileObject( FileObject file, long start, long end, long size, byte[] header, byte[] footer ) {
+      super( file );
+      this.start = start;
+      this.end = end;
+      this.size = size;
+      this.header = header;
+      this.footer = footer;
+    }
+
+    @Override
+    public FileContent getContent() throws FileSystemException {
+      FileContent content = super.getContent();
+      return (FileContent) Proxy.newProxyInstance( FileContent.class.getClassLoader(),
+        new Class<?>[] { FileContent.class }, ( proxy, method, args ) -> {
+          if ( "getInputStream".equals( method.getName() ) ) {
+            return new SplitInputStream( content.getInputStream(), start, end, start > 0 ? header : new byte[ 0 ],
+              end < size ? footer : new byte[ 0 ] );
+          }
+          try {
+            return method.invoke( content, args );
+          } catch ( InvocationTargetException e ) {
+            throw e.getCause();
+          }
+        } );
+    }
+
+    long getStart() {
+      return start;
+    }
+
+    long getEnd() {
+      return end;
+    }
+
+    @Override
+    public String toString() {
+      return super.toString() + " [" + start + ", " + end + ")";
+    }
+  }
+
+  /**
+   * Reads the lines starting between two byte offsets of a stream.
+   */
+  static class SplitInputStream extends InputStream {
+    private final InputStream in;
+    private final long end;
+    private final byte[] prefix;
+    private final byte[] suffix;
+    private int prefixPos;
+    private int suffixPos;
+    private long position;
+    private int lastByte = '\n';
+    private boolean aligned;
+    private boolean done;
+
+    SplitInputStream( InputStream in, long start, long end, byte[] prefix, byte[] suffix ) {
+      this.in = in;
+      this.position = start;
+      this.end = end;
+      this.prefix = prefix;
+      this.suffix = suffix;
+    }
+
+    /**
+     * Moves to the first line starting at or after the start of the range.
+     */
+    private void align() throws IOException {
+      aligned = true;
+      if ( position == 0 ) {
+        return;
+      }
+      long toSkip = position - 1;
+      while ( toSkip > 0 ) {
+        long skipped = in.skip( toSkip );
+        if ( skipped <= 0 ) {
+          if ( in.read() < 0 ) {
+            done = true;
+            return;
+          }
+          skipped = 1;
+        }
+        toSkip -= skipped;
+      }
+      int c = in.read();
+      while ( c >= 0 && c != '\n' ) {
+        position++;
+        c = in.read();
+      }
+      done = c < 0;
+    }
+
+    @Override
+    public int read() throws IOException {
+      byte[] b = new byte[ 1 ];
+      int n = read( b, 0, 1 );
+      return n < 0 ? -1 : b[ 0 ] & 0xff;
+    }
+
+    @Override
+    public int read( byte[] b, int off, int len ) throws IOException {
+      if ( len == 0 ) {
+        return 0;
+      }
+      if ( prefixPos < prefix.length ) {
+        int n = Math.min( len, prefix.length - prefixPos );
+        System.arraycopy( prefix, prefixPos, b, off, n );
+        prefixPos += n;
+        return n;
+      }
+      if ( !aligned ) {
+        align();
+      }
+      if ( !done ) {
+        int n = readRange( b, off, len );
+        if ( n > 0 ) {
+          return n;
+        }
+        done = true;
+      }
+      if ( suffixPos < suffix.length ) {
+        int n = Math.min( len, suffix.length - suffixPos );
+        System.arraycopy( suffix, suffixPos, b, off, n );
+        suffixPos += n;
+        return n;
+      }
+      return -1;
+    }
+
+    private int readRange( byte[] b, int off, int len ) throws IOException {
+      if ( position < end ) {
+        int n = in.read( b, off, (int) Math.min( len, end - position ) );
+        if ( n > 0 ) {
+          position += n;
+          lastByte = b[ off + n - 1 ];
+        }
+        return n;
+      }
+      if ( lastByte == '\n' ) {
+        return -1;
+      }
+      // finish the line started in the range
+      int c = in.read();
+      if ( c >= 0 ) {
+        position++;
+        lastByte = c;
+        b[ off ] = (byte) c;
+        return 1;
+      }
+      return -1;
+    }
+
+    @Override
+    public void close() throws IOException {
+      in.close();
+    }
+  }
+}
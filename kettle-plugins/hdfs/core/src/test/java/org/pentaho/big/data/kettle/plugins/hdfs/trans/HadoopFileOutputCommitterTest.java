@@ -0,0 +1,146 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.big.data.kettle.plugins.hdfs.trans;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.pentaho.di.core.bowl.DefaultBowl;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.variables.Variables;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class HadoopFileOutputCommitterTest {
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private File output;
+
+  @Before
+  public void setUp() {
+    output = new File( temporaryFolder.getRoot(), "out" );
+  }
+
+  private HadoopFileOutputCommitter committer( String attemptId ) {
+    return new HadoopFileOutputCommitter( DefaultBowl.getInstance(), new Variables(), output.getAbsolutePath() + "/",
+      attemptId );
+  }
+
+  private void writePart( HadoopFileOutputCommitter committer, int copyNr, int splitNr ) throws Exception {
+    File part =
+      new File( committer.getTaskDir( copyNr ), HadoopFileOutputCommitter.partName( copyNr, splitNr, "txt" ) );
+    Files.write( part.toPath(), ( "copy " + copyNr ).getBytes( StandardCharsets.UTF_8 ) );
+  }
+
+  private String[] listOutput() {
+    String[] names = output.list();
+    Arrays.sort( names );
+    return names;
+  }
+
+  @Test
+  public void testPartName() {
+    assertEquals( "part-00003", HadoopFileOutputCommitter.partName( 3, 0, "" ) );
+    assertEquals( "part-00003-1.txt", HadoopFileOutputCommitter.partName( 3, 1, "txt" ) );
+  }
+
+  @Test
+  public void testPartFilesAreOnlyVisibleAfterTheJobCommit() throws Exception {
+    HadoopFileOutputCommitter committer = committer( "attempt1" );
+    committer.setupTask( 0 );
+    committer.setupTask( 1 );
+    writePart( committer, 0, 0 );
+    writePart( committer, 0, 1 );
+    writePart( committer, 1, 0 );
+    committer.commitTask( 0 );
+    committer.commitTask( 1 );
+
+    assertArrayEquals( new String[] { HadoopFileOutputCommitter.TEMPORARY_DIR }, listOutput() );
+
+    committer.commitJob( 2 );
+
+    assertArrayEquals( new String[] { HadoopFileOutputCommitter.SUCCESS_FILE, "part-00000-1.txt", "part-00000.txt",
+      "part-00001.txt" }, listOutput() );
+    assertEquals( "copy 1", new String( Files.readAllBytes( new File( output, "part-00001.txt" ).toPath() ),
+      StandardCharsets.UTF_8 ) );
+  }
+
+  @Test
+  public void testJobCommitReplacesThePartFilesOfAnEarlierRun() throws Exception {
+    HadoopFileOutputCommitter earlier = committer( "attempt1" );
+    earlier.setupTask( 0 );
+    earlier.setupTask( 1 );
+    writePart( earlier, 0, 0 );
+    writePart( earlier, 1, 0 );
+    earlier.commitTask( 0 );
+    earlier.commitTask( 1 );
+    earlier.commitJob( 2 );
+    Files.write( new File( output, "README" ).toPath(), "kept".getBytes( StandardCharsets.UTF_8 ) );
+
+    HadoopFileOutputCommitter committer = committer( "attempt2" );
+    committer.setupTask( 0 );
+    writePart( committer, 0, 0 );
+    committer.commitTask( 0 );
+    committer.commitJob( 1 );
+
+    assertArrayEquals( new String[] { "README", HadoopFileOutputCommitter.SUCCESS_FILE, "part-00000.txt" },
+      listOutput() );
+  }
+
+  @Test
+  public void testJobCommitFailsWhenATaskWasNotCommitted() throws Exception {
+    HadoopFileOutputCommitter committer = committer( "attempt1" );
+    committer.setupTask( 0 );
+    committer.setupTask( 1 );
+    writePart( committer, 0, 0 );
+    writePart( committer, 1, 0 );
+    committer.commitTask( 0 );
+
+    try {
+      committer.commitJob( 2 );
+      fail( "the output of copy 1 is incomplete" );
+    } catch ( KettleException e ) {
+      // expected
+    }
+    assertFalse( new File( output, "part-00000.txt" ).exists() );
+
+    committer.abortJob();
+    assertArrayEquals( new String[ 0 ], listOutput() );
+  }
+
+  @Test
+  public void testAbortKeepsOtherAttempts() throws Exception {
+    HadoopFileOutputCommitter failed = committer( "attempt1" );
+    HadoopFileOutputCommitter running = committer( "attempt2" );
+    failed.setupTask( 0 );
+    running.setupTask( 0 );
+    writePart( failed, 0, 0 );
+
+    failed.abortJob();
+
+    assertTrue( new File( running.getTaskDir( 0 ) ).isDirectory() );
+    assertFalse( new File( failed.getTaskDir( 0 ) ).getParentFile().exists() );
+  }
+}
@@ -0,0 +1,98 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+
+package org.pentaho.big.data.kettle.plugins.hdfs.trans;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.hadoop.shim.api.cluster.NamedClusterService;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+public class HadoopFileSplitterTest {
+  private static final String TEXT = "id;name\n1;a\n22;bb\n\n333;ccc\n4444;dddd\n5;e";
+
+  private HadoopFileInputMeta meta;
+
+  @Before
+  public void setUp() {
+    meta = new HadoopFileInputMeta( mock( NamedClusterService.class ), null );
+    meta.content.fileCompression = "None";
+    meta.content.encoding = "UTF-8";
+  }
+
+  private static String read( long start, long end, String prefix, String suffix ) throws IOException {
+    InputStream in = new HadoopFileSplitter.SplitInputStream(
+      new ByteArrayInputStream( TEXT.getBytes( StandardCharsets.UTF_8 ) ), start, end,
+      prefix.getBytes( StandardCharsets.UTF_8 ), suffix.getBytes( StandardCharsets.UTF_8 ) );
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byte[] buffer = new byte[ 3 ];
+    int n;
+    while ( ( n = in.read( buffer, 0, buffer.length ) ) >= 0 ) {
+      out.write( buffer, 0, n );
+    }
+    return new String( out.toByteArray(), StandardCharsets.UTF_8 );
+  }
+
+  @Test
+  public void testRangesReadEveryLineOnce() throws IOException {
+    int length = TEXT.length();
+    for ( int splitSize = 1; splitSize <= length; splitSize++ ) {
+      StringBuilder all = new StringBuilder();
+      for ( int start = 0; start < length; start += splitSize ) {
+        all.append( read( start, Math.min( length, start + splitSize ), "", "" ) );
+      }
+      assertEquals( "split size " + splitSize, TEXT, all.toString() );
+    }
+  }
+
+  @Test
+  public void testRangeReadsTheLinesStartingInIt() throws IOException {
+    // "22;bb" starts at 12, "333;ccc" at 19
+    assertEquals( "22;bb\n\n", read( 12, 19, "", "" ) );
+    assertEquals( "22;bb\n\n333;ccc\n", read( 11, 20, "", "" ) );
+    assertEquals( "", read( 13, 18, "", "" ) );
+    assertEquals( "4444;dddd\n5;e", read( 27, 39, "", "" ) );
+  }
+
+  @Test
+  public void testHeaderAndFooterAreFilled() throws IOException {
+    assertEquals( "\n\n22;bb\n\n\n", read( 12, 19, "\n\n", "\n" ) );
+  }
+
+  @Test
+  public void testIsSplittable() {
+    assertTrue( new HadoopFileSplitter( meta ).isSplittable() );
+
+    meta.content.encoding = "UTF-16";
+    assertFalse( new HadoopFileSplitter( meta ).isSplittable() );
+
+    meta.content.encoding = "ISO-8859-1";
+    meta.content.fileCompression = "GZip";
+    assertFalse( new HadoopFileSplitter( meta ).isSplittable() );
+
+    meta.content.fileCompression = null;
+    meta.content.layoutPaged = true;
+    assertFalse( new HadoopFileSplitter( meta ).isSplittable() );
+  }
+}
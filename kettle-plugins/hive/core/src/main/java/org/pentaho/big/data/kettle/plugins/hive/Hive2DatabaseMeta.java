@@ -189,7 +189,10 @@ public class Hive2DatabaseMeta extends DatabaseMetaWithVersion {
   }
 
   /**
-   * Build the SQL to count the number of rows in the passed table.
+   * Build the SQL to count the number of rows in the passed table. HiveServer2 runs a job scanning the table for it,
+   * unless <code>SET hive.compute.query.using.stats=true</code> is added to the SQL the connection executes after
+   * connecting, which has it answered from the table statistics. That is left to the connection, as stale statistics
+   * would change the results of every other query on it too.
    *
    * @param tableName
    * @return
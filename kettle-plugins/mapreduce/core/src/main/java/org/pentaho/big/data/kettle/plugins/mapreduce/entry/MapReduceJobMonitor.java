@@ -0,0 +1,310 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.big.data.kettle.plugins.mapreduce.entry;
+
+import org.pentaho.di.core.Const;
+import org.pentaho.hadoop.shim.api.mapreduce.MapReduceJobAdvanced;
+import org.pentaho.hadoop.shim.api.mapreduce.MapReduceJobSimple;
+import org.pentaho.hadoop.shim.api.mapreduce.MapReduceService;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tracks submitted MapReduce jobs from a small shared pool of scheduler threads instead of one sleeping thread per job
+ * entry.
+ * <p>
+ * Every monitored job gets a cheap tick every {@link #STOP_CHECK_INTERVAL_MS} ms that checks whether the owner was
+ * stopped; a stopped job is killed right away. Whether the job is complete is an RPC to the cluster, so that check
+ * starts at {@link #MIN_COMPLETION_POLL_MS} ms and backs off up to {@link #MAX_COMPLETION_POLL_MS} ms while the job
+ * keeps running. Status callbacks are made at the interval the caller asks for, independent of the polling. They
+ * usually make RPCs of their own, so they run on separate listener threads and never hold up the monitor threads.
+ * <p>
+ * Simple mode jobs run their driver inside this JVM, so at most {@link #MAX_SIMPLE_JOBS_PROPERTY} of them, 4 by
+ * default, run at the same time. An entry takes a slot before launching its driver and the slot is given back once
+ * the monitor saw the driver finish.
+ */
+public class MapReduceJobMonitor {
+  public static final long STOP_CHECK_INTERVAL_MS = 200;
+  public static final long MIN_COMPLETION_POLL_MS = 500;
+  public static final long MAX_COMPLETION_POLL_MS = 5000;
+  public static final String MAX_SIMPLE_JOBS_PROPERTY = "KETTLE_MAPREDUCE_MAX_SIMPLE_JOBS";
+  public static final int DEFAULT_MAX_SIMPLE_JOBS = 4;
+  private static final int MONITOR_THREADS = 2;
+  private static MapReduceJobMonitor instance;
+
+  private final ScheduledExecutorService scheduler;
+  private final ExecutorService listenerExecutor;
+  private final long stopCheckIntervalMs;
+  private final long minCompletionPollMs;
+  private final long maxCompletionPollMs;
+  private final Semaphore simpleJobSlots;
+
+  public MapReduceJobMonitor( ScheduledExecutorService scheduler, long stopCheckIntervalMs, long minCompletionPollMs,
+                              long maxCompletionPollMs ) {
+    this( scheduler, stopCheckIntervalMs, minCompletionPollMs, maxCompletionPollMs, DEFAULT_MAX_SIMPLE_JOBS );
+  }
+
+  public MapReduceJobMonitor( ScheduledExecutorService scheduler, long stopCheckIntervalMs, long minCompletionPollMs,
+                              long maxCompletionPollMs, int maxSimpleJobs ) {
+    this( scheduler, newListenerExecutor(), stopCheckIntervalMs, minCompletionPollMs, maxCompletionPollMs,
+      maxSimpleJobs );
+  }
+
+  public MapReduceJobMonitor( ScheduledExecutorService scheduler, ExecutorService listenerExecutor,
+                              long stopCheckIntervalMs, long minCompletionPollMs, long maxCompletionPollMs,
+                              int maxSimpleJobs ) {
+    this.scheduler = scheduler;
+    this.listenerExecutor = listenerExecutor;
+    this.stopCheckIntervalMs = stopCheckIntervalMs;
+    this.minCompletionPollMs = minCompletionPollMs;
+    this.maxCompletionPollMs = maxCompletionPollMs;
+    this.simpleJobSlots = new Semaphore( Math.max( 1, maxSimpleJobs ), true );
+  }
+
+  public static synchronized MapReduceJobMonitor getInstance() {
+    if ( instance == null ) {
+      AtomicInteger threadNumber = new AtomicInteger();
+      instance = new MapReduceJobMonitor( Executors.newScheduledThreadPool( MONITOR_THREADS, runnable -> {
+        Thread thread = new Thread( runnable, "mapreduce-job-monitor-" + threadNumber.incrementAndGet() );
+        thread.setDaemon( true );
+        return thread;
+      } ), STOP_CHECK_INTERVAL_MS, MIN_COMPLETION_POLL_MS, MAX_COMPLETION_POLL_MS,
+        Const.toInt( System.getProperty( MAX_SIMPLE_JOBS_PROPERTY ), DEFAULT_MAX_SIMPLE_JOBS ) );
+    }
+    return instance;
+  }
+
+  private static ExecutorService newListenerExecutor() {
+    AtomicInteger threadNumber = new AtomicInteger();
+    return Executors.newCachedThreadPool( runnable -> {
+      Thread thread = new Thread( runnable, "mapreduce-job-status-" + threadNumber.incrementAndGet() );
+      thread.setDaemon( true );
+      return thread;
+    } );
+  }
+
+  /**
+   * Starts monitoring a submitted job.
+   *
+   * @param job                  the running job
+   * @param stoppable            tells whether the owner of the job was stopped, in which case the job is killed
+   * @param statusIntervalMillis how often {@link Listener#onStatus(MapReduceJobAdvanced)} is called, 0 or less for
+   *                             never
+   * @param listener             receives status updates, may be null
+   * @return a future completing with true once the job is complete, or with false if it was killed because the owner
+   * was stopped. It completes exceptionally if the job could not be polled or killed.
+   */
+  public CompletableFuture<Boolean> monitor( MapReduceJobAdvanced job, MapReduceService.Stoppable stoppable,
+                                             long statusIntervalMillis, Listener listener ) {
+    return monitor( new TrackedJob() {
+      @Override public boolean isComplete() throws IOException {
+        return job.isComplete();
+      }
+
+      @Override public void kill() throws IOException {
+        job.killJob();
+      }
+
+      @Override public void onStatus() throws IOException {
+        if ( listener != null ) {
+          listener.onStatus( job );
+        }
+      }
+    }, stoppable, statusIntervalMillis );
+  }
+
+  /**
+   * Waits for a simple mode job slot to become free.
+   *
+   * @param stoppable tells whether the owner was stopped while waiting
+   * @return true once a slot was taken, false if the owner was stopped first
+   */
+  public boolean acquireSimpleJobSlot( MapReduceService.Stoppable stoppable ) throws InterruptedException {
+    while ( !simpleJobSlots.tryAcquire( stopCheckIntervalMs, TimeUnit.MILLISECONDS ) ) {
+      if ( stoppable != null && stoppable.isStopped() ) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Gives back a slot taken with {@link #acquireSimpleJobSlot(MapReduceService.Stoppable)} whose job could not be
+   * launched.
+   */
+  public void releaseSimpleJobSlot() {
+    simpleJobSlots.release();
+  }
+
+  /**
+   * Starts monitoring a simple mode job launched in a slot taken with
+   * {@link #acquireSimpleJobSlot(MapReduceService.Stoppable)}, and gives the slot back once the job is done.
+   *
+   * @return a future completing like the one of {@link #monitor(MapReduceJobAdvanced, MapReduceService.Stoppable,
+   * long, Listener)}
+   */
+  public CompletableFuture<Boolean> monitorSimple( MapReduceJobSimple job, MapReduceService.Stoppable stoppable,
+                                                   long statusIntervalMillis, SimpleListener listener ) {
+    CompletableFuture<Boolean> future = monitor( new TrackedJob() {
+      @Override public boolean isComplete() throws IOException {
+        try {
+          // the shortest wait, the monitor does the waiting between polls
+          return job.waitOnCompletion( 1, TimeUnit.MILLISECONDS, () -> false );
+        } catch ( InterruptedException e ) {
+          Thread.currentThread().interrupt();
+          throw new IOException( e );
+        }
+      }
+
+      @Override public void kill() throws IOException {
+        job.killJob();
+      }
+
+      @Override public void onStatus() {
+        if ( listener != null ) {
+          listener.onStatus( job );
+        }
+      }
+    }, stoppable, statusIntervalMillis );
+    future.whenComplete( ( done, error ) -> releaseSimpleJobSlot() );
+    return future;
+  }
+
+  /**
+   * @return the number of simple mode jobs that may still be launched right away
+   */
+  public int getAvailableSimpleJobSlots() {
+    return simpleJobSlots.availablePermits();
+  }
+
+  private CompletableFuture<Boolean> monitor( TrackedJob job, MapReduceService.Stoppable stoppable,
+                                              long statusIntervalMillis ) {
+    MonitoredJob monitoredJob = new MonitoredJob( job, stoppable, statusIntervalMillis );
+    scheduler.execute( monitoredJob );
+    return monitoredJob.future;
+  }
+
+  /**
+   * Receives periodic status updates for a monitored job. Called from a listener thread, so implementations may make
+   * RPCs to the cluster. The calls for one job never overlap: a call that takes longer than the status interval delays
+   * the next one, and the monitor's future only completes once the last call returned. An exception thrown by the
+   * listener completes the future exceptionally.
+   */
+  public interface Listener {
+    void onStatus( MapReduceJobAdvanced job ) throws IOException;
+  }
+
+  /**
+   * Receives periodic status updates for a monitored simple mode job, with the same constraints as {@link Listener}.
+   */
+  public interface SimpleListener {
+    void onStatus( MapReduceJobSimple job );
+  }
+
+  /**
+   * What the monitor needs of a job, whatever its mode.
+   */
+  private interface TrackedJob {
+    boolean isComplete() throws IOException;
+
+    void kill() throws IOException;
+
+    void onStatus() throws IOException;
+  }
+
+  private class MonitoredJob implements Runnable {
+    private final TrackedJob job;
+    private final MapReduceService.Stoppable stoppable;
+    private final long statusIntervalMillis;
+    private final CompletableFuture<Boolean> future = new CompletableFuture<>();
+    private long completionPollMs = minCompletionPollMs;
+    private long nextCompletionCheck;
+    private long nextStatus;
+    private CompletableFuture<Void> statusCall = CompletableFuture.completedFuture( null );
+
+    private MonitoredJob( TrackedJob job, MapReduceService.Stoppable stoppable, long statusIntervalMillis ) {
+      this.job = job;
+      this.stoppable = stoppable;
+      this.statusIntervalMillis = statusIntervalMillis;
+      long now = System.currentTimeMillis();
+      nextCompletionCheck = now;
+      nextStatus = now;
+    }
+
+    @Override
+    public void run() {
+      if ( future.isDone() ) {
+        // a status call failed
+        return;
+      }
+      try {
+        if ( stoppable != null && stoppable.isStopped() ) {
+          if ( !job.isComplete() ) {
+            // We must stop the job running on Hadoop
+            job.kill();
+            finish( false );
+          } else {
+            finish( true );
+          }
+          return;
+        }
+        long now = System.currentTimeMillis();
+        if ( now >= nextCompletionCheck ) {
+          if ( job.isComplete() ) {
+            finish( true );
+            return;
+          }
+          completionPollMs = Math.min( completionPollMs * 2, maxCompletionPollMs );
+          nextCompletionCheck = now + completionPollMs;
+        }
+        if ( statusIntervalMillis > 0 && now >= nextStatus && statusCall.isDone() ) {
+          statusCall = CompletableFuture.runAsync( this::callStatus, listenerExecutor );
+          statusCall.whenComplete( ( result, error ) -> {
+            if ( error != null ) {
+              future.completeExceptionally( error instanceof CompletionException ? error.getCause() : error );
+            }
+          } );
+          nextStatus = now + statusIntervalMillis;
+        }
+        scheduler.schedule( this, stopCheckIntervalMs, TimeUnit.MILLISECONDS );
+      } catch ( Throwable t ) {
+        future.completeExceptionally( t );
+      }
+    }
+
+    private void callStatus() {
+      try {
+        job.onStatus();
+      } catch ( IOException e ) {
+        throw new CompletionException( e );
+      }
+    }
+
+    /**
+     * Completes the future once a status call still running returned, so the caller's own final status logging does
+     * not interleave with it.
+     */
+    private void finish( boolean complete ) {
+      statusCall.whenComplete( ( result, error ) -> future.complete( complete ) );
+    }
+  }
+}
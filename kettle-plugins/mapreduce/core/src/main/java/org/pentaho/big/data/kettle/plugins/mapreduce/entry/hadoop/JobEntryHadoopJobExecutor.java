@@ -17,6 +17,7 @@ import com.google.common.annotations.VisibleForTesting;
 import org.pentaho.big.data.api.services.BigDataServicesHelper;
 import org.pentaho.big.data.impl.cluster.NamedClusterManager;
 import org.pentaho.big.data.kettle.plugins.mapreduce.DialogClassUtil;
+import org.pentaho.big.data.kettle.plugins.mapreduce.entry.MapReduceJobMonitor;
 import org.pentaho.big.data.kettle.plugins.mapreduce.entry.NamedClusterLoadSaveUtil;
 import org.pentaho.big.data.kettle.plugins.mapreduce.entry.UserDefinedItem;
 import org.pentaho.big.data.kettle.plugins.mapreduce.entry.pmr.JobEntryHadoopTransJobExecutor;
@@ -57,7 +58,10 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @JobEntry( id = "HadoopJobExecutorPlugin", image = "HDE.svg", name = "HadoopJobExecutorPlugin.Name",
   description = "HadoopJobExecutorPlugin.Description",
@@ -318,30 +322,45 @@ public class JobEntryHadoopJobExecutor extends JobEntryBase implements Cloneable
           logError( BaseMessages.getString( PKG, "ErrorParsingLogInterval", simpleLoggingIntervalS, simpleLogInt ) );
         }
 
-        MapReduceJobSimple mapReduceJobSimple =
-          mapReduceService.executeSimple( resolvedJarUrl, environmentSubstitute( driverClass ),
+        MapReduceService.Stoppable stoppable = new MapReduceService.Stoppable() {
+          @Override public boolean isStopped() {
+            return parentJob.isStopped();
+          }
+        };
+        // The drivers run inside this JVM, the shared monitor bounds how many of them run at once
+        MapReduceJobMonitor jobMonitor = getJobMonitor();
+        if ( !jobMonitor.acquireSimpleJobSlot( stoppable ) ) {
+          result.setResult( false );
+          return result;
+        }
+        final MapReduceJobSimple mapReduceJobSimple;
+        try {
+          // the same jar content always runs from the same local URL
+          URL localJarUrl = getJarCache().localize( resolvedJarUrl );
+          mapReduceJobSimple = mapReduceService.executeSimple( localJarUrl, environmentSubstitute( driverClass ),
             environmentSubstitute( cmdLineArgs ) );
+        } catch ( Throwable t ) {
+          jobMonitor.releaseSimpleJobSlot();
+          throw t;
+        }
 
-        String mainClass = mapReduceJobSimple.getMainClass();
+        final String mainClass = mapReduceJobSimple.getMainClass();
         if ( log.isDetailed() ) {
           logDetailed( BaseMessages.getString(
             PKG, "JobEntryHadoopJobExecutor.UsingDriverClass", mainClass == null ? "null" : mainClass ) );
           logDetailed( BaseMessages.getString( PKG, "JobEntryHadoopJobExecutor.SimpleMode" ) );
         }
+        CompletableFuture<Boolean> completion = jobMonitor.monitorSimple( mapReduceJobSimple, stoppable,
+          simpleBlocking && simpleLogInt >= 1 ? TimeUnit.SECONDS.toMillis( simpleLogInt ) : 0,
+          job -> logDetailed( BaseMessages.getString( PKG, "JobEntryHadoopJobExecutor.Blocking", mainClass ) ) );
         if ( simpleBlocking ) {
-          boolean done = false;
-          do {
-            done =
-              mapReduceJobSimple.waitOnCompletion( simpleLogInt, TimeUnit.SECONDS, new MapReduceService.Stoppable() {
-                @Override public boolean isStopped() {
-                  return parentJob.isStopped();
-                }
-              } );
-            logDetailed( BaseMessages
-              .getString( JobEntryHadoopJobExecutor.class, "JobEntryHadoopJobExecutor.Blocking", mainClass ) );
-          } while ( !parentJob.isStopped() && !done );
-          if ( !done ) {
-            mapReduceJobSimple.killJob();
+          try {
+            completion.get();
+          } catch ( InterruptedException ie ) {
+            completion.cancel( false );
+            logError( ie.getMessage(), ie );
+          } catch ( ExecutionException ee ) {
+            throw ee.getCause();
           }
           if ( !mapReduceJobSimple.isSuccessful() ) {
             result.setStopped( true );
@@ -351,6 +370,18 @@ public class JobEntryHadoopJobExecutor extends JobEntryBase implements Cloneable
               BaseMessages.getString( PKG, "JobEntryHadoopJobExecutor.FailedToExecuteClass", mainClass,
                 mapReduceJobSimple.getStatus() ) );
           }
+        } else {
+          // Nobody waits for the driver, report how it ended once it is done
+          completion.whenComplete( ( done, error ) -> {
+            if ( error != null ) {
+              logError( error.getMessage(), error );
+            } else if ( mapReduceJobSimple.isSuccessful() ) {
+              logBasic( BaseMessages.getString( PKG, "JobEntryHadoopJobExecutor.SimpleFinished", mainClass ) );
+            } else {
+              logError( BaseMessages.getString( PKG, "JobEntryHadoopJobExecutor.FailedToExecuteClass", mainClass,
+                mapReduceJobSimple.getStatus() ) );
+            }
+          } );
         }
       } else {
         if ( log.isDetailed() ) {
@@ -423,32 +454,33 @@ public class JobEntryHadoopJobExecutor extends JobEntryBase implements Cloneable
           logError( BaseMessages.getString( PKG, "ErrorParsingLogInterval", loggingIntervalS, logIntv ) );
         }
         if ( blocking ) {
-          try {
-            int taskCompletionEventIndex = 0;
-            while ( !mapReduceJobAdvanced
-              .waitOnCompletion( logIntv >= 1 ? logIntv : 60, TimeUnit.SECONDS, new MapReduceService.Stoppable() {
-                @Override public boolean isStopped() {
-                  return parentJob.isStopped();
-                }
-              } ) ) {
-              if ( logIntv >= 1 ) {
-                printJobStatus( mapReduceJobAdvanced );
-                taskCompletionEventIndex = logTaskMessages( mapReduceJobAdvanced, taskCompletionEventIndex );
+          final AtomicInteger taskCompletionEventIndex = new AtomicInteger();
+          // The shared monitor kills the job as soon as the parent job is stopped and completes as soon as it is done
+          CompletableFuture<Boolean> completion = getJobMonitor().monitor( mapReduceJobAdvanced,
+            new MapReduceService.Stoppable() {
+              @Override public boolean isStopped() {
+                return parentJob.isStopped();
               }
-            }
-
-            if ( parentJob.isStopped() && !mapReduceJobAdvanced.isComplete() ) {
-              // We must stop the job running on Hadoop
-              mapReduceJobAdvanced.killJob();
+            }, logIntv >= 1 ? TimeUnit.SECONDS.toMillis( logIntv ) : 0, new MapReduceJobMonitor.Listener() {
+              @Override public void onStatus( MapReduceJobAdvanced job ) throws IOException {
+                printJobStatus( job );
+                taskCompletionEventIndex.addAndGet( logTaskMessages( job, taskCompletionEventIndex.get() ) );
+              }
+            } );
+          try {
+            if ( !completion.get() ) {
               // Indicate this job entry did not complete
               result.setResult( false );
             }
 
             printJobStatus( mapReduceJobAdvanced );
             // Log any messages we may have missed while polling
-            logTaskMessages( mapReduceJobAdvanced, taskCompletionEventIndex );
+            logTaskMessages( mapReduceJobAdvanced, taskCompletionEventIndex.get() );
           } catch ( InterruptedException ie ) {
+            completion.cancel( false );
             logError( ie.getMessage(), ie );
+          } catch ( ExecutionException ee ) {
+            throw ee.getCause();
           }
 
           // Entry is successful if the MR job is successful overall
@@ -467,6 +499,16 @@ public class JobEntryHadoopJobExecutor extends JobEntryBase implements Cloneable
     return result;
   }
 
+  @VisibleForTesting
+  MapReduceJobMonitor getJobMonitor() {
+    return MapReduceJobMonitor.getInstance();
+  }
+
+  @VisibleForTesting
+  SimpleJarCache getJarCache() {
+    return SimpleJarCache.getInstance();
+  }
+
   @VisibleForTesting
   URL resolveJarUrl( final String jarUrl ) throws MalformedURLException {
     return resolveJarUrl( jarUrl, this );
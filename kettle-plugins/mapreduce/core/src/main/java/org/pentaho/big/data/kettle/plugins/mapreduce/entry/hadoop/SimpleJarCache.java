@@ -0,0 +1,115 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.big.data.kettle.plugins.mapreduce.entry.hadoop;
+
+import org.pentaho.di.core.Const;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Keeps local copies of the jars run in simple mode, stored by the checksum of their content.
+ * <p>
+ * Every run of the same jar content hands the same local URL to the shim, whatever the jar was called or where it was
+ * read from, so whatever the shim keeps per jar URL is reused between runs. A rebuilt jar gets a new URL even when its
+ * modification time and length are unchanged, and a copy is never rewritten, so a rebuild can't change the classes of
+ * a driver that is still running.
+ */
+public class SimpleJarCache {
+  public static final String DIR_NAME = "mapreduce-jars";
+
+  private static SimpleJarCache instance;
+
+  private final File dir;
+
+  public SimpleJarCache( File dir ) {
+    this.dir = dir;
+  }
+
+  public static synchronized SimpleJarCache getInstance() {
+    if ( instance == null ) {
+      instance = new SimpleJarCache( new File( Const.getKettleDirectory(), DIR_NAME ) );
+    }
+    return instance;
+  }
+
+  /**
+   * Reads the jar once to checksum it, keeping the content only when no copy of it exists yet.
+   *
+   * @param jarUrl the jar to run
+   * @return the URL of the local copy of the jar
+   */
+  public URL localize( URL jarUrl ) throws IOException {
+    Files.createDirectories( dir.toPath() );
+    Path temp = Files.createTempFile( dir.toPath(), "jar", ".tmp" );
+    try {
+      MessageDigest digest = sha256();
+      try ( InputStream in = jarUrl.openStream();
+            OutputStream out = new DigestOutputStream( Files.newOutputStream( temp ), digest ) ) {
+        byte[] buffer = new byte[ 64 * 1024 ];
+        int read;
+        while ( ( read = in.read( buffer ) ) != -1 ) {
+          out.write( buffer, 0, read );
+        }
+      }
+      Path target = dir.toPath().resolve( toHex( digest.digest() ) ).resolve( getName( jarUrl ) );
+      if ( !Files.exists( target ) ) {
+        Files.createDirectories( target.getParent() );
+        try {
+          Files.move( temp, target, StandardCopyOption.ATOMIC_MOVE );
+        } catch ( AtomicMoveNotSupportedException e ) {
+          Files.move( temp, target );
+        } catch ( FileAlreadyExistsException e ) {
+          // another execution stored the same content meanwhile
+        }
+      }
+      return target.toUri().toURL();
+    } finally {
+      Files.deleteIfExists( temp );
+    }
+  }
+
+  static String getName( URL jarUrl ) {
+    String path = jarUrl.getPath();
+    String name = path.substring( path.lastIndexOf( '/' ) + 1 );
+    return name.isEmpty() ? "driver.jar" : name;
+  }
+
+  private static MessageDigest sha256() throws IOException {
+    try {
+      return MessageDigest.getInstance( "SHA-256" );
+    } catch ( NoSuchAlgorithmException e ) {
+      throw new IOException( e );
+    }
+  }
+
+  private static String toHex( byte[] bytes ) {
+    StringBuilder hex = new StringBuilder();
+    for ( byte b : bytes ) {
+      hex.append( String.format( "%02x", b ) );
+    }
+    return hex.toString();
+  }
+}
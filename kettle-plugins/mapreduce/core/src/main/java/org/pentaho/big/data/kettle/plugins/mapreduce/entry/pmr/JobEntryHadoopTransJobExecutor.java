@@ -13,9 +13,11 @@
 
 package org.pentaho.big.data.kettle.plugins.mapreduce.entry.pmr;
 
+import com.google.common.annotations.VisibleForTesting;
 import org.pentaho.big.data.api.services.BigDataServicesHelper;
 import org.pentaho.big.data.impl.cluster.NamedClusterManager;
 import org.pentaho.big.data.kettle.plugins.mapreduce.DialogClassUtil;
+import org.pentaho.big.data.kettle.plugins.mapreduce.entry.MapReduceJobMonitor;
 import org.pentaho.big.data.kettle.plugins.mapreduce.entry.NamedClusterLoadSaveUtil;
 import org.pentaho.big.data.kettle.plugins.mapreduce.entry.UserDefinedItem;
 import org.pentaho.big.data.kettle.plugins.mapreduce.step.exit.HadoopExitMeta;
@@ -29,6 +31,7 @@ import org.pentaho.di.core.database.DatabaseMeta;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.exception.KettleXMLException;
 import org.pentaho.di.core.plugins.JobEntryPluginType;
+import org.pentaho.di.core.plugins.LifecyclePluginType;
 import org.pentaho.di.core.plugins.PluginInterface;
 import org.pentaho.di.core.plugins.PluginRegistry;
 import org.pentaho.di.core.row.RowMetaInterface;
@@ -47,8 +50,6 @@ import org.pentaho.di.repository.RepositoryDirectoryInterface;
 import org.pentaho.di.repository.StringObjectId;
 import org.pentaho.di.resource.ResourceDefinition;
 import org.pentaho.di.resource.ResourceNamingInterface;
-import org.pentaho.di.trans.TransConfiguration;
-import org.pentaho.di.trans.TransExecutionConfiguration;
 import org.pentaho.di.trans.TransMeta;
 import org.pentaho.di.trans.TransMeta.TransformationType;
 import org.pentaho.di.trans.step.StepMeta;
@@ -67,10 +68,19 @@ import org.pentaho.runtime.test.action.impl.RuntimeTestActionServiceImpl;
 import org.pentaho.runtime.test.impl.RuntimeTesterImpl;
 import org.w3c.dom.Node;
 
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -91,6 +101,14 @@ public class JobEntryHadoopTransJobExecutor extends JobEntryBase implements Clon
   public static final String PENTAHO_MAPREDUCE_PROPERTY_KETTLE_HDFS_INSTALL_DIR = "pmr.kettle.dfs.install.dir";
   public static final String PENTAHO_MAPREDUCE_PROPERTY_KETTLE_INSTALLATION_ID = "pmr.kettle.installation.id";
   public static final String PENTAHO_MAPREDUCE_PROPERTY_ADDITIONAL_PLUGINS = "pmr.kettle.additional.plugins";
+  public static final String PENTAHO_MAPREDUCE_PROPERTY_EXCLUDE_PLUGIN_FILES = "pmr.kettle.exclude.plugin.files";
+  public static final String PENTAHO_MAPREDUCE_PROPERTY_INCREMENTAL_STAGING = "pmr.kettle.incremental.staging";
+  public static final String PENTAHO_MAPREDUCE_PROPERTY_RUNTIME_PLUGINS_DIR = "pmr.kettle.runtime.plugins.dir";
+  public static final String DEFAULT_KETTLE_HDFS_INSTALL_DIR = "/opt/pentaho/mapreduce";
+  public static final String DEFAULT_PMR_LIBRARIES_ARCHIVE_FILE = "pentaho-mapreduce-libraries.zip";
+  public static final String BIG_DATA_PLUGIN_ID = "HadoopSpoonPlugin";
+  public static final String MAP_OUTPUT_KEY_COMPARATOR_CLASS = "mapreduce.job.output.key.comparator.class";
+  public static final String COMPOSITE_KEY_COMPARATOR_CLASS = "org.apache.hadoop.io.BytesWritable$Comparator";
   private static Class<?> PKG = JobEntryHadoopTransJobExecutor.class; // for i18n purposes, needed by Translator2!!
   public static final String DIALOG_NAME = DialogClassUtil.getDialogClassName( PKG );
   private final NamedClusterService namedClusterService;
@@ -202,12 +220,7 @@ public class JobEntryHadoopTransJobExecutor extends JobEntryBase implements Clon
   }
 
   public static TransMeta getTransMetaFromRepo( String repositoryDir, String repositoryFile, Repository rep, VariableSpace space  ) throws KettleException {
-    if ( space instanceof JobEntryHadoopTransJobExecutor ) {
-      CurrentDirectoryResolver r = new CurrentDirectoryResolver();
-      JobEntryHadoopTransJobExecutor jobEntry = (JobEntryHadoopTransJobExecutor) space;
-      space = r.resolveCurrentDirectory( jobEntry.getParentJobMeta().getBowl(), jobEntry,
-        jobEntry.getParentJob().getRepositoryDirectory(), null );
-    }
+    space = resolveRepositorySpace( space );
     String repositoryDirS = space.environmentSubstitute( repositoryDir );
     if ( repositoryDirS.isEmpty() ) {
       repositoryDirS = "/";
@@ -218,6 +231,19 @@ public class JobEntryHadoopTransJobExecutor extends JobEntryBase implements Clon
     return  rep.loadTransformation( repositoryFileS, repositoryDirectory, null, true, null );
   }
 
+  /**
+   * @return the variables repository paths are resolved with, relative to the directory of the job for this entry
+   */
+  static VariableSpace resolveRepositorySpace( VariableSpace space ) {
+    if ( space instanceof JobEntryHadoopTransJobExecutor ) {
+      CurrentDirectoryResolver r = new CurrentDirectoryResolver();
+      JobEntryHadoopTransJobExecutor jobEntry = (JobEntryHadoopTransJobExecutor) space;
+      return r.resolveCurrentDirectory( jobEntry.getParentJobMeta().getBowl(), jobEntry,
+        jobEntry.getParentJob().getRepositoryDirectory(), null );
+    }
+    return space;
+  }
+
   public static String[] splitInputPaths( String inputPath, VariableSpace variableSpace ) {
     String inputPathS = variableSpace.environmentSubstitute( inputPath );
 
@@ -561,27 +587,27 @@ public class JobEntryHadoopTransJobExecutor extends JobEntryBase implements Clon
       String hadoopJobNameS = environmentSubstitute( hadoopJobName );
       jobBuilder.setHadoopJobName( hadoopJobNameS );
 
-      // mapper
-      TransExecutionConfiguration transExecConfig = new TransExecutionConfiguration();
-      TransMeta transMeta =
-        loadTransMeta( parentJobMeta.getBowl(), this, rep, mapTrans, mapRepositoryReference, mapRepositoryDir,
+      // mapper, the transformations are parsed and verified once for as long as they don't change
+      TransMetaCache transMetaCache = TransMetaCache.getInstance();
+      TransMetaCache.CachedTrans cachedTrans =
+        transMetaCache.load( parentJobMeta.getBowl(), this, rep, mapTrans, mapRepositoryReference, mapRepositoryDir,
           mapRepositoryFile );
-      TransConfiguration transConfig = new TransConfiguration( transMeta, transExecConfig );
+      TransMeta transMeta = cachedTrans == null ? null : cachedTrans.getTransMeta();
       String mapInputStepNameS = environmentSubstitute( mapInputStepName );
       String mapOutputStepNameS = environmentSubstitute( mapOutputStepName );
 
       try {
-        jobBuilder.verifyTransMeta( transMeta, mapInputStepNameS, mapOutputStepNameS );
+        if ( cachedTrans == null ) {
+          throw new KettleException(
+            BaseMessages.getString( PKG, "JobEntryHadoopTransJobExecutor.NoMapperTrans.Error" ) );
+        }
+        cachedTrans.verify( jobBuilder, mapInputStepNameS, mapOutputStepNameS );
       } catch ( Exception ex ) {
         throw new KettleException( BaseMessages
           .getString( PKG, "JobEntryHadoopTransJobExecutor.MapConfiguration.Error" ), ex );
-      } finally {
-        if ( transMeta != null ) {
-          transMeta.disposeEmbeddedMetastoreProvider();
-        }
       }
 
-      jobBuilder.setMapperInfo( transConfig.getXML(), mapInputStepNameS, mapOutputStepNameS );
+      jobBuilder.setMapperInfo( cachedTrans.getXML(), mapInputStepNameS, mapOutputStepNameS );
 
       jobBuilder.set( MapReduceJobBuilder.STRING_COMBINE_SINGLE_THREADED, combiningSingleThreaded ? "true" : "false" );
 
@@ -600,11 +626,11 @@ public class JobEntryHadoopTransJobExecutor extends JobEntryBase implements Clon
       if ( !getSuppressOutputOfMapKey() || !getSuppressOutputOfMapValue() && transMeta != null ) {
         StepMeta mapOut = transMeta.findStep( mapOutputStepNameS );
         if ( mapOut.getStepMetaInterface() instanceof HadoopExitMeta ) {
-          RowMetaInterface prevStepFields = transMeta.getPrevStepFields( mapOut );
+          RowMetaInterface prevStepFields = cachedTrans.getPrevStepFields( mapOut );
+          HadoopExitMeta mapExitMeta = (HadoopExitMeta) mapOut.getStepMetaInterface();
           if ( !getSuppressOutputOfMapKey() ) {
-            String keyName = ( (HadoopExitMeta) mapOut.getStepMetaInterface() ).getOutKeyFieldname();
-            int keyI = prevStepFields.indexOfValue( keyName );
-            ValueMetaInterface keyVM = ( keyI >= 0 ) ? prevStepFields.getValueMeta( keyI ) : null;
+            // Composite keys are emitted as a single binary value
+            ValueMetaInterface keyVM = mapExitMeta.getOutKeyMeta( prevStepFields );
             if ( keyVM == null ) {
               throw new KettleException( BaseMessages.getString( PKG,
                 "JobEntryHadoopTransJobExecutor.NoMapOutputKeyDefined.Error" ) );
@@ -613,12 +639,17 @@ public class JobEntryHadoopTransJobExecutor extends JobEntryBase implements Clon
             jobBuilder.setMapOutputKeyClass( hadoopWritableKey );
             logDebug( BaseMessages.getString( PKG, "JobEntryHadoopTransJobExecutor.Message.MapOutputKeyMessage",
               hadoopWritableKey ) );
+            if ( HadoopExitMeta.isComposite( prevStepFields, mapExitMeta.getOutKeyFieldname() ) ) {
+              // The packed key sorts correctly byte by byte, so the shuffle can compare it without deserializing
+              jobBuilder.set( MAP_OUTPUT_KEY_COMPARATOR_CLASS, COMPOSITE_KEY_COMPARATOR_CLASS );
+              logDebug( BaseMessages.getString( PKG,
+                "JobEntryHadoopTransJobExecutor.Message.CompositeMapOutputKeyMessage",
+                COMPOSITE_KEY_COMPARATOR_CLASS ) );
+            }
           }
 
           if ( !getSuppressOutputOfMapValue() ) {
-            String valName = ( (HadoopExitMeta) mapOut.getStepMetaInterface() ).getOutValueFieldname();
-            int valI = prevStepFields.indexOfValue( valName );
-            ValueMetaInterface valueVM = ( valI >= 0 ) ? prevStepFields.getValueMeta( valI ) : null;
+            ValueMetaInterface valueVM = mapExitMeta.getOutValueMeta( prevStepFields );
             if ( valueVM == null ) {
               throw new KettleException( BaseMessages.getString( PKG,
                 "JobEntryHadoopTransJobExecutor.NoMapOutputValueDefined.Error" ) );
@@ -632,10 +663,11 @@ public class JobEntryHadoopTransJobExecutor extends JobEntryBase implements Clon
       }
 
       // combiner
-      transMeta =
-        loadTransMeta( parentJobMeta.getBowl(), this, rep, combinerTrans, combinerRepositoryReference,
+      cachedTrans =
+        transMetaCache.load( parentJobMeta.getBowl(), this, rep, combinerTrans, combinerRepositoryReference,
           combinerRepositoryDir, combinerRepositoryFile );
-      if ( transMeta != null ) {
+      if ( cachedTrans != null ) {
+        transMeta = cachedTrans.getTransMeta();
 
         if ( combiningSingleThreaded ) {
           verifySingleThreadingValidity( transMeta );
@@ -643,26 +675,22 @@ public class JobEntryHadoopTransJobExecutor extends JobEntryBase implements Clon
 
         String combinerInputStepNameS = environmentSubstitute( combinerInputStepName );
         String combinerOutputStepNameS = environmentSubstitute( combinerOutputStepName );
-        transConfig = new TransConfiguration( transMeta, transExecConfig );
-        jobBuilder.setCombinerInfo( transConfig.getXML(), combinerInputStepNameS, combinerOutputStepNameS );
+        jobBuilder.setCombinerInfo( cachedTrans.getXML(), combinerInputStepNameS, combinerOutputStepNameS );
         try {
-          jobBuilder.verifyTransMeta( transMeta, combinerInputStepNameS, combinerOutputStepNameS );
+          cachedTrans.verify( jobBuilder, combinerInputStepNameS, combinerOutputStepNameS );
         } catch ( Exception ex ) {
           throw new KettleException( BaseMessages.getString( PKG,
             "JobEntryHadoopTransJobExecutor.CombinerConfiguration.Error" ), ex );
-        } finally {
-          if ( transMeta != null ) {
-            transMeta.disposeEmbeddedMetastoreProvider();
-          }
         }
       }
 
       // reducer
-      transMeta =
-        loadTransMeta( parentJobMeta.getBowl(), this, rep, reduceTrans, reduceRepositoryReference, reduceRepositoryDir,
-          reduceRepositoryFile );
+      cachedTrans =
+        transMetaCache.load( parentJobMeta.getBowl(), this, rep, reduceTrans, reduceRepositoryReference,
+          reduceRepositoryDir, reduceRepositoryFile );
 
-      if ( transMeta != null ) {
+      if ( cachedTrans != null ) {
+        transMeta = cachedTrans.getTransMeta();
 
         // See if this is a valid single threading reducer
         //
@@ -672,18 +700,13 @@ public class JobEntryHadoopTransJobExecutor extends JobEntryBase implements Clon
 
         String reduceInputStepNameS = environmentSubstitute( reduceInputStepName );
         String reduceOutputStepNameS = environmentSubstitute( reduceOutputStepName );
-        transConfig = new TransConfiguration( transMeta, transExecConfig );
-        jobBuilder.setReducerInfo( transConfig.getXML(), reduceInputStepNameS, reduceOutputStepNameS );
+        jobBuilder.setReducerInfo( cachedTrans.getXML(), reduceInputStepNameS, reduceOutputStepNameS );
 
         try {
-          jobBuilder.verifyTransMeta( transMeta, reduceInputStepNameS, reduceOutputStepNameS );
+          cachedTrans.verify( jobBuilder, reduceInputStepNameS, reduceOutputStepNameS );
         } catch ( Exception ex ) {
           throw new KettleException( BaseMessages.getString( PKG,
             "JobEntryHadoopTransJobExecutor.ReducerConfiguration.Error" ), ex );
-        } finally {
-          if ( transMeta != null ) {
-            transMeta.disposeEmbeddedMetastoreProvider();
-          }
         }
 
         if ( getSuppressOutputOfKey() ) {
@@ -696,14 +719,11 @@ public class JobEntryHadoopTransJobExecutor extends JobEntryBase implements Clon
         // auto configure the output reduce key and value classes
         if ( !getSuppressOutputOfKey() || !getSuppressOutputOfValue() ) {
           StepMeta reduceOut = transMeta.findStep( reduceOutputStepNameS );
-          RowMetaInterface prevStepFields = transMeta.getPrevStepFields( reduceOut );
+          RowMetaInterface prevStepFields = cachedTrans.getPrevStepFields( reduceOut );
           if ( reduceOut.getStepMetaInterface() instanceof HadoopExitMeta ) {
-            String keyName = ( (HadoopExitMeta) reduceOut.getStepMetaInterface() ).getOutKeyFieldname();
-            String valName = ( (HadoopExitMeta) reduceOut.getStepMetaInterface() ).getOutValueFieldname();
-            int keyI = prevStepFields.indexOfValue( keyName );
-            ValueMetaInterface keyVM = ( keyI >= 0 ) ? prevStepFields.getValueMeta( keyI ) : null;
-            int valI = prevStepFields.indexOfValue( valName );
-            ValueMetaInterface valueVM = ( valI >= 0 ) ? prevStepFields.getValueMeta( valI ) : null;
+            HadoopExitMeta reduceExitMeta = (HadoopExitMeta) reduceOut.getStepMetaInterface();
+            ValueMetaInterface keyVM = reduceExitMeta.getOutKeyMeta( prevStepFields );
+            ValueMetaInterface valueVM = reduceExitMeta.getOutValueMeta( prevStepFields );
 
             if ( !getSuppressOutputOfKey() ) {
               if ( keyVM == null ) {
@@ -737,6 +757,10 @@ public class JobEntryHadoopTransJobExecutor extends JobEntryBase implements Clon
       jobBuilder.setInputPaths( splitInputPaths( inputPath, variables ) );
       jobBuilder.setOutputPath( environmentSubstitute( outputPath ) );
 
+      if ( "true".equalsIgnoreCase( getPmrProperty( PENTAHO_MAPREDUCE_PROPERTY_INCREMENTAL_STAGING, "false" ) ) ) {
+        stageKettleRuntime( jobBuilder );
+      }
+
       // process user defined values
       for ( UserDefinedItem item : userDefined ) {
         if ( item.getName() != null
@@ -790,30 +814,33 @@ public class JobEntryHadoopTransJobExecutor extends JobEntryBase implements Clon
       }
 
       if ( blocking ) {
-        try {
-          int taskCompletionEventIndex = 0;
-          while ( !parentJob.isStopped() && !runningJob.isComplete() ) {
-            if ( logIntv >= 1 ) {
-              printJobStatus( runningJob );
-              taskCompletionEventIndex += logTaskMessages( runningJob, taskCompletionEventIndex );
-              Thread.sleep( logIntv * 1000 );
-            } else {
-              Thread.sleep( 60000 );
+        final AtomicInteger taskCompletionEventIndex = new AtomicInteger();
+        // The shared monitor kills the job as soon as the parent job is stopped and completes as soon as it is done
+        CompletableFuture<Boolean> completion = getJobMonitor().monitor( runningJob,
+          new MapReduceService.Stoppable() {
+            @Override public boolean isStopped() {
+              return parentJob.isStopped();
             }
-          }
-
-          if ( parentJob.isStopped() && !runningJob.isComplete() ) {
-            // We must stop the job running on Hadoop
-            runningJob.killJob();
+          }, logIntv >= 1 ? TimeUnit.SECONDS.toMillis( logIntv ) : 0, new MapReduceJobMonitor.Listener() {
+            @Override public void onStatus( MapReduceJobAdvanced job ) throws IOException {
+              printJobStatus( job );
+              taskCompletionEventIndex.addAndGet( logTaskMessages( job, taskCompletionEventIndex.get() ) );
+            }
+          } );
+        try {
+          if ( !completion.get() ) {
             // Indicate this job entry did not complete
             result.setResult( false );
           }
 
           printJobStatus( runningJob );
           // Log any messages we may have missed while polling
-          logTaskMessages( runningJob, taskCompletionEventIndex );
+          logTaskMessages( runningJob, taskCompletionEventIndex.get() );
         } catch ( InterruptedException ie ) {
+          completion.cancel( false );
           logError( ie.getMessage(), ie );
+        } catch ( ExecutionException ee ) {
+          throw ee.getCause();
         }
 
         // Entry is successful if the MR job is successful overall
@@ -831,6 +858,11 @@ public class JobEntryHadoopTransJobExecutor extends JobEntryBase implements Clon
     return result;
   }
 
+  @VisibleForTesting
+  MapReduceJobMonitor getJobMonitor() {
+    return MapReduceJobMonitor.getInstance();
+  }
+
   /**
    * Log messages indicating completion (success/failure) of component tasks for the provided running job.
    *
@@ -887,6 +919,125 @@ public class JobEntryHadoopTransJobExecutor extends JobEntryBase implements Clon
     return tcEvents.length;
   }
 
+  /**
+   * Reads a Pentaho MapReduce property from the User Defined properties of the entry, falling back to the variable of
+   * the same name.
+   */
+  String getPmrProperty( String name, String defaultValue ) {
+    return getPmrProperty( name, null, defaultValue );
+  }
+
+  /**
+   * Reads a Pentaho MapReduce property from the User Defined properties of the entry, falling back to the variable of
+   * the same name and then to the plugin.properties of the big data plugin.
+   */
+  String getPmrProperty( String name, Properties pluginProperties, String defaultValue ) {
+    for ( UserDefinedItem item : userDefined ) {
+      if ( item.getName() != null && name.equals( environmentSubstitute( item.getName() ) )
+        && !Const.isEmpty( item.getValue() ) ) {
+        return environmentSubstitute( item.getValue() );
+      }
+    }
+    String value = getVariable( name );
+    if ( Const.isEmpty( value ) && pluginProperties != null ) {
+      value = pluginProperties.getProperty( name );
+    }
+    return Const.isEmpty( value ) ? defaultValue : value;
+  }
+
+  /**
+   * @return the folder of the big data plugin, whose plugin.properties configures Pentaho MapReduce
+   */
+  @VisibleForTesting
+  File getBigDataPluginDir() throws KettleException {
+    PluginInterface plugin =
+      PluginRegistry.getInstance().findPluginWithId( LifecyclePluginType.class, BIG_DATA_PLUGIN_ID );
+    if ( plugin == null || plugin.getPluginDirectory() == null ) {
+      throw new KettleException( BaseMessages.getString( PKG, "JobEntryHadoopTransJobExecutor.Staging.NoPlugin" ) );
+    }
+    return new File( plugin.getPluginDirectory().getPath() );
+  }
+
+  private static Properties loadPluginProperties( File bigDataPluginDir ) throws KettleException {
+    Properties properties = new Properties();
+    File file = new File( bigDataPluginDir, "plugin.properties" );
+    if ( file.isFile() ) {
+      try ( InputStream in = new FileInputStream( file ) ) {
+        properties.load( in );
+      } catch ( IOException e ) {
+        throw new KettleException( e );
+      }
+    }
+    return properties;
+  }
+
+  /**
+   * Stages the files of the Kettle runtime that aren't on DFS yet and installs the runtime from them in the layout the
+   * shim installs it in, so that the shim finds it installed and hands it to the tasks through the distributed cache.
+   */
+  @VisibleForTesting
+  void stageKettleRuntime( PentahoMapReduceJobBuilder jobBuilder ) throws KettleException {
+    File bigDataPluginDir = getBigDataPluginDir();
+    Properties pluginProperties = loadPluginProperties( bigDataPluginDir );
+    String installDir = namedCluster.processURLsubstitution( getPmrProperty(
+      PENTAHO_MAPREDUCE_PROPERTY_KETTLE_HDFS_INSTALL_DIR, pluginProperties, DEFAULT_KETTLE_HDFS_INSTALL_DIR ),
+      metaStore, this );
+    String installationId =
+      getPmrProperty( PENTAHO_MAPREDUCE_PROPERTY_KETTLE_INSTALLATION_ID, pluginProperties, Const.VERSION );
+
+    File archive = new File( bigDataPluginDir, getPmrProperty( PENTAHO_MAPREDUCE_PROPERTY_PMR_LIBRARIES_ARCHIVE_FILE,
+      pluginProperties, DEFAULT_PMR_LIBRARIES_ARCHIVE_FILE ) );
+    if ( !archive.isFile() ) {
+      throw new KettleException(
+        BaseMessages.getString( PKG, "JobEntryHadoopTransJobExecutor.Staging.NoArchive", archive ) );
+    }
+    // the folder the additional plugins are taken from; relative to the plugins of PDI, not to the working directory
+    File pluginsDir = bigDataPluginDir.getParentFile();
+    String pluginsDirProperty = getPmrProperty( PENTAHO_MAPREDUCE_PROPERTY_RUNTIME_PLUGINS_DIR, pluginProperties, "" );
+    if ( !pluginsDirProperty.isEmpty() ) {
+      File configured = new File( pluginsDirProperty );
+      pluginsDir = configured.isAbsolute() ? configured : new File( pluginsDir, pluginsDirProperty );
+    }
+    Map<String, File> additionalPlugins = new LinkedHashMap<>();
+    for ( String plugin : getPmrProperty( PENTAHO_MAPREDUCE_PROPERTY_ADDITIONAL_PLUGINS, pluginProperties, "" )
+      .split( "," ) ) {
+      if ( plugin.trim().isEmpty() ) {
+        continue;
+      }
+      File pluginDir = new File( pluginsDir, plugin.trim() );
+      if ( pluginDir.isDirectory() ) {
+        additionalPlugins.put( plugin.trim(), pluginDir );
+      } else {
+        logError( BaseMessages.getString( PKG, "JobEntryHadoopTransJobExecutor.Staging.PluginNotFound", pluginDir ) );
+      }
+    }
+    List<String> excluded = new ArrayList<>();
+    for ( String prefix : getPmrProperty( PENTAHO_MAPREDUCE_PROPERTY_EXCLUDE_PLUGIN_FILES, pluginProperties, "" )
+      .split( "," ) ) {
+      excluded.add( prefix.trim() );
+    }
+
+    List<KettleRuntimeStager.Artifact> artifacts;
+    try {
+      artifacts = KettleRuntimeStager.collect( archive, bigDataPluginDir, additionalPlugins, excluded );
+    } catch ( IOException e ) {
+      throw new KettleException(
+        BaseMessages.getString( PKG, "JobEntryHadoopTransJobExecutor.Staging.Error", installDir ), e );
+    }
+    KettleRuntimeStager stager = new KettleRuntimeStager( parentJobMeta.getBowl(), this, installDir );
+    String stagedId = stager.stage( installationId, artifacts );
+    logBasic( BaseMessages.getString( PKG, "JobEntryHadoopTransJobExecutor.Staging.Done", stager.getUploaded(),
+      artifacts.size(), installDir, stagedId ) );
+    if ( stager.isInstalled() && log.isDetailed() ) {
+      logDetailed( BaseMessages.getString( PKG, "JobEntryHadoopTransJobExecutor.Staging.Installed", stagedId ) );
+    }
+
+    jobBuilder.set( PENTAHO_MAPREDUCE_PROPERTY_KETTLE_HDFS_INSTALL_DIR, installDir );
+    jobBuilder.set( PENTAHO_MAPREDUCE_PROPERTY_KETTLE_INSTALLATION_ID, stagedId );
+    // the shim finds the staged installation and hands it to the tasks through the distributed cache
+    jobBuilder.set( PENTAHO_MAPREDUCE_PROPERTY_USE_DISTRIBUTED_CACHE, "true" );
+  }
+
   /**
    * @return the plugin interface for this job entry.
    */
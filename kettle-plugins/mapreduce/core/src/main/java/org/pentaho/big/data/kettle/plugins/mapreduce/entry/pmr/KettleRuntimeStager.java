@@ -0,0 +1,509 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.big.data.kettle.plugins.mapreduce.entry.pmr;
+
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.FileSystemException;
+import org.pentaho.di.core.bowl.Bowl;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.variables.VariableSpace;
+import org.pentaho.di.core.vfs.KettleVFS;
+import org.pentaho.di.i18n.BaseMessages;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Stages the Kettle runtime of Pentaho MapReduce to its DFS install directory file by file, so that after an update
+ * only the files whose content changed are uploaded again.
+ * <p>
+ * Every file is uploaded once to <code>&lt;install dir&gt;/artifacts/&lt;hash&gt;/&lt;name&gt;</code>, by the SHA-256
+ * of its content, and is never changed afterwards. The artifacts are shared by all installation ids.
+ * <p>
+ * An installation is assembled from the artifacts in the layout the shim installs from the Pentaho MapReduce libraries
+ * archive: the content of the archive at the root, then the big data plugin and the additional plugins under
+ * <code>plugins/</code>, without the excluded files. The shim therefore finds the environment installed, and hands it
+ * to the tasks through the distributed cache and registers its plugins there as it does for an environment it
+ * installed itself. The manifest of the installation maps every file to its artifact.
+ * <p>
+ * An installation is assembled next to its final place and renamed into it, and is never changed once there, so
+ * running jobs never see a file of their installation change. A runtime that differs from the one installed under the
+ * configured installation id is installed under that id suffixed with the hash of its manifest instead. A lock file
+ * next to the installation keeps jobs from assembling the same installation at the same time.
+ */
+public class KettleRuntimeStager {
+  private static final Class<?> PKG = JobEntryHadoopTransJobExecutor.class; // for i18n purposes
+
+  public static final String PATH_PLUGINS = "plugins";
+  public static final String ARTIFACTS_DIR = "artifacts";
+  public static final String MANIFEST_FILE = "runtime.manifest";
+  public static final String LOCK_SUFFIX = ".staging";
+  /**
+   * A lock older than this was left behind by a job that died while staging
+   */
+  static final long STALE_LOCK_MS = TimeUnit.MINUTES.toMillis( 10 );
+  static final long LOCK_POLL_MS = 1000;
+  /**
+   * Time given to a job that saw the lock free at the same moment to write its own lock
+   */
+  static final long LOCK_SETTLE_MS = 500;
+
+  /**
+   * Hashes of local files and archives by their fingerprint, so that unchanged files are only read once per JVM
+   */
+  private static final Map<String, Map<String, String>> HASHES = new ConcurrentHashMap<>();
+
+  private final Bowl bowl;
+  private final VariableSpace space;
+  private final String installDir;
+  private int uploaded;
+  private boolean installed;
+
+  /**
+   * A file of the runtime, taken either from a local file or from an entry of the libraries archive.
+   */
+  public static class Artifact {
+    private final String path;
+    private final String hash;
+    private final File file;
+    private final String entry;
+
+    Artifact( String path, String hash, File file, String entry ) {
+      this.path = path;
+      this.hash = hash;
+      this.file = file;
+      this.entry = entry;
+    }
+
+    /**
+     * @return the path of the file within the installation directory
+     */
+    public String getPath() {
+      return path;
+    }
+
+    public String getHash() {
+      return hash;
+    }
+
+    InputStream open( ZipFile archive ) throws IOException {
+      return entry == null
+        ? Files.newInputStream( file.toPath() )
+        : archive.getInputStream( archive.getEntry( entry ) );
+    }
+  }
+
+  /**
+   * @param installDir the DFS install directory, as a URL the file system can be resolved from
+   */
+  public KettleRuntimeStager( Bowl bowl, VariableSpace space, String installDir ) {
+    this.bowl = bowl;
+    this.space = space;
+    this.installDir = installDir.endsWith( "/" ) ? installDir.substring( 0, installDir.length() - 1 ) : installDir;
+  }
+
+  /**
+   * Lists the files of the runtime in the layout of the shim.
+   *
+   * @param librariesArchive  the Pentaho MapReduce libraries archive, extracted at the root
+   * @param bigDataPluginDir  the big data plugin, staged under <code>plugins/</code>
+   * @param additionalPlugins the other plugins to stage, by their path below <code>plugins/</code>
+   * @param excludedPrefixes  the name prefixes of the plugin files not to stage
+   */
+  public static List<Artifact> collect( File librariesArchive, File bigDataPluginDir,
+                                        Map<String, File> additionalPlugins, List<String> excludedPrefixes )
+    throws IOException {
+    List<Artifact> artifacts = new ArrayList<>();
+    for ( Map.Entry<String, String> entry
+      : hashes( librariesArchive, Collections.singletonList( librariesArchive.toPath() ) ).entrySet() ) {
+      artifacts.add( new Artifact( entry.getKey(), entry.getValue(), librariesArchive, entry.getKey() ) );
+    }
+    Map<String, File> plugins = new LinkedHashMap<>();
+    plugins.put( bigDataPluginDir.getName(), bigDataPluginDir );
+    plugins.putAll( additionalPlugins );
+    for ( Map.Entry<String, File> plugin : plugins.entrySet() ) {
+      List<Path> files = new ArrayList<>();
+      for ( Path file : files( plugin.getValue() ) ) {
+        if ( !isExcluded( file, librariesArchive, excludedPrefixes ) ) {
+          files.add( file );
+        }
+      }
+      Map<String, String> fileHashes = hashes( plugin.getValue(), files );
+      for ( Path file : files ) {
+        String relative = relativeName( plugin.getValue(), file );
+        artifacts.add( new Artifact( PATH_PLUGINS + "/" + plugin.getKey() + "/" + relative,
+          fileHashes.get( relative ), file.toFile(), null ) );
+      }
+    }
+    return artifacts;
+  }
+
+  private static boolean isExcluded( Path file, File librariesArchive, List<String> excludedPrefixes ) {
+    if ( file.toFile().equals( librariesArchive ) ) {
+      // the archive is staged extracted already
+      return true;
+    }
+    String name = file.getFileName().toString();
+    for ( String prefix : excludedPrefixes ) {
+      if ( !prefix.isEmpty() && name.startsWith( prefix ) ) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Uploads the files whose content isn't staged yet and makes sure an installation of the runtime exists.
+   *
+   * @param installationId the configured installation id
+   * @param artifacts      the files of the runtime, see {@link #collect(File, File, Map, List)}
+   * @return the id of the installation of the runtime, the configured one unless it holds another runtime
+   */
+  public String stage( String installationId, List<Artifact> artifacts ) throws KettleException {
+    uploaded = 0;
+    installed = false;
+    try {
+      ZipFile archive = null;
+      try {
+        for ( Artifact artifact : artifacts ) {
+          FileObject stored = getFileObject( installDir + "/" + getArtifactPath( artifact ) );
+          if ( stored.exists() ) {
+            continue;
+          }
+          if ( artifact.entry != null && archive == null ) {
+            archive = new ZipFile( artifact.file );
+          }
+          try ( InputStream in = artifact.open( archive ) ) {
+            if ( writeAtomically( stored, out -> copy( in, out ) ) ) {
+              uploaded++;
+            }
+          }
+        }
+      } finally {
+        if ( archive != null ) {
+          archive.close();
+        }
+      }
+
+      String manifest = getManifest( artifacts );
+      if ( install( installationId, artifacts, manifest ) ) {
+        return installationId;
+      }
+      // the configured installation holds another runtime, and is left as it is for the jobs using it
+      String hashedId = installationId + "-" + hash(
+        new ByteArrayInputStream( manifest.getBytes( StandardCharsets.UTF_8 ) ) ).substring( 0, 16 );
+      if ( install( hashedId, artifacts, manifest ) ) {
+        return hashedId;
+      }
+      throw new IOException( installDir + "/" + hashedId + " holds another runtime" );
+    } catch ( IOException e ) {
+      throw new KettleException( BaseMessages.getString( PKG, "JobEntryHadoopTransJobExecutor.Staging.Error",
+        installDir ), e );
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      throw new KettleException( BaseMessages.getString( PKG, "JobEntryHadoopTransJobExecutor.Staging.Error",
+        installDir ), e );
+    }
+  }
+
+  /**
+   * @return the number of files the last {@link #stage(String, List)} uploaded
+   */
+  public int getUploaded() {
+    return uploaded;
+  }
+
+  /**
+   * @return whether the last {@link #stage(String, List)} assembled a new installation
+   */
+  public boolean isInstalled() {
+    return installed;
+  }
+
+  /**
+   * @return the path of the artifact holding the content of the file, relative to the install directory
+   */
+  static String getArtifactPath( Artifact artifact ) {
+    String path = artifact.getPath();
+    return ARTIFACTS_DIR + "/" + artifact.getHash() + "/" + path.substring( path.lastIndexOf( '/' ) + 1 );
+  }
+
+  private static String getManifest( List<Artifact> artifacts ) {
+    StringBuilder manifest = new StringBuilder();
+    for ( Artifact artifact : artifacts ) {
+      manifest.append( artifact.getPath() ).append( '\t' ).append( getArtifactPath( artifact ) ).append( '\n' );
+    }
+    return manifest.toString();
+  }
+
+  /**
+   * Assembles the installation unless it exists already.
+   *
+   * @return whether the installation is one of the runtime of the manifest, false if it holds another one
+   */
+  private boolean install( String installationId, List<Artifact> artifacts, String manifest )
+    throws IOException, InterruptedException {
+    String installation = installDir + "/" + installationId;
+    FileObject target = getFileObject( installation );
+    if ( target.exists() ) {
+      return manifest.equals( readText( getFileObject( installation + "/" + MANIFEST_FILE ) ) );
+    }
+    String owner = lock( installation );
+    try {
+      target.refresh();
+      if ( target.exists() ) {
+        // installed by another job meanwhile
+        return manifest.equals( readText( getFileObject( installation + "/" + MANIFEST_FILE ) ) );
+      }
+      FileObject assembly = getFileObject( installDir + "/." + installationId + "." + UUID.randomUUID() );
+      try {
+        for ( Artifact artifact : artifacts ) {
+          FileObject file = assembly.resolveFile( artifact.getPath() );
+          file.getParent().createFolder();
+          try ( InputStream in = getFileObject( installDir + "/" + getArtifactPath( artifact ) ).getContent()
+            .getInputStream(); OutputStream out = file.getContent().getOutputStream() ) {
+            copy( in, out );
+          }
+        }
+        try ( OutputStream out = assembly.resolveFile( MANIFEST_FILE ).getContent().getOutputStream() ) {
+          out.write( manifest.getBytes( StandardCharsets.UTF_8 ) );
+        }
+        assembly.moveTo( target );
+        installed = true;
+        return true;
+      } finally {
+        if ( assembly.exists() ) {
+          assembly.deleteAll();
+        }
+      }
+    } finally {
+      unlock( installation, owner );
+    }
+  }
+
+  /**
+   * Waits until no other job assembles this installation and takes the lock. A job that sees the lock free writes its
+   * own, and only owns the lock if it still reads its own after a moment, when any job that raced it wrote as well.
+   *
+   * @return the owner written to the lock
+   */
+  private String lock( String installation ) throws IOException, InterruptedException {
+    FileObject lock = getFileObject( installation + LOCK_SUFFIX );
+    String owner = UUID.randomUUID().toString();
+    while ( true ) {
+      lock.refresh();
+      if ( !lock.exists()
+        || System.currentTimeMillis() - lock.getContent().getLastModifiedTime() > STALE_LOCK_MS ) {
+        try {
+          replaceAtomically( lock, out -> out.write( owner.getBytes( StandardCharsets.UTF_8 ) ) );
+        } catch ( FileSystemException e ) {
+          // another job renamed its lock in between the removal and the rename of ours, it owns the lock
+          Thread.sleep( LOCK_POLL_MS );
+          continue;
+        }
+        Thread.sleep( LOCK_SETTLE_MS );
+        if ( owner.equals( readText( lock ) ) ) {
+          return owner;
+        }
+      }
+      Thread.sleep( LOCK_POLL_MS );
+    }
+  }
+
+  private void unlock( String installation, String owner ) throws IOException {
+    FileObject lock = getFileObject( installation + LOCK_SUFFIX );
+    if ( owner.equals( readText( lock ) ) ) {
+      lock.delete();
+    }
+  }
+
+  private static String readText( FileObject file ) throws IOException {
+    file.refresh();
+    if ( !file.exists() ) {
+      return null;
+    }
+    try ( InputStream in = file.getContent().getInputStream() ) {
+      ByteArrayOutputStream content = new ByteArrayOutputStream();
+      copy( in, content );
+      return new String( content.toByteArray(), StandardCharsets.UTF_8 );
+    }
+  }
+
+  /**
+   * Hashes the files of a folder by their path relative to it, or the entries of an archive by their name. The hashes
+   * are cached for as long as the sizes and modification times of the files stay the same.
+   */
+  static Map<String, String> hashes( File source, List<Path> files ) throws IOException {
+    StringBuilder fingerprint = new StringBuilder( source.getAbsolutePath() );
+    for ( Path file : files ) {
+      fingerprint.append( '|' ).append( file ).append( ':' ).append( Files.size( file ) ).append( ':' )
+        .append( Files.getLastModifiedTime( file ).toMillis() );
+    }
+    Map<String, String> cached = HASHES.get( fingerprint.toString() );
+    if ( cached != null ) {
+      return cached;
+    }
+
+    Map<String, String> hashes = new LinkedHashMap<>();
+    if ( source.isDirectory() ) {
+      for ( Path file : files ) {
+        try ( InputStream in = Files.newInputStream( file ) ) {
+          hashes.put( relativeName( source, file ), hash( in ) );
+        }
+      }
+    } else {
+      try ( ZipFile archive = new ZipFile( source ) ) {
+        List<? extends ZipEntry> entries = Collections.list( archive.entries() );
+        entries.sort( ( a, b ) -> a.getName().compareTo( b.getName() ) );
+        for ( ZipEntry entry : entries ) {
+          if ( !entry.isDirectory() ) {
+            try ( InputStream in = archive.getInputStream( entry ) ) {
+              hashes.put( entry.getName(), hash( in ) );
+            }
+          }
+        }
+      }
+    }
+    HASHES.put( fingerprint.toString(), hashes );
+    return hashes;
+  }
+
+  private static String hash( InputStream content ) throws IOException {
+    MessageDigest digest = newDigest();
+    byte[] buffer = new byte[ 64 * 1024 ];
+    try ( InputStream in = new DigestInputStream( content, digest ) ) {
+      while ( in.read( buffer ) >= 0 ) {
+        // the digest input stream reads the content into the digest
+      }
+    }
+    return toHex( digest.digest() );
+  }
+
+  private static List<Path> files( File dir ) throws IOException {
+    if ( !dir.isDirectory() ) {
+      return Collections.emptyList();
+    }
+    try ( Stream<Path> walk = Files.walk( dir.toPath() ) ) {
+      return walk.filter( Files::isRegularFile ).sorted().collect( Collectors.toList() );
+    }
+  }
+
+  private static String relativeName( File dir, Path file ) {
+    return dir.toPath().relativize( file ).toString().replace( File.separatorChar, '/' );
+  }
+
+  private static void copy( InputStream in, OutputStream out ) throws IOException {
+    byte[] buffer = new byte[ 64 * 1024 ];
+    int read;
+    while ( ( read = in.read( buffer ) ) != -1 ) {
+      out.write( buffer, 0, read );
+    }
+  }
+
+  private interface Writer {
+    void write( OutputStream out ) throws IOException;
+  }
+
+  /**
+   * Writes an artifact next to its place and renames it into it, so that nobody reads a partially written artifact.
+   * As an artifact is named by its content, one that another job stored meanwhile is kept instead of replaced.
+   *
+   * @return whether the artifact was stored by this call
+   */
+  private boolean writeAtomically( FileObject target, Writer writer ) throws IOException {
+    FileObject parent = target.getParent();
+    parent.createFolder();
+    FileObject temp = parent.resolveFile( "." + target.getName().getBaseName() + "." + UUID.randomUUID() );
+    try {
+      try ( OutputStream out = temp.getContent().getOutputStream() ) {
+        writer.write( out );
+      }
+      target.refresh();
+      if ( target.exists() ) {
+        return false;
+      }
+      temp.moveTo( target );
+      return true;
+    } finally {
+      if ( temp.exists() ) {
+        temp.delete();
+      }
+    }
+  }
+
+  /**
+   * Writes next to the target and renames over it. Renaming over an existing file removes it first and is therefore
+   * not atomic, a job that loses the race for the lock this way gets a {@link FileSystemException}.
+   */
+  private void replaceAtomically( FileObject target, Writer writer ) throws IOException {
+    target.getParent().createFolder();
+    FileObject temp = target.getParent().resolveFile( "." + target.getName().getBaseName() + "." + UUID.randomUUID() );
+    try {
+      try ( OutputStream out = temp.getContent().getOutputStream() ) {
+        writer.write( out );
+      }
+      temp.moveTo( target );
+    } finally {
+      if ( temp.exists() ) {
+        temp.delete();
+      }
+    }
+  }
+
+  private FileObject getFileObject( String path ) throws IOException {
+    try {
+      return KettleVFS.getInstance( bowl ).getFileObject( path, space );
+    } catch ( KettleException e ) {
+      throw new IOException( e );
+    }
+  }
+
+  private static MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance( "SHA-256" );
+    } catch ( NoSuchAlgorithmException e ) {
+      throw new IllegalStateException( e );
+    }
+  }
+
+  private static String toHex( byte[] bytes ) {
+    StringBuilder hex = new StringBuilder();
+    for ( byte b : bytes ) {
+      hex.append( String.format( "%02x", b ) );
+    }
+    return hex.toString();
+  }
+}
@@ -0,0 +1,242 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.big.data.kettle.plugins.mapreduce.entry.pmr;
+
+import org.apache.commons.vfs2.FileObject;
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.bowl.Bowl;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.variables.VariableSpace;
+import org.pentaho.di.core.vfs.KettleVFS;
+import org.pentaho.di.repository.ObjectId;
+import org.pentaho.di.repository.Repository;
+import org.pentaho.di.repository.RepositoryDirectoryInterface;
+import org.pentaho.di.repository.RepositoryObject;
+import org.pentaho.di.repository.RepositoryObjectType;
+import org.pentaho.di.trans.TransConfiguration;
+import org.pentaho.di.trans.TransExecutionConfiguration;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.step.StepMeta;
+import org.pentaho.hadoop.shim.api.mapreduce.PentahoMapReduceJobBuilder;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps the mapper, combiner and reducer transformations of Pentaho MapReduce jobs parsed between executions, together
+ * with what the submission derives from them: the generated XML, the verified input and output steps and the fields
+ * arriving at the output steps.
+ * <p>
+ * Transformations are cached by file name or repository object, and reloaded when the last modified time and size of
+ * the file, or the modified date of the repository object, changed since they were parsed.
+ */
+public class TransMetaCache {
+  static final int MAX_ENTRIES = 32;
+
+  private static final TransMetaCache INSTANCE = new TransMetaCache();
+
+  private final Map<String, CachedTrans> entries = new LinkedHashMap<String, CachedTrans>( 16, 0.75f, true ) {
+    @Override
+    protected boolean removeEldestEntry( Map.Entry<String, CachedTrans> eldest ) {
+      if ( size() > MAX_ENTRIES ) {
+        eldest.getValue().dispose();
+        return true;
+      }
+      return false;
+    }
+  };
+
+  /**
+   * A parsed transformation and what was derived from it so far. The transformation must not be changed.
+   */
+  public static class CachedTrans {
+    private final TransMeta transMeta;
+    private final String version;
+    private String xml;
+    private final Set<String> verified = new HashSet<>();
+    private final Map<String, RowMetaInterface> prevStepFields = new HashMap<>();
+
+    CachedTrans( TransMeta transMeta, String version ) {
+      this.transMeta = transMeta;
+      this.version = version;
+    }
+
+    public TransMeta getTransMeta() {
+      return transMeta;
+    }
+
+    /**
+     * @return the XML of the transformation with a default execution configuration, as passed to the tasks
+     */
+    public synchronized String getXML() throws KettleException {
+      if ( xml == null ) {
+        xml = new TransConfiguration( transMeta, new TransExecutionConfiguration() ).getXML();
+      }
+      return xml;
+    }
+
+    /**
+     * Verifies the input and output steps of the transformation, once for every pair of steps.
+     */
+    public synchronized void verify( PentahoMapReduceJobBuilder jobBuilder, String inputStepName,
+                                     String outputStepName ) throws Exception {
+      String steps = inputStepName + "\n" + outputStepName;
+      if ( !verified.contains( steps ) ) {
+        jobBuilder.verifyTransMeta( transMeta, inputStepName, outputStepName );
+        verified.add( steps );
+      }
+    }
+
+    /**
+     * @return a copy of the fields arriving at the step
+     */
+    public synchronized RowMetaInterface getPrevStepFields( StepMeta stepMeta ) throws KettleException {
+      RowMetaInterface fields = prevStepFields.get( stepMeta.getName() );
+      if ( fields == null ) {
+        fields = transMeta.getPrevStepFields( stepMeta );
+        prevStepFields.put( stepMeta.getName(), fields );
+      }
+      return fields.clone();
+    }
+
+    void dispose() {
+      transMeta.disposeEmbeddedMetastoreProvider();
+    }
+  }
+
+  public static TransMetaCache getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Returns the transformation the way {@link JobEntryHadoopTransJobExecutor#loadTransMeta} loads it, from the cache
+   * if it didn't change since.
+   *
+   * @return the transformation, or null if none is configured
+   */
+  public CachedTrans load( Bowl bowl, VariableSpace space, Repository rep, String filename, ObjectId transformationId,
+                           String repositoryDir, String repositoryFile ) throws KettleException {
+    String key;
+    String version;
+    if ( rep == null ) {
+      if ( Const.isEmpty( filename ) ) {
+        return null;
+      }
+      String realFilename = space.environmentSubstitute( filename );
+      key = "file:" + realFilename;
+      version = fileVersion( bowl, space, realFilename );
+    } else {
+      ObjectId id = transformationId;
+      String location = null;
+      if ( !Const.isEmpty( filename ) ) {
+        location = filename;
+      } else if ( id == null && !Const.isEmpty( repositoryDir ) && !Const.isEmpty( repositoryFile ) ) {
+        location = repositoryDir + "/" + repositoryFile;
+      } else if ( id == null ) {
+        return null;
+      }
+      if ( location != null ) {
+        location = JobEntryHadoopTransJobExecutor.resolveRepositorySpace( space ).environmentSubstitute( location );
+        id = repositoryObjectId( rep, location );
+      }
+      key = "repository:" + rep.getName() + ":" + ( location != null ? location : id.getId() );
+      version = id == null ? null : repositoryVersion( rep, id );
+    }
+
+    synchronized ( this ) {
+      CachedTrans cached = entries.get( key );
+      if ( cached != null && version != null && version.equals( cached.version ) ) {
+        return cached;
+      }
+    }
+
+    TransMeta transMeta = JobEntryHadoopTransJobExecutor.loadTransMeta( bowl, space, rep, filename, transformationId,
+      repositoryDir, repositoryFile );
+    if ( transMeta == null ) {
+      return null;
+    }
+    CachedTrans loaded = new CachedTrans( transMeta, version );
+    synchronized ( this ) {
+      CachedTrans replaced = entries.put( key, loaded );
+      if ( replaced != null ) {
+        replaced.dispose();
+      }
+    }
+    return loaded;
+  }
+
+  /**
+   * Drops all cached transformations.
+   */
+  public synchronized void clear() {
+    for ( CachedTrans cached : entries.values() ) {
+      cached.dispose();
+    }
+    entries.clear();
+  }
+
+  synchronized int size() {
+    return entries.size();
+  }
+
+  /**
+   * @return the last modified time and size of the file, or null if they can't be read and the file has to be loaded
+   */
+  private static String fileVersion( Bowl bowl, VariableSpace space, String filename ) {
+    try {
+      FileObject file = KettleVFS.getInstance( bowl ).getFileObject( filename, space );
+      if ( !file.exists() ) {
+        return null;
+      }
+      return file.getContent().getLastModifiedTime() + "/" + file.getContent().getSize();
+    } catch ( Exception e ) {
+      return null;
+    }
+  }
+
+  private static ObjectId repositoryObjectId( Repository rep, String location ) {
+    int index = location.trim().lastIndexOf( '/' );
+    if ( index < 0 ) {
+      return null;
+    }
+    try {
+      String directory = location.trim().substring( 0, index );
+      RepositoryDirectoryInterface repositoryDirectory =
+        rep.loadRepositoryDirectoryTree().findDirectory( directory.isEmpty() ? "/" : directory );
+      return repositoryDirectory == null ? null
+        : rep.getTransformationID( location.trim().substring( index + 1 ), repositoryDirectory );
+    } catch ( Exception e ) {
+      return null;
+    }
+  }
+
+  /**
+   * @return when and by whom the repository object was last changed, or null if that's unknown
+   */
+  private static String repositoryVersion( Repository rep, ObjectId id ) {
+    try {
+      RepositoryObject information = rep.getObjectInformation( id, RepositoryObjectType.TRANSFORMATION );
+      if ( information == null || information.getModifiedDate() == null ) {
+        return null;
+      }
+      return id.getId() + "/" + information.getModifiedDate().getTime() + "/" + information.getModifiedUser();
+    } catch ( Exception e ) {
+      return null;
+    }
+  }
+}
@@ -0,0 +1,257 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.big.data.kettle.plugins.mapreduce.step.combine;
+
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.RowDataUtil;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.util.StringUtil;
+import org.pentaho.di.i18n.BaseMessages;
+import org.pentaho.di.trans.Trans;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.step.BaseStep;
+import org.pentaho.di.trans.step.StepDataInterface;
+import org.pentaho.di.trans.step.StepInterface;
+import org.pentaho.di.trans.step.StepMeta;
+import org.pentaho.di.trans.step.StepMetaInterface;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+/**
+ * Aggregates the rows of a mapper in memory by group before they are written to the MapReduce Output step, so that
+ * the shuffle only carries one partial aggregate per group and flush.
+ */
+public class InMapperCombiner extends BaseStep implements StepInterface {
+  private static final Class<?> PKG = InMapperCombiner.class;
+
+  static final int SUM = 0;
+  static final int COUNT = 1;
+  static final int MIN = 2;
+  static final int MAX = 3;
+
+  /**
+   * Checking the free memory is not free, so it is only done every so many new groups.
+   */
+  static final int MEMORY_CHECK_INTERVAL = 1000;
+
+  private InMapperCombinerMeta meta;
+  private InMapperCombinerData data;
+
+  public InMapperCombiner( StepMeta stepMeta, StepDataInterface stepDataInterface, int copyNr, TransMeta transMeta,
+                           Trans trans ) {
+    super( stepMeta, stepDataInterface, copyNr, transMeta, trans );
+  }
+
+  @Override
+  public boolean processRow( StepMetaInterface smi, StepDataInterface sdi ) throws KettleException {
+    meta = (InMapperCombinerMeta) smi;
+    data = (InMapperCombinerData) sdi;
+
+    Object[] r = getRow();
+    if ( r == null ) {
+      // End of the input, emit what is left
+      if ( !first ) {
+        flush();
+      }
+      setOutputDone();
+      return false;
+    }
+
+    if ( first ) {
+      first = false;
+      runtimeInit();
+    }
+
+    RowMetaInterface inputRowMeta = getInputRowMeta();
+    int[] groupIndexes = data.getGroupIndexes();
+    Object[] groupValues = new Object[ groupIndexes.length ];
+    for ( int i = 0; i < groupIndexes.length; i++ ) {
+      ValueMetaInterface groupMeta = inputRowMeta.getValueMeta( groupIndexes[ i ] );
+      groupValues[ i ] = groupMeta.convertToNormalStorageType( r[ groupIndexes[ i ] ] );
+    }
+
+    Map<InMapperCombinerData.GroupKey, Object[]> groups = data.getGroups();
+    InMapperCombinerData.GroupKey key = new InMapperCombinerData.GroupKey( data.getGroupRowMeta(), groupValues );
+    Object[] aggregates = groups.get( key );
+    boolean newGroup = aggregates == null;
+    if ( newGroup ) {
+      aggregates = newAggregates();
+      groups.put( key, aggregates );
+    }
+    aggregate( inputRowMeta, r, aggregates );
+
+    if ( newGroup && isFull( groups.size() ) ) {
+      flush();
+    }
+
+    if ( checkFeedback( getLinesRead() ) ) {
+      logBasic( BaseMessages.getString( PKG, "InMapperCombiner.Linenr", getLinesRead() ) );
+    }
+
+    return true;
+  }
+
+  private void runtimeInit() throws KettleException {
+    RowMetaInterface inputRowMeta = getInputRowMeta();
+    RowMetaInterface outputRowMeta = inputRowMeta.clone();
+    meta.getFields( getTransMeta().getBowl(), outputRowMeta, getStepname(), null, null, this );
+    data.setOutputRowMeta( outputRowMeta );
+
+    String[] groupFields = meta.getGroupFields();
+    int[] groupIndexes = new int[ groupFields.length ];
+    RowMetaInterface groupRowMeta = new RowMeta();
+    for ( int i = 0; i < groupFields.length; i++ ) {
+      groupIndexes[ i ] = inputRowMeta.indexOfValue( groupFields[ i ] );
+      groupRowMeta.addValueMeta( outputRowMeta.getValueMeta( i ) );
+    }
+    data.setGroupIndexes( groupIndexes );
+    data.setGroupRowMeta( groupRowMeta );
+
+    String[] subjectFields = meta.getSubjectFields();
+    String[] types = meta.getAggregateTypes();
+    int[] subjectIndexes = new int[ subjectFields.length ];
+    int[] aggregateTypes = new int[ types.length ];
+    ValueMetaInterface[] aggregateMetas = new ValueMetaInterface[ types.length ];
+    for ( int i = 0; i < types.length; i++ ) {
+      subjectIndexes[ i ] =
+        StringUtil.isEmpty( subjectFields[ i ] ) ? -1 : inputRowMeta.indexOfValue( subjectFields[ i ] );
+      aggregateTypes[ i ] = getAggregateType( types[ i ] );
+      aggregateMetas[ i ] = outputRowMeta.getValueMeta( groupFields.length + i );
+    }
+    data.setSubjectIndexes( subjectIndexes );
+    data.setAggregateTypes( aggregateTypes );
+    data.setAggregateMetas( aggregateMetas );
+  }
+
+  static int getAggregateType( String type ) {
+    if ( InMapperCombinerMeta.TYPE_COUNT.equalsIgnoreCase( type ) ) {
+      return COUNT;
+    } else if ( InMapperCombinerMeta.TYPE_MIN.equalsIgnoreCase( type ) ) {
+      return MIN;
+    } else if ( InMapperCombinerMeta.TYPE_MAX.equalsIgnoreCase( type ) ) {
+      return MAX;
+    }
+    // getFields has validated the types already
+    return SUM;
+  }
+
+  private Object[] newAggregates() {
+    int[] aggregateTypes = data.getAggregateTypes();
+    Object[] aggregates = new Object[ aggregateTypes.length ];
+    for ( int i = 0; i < aggregateTypes.length; i++ ) {
+      if ( aggregateTypes[ i ] == COUNT ) {
+        aggregates[ i ] = 0L;
+      }
+    }
+    return aggregates;
+  }
+
+  private void aggregate( RowMetaInterface inputRowMeta, Object[] r, Object[] aggregates )
+    throws KettleValueException {
+    int[] subjectIndexes = data.getSubjectIndexes();
+    int[] aggregateTypes = data.getAggregateTypes();
+    ValueMetaInterface[] aggregateMetas = data.getAggregateMetas();
+    for ( int i = 0; i < aggregates.length; i++ ) {
+      int subjectIndex = subjectIndexes[ i ];
+      if ( subjectIndex < 0 ) {
+        // A count without a subject counts rows
+        aggregates[ i ] = (Long) aggregates[ i ] + 1;
+        continue;
+      }
+      ValueMetaInterface subjectMeta = inputRowMeta.getValueMeta( subjectIndex );
+      Object value = r[ subjectIndex ];
+      if ( subjectMeta.isNull( value ) ) {
+        continue;
+      }
+      switch ( aggregateTypes[ i ] ) {
+        case COUNT:
+          aggregates[ i ] = (Long) aggregates[ i ] + 1;
+          break;
+        case SUM:
+          aggregates[ i ] = sum( aggregateMetas[ i ], aggregates[ i ], subjectMeta, value );
+          break;
+        case MIN:
+        case MAX:
+          Object normal = subjectMeta.convertToNormalStorageType( value );
+          if ( aggregates[ i ] == null ) {
+            aggregates[ i ] = normal;
+          } else {
+            int compare = aggregateMetas[ i ].compare( normal, aggregates[ i ] );
+            if ( aggregateTypes[ i ] == MIN ? compare < 0 : compare > 0 ) {
+              aggregates[ i ] = normal;
+            }
+          }
+          break;
+        default:
+          break;
+      }
+    }
+  }
+
+  private static Object sum( ValueMetaInterface aggregateMeta, Object total, ValueMetaInterface subjectMeta,
+                             Object value ) throws KettleValueException {
+    switch ( aggregateMeta.getType() ) {
+      case ValueMetaInterface.TYPE_INTEGER:
+        long longValue = subjectMeta.getInteger( value );
+        return total == null ? longValue : (Long) total + longValue;
+      case ValueMetaInterface.TYPE_BIGNUMBER:
+        BigDecimal bigValue = subjectMeta.getBigNumber( value );
+        return total == null ? bigValue : ( (BigDecimal) total ).add( bigValue );
+      default:
+        double doubleValue = subjectMeta.getNumber( value );
+        return total == null ? doubleValue : (Double) total + doubleValue;
+    }
+  }
+
+  private boolean isFull( int groupCount ) {
+    if ( groupCount >= meta.getMaxGroups() ) {
+      return true;
+    }
+    if ( groupCount % MEMORY_CHECK_INTERVAL != 0 ) {
+      return false;
+    }
+    Runtime runtime = Runtime.getRuntime();
+    long maxMemory = runtime.maxMemory();
+    long freeMemory = maxMemory - ( runtime.totalMemory() - runtime.freeMemory() );
+    return freeMemory * 100 / maxMemory < meta.getMinFreeMemoryPercent();
+  }
+
+  /**
+   * Emits the partial aggregate of every group held in memory and forgets them.
+   */
+  void flush() throws KettleException {
+    Map<InMapperCombinerData.GroupKey, Object[]> groups = data.getGroups();
+    if ( groups.isEmpty() ) {
+      return;
+    }
+    if ( log.isDetailed() ) {
+      logDetailed( BaseMessages.getString( PKG, "InMapperCombiner.Log.Flush", groups.size() ) );
+    }
+    RowMetaInterface outputRowMeta = data.getOutputRowMeta();
+    for ( Map.Entry<InMapperCombinerData.GroupKey, Object[]> entry : groups.entrySet() ) {
+      Object[] groupValues = entry.getKey().getValues();
+      Object[] aggregates = entry.getValue();
+      Object[] outputRow = RowDataUtil.allocateRowData( outputRowMeta.size() );
+      System.arraycopy( groupValues, 0, outputRow, 0, groupValues.length );
+      System.arraycopy( aggregates, 0, outputRow, groupValues.length, aggregates.length );
+      putRow( outputRowMeta, outputRow );
+    }
+    groups.clear();
+    data.incrementFlushes();
+  }
+}
@@ -0,0 +1,141 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.big.data.kettle.plugins.mapreduce.step.combine;
+
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.trans.step.BaseStepData;
+import org.pentaho.di.trans.step.StepDataInterface;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class InMapperCombinerData extends BaseStepData implements StepDataInterface {
+  private RowMetaInterface outputRowMeta;
+  private RowMetaInterface groupRowMeta;
+  private int[] groupIndexes;
+  private int[] subjectIndexes;
+  private int[] aggregateTypes;
+  private ValueMetaInterface[] aggregateMetas;
+  private final Map<GroupKey, Object[]> groups = new HashMap<>();
+  private long flushes;
+
+  public InMapperCombinerData() {
+    super();
+  }
+
+  public RowMetaInterface getOutputRowMeta() {
+    return outputRowMeta;
+  }
+
+  public void setOutputRowMeta( RowMetaInterface outputRowMeta ) {
+    this.outputRowMeta = outputRowMeta;
+  }
+
+  public RowMetaInterface getGroupRowMeta() {
+    return groupRowMeta;
+  }
+
+  public void setGroupRowMeta( RowMetaInterface groupRowMeta ) {
+    this.groupRowMeta = groupRowMeta;
+  }
+
+  public int[] getGroupIndexes() {
+    return groupIndexes;
+  }
+
+  public void setGroupIndexes( int[] groupIndexes ) {
+    this.groupIndexes = groupIndexes;
+  }
+
+  public int[] getSubjectIndexes() {
+    return subjectIndexes;
+  }
+
+  public void setSubjectIndexes( int[] subjectIndexes ) {
+    this.subjectIndexes = subjectIndexes;
+  }
+
+  public int[] getAggregateTypes() {
+    return aggregateTypes;
+  }
+
+  public void setAggregateTypes( int[] aggregateTypes ) {
+    this.aggregateTypes = aggregateTypes;
+  }
+
+  public ValueMetaInterface[] getAggregateMetas() {
+    return aggregateMetas;
+  }
+
+  public void setAggregateMetas( ValueMetaInterface[] aggregateMetas ) {
+    this.aggregateMetas = aggregateMetas;
+  }
+
+  public Map<GroupKey, Object[]> getGroups() {
+    return groups;
+  }
+
+  public long getFlushes() {
+    return flushes;
+  }
+
+  public void incrementFlushes() {
+    flushes++;
+  }
+
+  /**
+   * The values of the group fields of a row, in normal storage, hashed and compared through the group row metadata.
+   */
+  public static class GroupKey {
+    private final RowMetaInterface groupRowMeta;
+    private final Object[] values;
+    private final int hash;
+
+    public GroupKey( RowMetaInterface groupRowMeta, Object[] values ) throws KettleValueException {
+      this.groupRowMeta = groupRowMeta;
+      this.values = values;
+      this.hash = groupRowMeta.hashCode( values );
+    }
+
+    public Object[] getValues() {
+      return values;
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals( Object obj ) {
+      if ( this == obj ) {
+        return true;
+      }
+      if ( !( obj instanceof GroupKey ) ) {
+        return false;
+      }
+      GroupKey other = (GroupKey) obj;
+      if ( hash != other.hash ) {
+        return false;
+      }
+      try {
+        return groupRowMeta.compare( values, other.values ) == 0;
+      } catch ( KettleValueException e ) {
+        return false;
+      }
+    }
+  }
+}
@@ -0,0 +1,367 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.big.data.kettle.plugins.mapreduce.step.combine;
+
+import org.pentaho.big.data.kettle.plugins.mapreduce.DialogClassUtil;
+import org.pentaho.di.core.CheckResult;
+import org.pentaho.di.core.CheckResultInterface;
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.annotations.Step;
+import org.pentaho.di.core.bowl.Bowl;
+import org.pentaho.di.core.database.DatabaseMeta;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.exception.KettleStepException;
+import org.pentaho.di.core.exception.KettleXMLException;
+import org.pentaho.di.core.injection.Injection;
+import org.pentaho.di.core.injection.InjectionSupported;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.variables.VariableSpace;
+import org.pentaho.di.core.xml.XMLHandler;
+import org.pentaho.di.i18n.BaseMessages;
+import org.pentaho.di.repository.ObjectId;
+import org.pentaho.di.repository.Repository;
+import org.pentaho.di.trans.Trans;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.step.BaseStepMeta;
+import org.pentaho.di.trans.step.StepDataInterface;
+import org.pentaho.di.trans.step.StepInterface;
+import org.pentaho.di.trans.step.StepMeta;
+import org.pentaho.di.trans.step.StepMetaInterface;
+import org.pentaho.metastore.api.IMetaStore;
+import org.w3c.dom.Node;
+
+import java.util.List;
+
+/**
+ * Metadata for the in-mapper combiner step. It groups the rows of a mapper by the group fields and keeps partial
+ * aggregates in memory, so that only one row per group and flush reaches the MapReduce Output step instead of one row
+ * per input row. Partial aggregates are emitted when the number of groups or the free memory hits its limit, and at
+ * the end of the input, so the reducer still has to aggregate them (a COUNT is summed by the reducer).
+ */
+@Step( id = "InMapperCombinerPlugin", image = "IMC.svg", name = "InMapperCombinerPlugin.Name",
+    description = "InMapperCombinerPlugin.Description",
+    categoryDescription = "i18n:org.pentaho.di.trans.step:BaseStep.Category.BigData",
+    i18nPackageName = "org.pentaho.big.data.kettle.plugins.mapreduce.step.combine" )
+@InjectionSupported( localizationPrefix = "InMapperCombinerPlugin.Injection.", groups = { "GROUPS", "AGGREGATES" } )
+public class InMapperCombinerMeta extends BaseStepMeta implements StepMetaInterface {
+  public static Class<?> PKG = InMapperCombiner.class; // for i18n purposes, needed by Translator2!! $NON-NLS-1$
+  public static final String DIALOG_NAME = DialogClassUtil.getDialogClassName( PKG );
+
+  public static final String TYPE_SUM = "SUM";
+  public static final String TYPE_COUNT = "COUNT";
+  public static final String TYPE_MIN = "MIN";
+  public static final String TYPE_MAX = "MAX";
+
+  public static final int DEFAULT_MAX_GROUPS = 100000;
+  public static final int DEFAULT_MIN_FREE_MEMORY_PERCENT = 10;
+
+  public static final String ERROR_INVALID_GROUP_FIELD = "InMapperCombiner.Error.InvalidGroupField";
+  public static final String ERROR_INVALID_SUBJECT_FIELD = "InMapperCombiner.Error.InvalidSubjectField";
+  public static final String ERROR_INVALID_AGGREGATE_TYPE = "InMapperCombiner.Error.InvalidAggregateType";
+  public static final String CHECK_RESULT_NO_DATA_STREAM = "InMapperCombinerMeta.CheckResult.NoDataStream";
+  public static final String CHECK_RESULT_NO_AGGREGATES = "InMapperCombinerMeta.CheckResult.NoAggregates";
+  public static final String CHECK_RESULT_OK = "InMapperCombinerMeta.CheckResult.Ok";
+
+  private static final String GROUPS = "groups";
+  private static final String AGGREGATES = "aggregates";
+  private static final String FIELD = "field";
+  private static final String NAME = "name";
+  private static final String SUBJECT = "subject";
+  private static final String TYPE = "type";
+  private static final String MAX_GROUPS = "max_groups";
+  private static final String MIN_FREE_MEMORY_PERCENT = "min_free_memory_percent";
+
+  @Injection( name = "GROUP_FIELD", group = "GROUPS" )
+  private String[] groupFields = new String[ 0 ];
+
+  @Injection( name = "AGGREGATE_FIELD", group = "AGGREGATES" )
+  private String[] aggregateFields = new String[ 0 ];
+
+  @Injection( name = "SUBJECT_FIELD", group = "AGGREGATES" )
+  private String[] subjectFields = new String[ 0 ];
+
+  @Injection( name = "AGGREGATE_TYPE", group = "AGGREGATES" )
+  private String[] aggregateTypes = new String[ 0 ];
+
+  @Injection( name = "MAX_GROUPS" )
+  private int maxGroups = DEFAULT_MAX_GROUPS;
+
+  @Injection( name = "MIN_FREE_MEMORY_PERCENT" )
+  private int minFreeMemoryPercent = DEFAULT_MIN_FREE_MEMORY_PERCENT;
+
+  public InMapperCombinerMeta() {
+    super();
+  }
+
+  @Override public void setDefault() {
+    groupFields = new String[ 0 ];
+    allocateAggregates( 0 );
+    maxGroups = DEFAULT_MAX_GROUPS;
+    minFreeMemoryPercent = DEFAULT_MIN_FREE_MEMORY_PERCENT;
+  }
+
+  public void allocateAggregates( int count ) {
+    aggregateFields = new String[ count ];
+    subjectFields = new String[ count ];
+    aggregateTypes = new String[ count ];
+  }
+
+  @Override public Object clone() {
+    InMapperCombinerMeta retval = (InMapperCombinerMeta) super.clone();
+    retval.groupFields = groupFields.clone();
+    retval.aggregateFields = aggregateFields.clone();
+    retval.subjectFields = subjectFields.clone();
+    retval.aggregateTypes = aggregateTypes.clone();
+    return retval;
+  }
+
+  @Override public void loadXML( Node stepnode, List<DatabaseMeta> databases, IMetaStore metaStore )
+    throws KettleXMLException {
+    Node groups = XMLHandler.getSubNode( stepnode, GROUPS );
+    int groupCount = XMLHandler.countNodes( groups, FIELD );
+    groupFields = new String[ groupCount ];
+    for ( int i = 0; i < groupCount; i++ ) {
+      groupFields[ i ] = XMLHandler.getTagValue( XMLHandler.getSubNodeByNr( groups, FIELD, i ), NAME );
+    }
+
+    Node aggregates = XMLHandler.getSubNode( stepnode, AGGREGATES );
+    int aggregateCount = XMLHandler.countNodes( aggregates, FIELD );
+    allocateAggregates( aggregateCount );
+    for ( int i = 0; i < aggregateCount; i++ ) {
+      Node field = XMLHandler.getSubNodeByNr( aggregates, FIELD, i );
+      aggregateFields[ i ] = XMLHandler.getTagValue( field, NAME );
+      subjectFields[ i ] = XMLHandler.getTagValue( field, SUBJECT );
+      aggregateTypes[ i ] = XMLHandler.getTagValue( field, TYPE );
+    }
+
+    maxGroups = Const.toInt( XMLHandler.getTagValue( stepnode, MAX_GROUPS ), DEFAULT_MAX_GROUPS );
+    minFreeMemoryPercent =
+      Const.toInt( XMLHandler.getTagValue( stepnode, MIN_FREE_MEMORY_PERCENT ), DEFAULT_MIN_FREE_MEMORY_PERCENT );
+  }
+
+  @Override public String getXML() {
+    StringBuilder retval = new StringBuilder();
+
+    retval.append( "    <" ).append( GROUPS ).append( ">" ).append( Const.CR );
+    for ( String groupField : groupFields ) {
+      retval.append( "      <" ).append( FIELD ).append( ">" ).append( Const.CR );
+      retval.append( "        " ).append( XMLHandler.addTagValue( NAME, groupField ) );
+      retval.append( "      </" ).append( FIELD ).append( ">" ).append( Const.CR );
+    }
+    retval.append( "    </" ).append( GROUPS ).append( ">" ).append( Const.CR );
+
+    retval.append( "    <" ).append( AGGREGATES ).append( ">" ).append( Const.CR );
+    for ( int i = 0; i < aggregateFields.length; i++ ) {
+      retval.append( "      <" ).append( FIELD ).append( ">" ).append( Const.CR );
+      retval.append( "        " ).append( XMLHandler.addTagValue( NAME, aggregateFields[ i ] ) );
+      retval.append( "        " ).append( XMLHandler.addTagValue( SUBJECT, subjectFields[ i ] ) );
+      retval.append( "        " ).append( XMLHandler.addTagValue( TYPE, aggregateTypes[ i ] ) );
+      retval.append( "      </" ).append( FIELD ).append( ">" ).append( Const.CR );
+    }
+    retval.append( "    </" ).append( AGGREGATES ).append( ">" ).append( Const.CR );
+
+    retval.append( "    " ).append( XMLHandler.addTagValue( MAX_GROUPS, maxGroups ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( MIN_FREE_MEMORY_PERCENT, minFreeMemoryPercent ) );
+
+    return retval.toString();
+  }
+
+  @Override public void readRep( Repository rep, IMetaStore metaStore, ObjectId id_step, List<DatabaseMeta> databases )
+    throws KettleException {
+    int groupCount = rep.countNrStepAttributes( id_step, GROUPS + "_" + NAME );
+    groupFields = new String[ groupCount ];
+    for ( int i = 0; i < groupCount; i++ ) {
+      groupFields[ i ] = rep.getStepAttributeString( id_step, i, GROUPS + "_" + NAME );
+    }
+
+    int aggregateCount = rep.countNrStepAttributes( id_step, AGGREGATES + "_" + NAME );
+    allocateAggregates( aggregateCount );
+    for ( int i = 0; i < aggregateCount; i++ ) {
+      aggregateFields[ i ] = rep.getStepAttributeString( id_step, i, AGGREGATES + "_" + NAME );
+      subjectFields[ i ] = rep.getStepAttributeString( id_step, i, AGGREGATES + "_" + SUBJECT );
+      aggregateTypes[ i ] = rep.getStepAttributeString( id_step, i, AGGREGATES + "_" + TYPE );
+    }
+
+    maxGroups = readRepInt( rep, id_step, MAX_GROUPS, DEFAULT_MAX_GROUPS );
+    minFreeMemoryPercent = readRepInt( rep, id_step, MIN_FREE_MEMORY_PERCENT, DEFAULT_MIN_FREE_MEMORY_PERCENT );
+  }
+
+  /**
+   * Reads an integer attribute, falling back to the same default as {@link #loadXML} when the step was saved without
+   * it, rather than to the 0 the repository returns for a missing attribute.
+   */
+  private static int readRepInt( Repository rep, ObjectId id_step, String code, int defaultValue )
+    throws KettleException {
+    if ( rep.countNrStepAttributes( id_step, code ) == 0 ) {
+      return defaultValue;
+    }
+    return (int) rep.getStepAttributeInteger( id_step, code );
+  }
+
+  @Override public void saveRep( Repository rep, IMetaStore metaStore, ObjectId id_transformation, ObjectId id_step )
+    throws KettleException {
+    for ( int i = 0; i < groupFields.length; i++ ) {
+      rep.saveStepAttribute( id_transformation, id_step, i, GROUPS + "_" + NAME, groupFields[ i ] );
+    }
+    for ( int i = 0; i < aggregateFields.length; i++ ) {
+      rep.saveStepAttribute( id_transformation, id_step, i, AGGREGATES + "_" + NAME, aggregateFields[ i ] );
+      rep.saveStepAttribute( id_transformation, id_step, i, AGGREGATES + "_" + SUBJECT, subjectFields[ i ] );
+      rep.saveStepAttribute( id_transformation, id_step, i, AGGREGATES + "_" + TYPE, aggregateTypes[ i ] );
+    }
+    rep.saveStepAttribute( id_transformation, id_step, MAX_GROUPS, maxGroups );
+    rep.saveStepAttribute( id_transformation, id_step, MIN_FREE_MEMORY_PERCENT, minFreeMemoryPercent );
+  }
+
+  @Override public void getFields( Bowl bowl, RowMetaInterface rowMeta, String origin, RowMetaInterface[] info,
+                                   StepMeta nextStep, VariableSpace space ) throws KettleStepException {
+    ValueMetaInterface[] groupMetas = new ValueMetaInterface[ groupFields.length ];
+    for ( int i = 0; i < groupFields.length; i++ ) {
+      ValueMetaInterface groupMeta = rowMeta.searchValueMeta( groupFields[ i ] );
+      if ( groupMeta == null ) {
+        throw new KettleStepException( BaseMessages.getString( PKG, ERROR_INVALID_GROUP_FIELD, groupFields[ i ] ) );
+      }
+      // Group values are kept and emitted in normal storage
+      groupMetas[ i ] = groupMeta.clone();
+      groupMetas[ i ].setStorageType( ValueMetaInterface.STORAGE_TYPE_NORMAL );
+      groupMetas[ i ].setStorageMetadata( null );
+    }
+
+    ValueMetaInterface[] aggregateMetas = new ValueMetaInterface[ aggregateFields.length ];
+    for ( int i = 0; i < aggregateFields.length; i++ ) {
+      aggregateMetas[ i ] = getAggregateMeta( rowMeta, i );
+      aggregateMetas[ i ].setOrigin( origin );
+    }
+
+    // The output consists of the group fields followed by the partial aggregates
+    //
+    rowMeta.clear();
+    for ( ValueMetaInterface groupMeta : groupMetas ) {
+      rowMeta.addValueMeta( groupMeta );
+    }
+    for ( ValueMetaInterface aggregateMeta : aggregateMetas ) {
+      rowMeta.addValueMeta( aggregateMeta );
+    }
+  }
+
+  private ValueMetaInterface getAggregateMeta( RowMetaInterface rowMeta, int index ) throws KettleStepException {
+    String type = aggregateTypes[ index ];
+    if ( TYPE_COUNT.equalsIgnoreCase( type ) ) {
+      return new ValueMetaInteger( aggregateFields[ index ] );
+    }
+    if ( !TYPE_SUM.equalsIgnoreCase( type ) && !TYPE_MIN.equalsIgnoreCase( type ) && !TYPE_MAX.equalsIgnoreCase(
+      type ) ) {
+      throw new KettleStepException( BaseMessages.getString( PKG, ERROR_INVALID_AGGREGATE_TYPE, type,
+        aggregateFields[ index ] ) );
+    }
+    ValueMetaInterface subjectMeta = rowMeta.searchValueMeta( subjectFields[ index ] );
+    if ( subjectMeta == null ) {
+      throw new KettleStepException( BaseMessages.getString( PKG, ERROR_INVALID_SUBJECT_FIELD,
+        subjectFields[ index ] ) );
+    }
+    if ( TYPE_SUM.equalsIgnoreCase( type ) && !subjectMeta.isNumeric() ) {
+      throw new KettleStepException( BaseMessages.getString( PKG, ERROR_INVALID_SUBJECT_FIELD,
+        subjectFields[ index ] ) );
+    }
+    ValueMetaInterface aggregateMeta = subjectMeta.clone();
+    aggregateMeta.setName( aggregateFields[ index ] );
+    aggregateMeta.setStorageType( ValueMetaInterface.STORAGE_TYPE_NORMAL );
+    aggregateMeta.setStorageMetadata( null );
+    return aggregateMeta;
+  }
+
+  @Override
+  public void check( List<CheckResultInterface> remarks, TransMeta transMeta, StepMeta stepinfo, RowMetaInterface prev,
+                     String[] input, String[] output, RowMetaInterface info ) {
+    if ( prev == null || prev.size() == 0 ) {
+      remarks.add( new CheckResult( CheckResultInterface.TYPE_RESULT_ERROR,
+        BaseMessages.getString( PKG, CHECK_RESULT_NO_DATA_STREAM ), stepinfo ) );
+      return;
+    }
+    if ( aggregateFields.length == 0 ) {
+      remarks.add( new CheckResult( CheckResultInterface.TYPE_RESULT_WARNING,
+        BaseMessages.getString( PKG, CHECK_RESULT_NO_AGGREGATES ), stepinfo ) );
+    }
+    try {
+      getFields( transMeta == null ? null : transMeta.getBowl(), prev.clone(), stepinfo.getName(), null, null,
+        transMeta );
+      remarks.add( new CheckResult( CheckResultInterface.TYPE_RESULT_OK,
+        BaseMessages.getString( PKG, CHECK_RESULT_OK ), stepinfo ) );
+    } catch ( KettleStepException e ) {
+      remarks.add( new CheckResult( CheckResultInterface.TYPE_RESULT_ERROR, e.getMessage().trim(), stepinfo ) );
+    }
+  }
+
+  @Override public StepInterface getStep( StepMeta stepMeta, StepDataInterface stepDataInterface, int cnr,
+                                          TransMeta tr, Trans trans ) {
+    return new InMapperCombiner( stepMeta, stepDataInterface, cnr, tr, trans );
+  }
+
+  @Override public StepDataInterface getStepData() {
+    return new InMapperCombinerData();
+  }
+
+  public String[] getGroupFields() {
+    return groupFields;
+  }
+
+  public void setGroupFields( String[] groupFields ) {
+    this.groupFields = groupFields;
+  }
+
+  public String[] getAggregateFields() {
+    return aggregateFields;
+  }
+
+  public void setAggregateFields( String[] aggregateFields ) {
+    this.aggregateFields = aggregateFields;
+  }
+
+  public String[] getSubjectFields() {
+    return subjectFields;
+  }
+
+  public void setSubjectFields( String[] subjectFields ) {
+    this.subjectFields = subjectFields;
+  }
+
+  public String[] getAggregateTypes() {
+    return aggregateTypes;
+  }
+
+  public void setAggregateTypes( String[] aggregateTypes ) {
+    this.aggregateTypes = aggregateTypes;
+  }
+
+  public int getMaxGroups() {
+    return maxGroups;
+  }
+
+  public void setMaxGroups( int maxGroups ) {
+    this.maxGroups = maxGroups;
+  }
+
+  public int getMinFreeMemoryPercent() {
+    return minFreeMemoryPercent;
+  }
+
+  public void setMinFreeMemoryPercent( int minFreeMemoryPercent ) {
+    this.minFreeMemoryPercent = minFreeMemoryPercent;
+  }
+
+  @Override public String getDialogClassName() {
+    return DIALOG_NAME;
+  }
+}
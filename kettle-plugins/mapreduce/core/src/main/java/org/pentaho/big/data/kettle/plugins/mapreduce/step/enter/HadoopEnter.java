@@ -0,0 +1,95 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.big.data.kettle.plugins.mapreduce.step.enter;
+
+import org.pentaho.big.data.kettle.plugins.mapreduce.step.exit.BinaryRowCodec;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowDataUtil;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.trans.Trans;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.step.StepDataInterface;
+import org.pentaho.di.trans.step.StepMeta;
+import org.pentaho.di.trans.step.StepMetaInterface;
+import org.pentaho.di.trans.steps.injector.Injector;
+
+/**
+ * Passes the rows injected by the mapper or reducer on like the regular Injector, unpacking composite keys and values
+ * written by a MapReduce Output step into separate fields appended to the row.
+ */
+public class HadoopEnter extends Injector {
+  private RowMetaInterface outputRowMeta;
+  private int keyIndex;
+  private int valueIndex;
+  private ValueMetaInterface[] keyMetas;
+  private ValueMetaInterface[] valueMetas;
+
+  public HadoopEnter( StepMeta stepMeta, StepDataInterface stepDataInterface, int copyNr, TransMeta transMeta,
+                      Trans trans ) {
+    super( stepMeta, stepDataInterface, copyNr, transMeta, trans );
+  }
+
+  @Override
+  public boolean processRow( StepMetaInterface smi, StepDataInterface sdi ) throws KettleException {
+    HadoopEnterMeta meta = (HadoopEnterMeta) smi;
+    if ( !meta.hasCompositeFields() ) {
+      return super.processRow( smi, sdi );
+    }
+
+    Object[] r = getRow();
+    if ( r == null ) {
+      setOutputDone();
+      return false;
+    }
+
+    RowMetaInterface inputRowMeta = getInputRowMeta();
+    if ( first ) {
+      first = false;
+      keyIndex = inputRowMeta.indexOfValue( meta.getFieldname()[ 0 ] );
+      valueIndex = inputRowMeta.indexOfValue( meta.getFieldname()[ 1 ] );
+      keyMetas = meta.getCompositeKeyMetas();
+      valueMetas = meta.getCompositeValueMetas();
+      outputRowMeta = inputRowMeta.clone();
+      for ( ValueMetaInterface valueMeta : keyMetas ) {
+        valueMeta.setOrigin( getStepname() );
+        outputRowMeta.addValueMeta( valueMeta );
+      }
+      for ( ValueMetaInterface valueMeta : valueMetas ) {
+        valueMeta.setOrigin( getStepname() );
+        outputRowMeta.addValueMeta( valueMeta );
+      }
+    }
+
+    int index = inputRowMeta.size();
+    Object[] outputRow = RowDataUtil.resizeArray( r, outputRowMeta.size() );
+    if ( keyMetas.length > 0 ) {
+      index = unpack( inputRowMeta, r, keyIndex, keyMetas, outputRow, index );
+    }
+    if ( valueMetas.length > 0 ) {
+      unpack( inputRowMeta, r, valueIndex, valueMetas, outputRow, index );
+    }
+
+    putRow( outputRowMeta, outputRow );
+    return true;
+  }
+
+  private static int unpack( RowMetaInterface inputRowMeta, Object[] r, int packedIndex, ValueMetaInterface[] metas,
+                             Object[] outputRow, int index ) throws KettleException {
+    byte[] packed = inputRowMeta.getValueMeta( packedIndex ).getBinary( r[ packedIndex ] );
+    Object[] values = BinaryRowCodec.decode( packed, metas );
+    System.arraycopy( values, 0, outputRow, index, values.length );
+    return index + values.length;
+  }
+}
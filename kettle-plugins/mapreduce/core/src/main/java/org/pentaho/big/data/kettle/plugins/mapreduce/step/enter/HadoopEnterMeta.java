@@ -14,10 +14,33 @@
 package org.pentaho.big.data.kettle.plugins.mapreduce.step.enter;
 
 import org.pentaho.big.data.kettle.plugins.mapreduce.DialogClassUtil;
+import org.pentaho.di.core.Const;
 import org.pentaho.di.core.annotations.Step;
+import org.pentaho.di.core.bowl.Bowl;
+import org.pentaho.di.core.database.DatabaseMeta;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.exception.KettlePluginException;
+import org.pentaho.di.core.exception.KettleStepException;
+import org.pentaho.di.core.exception.KettleXMLException;
 import org.pentaho.di.core.injection.Injection;
 import org.pentaho.di.core.injection.InjectionSupported;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaFactory;
+import org.pentaho.di.core.variables.VariableSpace;
+import org.pentaho.di.core.xml.XMLHandler;
+import org.pentaho.di.repository.ObjectId;
+import org.pentaho.di.repository.Repository;
+import org.pentaho.di.trans.Trans;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.step.StepDataInterface;
+import org.pentaho.di.trans.step.StepInterface;
+import org.pentaho.di.trans.step.StepMeta;
 import org.pentaho.di.trans.steps.injector.InjectorMeta;
+import org.pentaho.metastore.api.IMetaStore;
+import org.w3c.dom.Node;
+
+import java.util.List;
 
 @Step( id = "HadoopEnterPlugin", image = "MRI.svg", name = "HadoopEnterPlugin.Name",
     description = "HadoopEnterPlugin.Description",
@@ -33,6 +56,28 @@ public class HadoopEnterMeta extends InjectorMeta {
   public static final String KEY_FIELDNAME = "key";
   public static final String VALUE_FIELDNAME = "value";
 
+  public static final String COMPOSITE_KEY_FIELDS = "composite_key_fields";
+  public static final String COMPOSITE_VALUE_FIELDS = "composite_value_fields";
+  private static final String FIELD = "field";
+  private static final String FIELD_NAME = "name";
+  private static final String FIELD_TYPE = "type";
+  private static final String LAYOUT_SEPARATOR = ",";
+  private static final String LAYOUT_TYPE_SEPARATOR = ":";
+
+  /**
+   * Fields packed into a binary key by a MapReduce Output step, in the order they were packed. The step appends them
+   * to the row after the key and value.
+   */
+  private String[] compositeKeyFieldnames = new String[ 0 ];
+  private int[] compositeKeyTypes = new int[ 0 ];
+
+  /**
+   * Fields packed into a binary value by a MapReduce Output step, in the order they were packed. The step appends
+   * them to the row after the composite key fields.
+   */
+  private String[] compositeValueFieldnames = new String[ 0 ];
+  private int[] compositeValueTypes = new int[ 0 ];
+
   public HadoopEnterMeta() throws Throwable {
     setDefault();
   }
@@ -42,6 +87,246 @@ public class HadoopEnterMeta extends InjectorMeta {
 
     getFieldname()[ 0 ] = HadoopEnterMeta.KEY_FIELDNAME;
     getFieldname()[ 1 ] = HadoopEnterMeta.VALUE_FIELDNAME;
+
+    setCompositeKeyFields( new String[ 0 ], new int[ 0 ] );
+    setCompositeValueFields( new String[ 0 ], new int[ 0 ] );
+  }
+
+  @Override public Object clone() {
+    HadoopEnterMeta retval = (HadoopEnterMeta) super.clone();
+    retval.setCompositeKeyFields( compositeKeyFieldnames.clone(), compositeKeyTypes.clone() );
+    retval.setCompositeValueFields( compositeValueFieldnames.clone(), compositeValueTypes.clone() );
+    return retval;
+  }
+
+  @Override public void loadXML( Node stepnode, List<DatabaseMeta> databases, IMetaStore metaStore )
+    throws KettleXMLException {
+    super.loadXML( stepnode, databases, metaStore );
+    CompositeFields keyFields = readFieldsXml( stepnode, COMPOSITE_KEY_FIELDS );
+    setCompositeKeyFields( keyFields.names, keyFields.types );
+    CompositeFields valueFields = readFieldsXml( stepnode, COMPOSITE_VALUE_FIELDS );
+    setCompositeValueFields( valueFields.names, valueFields.types );
+  }
+
+  private static CompositeFields readFieldsXml( Node stepnode, String tag ) {
+    Node fields = XMLHandler.getSubNode( stepnode, tag );
+    CompositeFields result = new CompositeFields( XMLHandler.countNodes( fields, FIELD ) );
+    for ( int i = 0; i < result.names.length; i++ ) {
+      Node field = XMLHandler.getSubNodeByNr( fields, FIELD, i );
+      result.names[ i ] = XMLHandler.getTagValue( field, FIELD_NAME );
+      result.types[ i ] = ValueMetaFactory.getIdForValueMeta( XMLHandler.getTagValue( field, FIELD_TYPE ) );
+    }
+    return result;
+  }
+
+  @Override public String getXML() {
+    StringBuilder retval = new StringBuilder( super.getXML() );
+    appendFieldsXml( retval, COMPOSITE_KEY_FIELDS, compositeKeyFieldnames, compositeKeyTypes );
+    appendFieldsXml( retval, COMPOSITE_VALUE_FIELDS, compositeValueFieldnames, compositeValueTypes );
+    return retval.toString();
+  }
+
+  private static void appendFieldsXml( StringBuilder retval, String tag, String[] names, int[] types ) {
+    if ( names.length == 0 ) {
+      // a step without composite fields is written as before
+      return;
+    }
+    retval.append( "    <" ).append( tag ).append( ">" ).append( Const.CR );
+    for ( int i = 0; i < names.length; i++ ) {
+      retval.append( "      <" ).append( FIELD ).append( ">" ).append( Const.CR );
+      retval.append( "        " ).append( XMLHandler.addTagValue( FIELD_NAME, names[ i ] ) );
+      retval.append( "        " )
+        .append( XMLHandler.addTagValue( FIELD_TYPE, ValueMetaFactory.getValueMetaName( types[ i ] ) ) );
+      retval.append( "      </" ).append( FIELD ).append( ">" ).append( Const.CR );
+    }
+    retval.append( "    </" ).append( tag ).append( ">" ).append( Const.CR );
+  }
+
+  @Override public void readRep( Repository rep, IMetaStore metaStore, ObjectId id_step, List<DatabaseMeta> databases )
+    throws KettleException {
+    super.readRep( rep, metaStore, id_step, databases );
+    CompositeFields keyFields = readFieldsRep( rep, id_step, COMPOSITE_KEY_FIELDS );
+    setCompositeKeyFields( keyFields.names, keyFields.types );
+    CompositeFields valueFields = readFieldsRep( rep, id_step, COMPOSITE_VALUE_FIELDS );
+    setCompositeValueFields( valueFields.names, valueFields.types );
+  }
+
+  private static CompositeFields readFieldsRep( Repository rep, ObjectId id_step, String tag )
+    throws KettleException {
+    CompositeFields result = new CompositeFields( rep.countNrStepAttributes( id_step, tag + "_" + FIELD_NAME ) );
+    for ( int i = 0; i < result.names.length; i++ ) {
+      result.names[ i ] = rep.getStepAttributeString( id_step, i, tag + "_" + FIELD_NAME );
+      result.types[ i ] =
+        ValueMetaFactory.getIdForValueMeta( rep.getStepAttributeString( id_step, i, tag + "_" + FIELD_TYPE ) );
+    }
+    return result;
+  }
+
+  @Override public void saveRep( Repository rep, IMetaStore metaStore, ObjectId id_transformation, ObjectId id_step )
+    throws KettleException {
+    super.saveRep( rep, metaStore, id_transformation, id_step );
+    saveFieldsRep( rep, id_transformation, id_step, COMPOSITE_KEY_FIELDS, compositeKeyFieldnames, compositeKeyTypes );
+    saveFieldsRep( rep, id_transformation, id_step, COMPOSITE_VALUE_FIELDS, compositeValueFieldnames,
+      compositeValueTypes );
+  }
+
+  private static void saveFieldsRep( Repository rep, ObjectId id_transformation, ObjectId id_step, String tag,
+                                     String[] names, int[] types ) throws KettleException {
+    for ( int i = 0; i < names.length; i++ ) {
+      rep.saveStepAttribute( id_transformation, id_step, i, tag + "_" + FIELD_NAME, names[ i ] );
+      rep.saveStepAttribute( id_transformation, id_step, i, tag + "_" + FIELD_TYPE,
+        ValueMetaFactory.getValueMetaName( types[ i ] ) );
+    }
+  }
+
+  @Override public void getFields( Bowl bowl, RowMetaInterface rowMeta, String origin, RowMetaInterface[] info,
+                                   StepMeta nextStep, VariableSpace space ) throws KettleStepException {
+    super.getFields( bowl, rowMeta, origin, info, nextStep, space );
+    try {
+      for ( ValueMetaInterface valueMeta : getCompositeKeyMetas() ) {
+        valueMeta.setOrigin( origin );
+        rowMeta.addValueMeta( valueMeta );
+      }
+      for ( ValueMetaInterface valueMeta : getCompositeValueMetas() ) {
+        valueMeta.setOrigin( origin );
+        rowMeta.addValueMeta( valueMeta );
+      }
+    } catch ( KettlePluginException e ) {
+      throw new KettleStepException( e );
+    }
+  }
+
+  @Override public StepInterface getStep( StepMeta stepMeta, StepDataInterface stepDataInterface, int cnr,
+                                          TransMeta tr, Trans trans ) {
+    return new HadoopEnter( stepMeta, stepDataInterface, cnr, tr, trans );
+  }
+
+  /**
+   * @return true if the key or the value is a packed composite that this step unpacks into separate fields
+   */
+  public boolean hasCompositeFields() {
+    return compositeKeyFieldnames.length > 0 || compositeValueFieldnames.length > 0;
+  }
+
+  public ValueMetaInterface[] getCompositeKeyMetas() throws KettlePluginException {
+    return createValueMetas( compositeKeyFieldnames, compositeKeyTypes );
+  }
+
+  public ValueMetaInterface[] getCompositeValueMetas() throws KettlePluginException {
+    return createValueMetas( compositeValueFieldnames, compositeValueTypes );
+  }
+
+  private static ValueMetaInterface[] createValueMetas( String[] names, int[] types ) throws KettlePluginException {
+    ValueMetaInterface[] result = new ValueMetaInterface[ names.length ];
+    for ( int i = 0; i < names.length; i++ ) {
+      result[ i ] = ValueMetaFactory.createValueMeta( names[ i ], types[ i ] );
+    }
+    return result;
+  }
+
+  public String[] getCompositeKeyFieldnames() {
+    return compositeKeyFieldnames;
+  }
+
+  public int[] getCompositeKeyTypes() {
+    return compositeKeyTypes;
+  }
+
+  public void setCompositeKeyFields( String[] fieldnames, int[] types ) {
+    compositeKeyFieldnames = fieldnames;
+    compositeKeyTypes = types;
+  }
+
+  public String[] getCompositeValueFieldnames() {
+    return compositeValueFieldnames;
+  }
+
+  public int[] getCompositeValueTypes() {
+    return compositeValueTypes;
+  }
+
+  public void setCompositeValueFields( String[] fieldnames, int[] types ) {
+    compositeValueFieldnames = fieldnames;
+    compositeValueTypes = types;
+  }
+
+  /**
+   * @return the composite key fields as <code>name:Type</code> pairs separated by commas, e.g.
+   * <code>customer:String, day:Date</code>
+   */
+  public String getCompositeKeyLayout() {
+    return formatLayout( compositeKeyFieldnames, compositeKeyTypes );
+  }
+
+  /**
+   * Sets the composite key fields from <code>name:Type</code> pairs separated by commas. A field without a type is a
+   * String.
+   */
+  @Injection( name = "COMPOSITE_KEY_FIELDS" )
+  public void setCompositeKeyLayout( String layout ) {
+    CompositeFields fields = parseLayout( layout );
+    setCompositeKeyFields( fields.names, fields.types );
+  }
+
+  /**
+   * @return the composite value fields, see {@link #getCompositeKeyLayout()}
+   */
+  public String getCompositeValueLayout() {
+    return formatLayout( compositeValueFieldnames, compositeValueTypes );
+  }
+
+  /**
+   * Sets the composite value fields, see {@link #setCompositeKeyLayout(String)}
+   */
+  @Injection( name = "COMPOSITE_VALUE_FIELDS" )
+  public void setCompositeValueLayout( String layout ) {
+    CompositeFields fields = parseLayout( layout );
+    setCompositeValueFields( fields.names, fields.types );
+  }
+
+  private static String formatLayout( String[] names, int[] types ) {
+    StringBuilder layout = new StringBuilder();
+    for ( int i = 0; i < names.length; i++ ) {
+      if ( i > 0 ) {
+        layout.append( LAYOUT_SEPARATOR ).append( ' ' );
+      }
+      layout.append( names[ i ] ).append( LAYOUT_TYPE_SEPARATOR )
+        .append( ValueMetaFactory.getValueMetaName( types[ i ] ) );
+    }
+    return layout.toString();
+  }
+
+  private static CompositeFields parseLayout( String layout ) {
+    if ( Const.isEmpty( layout ) || layout.trim().isEmpty() ) {
+      return new CompositeFields( 0 );
+    }
+    String[] fields = layout.split( LAYOUT_SEPARATOR );
+    CompositeFields result = new CompositeFields( fields.length );
+    for ( int i = 0; i < fields.length; i++ ) {
+      String field = fields[ i ].trim();
+      int separator = field.lastIndexOf( LAYOUT_TYPE_SEPARATOR );
+      if ( separator < 0 ) {
+        result.names[ i ] = field;
+        result.types[ i ] = ValueMetaInterface.TYPE_STRING;
+      } else {
+        result.names[ i ] = field.substring( 0, separator ).trim();
+        result.types[ i ] = ValueMetaFactory.getIdForValueMeta( field.substring( separator + 1 ).trim() );
+      }
+    }
+    return result;
+  }
+
+  /**
+   * The names and types of the fields packed into a composite key or value.
+   */
+  private static final class CompositeFields {
+    private final String[] names;
+    private final int[] types;
+
+    private CompositeFields( int count ) {
+      names = new String[ count ];
+      types = new int[ count ];
+    }
   }
 
   @Override public String getDialogClassName() {
@@ -0,0 +1,323 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.big.data.kettle.plugins.mapreduce.step.exit;
+
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.i18n.BaseMessages;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Date;
+
+/**
+ * Packs several Kettle values into a single byte array so that a MapReduce Output step can emit composite keys and
+ * values, and a MapReduce Input step can unpack them again.
+ * <p>
+ * The encoding preserves ordering: comparing two encoded rows byte by byte (unsigned), as
+ * {@code BytesWritable.Comparator} does during the shuffle, gives the same result as comparing the original values
+ * field by field. Every field starts with a header byte, 0 for null (so nulls sort first) or the Kettle type id,
+ * followed by:
+ * <ul>
+ * <li>Integer, Date: 8 bytes big endian with the sign bit flipped</li>
+ * <li>Timestamp: as Date, followed by the sub millisecond nanoseconds as 4 bytes</li>
+ * <li>Number: the IEEE 754 bits, all flipped for negative numbers and only the sign bit flipped otherwise</li>
+ * <li>Boolean: a single byte</li>
+ * <li>String (UTF-8) and Binary: the bytes with 0x00 escaped as 0x00 0xFF, terminated by 0x00 0x01</li>
+ * <li>BigNumber: a sign byte, then the decimal exponent and significant digits, inverted for negative numbers</li>
+ * </ul>
+ * Strings compare by UTF-8 bytes, which is code point order.
+ */
+public class BinaryRowCodec {
+  private static final Class<?> PKG = HadoopExit.class;
+
+  static final byte NULL = 0;
+  private static final byte ESCAPE = 0;
+  private static final byte ESCAPED_ZERO = (byte) 0xFF;
+  private static final byte TERMINATOR = 1;
+  private static final byte NEGATIVE = 0;
+  private static final byte ZERO = 1;
+  private static final byte POSITIVE = 2;
+
+  private byte[] buffer = new byte[ 64 ];
+  private int length;
+
+  /**
+   * @return true if values of the given Kettle type can be encoded
+   */
+  public static boolean isSupported( int type ) {
+    switch ( type ) {
+      case ValueMetaInterface.TYPE_STRING:
+      case ValueMetaInterface.TYPE_INTEGER:
+      case ValueMetaInterface.TYPE_NUMBER:
+      case ValueMetaInterface.TYPE_BIGNUMBER:
+      case ValueMetaInterface.TYPE_BOOLEAN:
+      case ValueMetaInterface.TYPE_DATE:
+      case ValueMetaInterface.TYPE_TIMESTAMP:
+      case ValueMetaInterface.TYPE_BINARY:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * Encodes the given fields of a row. Not thread safe, the internal buffer is reused between calls.
+   *
+   * @param rowMeta  the metadata of the row
+   * @param row      the row
+   * @param ordinals the indexes of the fields to encode, in order of significance
+   * @return the encoded fields
+   */
+  public byte[] encode( RowMetaInterface rowMeta, Object[] row, int[] ordinals ) throws KettleValueException {
+    length = 0;
+    for ( int ordinal : ordinals ) {
+      encodeValue( rowMeta.getValueMeta( ordinal ), row[ ordinal ] );
+    }
+    return Arrays.copyOf( buffer, length );
+  }
+
+  /**
+   * Decodes an encoded row.
+   *
+   * @param bytes      the encoded row, null decodes to all nulls
+   * @param valueMetas the fields the row was encoded from, in the order they were encoded
+   * @return the values, in their native storage type
+   */
+  public static Object[] decode( byte[] bytes, ValueMetaInterface[] valueMetas ) throws KettleValueException {
+    Object[] values = new Object[ valueMetas.length ];
+    if ( bytes == null ) {
+      return values;
+    }
+    Reader reader = new Reader( bytes );
+    for ( int i = 0; i < valueMetas.length; i++ ) {
+      values[ i ] = reader.readValue( valueMetas[ i ] );
+    }
+    if ( reader.pos != bytes.length ) {
+      throw new KettleValueException( BaseMessages.getString( PKG, "BinaryRowCodec.Error.TrailingBytes",
+        bytes.length - reader.pos ) );
+    }
+    return values;
+  }
+
+  private void encodeValue( ValueMetaInterface valueMeta, Object value ) throws KettleValueException {
+    int type = valueMeta.getType();
+    if ( !isSupported( type ) ) {
+      throw new KettleValueException( BaseMessages.getString( PKG, "BinaryRowCodec.Error.UnsupportedType",
+        valueMeta.getName(), valueMeta.getTypeDesc() ) );
+    }
+    if ( valueMeta.isNull( value ) ) {
+      write( NULL );
+      return;
+    }
+    write( (byte) type );
+    switch ( type ) {
+      case ValueMetaInterface.TYPE_STRING:
+        writeEscaped( valueMeta.getString( value ).getBytes( StandardCharsets.UTF_8 ) );
+        break;
+      case ValueMetaInterface.TYPE_BINARY:
+        writeEscaped( valueMeta.getBinary( value ) );
+        break;
+      case ValueMetaInterface.TYPE_INTEGER:
+        writeLong( valueMeta.getInteger( value ) ^ Long.MIN_VALUE );
+        break;
+      case ValueMetaInterface.TYPE_NUMBER:
+        long bits = Double.doubleToLongBits( valueMeta.getNumber( value ) );
+        writeLong( bits < 0 ? ~bits : bits ^ Long.MIN_VALUE );
+        break;
+      case ValueMetaInterface.TYPE_BOOLEAN:
+        write( (byte) ( valueMeta.getBoolean( value ) ? 1 : 0 ) );
+        break;
+      case ValueMetaInterface.TYPE_DATE:
+        writeLong( valueMeta.getDate( value ).getTime() ^ Long.MIN_VALUE );
+        break;
+      case ValueMetaInterface.TYPE_TIMESTAMP:
+        Date date = valueMeta.getDate( value );
+        writeLong( date.getTime() ^ Long.MIN_VALUE );
+        writeInt( date instanceof Timestamp ? ( (Timestamp) date ).getNanos() % 1000000 : 0 );
+        break;
+      case ValueMetaInterface.TYPE_BIGNUMBER:
+        writeBigNumber( valueMeta.getBigNumber( value ) );
+        break;
+      default:
+        break;
+    }
+  }
+
+  private void writeBigNumber( BigDecimal value ) {
+    int signum = value.signum();
+    if ( signum == 0 ) {
+      write( ZERO );
+      return;
+    }
+    write( signum < 0 ? NEGATIVE : POSITIVE );
+    int start = length;
+    BigDecimal abs = value.abs().stripTrailingZeros();
+    String digits = abs.unscaledValue().toString();
+    // value = 0.digits * 10^exponent, so a larger exponent is a larger magnitude
+    writeInt( ( digits.length() - abs.scale() ) ^ Integer.MIN_VALUE );
+    writeEscaped( digits.getBytes( StandardCharsets.US_ASCII ) );
+    if ( signum < 0 ) {
+      // The encoding is prefix free, so inverting it reverses the order
+      for ( int i = start; i < length; i++ ) {
+        buffer[ i ] = (byte) ~buffer[ i ];
+      }
+    }
+  }
+
+  private void writeEscaped( byte[] bytes ) {
+    ensureCapacity( bytes.length + 2 );
+    for ( byte b : bytes ) {
+      if ( b == ESCAPE ) {
+        write( ESCAPE );
+        write( ESCAPED_ZERO );
+      } else {
+        write( b );
+      }
+    }
+    write( ESCAPE );
+    write( TERMINATOR );
+  }
+
+  private void writeLong( long value ) {
+    ensureCapacity( 8 );
+    for ( int shift = 56; shift >= 0; shift -= 8 ) {
+      buffer[ length++ ] = (byte) ( value >>> shift );
+    }
+  }
+
+  private void writeInt( int value ) {
+    ensureCapacity( 4 );
+    for ( int shift = 24; shift >= 0; shift -= 8 ) {
+      buffer[ length++ ] = (byte) ( value >>> shift );
+    }
+  }
+
+  private void write( byte b ) {
+    ensureCapacity( 1 );
+    buffer[ length++ ] = b;
+  }
+
+  private void ensureCapacity( int extra ) {
+    if ( length + extra > buffer.length ) {
+      buffer = Arrays.copyOf( buffer, Math.max( buffer.length * 2, length + extra ) );
+    }
+  }
+
+  private static class Reader {
+    private final byte[] bytes;
+    private int pos;
+    private boolean inverted;
+
+    private Reader( byte[] bytes ) {
+      this.bytes = bytes;
+    }
+
+    private Object readValue( ValueMetaInterface valueMeta ) throws KettleValueException {
+      byte header = read();
+      if ( header == NULL ) {
+        return null;
+      }
+      if ( header != valueMeta.getType() ) {
+        throw new KettleValueException( BaseMessages.getString( PKG, "BinaryRowCodec.Error.TypeMismatch",
+          valueMeta.getName(), valueMeta.getTypeDesc(), header ) );
+      }
+      switch ( valueMeta.getType() ) {
+        case ValueMetaInterface.TYPE_STRING:
+          return new String( readEscaped(), StandardCharsets.UTF_8 );
+        case ValueMetaInterface.TYPE_BINARY:
+          return readEscaped();
+        case ValueMetaInterface.TYPE_INTEGER:
+          return readLong() ^ Long.MIN_VALUE;
+        case ValueMetaInterface.TYPE_NUMBER:
+          long bits = readLong();
+          return Double.longBitsToDouble( bits < 0 ? bits ^ Long.MIN_VALUE : ~bits );
+        case ValueMetaInterface.TYPE_BOOLEAN:
+          return read() != 0;
+        case ValueMetaInterface.TYPE_DATE:
+          return new Date( readLong() ^ Long.MIN_VALUE );
+        case ValueMetaInterface.TYPE_TIMESTAMP:
+          Timestamp timestamp = new Timestamp( readLong() ^ Long.MIN_VALUE );
+          timestamp.setNanos( timestamp.getNanos() + readInt() );
+          return timestamp;
+        case ValueMetaInterface.TYPE_BIGNUMBER:
+          return readBigNumber();
+        default:
+          throw new KettleValueException( BaseMessages.getString( PKG, "BinaryRowCodec.Error.UnsupportedType",
+            valueMeta.getName(), valueMeta.getTypeDesc() ) );
+      }
+    }
+
+    private BigDecimal readBigNumber() throws KettleValueException {
+      byte sign = read();
+      if ( sign == ZERO ) {
+        return BigDecimal.ZERO;
+      }
+      inverted = sign == NEGATIVE;
+      try {
+        int exponent = readInt() ^ Integer.MIN_VALUE;
+        String digits = new String( readEscaped(), StandardCharsets.US_ASCII );
+        BigDecimal abs = new BigDecimal( new BigInteger( digits ), digits.length() - exponent );
+        return inverted ? abs.negate() : abs;
+      } finally {
+        inverted = false;
+      }
+    }
+
+    private byte[] readEscaped() throws KettleValueException {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      while ( true ) {
+        byte b = read();
+        if ( b != ESCAPE ) {
+          out.write( b );
+          continue;
+        }
+        byte next = read();
+        if ( next == TERMINATOR ) {
+          return out.toByteArray();
+        }
+        out.write( 0 );
+      }
+    }
+
+    private long readLong() throws KettleValueException {
+      long result = 0;
+      for ( int i = 0; i < 8; i++ ) {
+        result = ( result << 8 ) | ( read() & 0xFF );
+      }
+      return result;
+    }
+
+    private int readInt() throws KettleValueException {
+      int result = 0;
+      for ( int i = 0; i < 4; i++ ) {
+        result = ( result << 8 ) | ( read() & 0xFF );
+      }
+      return result;
+    }
+
+    private byte read() throws KettleValueException {
+      if ( pos >= bytes.length ) {
+        throw new KettleValueException( BaseMessages.getString( PKG, "BinaryRowCodec.Error.Truncated" ) );
+      }
+      byte b = bytes[ pos++ ];
+      return inverted ? (byte) ~b : b;
+    }
+  }
+}
@@ -28,6 +28,7 @@ public class HadoopExit extends BaseStep implements StepInterface {
 
   private HadoopExitMeta meta;
   private HadoopExitData data;
+  private final BinaryRowCodec codec = new BinaryRowCodec();
 
   public HadoopExit( StepMeta stepMeta, StepDataInterface stepDataInterface, int copyNr, TransMeta transMeta,
       Trans trans ) {
@@ -55,8 +56,13 @@ public class HadoopExit extends BaseStep implements StepInterface {
     }
 
     Object[] outputRow = new Object[2];
-    outputRow[HadoopExitData.getOutKeyOrdinal()] = r[data.getInKeyOrdinal()];
-    outputRow[HadoopExitData.getOutValueOrdinal()] = r[data.getInValueOrdinal()];
+    // Composite keys and values are packed into a single sort preserving binary value
+    int[] inKeyOrdinals = data.getInKeyOrdinals();
+    int[] inValueOrdinals = data.getInValueOrdinals();
+    outputRow[HadoopExitData.getOutKeyOrdinal()] = inKeyOrdinals == null ? r[data.getInKeyOrdinal()]
+      : codec.encode( getInputRowMeta(), r, inKeyOrdinals );
+    outputRow[HadoopExitData.getOutValueOrdinal()] = inValueOrdinals == null ? r[data.getInValueOrdinal()]
+      : codec.encode( getInputRowMeta(), r, inValueOrdinals );
 
     putRow( data.getOutputRowMeta(), outputRow );
 
@@ -25,6 +25,8 @@ public class HadoopExitData extends BaseStepData implements StepDataInterface {
 
   private int inKeyOrdinal = -1;
   private int inValueOrdinal = -1;
+  private int[] inKeyOrdinals = null;
+  private int[] inValueOrdinals = null;
 
   public static final int outKeyOrdinal = 0;
   public static final int outValueOrdinal = 1;
@@ -39,11 +41,28 @@ public class HadoopExitData extends BaseStepData implements StepDataInterface {
       outputRowMeta = rowMeta.clone();
       stepMeta.getFields( bowl, outputRowMeta, stepMeta.getName(), null, null, space );
 
-      setInKeyOrdinal( rowMeta.indexOfValue( stepMeta.getOutKeyFieldname() ) );
-      setInValueOrdinal( rowMeta.indexOfValue( stepMeta.getOutValueFieldname() ) );
+      if ( HadoopExitMeta.isComposite( rowMeta, stepMeta.getOutKeyFieldname() ) ) {
+        setInKeyOrdinals( indexesOf( rowMeta, stepMeta.getOutKeyFieldname() ) );
+      } else {
+        setInKeyOrdinal( rowMeta.indexOfValue( stepMeta.getOutKeyFieldname() ) );
+      }
+      if ( HadoopExitMeta.isComposite( rowMeta, stepMeta.getOutValueFieldname() ) ) {
+        setInValueOrdinals( indexesOf( rowMeta, stepMeta.getOutValueFieldname() ) );
+      } else {
+        setInValueOrdinal( rowMeta.indexOfValue( stepMeta.getOutValueFieldname() ) );
+      }
     }
   }
 
+  private static int[] indexesOf( RowMetaInterface rowMeta, String fieldnames ) {
+    String[] names = HadoopExitMeta.resolveFieldnames( rowMeta, fieldnames );
+    int[] result = new int[ names.length ];
+    for ( int i = 0; i < names.length; i++ ) {
+      result[ i ] = rowMeta.indexOfValue( names[ i ] );
+    }
+    return result;
+  }
+
   public RowMetaInterface getOutputRowMeta() {
     return outputRowMeta;
   }
@@ -64,6 +83,22 @@ public class HadoopExitData extends BaseStepData implements StepDataInterface {
     return inValueOrdinal;
   }
 
+  public void setInKeyOrdinals( int[] inKeyOrdinals ) {
+    this.inKeyOrdinals = inKeyOrdinals;
+  }
+
+  public int[] getInKeyOrdinals() {
+    return inKeyOrdinals;
+  }
+
+  public void setInValueOrdinals( int[] inValueOrdinals ) {
+    this.inValueOrdinals = inValueOrdinals;
+  }
+
+  public int[] getInValueOrdinals() {
+    return inValueOrdinals;
+  }
+
   public static int getOutKeyOrdinal() {
     return outKeyOrdinal;
   }
@@ -26,6 +26,7 @@ import org.pentaho.di.core.injection.Injection;
 import org.pentaho.di.core.injection.InjectionSupported;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaBinary;
 import org.pentaho.di.core.variables.VariableSpace;
 import org.pentaho.di.core.xml.XMLHandler;
 import org.pentaho.di.i18n.BaseMessages;
@@ -69,6 +70,8 @@ public class HadoopExitMeta extends BaseStepMeta implements StepMetaInterface {
 
   public static String OUT_VALUE_FIELDNAME = "outvaluefieldname";
 
+  public static final String FIELDNAME_SEPARATOR = ",";
+
   @Injection( name = "KEY_FIELD" )
   private String outKeyFieldname;
 
@@ -118,25 +121,19 @@ public class HadoopExitMeta extends BaseStepMeta implements StepMetaInterface {
   @Override public void getFields( Bowl bowl, RowMetaInterface rowMeta, String origin, RowMetaInterface[] info,
       StepMeta nextStep, VariableSpace space ) throws KettleStepException {
 
-    ValueMetaInterface key = rowMeta.searchValueMeta( getOutKeyFieldname() );
-    ValueMetaInterface value = rowMeta.searchValueMeta( getOutValueFieldname() );
+    ValueMetaInterface keyMeta = getOutKeyMeta( rowMeta );
+    ValueMetaInterface valueMeta = getOutValueMeta( rowMeta );
 
-    if ( key == null ) {
+    if ( keyMeta == null ) {
       throw new KettleStepException( BaseMessages.getString( PKG, ERROR_INVALID_KEY_FIELD, getOutKeyFieldname() ) );
     }
-    if ( value == null ) {
+    if ( valueMeta == null ) {
       throw new KettleStepException( BaseMessages.getString( PKG, ERROR_INVALID_VALUE_FIELD, getOutValueFieldname() ) );
     }
 
     // The output consists of 2 fields: outKey and outValue
-    // The data types rely on the input data type so we look those up
+    // The data types rely on the input data type so we look those up, composite fields are packed into a binary
     //
-    ValueMetaInterface keyMeta = key.clone();
-    ValueMetaInterface valueMeta = value.clone();
-
-    keyMeta.setName( OUT_KEY );
-    valueMeta.setName( OUT_VALUE );
-
     rowMeta.clear();
 
     rowMeta.addValueMeta( keyMeta );
@@ -165,9 +162,10 @@ public class HadoopExitMeta extends BaseStepMeta implements StepMetaInterface {
               HADOOP_EXIT_META_CHECK_RESULT_NO_SPECIFIED_FIELDS, prev.size() + "" ), stepinfo ); //$NON-NLS-1$ //$NON-NLS-2$
         remarks.add( cr );
       } else {
+        List<String> keyFieldnames = Arrays.asList( resolveFieldnames( prev, stepMeta.getOutKeyFieldname() ) );
+        List<String> valueFieldnames = Arrays.asList( resolveFieldnames( prev, stepMeta.getOutValueFieldname() ) );
 
-        if ( fieldnames.contains( stepMeta.getOutKeyFieldname() )
-            && fieldnames.contains( stepMeta.getOutValueFieldname() ) ) {
+        if ( fieldnames.containsAll( keyFieldnames ) && fieldnames.containsAll( valueFieldnames ) ) {
           cr =
               new CheckResult( CheckResultInterface.TYPE_RESULT_OK, BaseMessages.getString( PKG,
                 HADOOP_EXIT_META_CHECK_RESULT_STEP_RECEVING_DATA, prev.size() + "" ), stepinfo ); //$NON-NLS-1$ //$NON-NLS-2$
@@ -191,6 +189,80 @@ public class HadoopExitMeta extends BaseStepMeta implements StepMetaInterface {
     return new HadoopExitData();
   }
 
+  /**
+   * Gets the metadata of the key this step emits for the given input. A key made of several fields is emitted as a
+   * single binary value, see {@link BinaryRowCodec}.
+   *
+   * @param inputRowMeta the fields coming into this step
+   * @return the key metadata or null if a key field is missing from the input
+   */
+  public ValueMetaInterface getOutKeyMeta( RowMetaInterface inputRowMeta ) {
+    return getOutMeta( inputRowMeta, getOutKeyFieldname(), OUT_KEY );
+  }
+
+  /**
+   * Gets the metadata of the value this step emits for the given input. A value made of several fields is emitted as
+   * a single binary value, see {@link BinaryRowCodec}.
+   *
+   * @param inputRowMeta the fields coming into this step
+   * @return the value metadata or null if a value field is missing from the input
+   */
+  public ValueMetaInterface getOutValueMeta( RowMetaInterface inputRowMeta ) {
+    return getOutMeta( inputRowMeta, getOutValueFieldname(), OUT_VALUE );
+  }
+
+  /**
+   * @return true if the key or value setting names several fields for the given input
+   */
+  public static boolean isComposite( RowMetaInterface inputRowMeta, String fieldnames ) {
+    return resolveFieldnames( inputRowMeta, fieldnames ).length > 1;
+  }
+
+  /**
+   * Resolves a key or value setting into field names. The setting names a single field or, when the input has no
+   * field by that exact name, a comma separated list of fields that make up a composite key or value.
+   *
+   * @param inputRowMeta the fields coming into this step
+   * @param fieldnames   the key or value setting
+   * @return the field names, in order of significance
+   */
+  public static String[] resolveFieldnames( RowMetaInterface inputRowMeta, String fieldnames ) {
+    if ( fieldnames == null ) {
+      return new String[ 0 ];
+    }
+    if ( !fieldnames.contains( FIELDNAME_SEPARATOR ) || inputRowMeta.indexOfValue( fieldnames ) >= 0 ) {
+      return new String[] { fieldnames };
+    }
+    String[] result = fieldnames.split( FIELDNAME_SEPARATOR );
+    for ( int i = 0; i < result.length; i++ ) {
+      result[ i ] = result[ i ].trim();
+    }
+    return result;
+  }
+
+  private static ValueMetaInterface getOutMeta( RowMetaInterface inputRowMeta, String fieldnames, String outName ) {
+    String[] names = resolveFieldnames( inputRowMeta, fieldnames );
+    if ( names.length == 0 ) {
+      return null;
+    }
+    if ( names.length == 1 ) {
+      ValueMetaInterface field = inputRowMeta.searchValueMeta( names[ 0 ] );
+      if ( field == null ) {
+        return null;
+      }
+      ValueMetaInterface result = field.clone();
+      result.setName( outName );
+      return result;
+    }
+    for ( String name : names ) {
+      ValueMetaInterface field = inputRowMeta.searchValueMeta( name );
+      if ( field == null || !BinaryRowCodec.isSupported( field.getType() ) ) {
+        return null;
+      }
+    }
+    return new ValueMetaBinary( outName );
+  }
+
   public String getOutKeyFieldname() {
     return outKeyFieldname;
   }
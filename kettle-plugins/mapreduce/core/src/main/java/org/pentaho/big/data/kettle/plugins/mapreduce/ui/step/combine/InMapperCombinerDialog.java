@@ -0,0 +1,288 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.big.data.kettle.plugins.mapreduce.ui.step.combine;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.events.ModifyListener;
+import org.eclipse.swt.events.SelectionAdapter;
+import org.eclipse.swt.events.SelectionEvent;
+import org.eclipse.swt.events.ShellAdapter;
+import org.eclipse.swt.events.ShellEvent;
+import org.eclipse.swt.layout.FormAttachment;
+import org.eclipse.swt.layout.FormData;
+import org.eclipse.swt.layout.FormLayout;
+import org.eclipse.swt.widgets.Button;
+import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Label;
+import org.eclipse.swt.widgets.Shell;
+import org.eclipse.swt.widgets.TableItem;
+import org.eclipse.swt.widgets.Text;
+import org.pentaho.big.data.kettle.plugins.mapreduce.step.combine.InMapperCombiner;
+import org.pentaho.big.data.kettle.plugins.mapreduce.step.combine.InMapperCombinerMeta;
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.annotations.PluginDialog;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.i18n.BaseMessages;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.step.BaseStepMeta;
+import org.pentaho.di.trans.step.StepDialogInterface;
+import org.pentaho.di.ui.core.widget.ColumnInfo;
+import org.pentaho.di.ui.core.widget.TableView;
+import org.pentaho.di.ui.trans.step.BaseStepDialog;
+
+@PluginDialog( id = "InMapperCombinerPlugin", image = "IMC.svg", pluginType = PluginDialog.PluginType.STEP )
+public class InMapperCombinerDialog extends BaseStepDialog implements StepDialogInterface {
+  private static final Class<?> PKG = InMapperCombiner.class;
+
+  private static final String[] AGGREGATE_TYPES = { InMapperCombinerMeta.TYPE_SUM, InMapperCombinerMeta.TYPE_COUNT,
+    InMapperCombinerMeta.TYPE_MIN, InMapperCombinerMeta.TYPE_MAX };
+
+  private final InMapperCombinerMeta input;
+
+  private Text wMaxGroups;
+  private Text wMinFreeMemoryPercent;
+  private TableView wGroups;
+  private TableView wAggregates;
+
+  public InMapperCombinerDialog( Shell parent, Object in, TransMeta tr, String sname ) {
+    super( parent, (BaseStepMeta) in, tr, sname );
+    input = (InMapperCombinerMeta) in;
+  }
+
+  @Override
+  public String open() {
+    Shell parent = getParent();
+    Display display = parent.getDisplay();
+
+    shell = new Shell( parent, SWT.DIALOG_TRIM | SWT.RESIZE | SWT.MAX | SWT.MIN );
+    props.setLook( shell );
+    setShellImage( shell, input );
+
+    ModifyListener lsMod = e -> input.setChanged();
+    changed = input.hasChanged();
+
+    FormLayout formLayout = new FormLayout();
+    formLayout.marginWidth = Const.FORM_MARGIN;
+    formLayout.marginHeight = Const.FORM_MARGIN;
+    shell.setLayout( formLayout );
+    shell.setText( BaseMessages.getString( PKG, "InMapperCombinerDialog.Shell.Title" ) );
+
+    int middle = props.getMiddlePct();
+    int margin = Const.MARGIN;
+
+    // Stepname line
+    wlStepname = new Label( shell, SWT.RIGHT );
+    wlStepname.setText( BaseMessages.getString( PKG, "InMapperCombinerDialog.Stepname.Label" ) );
+    props.setLook( wlStepname );
+    fdlStepname = new FormData();
+    fdlStepname.left = new FormAttachment( 0, 0 );
+    fdlStepname.right = new FormAttachment( middle, -margin );
+    fdlStepname.top = new FormAttachment( 0, margin );
+    wlStepname.setLayoutData( fdlStepname );
+    wStepname = new Text( shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    wStepname.setText( stepname );
+    props.setLook( wStepname );
+    wStepname.addModifyListener( lsMod );
+    fdStepname = new FormData();
+    fdStepname.left = new FormAttachment( middle, 0 );
+    fdStepname.top = new FormAttachment( 0, margin );
+    fdStepname.right = new FormAttachment( 100, 0 );
+    wStepname.setLayoutData( fdStepname );
+
+    wMaxGroups = new Text( shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    Control lastControl = addLine( "InMapperCombinerDialog.MaxGroups.Label", wMaxGroups, wStepname, middle, margin );
+    wMaxGroups.addModifyListener( lsMod );
+
+    wMinFreeMemoryPercent = new Text( shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    lastControl = addLine( "InMapperCombinerDialog.MinFreeMemoryPercent.Label", wMinFreeMemoryPercent, lastControl,
+      middle, margin );
+    wMinFreeMemoryPercent.addModifyListener( lsMod );
+
+    String[] fieldNames = new String[ 0 ];
+    try {
+      RowMetaInterface prev = transMeta.getPrevStepFields( stepname );
+      fieldNames = Const.sortStrings( prev.getFieldNames() );
+    } catch ( KettleException e ) {
+      log.logError( BaseMessages.getString( PKG, "InMapperCombinerDialog.Log.UnableToGetFields" ), e );
+    }
+
+    // Some buttons
+    wOK = new Button( shell, SWT.PUSH );
+    wOK.setText( BaseMessages.getString( PKG, "System.Button.OK" ) );
+    wCancel = new Button( shell, SWT.PUSH );
+    wCancel.setText( BaseMessages.getString( PKG, "System.Button.Cancel" ) );
+    setButtonPositions( new Button[] { wOK, wCancel }, margin, null );
+
+    Label wlGroups = new Label( shell, SWT.NONE );
+    wlGroups.setText( BaseMessages.getString( PKG, "InMapperCombinerDialog.Groups.Label" ) );
+    props.setLook( wlGroups );
+    FormData fdlGroups = new FormData();
+    fdlGroups.left = new FormAttachment( 0, 0 );
+    fdlGroups.top = new FormAttachment( lastControl, margin );
+    wlGroups.setLayoutData( fdlGroups );
+
+    ColumnInfo[] groupColumns = { new ColumnInfo( BaseMessages.getString( PKG, "InMapperCombinerDialog.Groups.Field" ),
+      ColumnInfo.COLUMN_TYPE_CCOMBO, fieldNames, false ) };
+    wGroups = new TableView( transMeta, shell, SWT.BORDER | SWT.FULL_SELECTION | SWT.MULTI, groupColumns,
+      input.getGroupFields().length, lsMod, props );
+    FormData fdGroups = new FormData();
+    fdGroups.left = new FormAttachment( 0, 0 );
+    fdGroups.top = new FormAttachment( wlGroups, margin );
+    fdGroups.right = new FormAttachment( 100, 0 );
+    fdGroups.bottom = new FormAttachment( 40, 0 );
+    wGroups.setLayoutData( fdGroups );
+
+    Label wlAggregates = new Label( shell, SWT.NONE );
+    wlAggregates.setText( BaseMessages.getString( PKG, "InMapperCombinerDialog.Aggregates.Label" ) );
+    props.setLook( wlAggregates );
+    FormData fdlAggregates = new FormData();
+    fdlAggregates.left = new FormAttachment( 0, 0 );
+    fdlAggregates.top = new FormAttachment( wGroups, margin );
+    wlAggregates.setLayoutData( fdlAggregates );
+
+    ColumnInfo[] aggregateColumns = {
+      new ColumnInfo( BaseMessages.getString( PKG, "InMapperCombinerDialog.Aggregates.Name" ),
+        ColumnInfo.COLUMN_TYPE_TEXT, false ),
+      new ColumnInfo( BaseMessages.getString( PKG, "InMapperCombinerDialog.Aggregates.Subject" ),
+        ColumnInfo.COLUMN_TYPE_CCOMBO, fieldNames, false ),
+      new ColumnInfo( BaseMessages.getString( PKG, "InMapperCombinerDialog.Aggregates.Type" ),
+        ColumnInfo.COLUMN_TYPE_CCOMBO, AGGREGATE_TYPES, true ) };
+    wAggregates = new TableView( transMeta, shell, SWT.BORDER | SWT.FULL_SELECTION | SWT.MULTI, aggregateColumns,
+      input.getAggregateFields().length, lsMod, props );
+    FormData fdAggregates = new FormData();
+    fdAggregates.left = new FormAttachment( 0, 0 );
+    fdAggregates.top = new FormAttachment( wlAggregates, margin );
+    fdAggregates.right = new FormAttachment( 100, 0 );
+    fdAggregates.bottom = new FormAttachment( wOK, -2 * margin );
+    wAggregates.setLayoutData( fdAggregates );
+
+    wOK.addListener( SWT.Selection, e -> ok() );
+    wCancel.addListener( SWT.Selection, e -> cancel() );
+
+    lsDef = new SelectionAdapter() {
+      @Override
+      public void widgetDefaultSelected( SelectionEvent e ) {
+        ok();
+      }
+    };
+    wStepname.addSelectionListener( lsDef );
+    wMaxGroups.addSelectionListener( lsDef );
+    wMinFreeMemoryPercent.addSelectionListener( lsDef );
+
+    // Detect X or ALT-F4 or something that kills this window...
+    shell.addShellListener( new ShellAdapter() {
+      @Override
+      public void shellClosed( ShellEvent e ) {
+        cancel();
+      }
+    } );
+
+    getData();
+    input.setChanged( changed );
+
+    // Set the shell size, based upon previous time...
+    setSize();
+
+    shell.open();
+    while ( !shell.isDisposed() ) {
+      if ( !display.readAndDispatch() ) {
+        display.sleep();
+      }
+    }
+    return stepname;
+  }
+
+  private Control addLine( String labelKey, Control control, Control previous, int middle, int margin ) {
+    Label label = new Label( shell, SWT.RIGHT );
+    label.setText( BaseMessages.getString( PKG, labelKey ) );
+    props.setLook( label );
+    FormData fdLabel = new FormData();
+    fdLabel.left = new FormAttachment( 0, 0 );
+    fdLabel.right = new FormAttachment( middle, -margin );
+    fdLabel.top = new FormAttachment( previous, margin );
+    label.setLayoutData( fdLabel );
+
+    props.setLook( control );
+    FormData fdControl = new FormData();
+    fdControl.left = new FormAttachment( middle, 0 );
+    fdControl.top = new FormAttachment( previous, margin );
+    fdControl.right = new FormAttachment( 100, 0 );
+    control.setLayoutData( fdControl );
+    return control;
+  }
+
+  /**
+   * Copy information from the meta-data input to the dialog fields.
+   */
+  public void getData() {
+    wMaxGroups.setText( String.valueOf( input.getMaxGroups() ) );
+    wMinFreeMemoryPercent.setText( String.valueOf( input.getMinFreeMemoryPercent() ) );
+
+    String[] groupFields = input.getGroupFields();
+    for ( int i = 0; i < groupFields.length; i++ ) {
+      wGroups.table.getItem( i ).setText( 1, Const.NVL( groupFields[ i ], "" ) );
+    }
+    wGroups.setRowNums();
+    wGroups.optWidth( true );
+
+    String[] aggregateFields = input.getAggregateFields();
+    for ( int i = 0; i < aggregateFields.length; i++ ) {
+      TableItem item = wAggregates.table.getItem( i );
+      item.setText( 1, Const.NVL( aggregateFields[ i ], "" ) );
+      item.setText( 2, Const.NVL( input.getSubjectFields()[ i ], "" ) );
+      item.setText( 3, Const.NVL( input.getAggregateTypes()[ i ], "" ) );
+    }
+    wAggregates.setRowNums();
+    wAggregates.optWidth( true );
+
+    wStepname.selectAll();
+  }
+
+  private void cancel() {
+    stepname = null;
+    input.setChanged( changed );
+    dispose();
+  }
+
+  private void ok() {
+    if ( Const.isEmpty( wStepname.getText() ) ) {
+      return;
+    }
+    stepname = wStepname.getText();
+
+    input.setMaxGroups( Const.toInt( wMaxGroups.getText(), InMapperCombinerMeta.DEFAULT_MAX_GROUPS ) );
+    input.setMinFreeMemoryPercent( Const.toInt( wMinFreeMemoryPercent.getText(),
+      InMapperCombinerMeta.DEFAULT_MIN_FREE_MEMORY_PERCENT ) );
+
+    int groupCount = wGroups.nrNonEmpty();
+    String[] groupFields = new String[ groupCount ];
+    for ( int i = 0; i < groupCount; i++ ) {
+      groupFields[ i ] = wGroups.getNonEmpty( i ).getText( 1 );
+    }
+    input.setGroupFields( groupFields );
+
+    int aggregateCount = wAggregates.nrNonEmpty();
+    input.allocateAggregates( aggregateCount );
+    for ( int i = 0; i < aggregateCount; i++ ) {
+      TableItem item = wAggregates.getNonEmpty( i );
+      input.getAggregateFields()[ i ] = item.getText( 1 );
+      input.getSubjectFields()[ i ] = item.getText( 2 );
+      input.getAggregateTypes()[ i ] = item.getText( 3 );
+    }
+
+    dispose();
+  }
+}
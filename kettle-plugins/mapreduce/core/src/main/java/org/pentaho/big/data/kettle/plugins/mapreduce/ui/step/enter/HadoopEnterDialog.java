@@ -64,6 +64,10 @@ public class HadoopEnterDialog extends BaseStepXulDialog implements StepDialogIn
     setTextBoxValue( "input-key-precision", metaMapper.getInKeyPrecision() );
     setTextBoxValue( "input-value-length", metaMapper.getInValueLength() );
     setTextBoxValue( "input-value-precision", metaMapper.getInValuePrecision() );
+    ( (XulTextbox) getXulDomContainer().getDocumentRoot().getElementById( "composite-key-fields" ) )
+        .setValue( metaMapper.getCompositeKeyLayout() );
+    ( (XulTextbox) getXulDomContainer().getDocumentRoot().getElementById( "composite-value-fields" ) )
+        .setValue( metaMapper.getCompositeValueLayout() );
 
     bf.createBinding( "step-name", "value", this, "stepName" );
     bf.createBinding( this, "stepName", "step-name", "value" ).fireSourceChanged();
@@ -101,6 +105,11 @@ public class HadoopEnterDialog extends BaseStepXulDialog implements StepDialogIn
     metaMapper.setInValuePrecision( fetchValue( (XulTextbox) getXulDomContainer().getDocumentRoot().getElementById(
         "input-value-precision" ) ) );
 
+    metaMapper.setCompositeKeyLayout( ( (XulTextbox) getXulDomContainer().getDocumentRoot().getElementById(
+        "composite-key-fields" ) ).getValue() );
+    metaMapper.setCompositeValueLayout( ( (XulTextbox) getXulDomContainer().getDocumentRoot().getElementById(
+        "composite-value-fields" ) ).getValue() );
+
     if ( !workingStepname.equals( stepname ) ) {
       stepname = workingStepname;
       baseStepMeta.setChanged();
@@ -67,6 +67,9 @@ public class HadoopEnterMetaMapper extends XulEventSourceAdapter {
   public static String IN_VALUE_LENGTH = "in-value-length";
   public static String IN_VALUE_PRECISION = "in-value-precision";
 
+  public static String COMPOSITE_KEY_LAYOUT = "composite-key-layout";
+  public static String COMPOSITE_VALUE_LAYOUT = "composite-value-layout";
+
   private int inKeyType = -1;
   private int inKeyLength = -1;
   private int inKeyPrecision = -1;
@@ -75,6 +78,9 @@ public class HadoopEnterMetaMapper extends XulEventSourceAdapter {
   private int inValueLength = -1;
   private int inValuePrecision = -1;
 
+  private String compositeKeyLayout = "";
+  private String compositeValueLayout = "";
+
   public void setInKeyType( int arg ) {
     int previousVal = inKeyType;
     inKeyType = arg;
@@ -111,6 +117,18 @@ public class HadoopEnterMetaMapper extends XulEventSourceAdapter {
     firePropertyChange( IN_VALUE_PRECISION, previousVal, inValuePrecision );
   }
 
+  public void setCompositeKeyLayout( String arg ) {
+    String previousVal = compositeKeyLayout;
+    compositeKeyLayout = arg;
+    firePropertyChange( COMPOSITE_KEY_LAYOUT, previousVal, compositeKeyLayout );
+  }
+
+  public void setCompositeValueLayout( String arg ) {
+    String previousVal = compositeValueLayout;
+    compositeValueLayout = arg;
+    firePropertyChange( COMPOSITE_VALUE_LAYOUT, previousVal, compositeValueLayout );
+  }
+
   public int getInKeyType() {
     return inKeyType;
   }
@@ -135,12 +153,23 @@ public class HadoopEnterMetaMapper extends XulEventSourceAdapter {
     return inValuePrecision;
   }
 
+  public String getCompositeKeyLayout() {
+    return compositeKeyLayout;
+  }
+
+  public String getCompositeValueLayout() {
+    return compositeValueLayout;
+  }
+
   /**
    * Load data into the MetaMapper from the HadoopExitMeta
    * 
    * @param meta
    */
   public void loadMeta( HadoopEnterMeta meta ) {
+    setCompositeKeyLayout( meta.getCompositeKeyLayout() );
+    setCompositeValueLayout( meta.getCompositeValueLayout() );
+
     FieldPositions fields = new FieldPositions( meta.getFieldname() );
 
     if ( !fields.isValid() ) {
@@ -167,6 +196,15 @@ public class HadoopEnterMetaMapper extends XulEventSourceAdapter {
    * @param meta
    */
   public void saveMeta( HadoopEnterMeta meta ) {
+    // Set composite fields
+    String keyLayout = meta.getCompositeKeyLayout();
+    meta.setCompositeKeyLayout( getCompositeKeyLayout() );
+    String valueLayout = meta.getCompositeValueLayout();
+    meta.setCompositeValueLayout( getCompositeValueLayout() );
+    if ( !keyLayout.equals( meta.getCompositeKeyLayout() ) || !valueLayout.equals( meta.getCompositeValueLayout() ) ) {
+      meta.setChanged();
+    }
+
     // Set outKey
     FieldPositions fields = new FieldPositions( meta.getFieldname() );
 
@@ -0,0 +1,179 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.big.data.kettle.plugins.mapreduce.entry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.hadoop.shim.api.mapreduce.MapReduceJobAdvanced;
+import org.pentaho.hadoop.shim.api.mapreduce.MapReduceJobSimple;
+import org.pentaho.hadoop.shim.api.mapreduce.MapReduceService;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class MapReduceJobMonitorTest {
+  private ScheduledExecutorService scheduler;
+  private MapReduceJobMonitor monitor;
+  private MapReduceJobAdvanced job;
+
+  @Before
+  public void setup() {
+    scheduler = Executors.newScheduledThreadPool( 1 );
+    monitor = new MapReduceJobMonitor( scheduler, 5, 5, 20 );
+    job = mock( MapReduceJobAdvanced.class );
+  }
+
+  @After
+  public void tearDown() {
+    scheduler.shutdownNow();
+  }
+
+  @Test
+  public void testCompletes() throws Exception {
+    final AtomicInteger polls = new AtomicInteger();
+    when( job.isComplete() ).thenAnswer( invocation -> polls.incrementAndGet() > 3 );
+
+    assertTrue( monitor.monitor( job, () -> false, 0, null ).get( 5, TimeUnit.SECONDS ) );
+    verify( job, never() ).killJob();
+  }
+
+  @Test
+  public void testKillsWhenStopped() throws Exception {
+    final AtomicBoolean stopped = new AtomicBoolean();
+    when( job.isComplete() ).thenReturn( false );
+
+    CompletableFuture<Boolean> completion = monitor.monitor( job, stopped::get, 0, null );
+    stopped.set( true );
+
+    assertFalse( completion.get( 5, TimeUnit.SECONDS ) );
+    verify( job ).killJob();
+  }
+
+  @Test
+  public void testStatusListener() throws Exception {
+    final AtomicInteger polls = new AtomicInteger();
+    final AtomicInteger statuses = new AtomicInteger();
+    when( job.isComplete() ).thenAnswer( invocation -> polls.incrementAndGet() > 5 );
+
+    monitor.monitor( job, () -> false, 1, j -> statuses.incrementAndGet() ).get( 5, TimeUnit.SECONDS );
+    assertTrue( statuses.get() > 0 );
+  }
+
+  @Test
+  public void testBlockingListenerDoesNotHoldUpTheMonitor() throws Exception {
+    final AtomicBoolean stopped = new AtomicBoolean();
+    final CountDownLatch statusReturns = new CountDownLatch( 1 );
+    final CountDownLatch statusCalled = new CountDownLatch( 1 );
+    when( job.isComplete() ).thenReturn( false );
+
+    CompletableFuture<Boolean> completion = monitor.monitor( job, stopped::get, 1, j -> {
+      statusCalled.countDown();
+      try {
+        statusReturns.await();
+      } catch ( InterruptedException e ) {
+        Thread.currentThread().interrupt();
+      }
+    } );
+    assertTrue( statusCalled.await( 5, TimeUnit.SECONDS ) );
+    stopped.set( true );
+
+    // the job is killed while the listener still blocks, but the monitor waits for the listener before completing
+    verify( job, timeout( 5000 ) ).killJob();
+    assertFalse( completion.isDone() );
+    statusReturns.countDown();
+    assertFalse( completion.get( 5, TimeUnit.SECONDS ) );
+  }
+
+  @Test
+  public void testListenerErrorCompletesExceptionally() throws Exception {
+    when( job.isComplete() ).thenReturn( false );
+
+    try {
+      monitor.monitor( job, () -> false, 1, j -> {
+        throw new IOException( "unreachable" );
+      } ).get( 5, TimeUnit.SECONDS );
+      fail( "Expected the listener error to be reported" );
+    } catch ( ExecutionException e ) {
+      assertTrue( e.getCause() instanceof IOException );
+    }
+  }
+
+  @Test
+  public void testPollingErrorCompletesExceptionally() throws Exception {
+    when( job.isComplete() ).thenThrow( new IOException( "unreachable" ) );
+
+    try {
+      monitor.monitor( job, () -> false, 0, null ).get( 5, TimeUnit.SECONDS );
+      fail( "Expected the polling error to be reported" );
+    } catch ( ExecutionException e ) {
+      assertTrue( e.getCause() instanceof IOException );
+    }
+  }
+
+  @Test
+  public void testSimpleJobsShareBoundedSlots() throws Exception {
+    monitor = new MapReduceJobMonitor( scheduler, 5, 5, 20, 2 );
+    final AtomicBoolean done = new AtomicBoolean();
+    MapReduceJobSimple simpleJob = mock( MapReduceJobSimple.class );
+    when( simpleJob.waitOnCompletion( anyLong(), any( TimeUnit.class ), any( MapReduceService.Stoppable.class ) ) )
+      .thenAnswer( invocation -> done.get() );
+
+    assertTrue( monitor.acquireSimpleJobSlot( () -> false ) );
+    CompletableFuture<Boolean> first = monitor.monitorSimple( simpleJob, () -> false, 0, null );
+    assertTrue( monitor.acquireSimpleJobSlot( () -> false ) );
+    CompletableFuture<Boolean> second = monitor.monitorSimple( simpleJob, () -> false, 0, null );
+    assertEquals( 0, monitor.getAvailableSimpleJobSlots() );
+    // a stopped entry gives up waiting for a slot
+    assertFalse( monitor.acquireSimpleJobSlot( () -> true ) );
+
+    done.set( true );
+    assertTrue( first.get( 5, TimeUnit.SECONDS ) );
+    assertTrue( second.get( 5, TimeUnit.SECONDS ) );
+    assertEquals( 2, monitor.getAvailableSimpleJobSlots() );
+  }
+
+  @Test
+  public void testKillsSimpleJobWhenStopped() throws Exception {
+    MapReduceJobSimple simpleJob = mock( MapReduceJobSimple.class );
+    final AtomicBoolean stopped = new AtomicBoolean();
+
+    assertTrue( monitor.acquireSimpleJobSlot( () -> false ) );
+    CompletableFuture<Boolean> completion = monitor.monitorSimple( simpleJob, stopped::get, 0, null );
+    stopped.set( true );
+
+    assertFalse( completion.get( 5, TimeUnit.SECONDS ) );
+    verify( simpleJob ).killJob();
+    assertEquals( MapReduceJobMonitor.DEFAULT_MAX_SIMPLE_JOBS, monitor.getAvailableSimpleJobSlots() );
+  }
+}
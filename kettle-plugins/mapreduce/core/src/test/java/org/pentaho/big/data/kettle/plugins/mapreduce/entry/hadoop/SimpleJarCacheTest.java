@@ -0,0 +1,105 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.big.data.kettle.plugins.mapreduce.entry.hadoop;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class SimpleJarCacheTest {
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private volatile byte[] content = "driver".getBytes( StandardCharsets.UTF_8 );
+
+  private URL remoteJar( String path ) throws Exception {
+    return new URL( null, "test://repo" + path, new URLStreamHandler() {
+      @Override protected URLConnection openConnection( URL url ) {
+        return new URLConnection( url ) {
+          @Override public void connect() {
+          }
+
+          @Override public InputStream getInputStream() {
+            return new ByteArrayInputStream( content );
+          }
+        };
+      }
+    } );
+  }
+
+  private static String read( URL url ) throws Exception {
+    return new String( Files.readAllBytes( Paths.get( url.toURI() ) ), StandardCharsets.UTF_8 );
+  }
+
+  @Test
+  public void testRemoteJarsAreStoredByContent() throws Exception {
+    SimpleJarCache cache = new SimpleJarCache( temporaryFolder.newFolder( "cache" ) );
+    URL jar = remoteJar( "/lib/driver.jar" );
+
+    URL local = cache.localize( jar );
+    assertEquals( local, cache.localize( jar ) );
+    assertEquals( "driver.jar", new File( local.getPath() ).getName() );
+    assertEquals( "driver", read( local ) );
+
+    // a rebuild of the same length gets its own copy, the first one is kept as it is
+    content = "drivex".getBytes( StandardCharsets.UTF_8 );
+    URL changed = cache.localize( jar );
+    assertNotEquals( local, changed );
+    assertEquals( "drivex", read( changed ) );
+    assertEquals( "driver", read( local ) );
+
+    // the same content at another location shares the copy
+    content = "driver".getBytes( StandardCharsets.UTF_8 );
+    assertEquals( local, cache.localize( remoteJar( "/mirror/driver.jar" ) ) );
+  }
+
+  @Test
+  public void testLocalJarsAreStoredByContent() throws Exception {
+    SimpleJarCache cache = new SimpleJarCache( temporaryFolder.newFolder( "cache" ) );
+    File jar = temporaryFolder.newFile( "driver.jar" );
+    Files.write( jar.toPath(), "driver".getBytes( StandardCharsets.UTF_8 ) );
+    long lastModified = jar.lastModified();
+
+    URL local = cache.localize( jar.toURI().toURL() );
+    assertNotEquals( jar.toURI().toURL(), local );
+    assertEquals( local, cache.localize( jar.toURI().toURL() ) );
+
+    // neither the modification time nor the length tell this rebuild apart
+    Files.write( jar.toPath(), "drivex".getBytes( StandardCharsets.UTF_8 ) );
+    jar.setLastModified( lastModified );
+    URL changed = cache.localize( jar.toURI().toURL() );
+    assertNotEquals( local, changed );
+    assertEquals( "drivex", read( changed ) );
+    assertEquals( "driver", read( local ) );
+  }
+
+  @Test
+  public void testGetName() throws Exception {
+    assertEquals( "wordcount.jar", SimpleJarCache.getName( new URL( "http://repo/lib/wordcount.jar" ) ) );
+    assertEquals( "driver.jar", SimpleJarCache.getName( new URL( "http://repo/" ) ) );
+  }
+}
@@ -0,0 +1,168 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.big.data.kettle.plugins.mapreduce.entry.pmr;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.pentaho.di.core.bowl.DefaultBowl;
+import org.pentaho.di.core.variables.Variables;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class KettleRuntimeStagerTest {
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private File installDir;
+  private File bigDataPluginDir;
+  private File archive;
+  private Map<String, File> additionalPlugins;
+  private List<String> excluded;
+  private KettleRuntimeStager stager;
+
+  @Before
+  public void setUp() throws Exception {
+    installDir = new File( temporaryFolder.getRoot(), "install" );
+    File pluginsDir = temporaryFolder.newFolder( "plugins" );
+    bigDataPluginDir = new File( pluginsDir, "pentaho-big-data-plugin" );
+    write( new File( bigDataPluginDir, "plugin.properties" ), "pmr.kettle.installation.id=" );
+    write( new File( bigDataPluginDir, "lib/big-data.jar" ), "big data" );
+    archive = new File( bigDataPluginDir, "pentaho-mapreduce-libraries.zip" );
+    writeArchive( "core" );
+    File corePlugins = new File( pluginsDir, "pdi-core-plugins" );
+    write( new File( corePlugins, "lib/pdi-core-plugins-impl.jar" ), "impl" );
+    write( new File( corePlugins, "lib/pdi-core-plugins-ui.jar" ), "ui" );
+    additionalPlugins = Collections.singletonMap( "pdi-core-plugins", corePlugins );
+    excluded = Collections.singletonList( "pdi-core-plugins-ui" );
+    stager = new KettleRuntimeStager( DefaultBowl.getInstance(), new Variables(), installDir.getAbsolutePath() );
+  }
+
+  private static File write( File file, String content ) throws Exception {
+    file.getParentFile().mkdirs();
+    Files.write( file.toPath(), content.getBytes( StandardCharsets.UTF_8 ) );
+    return file;
+  }
+
+  private void writeArchive( String core ) throws Exception {
+    try ( ZipOutputStream zip = new ZipOutputStream( new FileOutputStream( archive ) ) ) {
+      zip.putNextEntry( new ZipEntry( "lib/" ) );
+      zip.putNextEntry( new ZipEntry( "lib/kettle-core.jar" ) );
+      zip.write( core.getBytes( StandardCharsets.UTF_8 ) );
+      zip.putNextEntry( new ZipEntry( "lib/kettle-engine.jar" ) );
+      zip.write( "engine".getBytes( StandardCharsets.UTF_8 ) );
+    }
+  }
+
+  private String stage( String installationId ) throws Exception {
+    return stager.stage( installationId,
+      KettleRuntimeStager.collect( archive, bigDataPluginDir, additionalPlugins, excluded ) );
+  }
+
+  private String read( String path ) throws Exception {
+    return new String( Files.readAllBytes( new File( installDir, path ).toPath() ), StandardCharsets.UTF_8 );
+  }
+
+  @Test
+  public void testRuntimeIsInstalledInTheLayoutOfTheShim() throws Exception {
+    assertEquals( "9.0", stage( "9.0" ) );
+
+    assertEquals( 5, stager.getUploaded() );
+    assertTrue( stager.isInstalled() );
+    assertEquals( "core", read( "9.0/lib/kettle-core.jar" ) );
+    assertEquals( "engine", read( "9.0/lib/kettle-engine.jar" ) );
+    assertEquals( "big data", read( "9.0/plugins/pentaho-big-data-plugin/lib/big-data.jar" ) );
+    assertTrue( new File( installDir, "9.0/plugins/pentaho-big-data-plugin/plugin.properties" ).exists() );
+    assertEquals( "impl", read( "9.0/plugins/pdi-core-plugins/lib/pdi-core-plugins-impl.jar" ) );
+    // excluded, and the archive is staged extracted
+    assertFalse( new File( installDir, "9.0/plugins/pdi-core-plugins/lib/pdi-core-plugins-ui.jar" ).exists() );
+    assertFalse(
+      new File( installDir, "9.0/plugins/pentaho-big-data-plugin/pentaho-mapreduce-libraries.zip" ).exists() );
+
+    // the manifest points every file to its artifact
+    List<String> manifest =
+      Files.readAllLines( new File( installDir, "9.0/" + KettleRuntimeStager.MANIFEST_FILE ).toPath() );
+    assertEquals( 5, manifest.size() );
+    for ( String line : manifest ) {
+      String[] entry = line.split( "\t" );
+      assertTrue( entry[ 1 ].startsWith( KettleRuntimeStager.ARTIFACTS_DIR + "/" ) );
+      assertEquals( read( "9.0/" + entry[ 0 ] ), read( entry[ 1 ] ) );
+    }
+    assertFalse( new File( installDir, "9.0" + KettleRuntimeStager.LOCK_SUFFIX ).exists() );
+  }
+
+  @Test
+  public void testOnlyChangedFilesAreUploaded() throws Exception {
+    stage( "9.0" );
+    long engineModified = new File( installDir, "9.0/lib/kettle-engine.jar" ).lastModified();
+
+    assertEquals( "9.0", stage( "9.0" ) );
+    assertEquals( 0, stager.getUploaded() );
+    assertFalse( stager.isInstalled() );
+
+    // another installation id shares the artifacts
+    assertEquals( "9.1", stage( "9.1" ) );
+    assertEquals( 0, stager.getUploaded() );
+    assertTrue( stager.isInstalled() );
+    assertEquals( "core", read( "9.1/lib/kettle-core.jar" ) );
+
+    // a patch is installed next to the installation in use, which stays as it is
+    writeArchive( "patched core" );
+    String patched = stage( "9.0" );
+    assertEquals( 1, stager.getUploaded() );
+    assertTrue( patched.startsWith( "9.0-" ) );
+    assertEquals( "patched core", read( patched + "/lib/kettle-core.jar" ) );
+    assertEquals( "core", read( "9.0/lib/kettle-core.jar" ) );
+    assertEquals( engineModified, new File( installDir, "9.0/lib/kettle-engine.jar" ).lastModified() );
+
+    assertEquals( patched, stage( "9.0" ) );
+    assertEquals( 0, stager.getUploaded() );
+    assertFalse( stager.isInstalled() );
+  }
+
+  @Test
+  public void testInstallationOfTheShimIsLeftAsItIs() throws Exception {
+    write( new File( installDir, "9.0/lib/kettle-core.jar" ), "installed by the shim" );
+
+    String staged = stage( "9.0" );
+
+    assertTrue( staged.startsWith( "9.0-" ) );
+    assertEquals( "core", read( staged + "/lib/kettle-core.jar" ) );
+    assertEquals( "installed by the shim", read( "9.0/lib/kettle-core.jar" ) );
+    assertFalse( new File( installDir, "9.0/lib/kettle-engine.jar" ).exists() );
+  }
+
+  @Test
+  public void testStaleLockIsTakenOver() throws Exception {
+    File lock = write( new File( installDir, "9.0" + KettleRuntimeStager.LOCK_SUFFIX ), "crashed job" );
+    assertTrue( lock.setLastModified( System.currentTimeMillis() - KettleRuntimeStager.STALE_LOCK_MS - 1000 ) );
+
+    assertEquals( "9.0", stage( "9.0" ) );
+
+    assertTrue( stager.isInstalled() );
+    assertFalse( lock.exists() );
+  }
+}
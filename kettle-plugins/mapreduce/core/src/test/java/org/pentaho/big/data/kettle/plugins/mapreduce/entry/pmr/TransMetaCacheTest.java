@@ -0,0 +1,143 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.big.data.kettle.plugins.mapreduce.entry.pmr;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.pentaho.big.data.kettle.plugins.mapreduce.entry.pmr.TransMetaCache.CachedTrans;
+import org.pentaho.di.core.KettleClientEnvironment;
+import org.pentaho.di.core.bowl.DefaultBowl;
+import org.pentaho.di.core.variables.Variables;
+import org.pentaho.di.repository.ObjectId;
+import org.pentaho.di.repository.Repository;
+import org.pentaho.di.repository.RepositoryDirectoryInterface;
+import org.pentaho.di.repository.RepositoryObject;
+import org.pentaho.di.repository.RepositoryObjectType;
+import org.pentaho.di.repository.StringObjectId;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.hadoop.shim.api.mapreduce.PentahoMapReduceJobBuilder;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Date;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class TransMetaCacheTest {
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private TransMetaCache cache;
+  private Variables space;
+
+  @Before
+  public void setUp() throws Exception {
+    KettleClientEnvironment.init();
+    cache = new TransMetaCache();
+    space = new Variables();
+  }
+
+  @After
+  public void tearDown() {
+    cache.clear();
+  }
+
+  @Test
+  public void testFileIsParsedAgainOnlyWhenItChanged() throws Exception {
+    File file = temporaryFolder.newFile( "mapper.ktr" );
+    Files.copy( Paths.get( "src/test/resources/testTrans.ktr" ), file.toPath(),
+      StandardCopyOption.REPLACE_EXISTING );
+    space.setVariable( "dir", file.getParent() );
+
+    CachedTrans first = cache.load( DefaultBowl.getInstance(), space, null, "${dir}/mapper.ktr", null, null, null );
+    CachedTrans second = cache.load( DefaultBowl.getInstance(), space, null, "${dir}/mapper.ktr", null, null, null );
+    assertSame( first, second );
+    assertSame( first.getXML(), second.getXML() );
+
+    Files.write( file.toPath(), "\n".getBytes(), StandardOpenOption.APPEND );
+    assertNotSame( first, cache.load( DefaultBowl.getInstance(), space, null, file.getPath(), null, null, null ) );
+  }
+
+  @Test
+  public void testStepsAreVerifiedOnce() throws Exception {
+    File file = temporaryFolder.newFile( "reducer.ktr" );
+    Files.copy( Paths.get( "src/test/resources/testTrans.ktr" ), file.toPath(),
+      StandardCopyOption.REPLACE_EXISTING );
+    PentahoMapReduceJobBuilder jobBuilder = mock( PentahoMapReduceJobBuilder.class );
+
+    CachedTrans cached = cache.load( DefaultBowl.getInstance(), space, null, file.getPath(), null, null, null );
+    cached.verify( jobBuilder, "in", "out" );
+    cached.verify( jobBuilder, "in", "out" );
+    cached.verify( jobBuilder, "in", "other" );
+
+    verify( jobBuilder, times( 1 ) ).verifyTransMeta( cached.getTransMeta(), "in", "out" );
+    verify( jobBuilder, times( 1 ) ).verifyTransMeta( cached.getTransMeta(), "in", "other" );
+  }
+
+  @Test
+  public void testRepositoryObjectIsReloadedWhenModified() throws Exception {
+    Repository repository = mock( Repository.class );
+    ObjectId id = new StringObjectId( "trans-id" );
+    RepositoryObject information = mock( RepositoryObject.class );
+    when( information.getModifiedDate() ).thenReturn( new Date( 1000L ) );
+    when( repository.getObjectInformation( id, RepositoryObjectType.TRANSFORMATION ) ).thenReturn( information );
+    when( repository.loadTransformation( id, null ) ).thenReturn( mock( TransMeta.class ),
+      mock( TransMeta.class ) );
+
+    CachedTrans first = cache.load( DefaultBowl.getInstance(), space, repository, null, id, null, null );
+    assertSame( first, cache.load( DefaultBowl.getInstance(), space, repository, null, id, null, null ) );
+    verify( repository, times( 1 ) ).loadTransformation( id, null );
+
+    when( information.getModifiedDate() ).thenReturn( new Date( 2000L ) );
+    assertNotSame( first, cache.load( DefaultBowl.getInstance(), space, repository, null, id, null, null ) );
+    verify( repository, times( 2 ) ).loadTransformation( id, null );
+  }
+
+  @Test
+  public void testNamedRepositoryTransformationIsResolvedToItsObject() throws Exception {
+    Repository repository = mock( Repository.class );
+    RepositoryDirectoryInterface directory = mock( RepositoryDirectoryInterface.class );
+    when( repository.loadRepositoryDirectoryTree() ).thenReturn( directory );
+    when( directory.findDirectory( "/etl" ) ).thenReturn( directory );
+    ObjectId id = new StringObjectId( "trans-id" );
+    when( repository.getTransformationID( "mapper", directory ) ).thenReturn( id );
+    RepositoryObject information = mock( RepositoryObject.class );
+    when( information.getModifiedDate() ).thenReturn( new Date( 1000L ) );
+    when( repository.getObjectInformation( id, RepositoryObjectType.TRANSFORMATION ) ).thenReturn( information );
+    when( repository.loadTransformation( "mapper", directory, null, true, null ) )
+      .thenReturn( mock( TransMeta.class ) );
+
+    CachedTrans first = cache.load( DefaultBowl.getInstance(), space, repository, "/etl/mapper", null, null, null );
+    assertSame( first, cache.load( DefaultBowl.getInstance(), space, repository, "/etl/mapper", null, null, null ) );
+    verify( repository, times( 1 ) ).loadTransformation( "mapper", directory, null, true, null );
+  }
+
+  @Test
+  public void testNothingConfigured() throws Exception {
+    assertNull( cache.load( DefaultBowl.getInstance(), space, null, "", null, null, null ) );
+    assertNull( cache.load( DefaultBowl.getInstance(), space, mock( Repository.class ), null, null, null, null ) );
+  }
+}
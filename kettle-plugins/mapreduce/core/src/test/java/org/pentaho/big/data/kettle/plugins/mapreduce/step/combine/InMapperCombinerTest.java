@@ -0,0 +1,210 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.big.data.kettle.plugins.mapreduce.step.combine;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.di.core.database.DatabaseMeta;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.logging.LoggingObjectInterface;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.di.repository.ObjectId;
+import org.pentaho.di.repository.Repository;
+import org.pentaho.di.trans.steps.mock.StepMockHelper;
+import org.pentaho.metastore.api.IMetaStore;
+import org.w3c.dom.Node;
+import org.xml.sax.InputSource;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.StringReader;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class InMapperCombinerTest {
+  private StepMockHelper<InMapperCombinerMeta, InMapperCombinerData> stepMockHelper;
+  private InMapperCombinerMeta meta;
+  private InMapperCombinerData data;
+  private RowMetaInterface inputRowMeta;
+  private Deque<Object[]> input;
+  private List<Object[]> output;
+  private InMapperCombiner combiner;
+
+  @Before
+  public void setup() {
+    stepMockHelper = new StepMockHelper<>( "inMapperCombiner", InMapperCombinerMeta.class, InMapperCombinerData.class );
+    when( stepMockHelper.logChannelInterfaceFactory.create( any(), any( LoggingObjectInterface.class ) ) )
+      .thenReturn( stepMockHelper.logChannelInterface );
+    when( stepMockHelper.trans.isRunning() ).thenReturn( true );
+
+    meta = new InMapperCombinerMeta();
+    meta.setDefault();
+    meta.setGroupFields( new String[] { "word" } );
+    meta.setAggregateFields( new String[] { "count", "total" } );
+    meta.setSubjectFields( new String[] { null, "n" } );
+    meta.setAggregateTypes( new String[] { InMapperCombinerMeta.TYPE_COUNT, InMapperCombinerMeta.TYPE_SUM } );
+    data = new InMapperCombinerData();
+
+    inputRowMeta = new RowMeta();
+    inputRowMeta.addValueMeta( new ValueMetaString( "word" ) );
+    inputRowMeta.addValueMeta( new ValueMetaInteger( "n" ) );
+    input = new ArrayDeque<>();
+    output = new ArrayList<>();
+
+    combiner = new InMapperCombiner( stepMockHelper.stepMeta, data, 0, stepMockHelper.transMeta,
+      stepMockHelper.trans ) {
+      @Override public Object[] getRow() {
+        return input.poll();
+      }
+
+      @Override public RowMetaInterface getInputRowMeta() {
+        return inputRowMeta;
+      }
+
+      @Override public void putRow( RowMetaInterface rowMeta, Object[] row ) {
+        output.add( row );
+      }
+    };
+    combiner.init( meta, data );
+  }
+
+  @After
+  public void teardown() {
+    stepMockHelper.cleanUp();
+  }
+
+  private void process() throws KettleException {
+    while ( combiner.processRow( meta, data ) ) {
+      // keep going until the end of the input
+    }
+  }
+
+  private Map<String, Object[]> outputByWord() {
+    Map<String, Object[]> result = new HashMap<>();
+    for ( Object[] row : output ) {
+      result.put( (String) row[ 0 ], row );
+    }
+    return result;
+  }
+
+  @Test
+  public void testAggregatesAtEndOfInput() throws KettleException {
+    input.add( new Object[] { "a", 1L } );
+    input.add( new Object[] { "b", 2L } );
+    input.add( new Object[] { "a", 3L } );
+    input.add( new Object[] { "a", null } );
+
+    process();
+
+    assertEquals( 2, output.size() );
+    Map<String, Object[]> byWord = outputByWord();
+    assertEquals( 3L, byWord.get( "a" )[ 1 ] );
+    assertEquals( 4L, byWord.get( "a" )[ 2 ] );
+    assertEquals( 1L, byWord.get( "b" )[ 1 ] );
+    assertEquals( 2L, byWord.get( "b" )[ 2 ] );
+    assertEquals( 1, data.getFlushes() );
+  }
+
+  @Test
+  public void testFlushesWhenFull() throws KettleException {
+    meta.setMaxGroups( 2 );
+    input.add( new Object[] { "a", 1L } );
+    input.add( new Object[] { "a", 1L } );
+    input.add( new Object[] { "b", 2L } );
+    input.add( new Object[] { "a", 3L } );
+
+    process();
+
+    // a and b are flushed together once the second group shows up, a starts over afterwards
+    assertEquals( 3, output.size() );
+    assertEquals( 2, data.getFlushes() );
+    long total = 0;
+    for ( Object[] row : output ) {
+      total += (Long) row[ 1 ];
+    }
+    assertEquals( 4L, total );
+  }
+
+  @Test
+  public void testMinMax() throws KettleException {
+    meta.setAggregateFields( new String[] { "min", "max" } );
+    meta.setSubjectFields( new String[] { "n", "n" } );
+    meta.setAggregateTypes( new String[] { InMapperCombinerMeta.TYPE_MIN, InMapperCombinerMeta.TYPE_MAX } );
+    input.add( new Object[] { "a", 5L } );
+    input.add( new Object[] { "a", -1L } );
+    input.add( new Object[] { "a", 7L } );
+
+    process();
+
+    assertEquals( 1, output.size() );
+    assertEquals( -1L, output.get( 0 )[ 1 ] );
+    assertEquals( 7L, output.get( 0 )[ 2 ] );
+  }
+
+  @Test
+  public void testEmptyInput() throws KettleException {
+    process();
+    assertEquals( 0, output.size() );
+  }
+
+  @Test
+  public void testGetFields() throws KettleException {
+    RowMetaInterface rowMeta = inputRowMeta.clone();
+    meta.getFields( null, rowMeta, "origin", null, null, null );
+    assertArrayEquals( new String[] { "word", "count", "total" }, rowMeta.getFieldNames() );
+  }
+
+  @Test
+  public void testLoadSaveXml() throws Exception {
+    meta.setMaxGroups( 42 );
+    Node node = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+      .parse( new InputSource( new StringReader( "<step>" + meta.getXML() + "</step>" ) ) ).getFirstChild();
+    InMapperCombinerMeta loaded = new InMapperCombinerMeta();
+    loaded.loadXML( node, new ArrayList<DatabaseMeta>(), mock( IMetaStore.class ) );
+
+    assertArrayEquals( meta.getGroupFields(), loaded.getGroupFields() );
+    assertArrayEquals( meta.getAggregateFields(), loaded.getAggregateFields() );
+    assertArrayEquals( meta.getSubjectFields(), loaded.getSubjectFields() );
+    assertArrayEquals( meta.getAggregateTypes(), loaded.getAggregateTypes() );
+    assertEquals( 42, loaded.getMaxGroups() );
+    assertEquals( InMapperCombinerMeta.DEFAULT_MIN_FREE_MEMORY_PERCENT, loaded.getMinFreeMemoryPercent() );
+  }
+
+  @Test
+  public void testReadRepDefaultsMissingLimits() throws Exception {
+    Repository rep = mock( Repository.class );
+    ObjectId stepId = mock( ObjectId.class );
+    when( rep.countNrStepAttributes( stepId, "max_groups" ) ).thenReturn( 1 );
+    when( rep.getStepAttributeInteger( stepId, "max_groups" ) ).thenReturn( 42L );
+    InMapperCombinerMeta loaded = new InMapperCombinerMeta();
+    loaded.readRep( rep, mock( IMetaStore.class ), stepId, new ArrayList<DatabaseMeta>() );
+
+    assertEquals( 42, loaded.getMaxGroups() );
+    assertEquals( "a step saved without the limit gets the default like from XML",
+      InMapperCombinerMeta.DEFAULT_MIN_FREE_MEMORY_PERCENT, loaded.getMinFreeMemoryPercent() );
+  }
+}
@@ -55,5 +55,15 @@ public class HadoopEnterMetaInjectionTest extends BaseMetadataInjectionTest<Hado
         return meta.getPrecision()[1];
       }
     } );
+    check( "COMPOSITE_KEY_FIELDS", new StringGetter() {
+      public String get() {
+        return meta.getCompositeKeyLayout();
+      }
+    }, "customer:String, day:Date" );
+    check( "COMPOSITE_VALUE_FIELDS", new StringGetter() {
+      public String get() {
+        return meta.getCompositeValueLayout();
+      }
+    }, "amount:Number" );
   }
 }
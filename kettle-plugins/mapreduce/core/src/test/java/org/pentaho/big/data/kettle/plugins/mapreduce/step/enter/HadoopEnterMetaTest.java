@@ -14,10 +14,33 @@
 package org.pentaho.big.data.kettle.plugins.mapreduce.step.enter;
 
 import org.junit.Before;
+import org.junit.BeforeClass;
 import org.junit.Test;
 import org.pentaho.big.data.kettle.plugins.mapreduce.ui.step.enter.HadoopEnterDialog;
+import org.pentaho.di.core.KettleClientEnvironment;
+import org.pentaho.di.core.bowl.DefaultBowl;
+import org.pentaho.di.core.database.DatabaseMeta;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.repository.ObjectId;
+import org.pentaho.di.repository.Repository;
+import org.pentaho.metastore.api.IMetaStore;
+import org.w3c.dom.Node;
+import org.xml.sax.InputSource;
 
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.StringReader;
+import java.util.ArrayList;
+
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 /**
  * Created by bryan on 1/15/16.
@@ -26,6 +49,11 @@ public class HadoopEnterMetaTest {
 
   private HadoopEnterMeta hadoopEnterMeta;
 
+  @BeforeClass
+  public static void init() throws KettleException {
+    KettleClientEnvironment.init();
+  }
+
   @Before
   public void setup() throws Throwable {
     hadoopEnterMeta = new HadoopEnterMeta();
@@ -64,4 +92,95 @@ public class HadoopEnterMetaTest {
     hadoopEnterMeta.setValuePrecision( 3 );
     assertEquals( 3, hadoopEnterMeta.getPrecision()[1] );
   }
+
+  private HadoopEnterMeta loadXml( HadoopEnterMeta meta ) throws Throwable {
+    Node node = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+      .parse( new InputSource( new StringReader( "<step>" + meta.getXML() + "</step>" ) ) ).getFirstChild();
+    HadoopEnterMeta loaded = new HadoopEnterMeta();
+    loaded.loadXML( node, new ArrayList<DatabaseMeta>(), mock( IMetaStore.class ) );
+    return loaded;
+  }
+
+  @Test
+  public void testCompositeFieldsLoadSaveXml() throws Throwable {
+    hadoopEnterMeta.setCompositeKeyFields( new String[] { "customer", "day" },
+      new int[] { ValueMetaInterface.TYPE_STRING, ValueMetaInterface.TYPE_DATE } );
+    hadoopEnterMeta.setCompositeValueFields( new String[] { "amount" }, new int[] { ValueMetaInterface.TYPE_NUMBER } );
+
+    HadoopEnterMeta loaded = loadXml( hadoopEnterMeta );
+
+    assertArrayEquals( new String[] { "customer", "day" }, loaded.getCompositeKeyFieldnames() );
+    assertArrayEquals( new int[] { ValueMetaInterface.TYPE_STRING, ValueMetaInterface.TYPE_DATE },
+      loaded.getCompositeKeyTypes() );
+    assertArrayEquals( new String[] { "amount" }, loaded.getCompositeValueFieldnames() );
+    assertArrayEquals( new int[] { ValueMetaInterface.TYPE_NUMBER }, loaded.getCompositeValueTypes() );
+  }
+
+  @Test
+  public void testNoCompositeTagsWithoutCompositeFields() throws Throwable {
+    assertFalse( hadoopEnterMeta.getXML().contains( HadoopEnterMeta.COMPOSITE_KEY_FIELDS ) );
+    assertFalse( hadoopEnterMeta.getXML().contains( HadoopEnterMeta.COMPOSITE_VALUE_FIELDS ) );
+
+    HadoopEnterMeta loaded = loadXml( hadoopEnterMeta );
+    assertFalse( loaded.hasCompositeFields() );
+  }
+
+  @Test
+  public void testCompositeFieldsSaveRep() throws KettleException {
+    ObjectId idTransformation = mock( ObjectId.class );
+    ObjectId idStep = mock( ObjectId.class );
+    Repository repository = mock( Repository.class );
+    hadoopEnterMeta.setCompositeKeyFields( new String[] { "customer", "day" },
+      new int[] { ValueMetaInterface.TYPE_STRING, ValueMetaInterface.TYPE_DATE } );
+
+    hadoopEnterMeta.saveRep( repository, mock( IMetaStore.class ), idTransformation, idStep );
+
+    verify( repository ).saveStepAttribute( idTransformation, idStep, 0, "composite_key_fields_name", "customer" );
+    verify( repository ).saveStepAttribute( idTransformation, idStep, 0, "composite_key_fields_type", "String" );
+    verify( repository ).saveStepAttribute( idTransformation, idStep, 1, "composite_key_fields_name", "day" );
+    verify( repository ).saveStepAttribute( idTransformation, idStep, 1, "composite_key_fields_type", "Date" );
+  }
+
+  @Test
+  public void testCompositeFieldsReadRep() throws KettleException {
+    ObjectId idStep = mock( ObjectId.class );
+    Repository repository = mock( Repository.class );
+    when( repository.countNrStepAttributes( idStep, "composite_value_fields_name" ) ).thenReturn( 1 );
+    when( repository.getStepAttributeString( idStep, 0, "composite_value_fields_name" ) ).thenReturn( "amount" );
+    when( repository.getStepAttributeString( idStep, 0, "composite_value_fields_type" ) ).thenReturn( "Number" );
+
+    hadoopEnterMeta.readRep( repository, mock( IMetaStore.class ), idStep, new ArrayList<DatabaseMeta>() );
+
+    assertEquals( 0, hadoopEnterMeta.getCompositeKeyFieldnames().length );
+    assertArrayEquals( new String[] { "amount" }, hadoopEnterMeta.getCompositeValueFieldnames() );
+    assertArrayEquals( new int[] { ValueMetaInterface.TYPE_NUMBER }, hadoopEnterMeta.getCompositeValueTypes() );
+  }
+
+  @Test
+  public void testCompositeLayout() {
+    hadoopEnterMeta.setCompositeKeyLayout( "customer, day:Date" );
+
+    assertTrue( hadoopEnterMeta.hasCompositeFields() );
+    assertArrayEquals( new String[] { "customer", "day" }, hadoopEnterMeta.getCompositeKeyFieldnames() );
+    assertArrayEquals( new int[] { ValueMetaInterface.TYPE_STRING, ValueMetaInterface.TYPE_DATE },
+      hadoopEnterMeta.getCompositeKeyTypes() );
+    assertEquals( "customer:String, day:Date", hadoopEnterMeta.getCompositeKeyLayout() );
+
+    hadoopEnterMeta.setCompositeKeyLayout( "" );
+    assertFalse( hadoopEnterMeta.hasCompositeFields() );
+    assertEquals( "", hadoopEnterMeta.getCompositeKeyLayout() );
+  }
+
+  @Test
+  public void testGetFieldsAppendsCompositeFields() throws Exception {
+    hadoopEnterMeta.setCompositeKeyLayout( "customer:String, day:Date" );
+    hadoopEnterMeta.setCompositeValueLayout( "amount:Number" );
+    RowMetaInterface rowMeta = new RowMeta();
+
+    hadoopEnterMeta.getFields( DefaultBowl.getInstance(), rowMeta, "enter", null, null, null );
+
+    assertArrayEquals( new String[] { HadoopEnterMeta.KEY_FIELDNAME, HadoopEnterMeta.VALUE_FIELDNAME, "customer", "day",
+      "amount" }, rowMeta.getFieldNames() );
+    assertEquals( ValueMetaInterface.TYPE_DATE, rowMeta.getValueMeta( 3 ).getType() );
+  }
 }
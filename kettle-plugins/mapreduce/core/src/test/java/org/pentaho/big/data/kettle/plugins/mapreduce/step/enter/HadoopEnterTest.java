@@ -0,0 +1,101 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.big.data.kettle.plugins.mapreduce.step.enter;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.pentaho.big.data.kettle.plugins.mapreduce.step.exit.BinaryRowCodec;
+import org.pentaho.di.core.KettleClientEnvironment;
+import org.pentaho.di.core.RowSet;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.logging.LoggingObjectInterface;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaBinary;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.di.trans.steps.injector.InjectorData;
+import org.pentaho.di.trans.steps.mock.StepMockHelper;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class HadoopEnterTest {
+  private StepMockHelper<HadoopEnterMeta, InjectorData> stepMockHelper;
+  private HadoopEnter hadoopEnter;
+
+  @BeforeClass
+  public static void init() throws KettleException {
+    KettleClientEnvironment.init();
+  }
+
+  @Before
+  public void setup() {
+    stepMockHelper = new StepMockHelper<>( "hadoopEnter", HadoopEnterMeta.class, InjectorData.class );
+    when( stepMockHelper.logChannelInterfaceFactory.create( any(), any( LoggingObjectInterface.class ) ) )
+      .thenReturn( stepMockHelper.logChannelInterface );
+    when( stepMockHelper.trans.isRunning() ).thenReturn( true );
+    hadoopEnter =
+      new HadoopEnter( stepMockHelper.stepMeta, stepMockHelper.stepDataInterface, 0, stepMockHelper.transMeta,
+        stepMockHelper.trans );
+    hadoopEnter.init( stepMockHelper.initStepMetaInterface, stepMockHelper.initStepDataInterface );
+  }
+
+  @After
+  public void teardown() {
+    stepMockHelper.cleanUp();
+  }
+
+  @Test( timeout = 5000 )
+  public void testCompositeKeyIsUnpacked() throws Throwable {
+    RowMetaInterface packedMeta = new RowMeta();
+    packedMeta.addValueMeta( new ValueMetaString( "customer" ) );
+    packedMeta.addValueMeta( new ValueMetaInteger( "day" ) );
+    byte[] key = new BinaryRowCodec().encode( packedMeta, new Object[] { "acme", 42L }, new int[] { 0, 1 } );
+
+    RowMetaInterface inputRowMeta = new RowMeta();
+    inputRowMeta.addValueMeta( new ValueMetaBinary( HadoopEnterMeta.KEY_FIELDNAME ) );
+    inputRowMeta.addValueMeta( new ValueMetaString( HadoopEnterMeta.VALUE_FIELDNAME ) );
+    RowSet inputRowSet = stepMockHelper.getMockInputRowSet( new Object[] { key, "value" } );
+    when( inputRowSet.getRowMeta() ).thenReturn( inputRowMeta );
+    hadoopEnter.addRowSetToInputRowSets( inputRowSet );
+    RowSet outputRowSet = mock( RowSet.class );
+    when( outputRowSet.putRow( any( RowMetaInterface.class ), any( Object[].class ) ) ).thenReturn( true );
+    hadoopEnter.addRowSetToOutputRowSets( outputRowSet );
+
+    HadoopEnterMeta meta = new HadoopEnterMeta();
+    meta.setCompositeKeyLayout( "customer:String, day:Integer" );
+
+    assertTrue( hadoopEnter.processRow( meta, stepMockHelper.processRowsStepDataInterface ) );
+    assertFalse( hadoopEnter.processRow( meta, stepMockHelper.processRowsStepDataInterface ) );
+
+    ArgumentCaptor<RowMetaInterface> rowMeta = ArgumentCaptor.forClass( RowMetaInterface.class );
+    ArgumentCaptor<Object[]> row = ArgumentCaptor.forClass( Object[].class );
+    verify( outputRowSet ).putRow( rowMeta.capture(), row.capture() );
+    assertArrayEquals( new String[] { HadoopEnterMeta.KEY_FIELDNAME, HadoopEnterMeta.VALUE_FIELDNAME, "customer",
+      "day" }, rowMeta.getValue().getFieldNames() );
+    assertArrayEquals( new Object[] { key, "value", "acme", 42L },
+      Arrays.copyOf( row.getValue(), rowMeta.getValue().size() ) );
+  }
+}
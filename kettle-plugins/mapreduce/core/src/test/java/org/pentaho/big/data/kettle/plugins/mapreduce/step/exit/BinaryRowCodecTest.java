@@ -0,0 +1,151 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.big.data.kettle.plugins.mapreduce.step.exit;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaBigNumber;
+import org.pentaho.di.core.row.value.ValueMetaBoolean;
+import org.pentaho.di.core.row.value.ValueMetaDate;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaNumber;
+import org.pentaho.di.core.row.value.ValueMetaSerializable;
+import org.pentaho.di.core.row.value.ValueMetaString;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BinaryRowCodecTest {
+  private BinaryRowCodec codec;
+
+  @Before
+  public void setup() {
+    codec = new BinaryRowCodec();
+  }
+
+  @Test
+  public void testRoundTrip() throws KettleValueException {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaString( "s" ) );
+    rowMeta.addValueMeta( new ValueMetaInteger( "i" ) );
+    rowMeta.addValueMeta( new ValueMetaNumber( "n" ) );
+    rowMeta.addValueMeta( new ValueMetaBigNumber( "b" ) );
+    rowMeta.addValueMeta( new ValueMetaBoolean( "f" ) );
+    rowMeta.addValueMeta( new ValueMetaDate( "d" ) );
+    rowMeta.addValueMeta( new ValueMetaString( "nullString" ) );
+    Object[] row =
+      new Object[] { "a\u0000b\u00e9", -42L, -1.5, new BigDecimal( "-123.4500" ), true, new Date( 1234567L ), null };
+
+    byte[] encoded = codec.encode( rowMeta, row, new int[] { 0, 1, 2, 3, 4, 5, 6 } );
+    Object[] decoded =
+      BinaryRowCodec.decode( encoded, rowMeta.getValueMetaList().toArray( new ValueMetaInterface[ 0 ] ) );
+
+    assertEquals( row[ 0 ], decoded[ 0 ] );
+    assertEquals( row[ 1 ], decoded[ 1 ] );
+    assertEquals( row[ 2 ], decoded[ 2 ] );
+    assertEquals( 0, ( (BigDecimal) row[ 3 ] ).compareTo( (BigDecimal) decoded[ 3 ] ) );
+    assertEquals( row[ 4 ], decoded[ 4 ] );
+    assertEquals( row[ 5 ], decoded[ 5 ] );
+    assertEquals( null, decoded[ 6 ] );
+  }
+
+  @Test
+  public void testIntegerOrder() throws KettleValueException {
+    assertOrdered( new ValueMetaInteger( "i" ), null, Long.MIN_VALUE, -2L, -1L, 0L, 1L, 300L, Long.MAX_VALUE );
+  }
+
+  @Test
+  public void testNumberOrder() throws KettleValueException {
+    assertOrdered( new ValueMetaNumber( "n" ), null, Double.NEGATIVE_INFINITY, -10.5, -0.25, 0.0, 0.25, 3.0, 1e300 );
+  }
+
+  @Test
+  public void testStringOrder() throws KettleValueException {
+    assertOrdered( new ValueMetaString( "s" ), null, "a", "a\u0000", "a\u0000b", "ab", "b" );
+  }
+
+  @Test
+  public void testBigNumberOrder() throws KettleValueException {
+    assertOrdered( new ValueMetaBigNumber( "b" ), null, new BigDecimal( "-1000" ), new BigDecimal( "-99.5" ),
+      new BigDecimal( "-99" ), new BigDecimal( "-0.001" ), BigDecimal.ZERO, new BigDecimal( "0.001" ),
+      new BigDecimal( "0.0011" ), new BigDecimal( "9" ), new BigDecimal( "10" ), new BigDecimal( "12.5" ) );
+  }
+
+  @Test
+  public void testCompositeOrder() throws KettleValueException {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaString( "s" ) );
+    rowMeta.addValueMeta( new ValueMetaInteger( "i" ) );
+    int[] ordinals = { 0, 1 };
+
+    byte[] first = codec.encode( rowMeta, new Object[] { "a", 10L }, ordinals );
+    byte[] second = codec.encode( rowMeta, new Object[] { "a", 11L }, ordinals );
+    byte[] third = codec.encode( rowMeta, new Object[] { "ab", -5L }, ordinals );
+
+    assertTrue( compare( first, second ) < 0 );
+    assertTrue( compare( second, third ) < 0 );
+  }
+
+  @Test( expected = KettleValueException.class )
+  public void testUnsupportedType() throws KettleValueException {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaSerializable( "o" ) );
+    codec.encode( rowMeta, new Object[] { "x" }, new int[] { 0 } );
+  }
+
+  @Test( expected = KettleValueException.class )
+  public void testTypeMismatch() throws KettleValueException {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaString( "s" ) );
+    byte[] encoded = codec.encode( rowMeta, new Object[] { "x" }, new int[] { 0 } );
+    BinaryRowCodec.decode( encoded, new ValueMetaInterface[] { new ValueMetaInteger( "i" ) } );
+  }
+
+  @Test
+  public void testDecodeNull() throws KettleValueException {
+    ValueMetaInterface[] valueMetas = { new ValueMetaInteger( "i" ), new ValueMetaString( "s" ) };
+    assertArrayEquals( new Object[ 2 ], BinaryRowCodec.decode( null, valueMetas ) );
+  }
+
+  private void assertOrdered( ValueMetaInterface valueMeta, Object... values ) throws KettleValueException {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( valueMeta );
+    byte[] previous = null;
+    for ( Object value : values ) {
+      byte[] encoded = codec.encode( rowMeta, new Object[] { value }, new int[] { 0 } );
+      if ( previous != null ) {
+        assertTrue( "Expected " + value + " to sort after the previous value", compare( previous, encoded ) < 0 );
+      }
+      previous = encoded;
+    }
+  }
+
+  private static int compare( byte[] a, byte[] b ) {
+    for ( int i = 0; i < Math.min( a.length, b.length ); i++ ) {
+      int result = ( a[ i ] & 0xFF ) - ( b[ i ] & 0xFF );
+      if ( result != 0 ) {
+        return result;
+      }
+    }
+    return a.length - b.length;
+  }
+}
@@ -17,9 +17,14 @@ import org.junit.Before;
 import org.junit.Test;
 import org.pentaho.di.core.bowl.DefaultBowl;
 import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowMeta;
 import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaString;
 import org.pentaho.di.core.variables.VariableSpace;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.mockito.Mockito.*;
 
@@ -67,6 +72,25 @@ public class HadoopExitDataTest {
     assertEquals( 6, hadoopExitData.getInValueOrdinal() );
   }
 
+  @Test
+  public void testInitCompositeKey() throws Throwable {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "amount" ) );
+    rowMeta.addValueMeta( new ValueMetaString( "customer" ) );
+    rowMeta.addValueMeta( new ValueMetaInteger( "day" ) );
+    HadoopExitMeta hadoopExitMeta = new HadoopExitMeta();
+    hadoopExitMeta.setOutKeyFieldname( "customer, day" );
+    hadoopExitMeta.setOutValueFieldname( "amount" );
+
+    hadoopExitData.init( DefaultBowl.getInstance(), rowMeta, hadoopExitMeta, mock( VariableSpace.class ) );
+
+    assertArrayEquals( new int[] { 1, 2 }, hadoopExitData.getInKeyOrdinals() );
+    assertEquals( 0, hadoopExitData.getInValueOrdinal() );
+    assertEquals( 2, hadoopExitData.getOutputRowMeta().size() );
+    assertEquals( ValueMetaInterface.TYPE_BINARY,
+      hadoopExitData.getOutputRowMeta().getValueMeta( HadoopExitData.outKeyOrdinal ).getType() );
+  }
+
   @Test
   public void testGetOutKeyOrdinal() {
     assertEquals( HadoopExitData.outKeyOrdinal, HadoopExitData.getOutKeyOrdinal() );
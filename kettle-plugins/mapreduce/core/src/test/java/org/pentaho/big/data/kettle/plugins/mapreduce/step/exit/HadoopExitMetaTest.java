@@ -21,8 +21,11 @@ import org.pentaho.di.core.CheckResultInterface;
 import org.pentaho.di.core.database.DatabaseMeta;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.exception.KettleStepException;
+import org.pentaho.di.core.row.RowMeta;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaString;
 import org.pentaho.di.i18n.BaseMessages;
 import org.pentaho.di.repository.ObjectId;
 import org.pentaho.di.repository.Repository;
@@ -189,6 +192,52 @@ public class HadoopExitMetaTest {
     }
   }
 
+  @Test
+  public void testCompositeKeyResolvesToBinary() {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaString( "customer" ) );
+    rowMeta.addValueMeta( new ValueMetaInteger( "day" ) );
+    rowMeta.addValueMeta( new ValueMetaInteger( "amount" ) );
+
+    hadoopExitMeta.setOutKeyFieldname( "customer, day" );
+    hadoopExitMeta.setOutValueFieldname( "amount" );
+
+    assertArrayEquals( new String[] { "customer", "day" },
+      HadoopExitMeta.resolveFieldnames( rowMeta, hadoopExitMeta.getOutKeyFieldname() ) );
+    assertTrue( HadoopExitMeta.isComposite( rowMeta, hadoopExitMeta.getOutKeyFieldname() ) );
+    ValueMetaInterface keyMeta = hadoopExitMeta.getOutKeyMeta( rowMeta );
+    assertEquals( ValueMetaInterface.TYPE_BINARY, keyMeta.getType() );
+    assertEquals( HadoopExitMeta.OUT_KEY, keyMeta.getName() );
+
+    assertFalse( HadoopExitMeta.isComposite( rowMeta, hadoopExitMeta.getOutValueFieldname() ) );
+    ValueMetaInterface valueMeta = hadoopExitMeta.getOutValueMeta( rowMeta );
+    assertEquals( ValueMetaInterface.TYPE_INTEGER, valueMeta.getType() );
+    assertEquals( HadoopExitMeta.OUT_VALUE, valueMeta.getName() );
+  }
+
+  @Test
+  public void testFieldNamedLikeACompositeTakesPrecedence() {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaString( "customer" ) );
+    rowMeta.addValueMeta( new ValueMetaString( "day" ) );
+    rowMeta.addValueMeta( new ValueMetaString( "customer,day" ) );
+
+    hadoopExitMeta.setOutKeyFieldname( "customer,day" );
+
+    assertFalse( HadoopExitMeta.isComposite( rowMeta, hadoopExitMeta.getOutKeyFieldname() ) );
+    assertEquals( ValueMetaInterface.TYPE_STRING, hadoopExitMeta.getOutKeyMeta( rowMeta ).getType() );
+  }
+
+  @Test
+  public void testCompositeKeyWithMissingFieldIsInvalid() {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaString( "customer" ) );
+
+    hadoopExitMeta.setOutKeyFieldname( "customer, day" );
+
+    assertNull( hadoopExitMeta.getOutKeyMeta( rowMeta ) );
+  }
+
   private void assertSingleRemark( List<CheckResultInterface> remarks, int type, String text, StepMeta stepinfo ) {
     assertEquals( 1, remarks.size() );
     CheckResultInterface checkResultInterface = remarks.get( 0 );
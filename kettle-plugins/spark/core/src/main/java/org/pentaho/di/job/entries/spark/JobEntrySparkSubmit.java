@@ -17,6 +17,10 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Joiner;
 import com.sun.jna.Platform;
 import org.apache.commons.vfs2.FileObject;
+import org.apache.spark.launcher.AbstractLauncher;
+import org.apache.spark.launcher.InProcessLauncher;
+import org.apache.spark.launcher.SparkAppHandle;
+import org.apache.spark.launcher.SparkLauncher;
 import org.pentaho.di.cluster.SlaveServer;
 import org.pentaho.di.core.CheckResultInterface;
 import org.pentaho.di.core.Const;
@@ -49,10 +53,19 @@ import java.io.IOException;
 import java.io.StreamTokenizer;
 import java.io.StringReader;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
 
 import static org.pentaho.di.job.entry.validator.AndValidator.putValidators;
 import static org.pentaho.di.job.entry.validator.JobEntryValidatorUtils.andValidator;
@@ -61,7 +74,11 @@ import static org.pentaho.di.job.entry.validator.JobEntryValidatorUtils.notBlank
 
 /**
  * This job entry submits a JAR to Spark and executes a class. It uses the spark-submit script to submit a command like
- * this: spark-submit --class org.pentaho.spark.SparkExecTest --master yarn-cluster my-spark-job.jar arg1 arg2
+ * this: spark-submit --class org.pentaho.spark.SparkExecTest --master yarn --deploy-mode cluster my-spark-job.jar arg1
+ * arg2
+ * <p>
+ * The yarn-cluster and yarn-client masters of Spark 1.x are still accepted and submitted as the yarn master in the
+ * cluster or client deploy mode, the only form Spark 2 and later understand.
  * <p>
  * More information on the options is here: http://spark.apache.org/docs/1.2.0/submitting-applications.html
  */
@@ -77,11 +94,22 @@ public class JobEntrySparkSubmit extends JobEntryBase implements Cloneable, JobE
   public static final String JOB_TYPE_PYTHON = "Python";
   public static final String HADOOP_CLUSTER_PREFIX = "hc://";
 
+  /**
+   * How often a launcher submission checks whether the parent job has been stopped while it waits for the application
+   */
+  static final long LAUNCHER_STOP_CHECK_INTERVAL_MS = 1000;
+
+  private static final String YARN_WAIT_APP_COMPLETION = "spark.yarn.submit.waitAppCompletion";
+  private static final String DEPLOY_MODE_CONF = "spark.submit.deployMode";
+  private static final String YARN_MASTER = "yarn";
+  private static final String CLUSTER_DEPLOY_MODE = "cluster";
+  private static final String CLIENT_DEPLOY_MODE = "client";
+
   private static Class<?> PKG = JobEntrySparkSubmit.class; // for i18n purposes, needed by Translator2!!
 
   private String jobType = JOB_TYPE_JAVA_SCALA;
   private String scriptPath; // the path for the spark-submit utility
-  private String master = "yarn-cluster"; // the URL for the Spark master
+  private String master = "yarn-cluster"; // the URL for the Spark master, yarn-* is submitted with a deploy mode
   private Map<String, String> libs = new LinkedHashMap<>();
   // supporting documents options, "path->environment"
   private List<String> configParams = new ArrayList<String>(); // configuration options, "key=value"
@@ -92,8 +120,10 @@ public class JobEntrySparkSubmit extends JobEntryBase implements Cloneable, JobE
   private boolean blockExecution = true; // wait for job to complete
   private String executorMemory; // memory allocation config param for the executor
   private String driverMemory; // memory allocation config param for the driver
+  private boolean useLauncher; // submit through the Spark launcher instead of forking spark-submit
 
   protected Process proc; // the process for the spark-submit command
+  protected SparkAppHandle appHandle; // the handle of the application submitted through the Spark launcher
 
   public JobEntrySparkSubmit( String n ) {
     super( n, "" );
@@ -139,6 +169,7 @@ public class JobEntrySparkSubmit extends JobEntryBase implements Cloneable, JobE
     retval.append( "      " ).append( XMLHandler.addTagValue( "driverMemory", driverMemory ) );
     retval.append( "      " ).append( XMLHandler.addTagValue( "executorMemory", executorMemory ) );
     retval.append( "      " ).append( XMLHandler.addTagValue( "blockExecution", blockExecution ) );
+    retval.append( "      " ).append( XMLHandler.addTagValue( "useLauncher", useLauncher ) );
     return retval.toString();
   }
 
@@ -176,6 +207,7 @@ public class JobEntrySparkSubmit extends JobEntryBase implements Cloneable, JobE
       driverMemory = XMLHandler.getTagValue( entrynode, "driverMemory" );
       executorMemory = XMLHandler.getTagValue( entrynode, "executorMemory" );
       blockExecution = "Y".equalsIgnoreCase( XMLHandler.getTagValue( entrynode, "blockExecution" ) );
+      useLauncher = "Y".equalsIgnoreCase( XMLHandler.getTagValue( entrynode, "useLauncher" ) );
     } catch ( KettleXMLException xe ) {
       throw new KettleXMLException( "Unable to load job entry of type 'SparkSubmit' from XML node", xe );
     }
@@ -207,6 +239,7 @@ public class JobEntrySparkSubmit extends JobEntryBase implements Cloneable, JobE
       driverMemory = rep.getJobEntryAttributeString( id_jobentry, "driverMemory" );
       executorMemory = rep.getJobEntryAttributeString( id_jobentry, "executorMemory" );
       blockExecution = rep.getJobEntryAttributeBoolean( id_jobentry, "blockExecution" );
+      useLauncher = rep.getJobEntryAttributeBoolean( id_jobentry, "useLauncher" );
     } catch ( KettleException dbe ) {
       throw new KettleException( "Unable to load job entry of type 'SparkSubmit' from the repository for id_jobentry="
         + id_jobentry, dbe );
@@ -237,6 +270,7 @@ public class JobEntrySparkSubmit extends JobEntryBase implements Cloneable, JobE
       rep.saveJobEntryAttribute( id_job, getObjectId(), "driverMemory", driverMemory );
       rep.saveJobEntryAttribute( id_job, getObjectId(), "executorMemory", executorMemory );
       rep.saveJobEntryAttribute( id_job, getObjectId(), "blockExecution", blockExecution );
+      rep.saveJobEntryAttribute( id_job, getObjectId(), "useLauncher", useLauncher );
     } catch ( KettleDatabaseException dbe ) {
       throw new KettleException( "Unable to save job entry of type 'SparkSubmit' to the repository for id_job="
         + id_job, dbe );
@@ -419,6 +453,25 @@ public class JobEntrySparkSubmit extends JobEntryBase implements Cloneable, JobE
     this.blockExecution = blockExecution;
   }
 
+  /**
+   * Returns if the application is submitted through the Spark launcher rather than by forking spark-submit and
+   * scanning its output
+   *
+   * @return launcher mode
+   */
+  public boolean isUseLauncher() {
+    return useLauncher;
+  }
+
+  /**
+   * Sets if the application is submitted through the Spark launcher rather than by forking spark-submit
+   *
+   * @param useLauncher launcher mode
+   */
+  public void setUseLauncher( boolean useLauncher ) {
+    this.useLauncher = useLauncher;
+  }
+
   /**
    * Returns type of job, valid types are {@link #JOB_TYPE_JAVA_SCALA} and {@link #JOB_TYPE_PYTHON}.
    *
@@ -465,8 +518,34 @@ public class JobEntrySparkSubmit extends JobEntryBase implements Cloneable, JobE
     List<String> cmds = new ArrayList<String>();
 
     cmds.add( environmentSubstitute( scriptPath ) );
+    cmds.addAll( getSubmitOptions() );
+    cmds.add( getAppResource() );
+    cmds.addAll( getAppArgs() );
+
+    return cmds;
+  }
+
+  /**
+   * Returns the spark-submit options as a list of option name and value pairs, e.g. --master <master-url> --conf
+   * <key>=<value>
+   *
+   * @return The spark-submit options
+   */
+  @VisibleForTesting
+  List<String> getSubmitOptions() {
+    List<String> cmds = new ArrayList<String>();
+
+    String legacyDeployMode = getLegacyDeployMode();
     cmds.add( "--master" );
-    cmds.add( environmentSubstitute( master ) );
+    if ( legacyDeployMode != null ) {
+      cmds.add( YARN_MASTER );
+      if ( getDeployModeConf() == null ) {
+        cmds.add( "--deploy-mode" );
+        cmds.add( legacyDeployMode );
+      }
+    } else {
+      cmds.add( environmentSubstitute( master ) );
+    }
 
     for ( String confParam : configParams ) {
       cmds.add( "--conf" );
@@ -495,8 +574,6 @@ public class JobEntrySparkSubmit extends JobEntryBase implements Cloneable, JobE
           cmds.add( environmentSubstitute( Joiner.on( ',' ).join( libs.keySet() ) ) );
         }
 
-        cmds.add( resolvePath( environmentSubstitute( jar ) ) );
-
         break;
       }
       case JOB_TYPE_PYTHON: {
@@ -505,12 +582,33 @@ public class JobEntrySparkSubmit extends JobEntryBase implements Cloneable, JobE
           cmds.add( environmentSubstitute( Joiner.on( ',' ).join( libs.keySet() ) ) );
         }
 
-        cmds.add( environmentSubstitute( pyFile ) );
-
         break;
       }
     }
 
+    return cmds;
+  }
+
+  /**
+   * Returns the jar or python file of the Spark application
+   *
+   * @return The application resource
+   */
+  private String getAppResource() {
+    if ( JOB_TYPE_PYTHON.equals( jobType ) ) {
+      return environmentSubstitute( pyFile );
+    }
+    return resolvePath( environmentSubstitute( jar ) );
+  }
+
+  /**
+   * Returns the arguments for the Spark application, with hadoop cluster paths resolved
+   *
+   * @return The application arguments
+   */
+  private List<String> getAppArgs() throws IOException {
+    List<String> cmds = new ArrayList<String>();
+
     if ( !Const.isEmpty( args ) ) {
       List<String> argArray = parseCommandLine( args );
       for ( String anArg : argArray ) {
@@ -566,6 +664,10 @@ public class JobEntrySparkSubmit extends JobEntryBase implements Cloneable, JobE
       return result;
     }
 
+    if ( useLauncher ) {
+      return executeWithLauncher( result );
+    }
+
     try {
       List<String> cmds = getCmds();
 
@@ -610,11 +712,8 @@ public class JobEntrySparkSubmit extends JobEntryBase implements Cloneable, JobE
         outputLogger.addPatternMatchedListener( cb );
       }
 
-      // kick them off
-      Thread errorLoggerThread = new Thread( errorLogger );
-      errorLoggerThread.start();
-      Thread outputLoggerThread = new Thread( outputLogger );
-      outputLoggerThread.start();
+      // kick them off, the streams are read by the pump shared with all the other entries
+      CompletableFuture<Void> loggersDone = ProcessLogPump.getInstance().pump( proc, errorLogger, outputLogger );
 
       // Stop on job stop
       final AtomicBoolean processFinished = new AtomicBoolean( false );
@@ -636,7 +735,7 @@ public class JobEntrySparkSubmit extends JobEntryBase implements Cloneable, JobE
 
       processFinished.set( true );
 
-      prepareProcessThreadsToStop( proc, errorLoggerThread, outputLoggerThread );
+      prepareProcessToStop( proc, loggersDone );
 
       if ( log.isDetailed() ) {
         logDetailed( "Spark submit finished" );
@@ -670,17 +769,225 @@ public class JobEntrySparkSubmit extends JobEntryBase implements Cloneable, JobE
     return result;
   }
 
-  private void waitForThreadsFinishToRead( Thread errorLoggerThread, Thread outputLoggerThread )
-    throws InterruptedException {
-    // wait until loggers read all data from stdout and stderr
-    errorLoggerThread.join();
-    outputLoggerThread.join();
+  /**
+   * Submits the application through the Spark launcher. The launcher reports the state of the application to a server
+   * that is shared by all the submissions of this JVM, so the state changes arrive as events instead of being scraped
+   * from the output of spark-submit. When Spark itself is on the classpath a cluster mode application is submitted in
+   * this JVM, without starting a spark-submit process at all.
+   *
+   * @return The Result of the operation
+   */
+  private Result executeWithLauncher( Result result ) {
+    Logger launcherLogger = null;
+    Handler logHandler = new LogChannelHandler();
+    try {
+      AbstractLauncher<?> launcher = createLauncher();
+      if ( launcher instanceof SparkLauncher ) {
+        // the output of spark-submit goes to a java.util.logging logger, from where it is handed to the job log
+        String loggerName = SparkLauncher.class.getName() + "." + getName() + "." + System.identityHashCode( this );
+        ( (SparkLauncher) launcher ).redirectToLog( loggerName );
+        launcherLogger = Logger.getLogger( loggerName );
+        launcherLogger.setUseParentHandlers( false );
+        launcherLogger.addHandler( logHandler );
+      }
+
+      logBasic( BaseMessages.getString( PKG, "JobEntrySparkSubmit.Launcher.Submitting" ) );
+
+      final CompletableFuture<SparkAppHandle.State> submitted = new CompletableFuture<>();
+      appHandle = launcher.startApplication( new SparkAppHandle.Listener() {
+        @Override
+        public void stateChanged( SparkAppHandle handle ) {
+          SparkAppHandle.State state = handle.getState();
+          logBasic( BaseMessages.getString( PKG, "JobEntrySparkSubmit.Launcher.StateChanged", state,
+            Const.NVL( handle.getAppId(), "" ) ) );
+          if ( state.isFinal() || ( !blockExecution && isSubmitted( state ) ) ) {
+            submitted.complete( state );
+          }
+        }
+
+        @Override
+        public void infoChanged( SparkAppHandle handle ) {
+          if ( log.isDetailed() ) {
+            logDetailed( BaseMessages.getString( PKG, "JobEntrySparkSubmit.Launcher.AppId", handle.getAppId() ) );
+          }
+        }
+      } );
+
+      SparkAppHandle.State state = waitForState( submitted );
+      if ( !state.isFinal() ) {
+        // non blocking mode, the application keeps running on the cluster
+        appHandle.disconnect();
+      }
+
+      int exitCode = state == SparkAppHandle.State.FINISHED || isSubmitted( state ) ? 0 : 1;
+      result.setExitStatus( exitCode );
+      if ( exitCode != 0 ) {
+        logError( BaseMessages.getString( PKG, "JobEntrySparkSubmit.Launcher.Failed", state ) );
+        result.setNrErrors( 1 );
+      }
+      result.setResult( exitCode == 0 );
+    } catch ( Exception e ) {
+      result.setNrErrors( 1 );
+      logError( BaseMessages.getString( PKG, "JobEntrySparkSubmit.Error.SubmittingScript", e.getMessage() ) );
+      logError( Const.getStackTracker( e ) );
+      result.setResult( false );
+    } finally {
+      if ( launcherLogger != null ) {
+        launcherLogger.removeHandler( logHandler );
+      }
+    }
+
+    return result;
   }
 
-  private void prepareProcessThreadsToStop( Process proc, Thread errorLoggerThread, Thread outputLoggerThread )
-    throws Exception {
+  private static boolean isSubmitted( SparkAppHandle.State state ) {
+    return state == SparkAppHandle.State.SUBMITTED || state == SparkAppHandle.State.RUNNING;
+  }
+
+  private SparkAppHandle.State waitForState( CompletableFuture<SparkAppHandle.State> submitted )
+    throws InterruptedException, ExecutionException {
+    while ( true ) {
+      try {
+        return submitted.get( LAUNCHER_STOP_CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS );
+      } catch ( TimeoutException e ) {
+        if ( getParentJob() != null && getParentJob().isStopped() ) {
+          appHandle.kill();
+          return SparkAppHandle.State.KILLED;
+        }
+      }
+    }
+  }
+
+  /**
+   * Creates the launcher for the application, with the same options as the spark-submit command. A cluster mode
+   * application is launched in this JVM when Spark is available on the classpath, otherwise spark-submit is started
+   * from the Spark installation the script path points to. The in-process launcher does not support client mode, where
+   * the driver would run inside this JVM, so client mode applications are always submitted through spark-submit. The
+   * plugin itself only ships the Spark launcher, so unless Spark has been added to the classpath every application is
+   * submitted through spark-submit, and the reason is logged.
+   *
+   * @return The launcher
+   */
+  @VisibleForTesting
+  AbstractLauncher<?> createLauncher() throws IOException {
+    AbstractLauncher<?> launcher;
+    if ( isSparkOnClasspath() && isClusterMode() ) {
+      launcher = new InProcessLauncher();
+    } else {
+      String submitScript = environmentSubstitute( scriptPath );
+      if ( !isClusterMode() ) {
+        logBasic( BaseMessages.getString( PKG, "JobEntrySparkSubmit.Launcher.ClientMode", submitScript ) );
+      } else {
+        logBasic( BaseMessages.getString( PKG, "JobEntrySparkSubmit.Launcher.NoSparkOnClasspath", submitScript ) );
+      }
+      Map<String, String> env = new HashMap<>();
+      for ( String variable : listVariables() ) {
+        env.put( variable, getVariable( variable ) );
+      }
+      SparkLauncher sparkLauncher = new SparkLauncher( env );
+      File sparkBin = new File( submitScript ).getAbsoluteFile().getParentFile();
+      if ( sparkBin != null && sparkBin.getParentFile() != null ) {
+        sparkLauncher.setSparkHome( sparkBin.getParentFile().getPath() );
+      }
+      launcher = sparkLauncher;
+    }
+
+    if ( !blockExecution ) {
+      // on YARN spark-submit can leave as soon as the application is accepted, can be overridden by the config params
+      launcher.setConf( YARN_WAIT_APP_COMPLETION, "false" );
+    }
+    List<String> options = getSubmitOptions();
+    for ( int i = 0; i < options.size(); i += 2 ) {
+      String name = options.get( i );
+      String value = options.get( i + 1 );
+      if ( "--conf".equals( name ) && !value.startsWith( "spark." ) ) {
+        // spark-submit ignores these, the launcher would reject them
+        logBasic( BaseMessages.getString( PKG, "JobEntrySparkSubmit.Launcher.IgnoringConf", value ) );
+        continue;
+      }
+      launcher.addSparkArg( name, value );
+    }
+    launcher.setAppResource( getAppResource() );
+    List<String> appArgs = getAppArgs();
+    launcher.addAppArgs( appArgs.toArray( new String[ 0 ] ) );
+    return launcher;
+  }
+
+  /**
+   * @return whether the driver runs on the cluster, as set by the spark.submit.deployMode config property or else by
+   * the yarn-cluster master
+   */
+  @VisibleForTesting
+  boolean isClusterMode() {
+    String deployMode = getDeployModeConf();
+    return CLUSTER_DEPLOY_MODE.equals( deployMode != null ? deployMode : getLegacyDeployMode() );
+  }
+
+  /**
+   * @return the deploy mode a Spark 1.x master such as yarn-cluster or yarn-client stands for, or null for any other
+   * master
+   */
+  private String getLegacyDeployMode() {
+    String url = Const.NVL( environmentSubstitute( master ), "" ).trim();
+    if ( url.equalsIgnoreCase( YARN_MASTER + "-" + CLUSTER_DEPLOY_MODE ) ) {
+      return CLUSTER_DEPLOY_MODE;
+    }
+    if ( url.equalsIgnoreCase( YARN_MASTER + "-" + CLIENT_DEPLOY_MODE ) ) {
+      return CLIENT_DEPLOY_MODE;
+    }
+    return null;
+  }
+
+  /**
+   * @return the value of the spark.submit.deployMode config property, or null when it is not set
+   */
+  private String getDeployModeConf() {
+    String deployMode = null;
+    for ( String confParam : configParams ) {
+      String[] conf = Const.NVL( environmentSubstitute( confParam ), "" ).split( "=", 2 );
+      if ( conf.length == 2 && DEPLOY_MODE_CONF.equals( conf[ 0 ].trim() ) ) {
+        // like spark-submit, the last setting wins
+        deployMode = conf[ 1 ].trim();
+      }
+    }
+    return deployMode;
+  }
+
+  private static boolean isSparkOnClasspath() {
+    try {
+      Class.forName( "org.apache.spark.deploy.SparkSubmit", false, InProcessLauncher.class.getClassLoader() );
+      return true;
+    } catch ( ClassNotFoundException | LinkageError e ) {
+      return false;
+    }
+  }
+
+  /**
+   * Hands the output spark-submit writes to the launcher logger over to the log of this job entry.
+   */
+  private class LogChannelHandler extends Handler {
+    @Override
+    public void publish( LogRecord record ) {
+      if ( record.getLevel().intValue() >= Level.WARNING.intValue() ) {
+        logError( record.getMessage() );
+      } else {
+        logBasic( record.getMessage() );
+      }
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+
+  private void prepareProcessToStop( Process proc, CompletableFuture<Void> loggersDone ) throws Exception {
     if ( blockExecution ) {
-      waitForThreadsFinishToRead( errorLoggerThread, outputLoggerThread );
+      // wait until loggers read all data from stdout and stderr
+      loggersDone.get();
     } else {
       killChildProcesses();
     }
@@ -768,7 +1075,12 @@ public class JobEntrySparkSubmit extends JobEntryBase implements Cloneable, JobE
 
   @Override
   public void afterExecution( Job arg0, JobEntryCopy arg1, JobEntryInterface arg2, Result arg3 ) {
-    proc.destroy();
+    if ( proc != null ) {
+      proc.destroy();
+    }
+    if ( appHandle != null && !appHandle.getState().isFinal() ) {
+      appHandle.disconnect();
+    }
   }
 
   @Override
@@ -13,50 +13,187 @@
 
 package org.pentaho.di.job.entries.spark;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
+import org.pentaho.di.core.Const;
 import org.pentaho.di.core.logging.LogChannelInterface;
 
 /**
  * Class pumps input stream to output stream while searching it's content for patterns and notifying listener if any.
+ * <p>
+ * The patterns are compiled into a single matcher so every line is only scanned once, and the lines are written to
+ * the log channel in batches rather than one by one. The logger can either run on a thread of its own, or be pumped
+ * without blocking by the shared {@link ProcessLogPump}. The listener is notified of each pattern once, the first time
+ * it is found in the stream.
  *
  * @author Pavel Sakun
  */
 public class PatternMatchingStreamLogger implements Runnable {
+  /**
+   * Lines are written to the log channel in batches of at most this many lines
+   */
+  static final int MAX_BATCH_LINES = 100;
+
   private LogChannelInterface log;
   private InputStream is;
-  private String[] patterns;
+  private Reader reader;
+  private Pattern matcher;
   private PatternMatchedListener listener;
   private AtomicBoolean stop;
 
+  private final char[] buffer = new char[ 8192 ];
+  private final StringBuilder line = new StringBuilder();
+  private final StringBuilder batch = new StringBuilder();
+  private final Set<String> foundPatterns = new HashSet<>();
+  private int batchLines;
+  private boolean skipLineFeed;
+  private volatile boolean closed;
+
   public PatternMatchingStreamLogger( LogChannelInterface log, InputStream is, String[] patterns, AtomicBoolean stop ) {
     this.log = log;
     this.is = is;
-    this.patterns = patterns;
+    this.reader = new InputStreamReader( is );
+    this.matcher = compile( patterns );
     this.stop = stop;
   }
 
+  private static Pattern compile( String[] patterns ) {
+    if ( patterns == null || patterns.length == 0 ) {
+      return null;
+    }
+    StringBuilder regex = new StringBuilder();
+    for ( String pattern : patterns ) {
+      if ( regex.length() > 0 ) {
+        regex.append( '|' );
+      }
+      regex.append( Pattern.quote( pattern ) );
+    }
+    return Pattern.compile( regex.toString() );
+  }
+
+  /**
+   * Reads the stream to its end, blocking while it waits for more output.
+   */
   public void run() {
-    BufferedReader br = new BufferedReader( new InputStreamReader( is ) );
-    String line;
+    try {
+      int read;
+      while ( !stop.get() && ( read = reader.read( buffer ) ) != -1 ) {
+        consume( read );
+        if ( !reader.ready() ) {
+          // nothing more to read for now, write out what we have before blocking
+          flushBatch();
+        }
+      }
+      finish();
+    } catch ( IOException e ) {
+      flushBatch();
+      if ( !closed ) {
+        log.logError( "", e );
+      }
+    }
+  }
+
+  /**
+   * Closes the stream, which ends a read blocked in {@link #run()}. The stream is closed rather than the reader, whose
+   * lock is held by the blocked read.
+   */
+  void close() {
+    closed = true;
+    try {
+      is.close();
+    } catch ( IOException e ) {
+      log.logError( "", e );
+    }
+  }
 
+  /**
+   * Reads what the stream has ready without blocking.
+   *
+   * @return the number of characters read, or -1 once the end of the stream is reached or the logger is stopped
+   */
+  int pumpAvailable() {
+    int total = 0;
     try {
-      while ( !stop.get() && ( line = br.readLine() ) != null ) {
-        log.logBasic( line );
-        for ( String pattern : patterns ) {
-          if ( line.contains( pattern ) ) {
-            if ( listener != null ) {
-              listener.onPatternFound( pattern );
-            }
-          }
+      while ( !stop.get() && reader.ready() ) {
+        int read = reader.read( buffer );
+        if ( read == -1 ) {
+          finish();
+          return -1;
         }
+        consume( read );
+        total += read;
       }
     } catch ( IOException e ) {
+      flushBatch();
       log.logError( "", e );
+      return -1;
+    }
+    flushBatch();
+    return stop.get() ? -1 : total;
+  }
+
+  private void consume( int read ) {
+    for ( int i = 0; i < read; i++ ) {
+      char c = buffer[ i ];
+      if ( c == '\n' && skipLineFeed ) {
+        skipLineFeed = false;
+        continue;
+      }
+      skipLineFeed = c == '\r';
+      if ( c == '\n' || c == '\r' ) {
+        endLine();
+      } else {
+        line.append( c );
+      }
+    }
+  }
+
+  private void finish() {
+    if ( line.length() > 0 ) {
+      endLine();
+    }
+    flushBatch();
+  }
+
+  private void endLine() {
+    String text = line.toString();
+    line.setLength( 0 );
+
+    if ( batchLines > 0 ) {
+      batch.append( Const.CR );
+    }
+    batch.append( text );
+    batchLines++;
+
+    if ( matcher != null ) {
+      Matcher m = matcher.matcher( text );
+      while ( m.find() ) {
+        if ( foundPatterns.add( m.group() ) && listener != null ) {
+          // keep the log in order with whatever the listener does
+          flushBatch();
+          listener.onPatternFound( m.group() );
+        }
+      }
+    }
+
+    if ( batchLines >= MAX_BATCH_LINES ) {
+      flushBatch();
+    }
+  }
+
+  private void flushBatch() {
+    if ( batchLines > 0 ) {
+      log.logBasic( batch.toString() );
+      batch.setLength( 0 );
+      batchLines = 0;
     }
   }
 
@@ -65,6 +202,9 @@ public class PatternMatchingStreamLogger implements Runnable {
   }
 
   public static interface PatternMatchedListener {
+    /**
+     * Called once per pattern, the first time the pattern is found in the stream.
+     */
     public void onPatternFound( String pattern );
   }
 }
@@ -0,0 +1,126 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.job.entries.spark;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pumps the output streams of external processes into their loggers from a small, fixed pool of threads shared by all
+ * job entries, instead of a thread per stream. Each stream is read without blocking for as long as it has output
+ * ready; idle streams are looked at again after a short delay. Once the process has exited, what is left in its
+ * streams is read to the end on the same threads. A stream a child of the process still holds open is closed after a
+ * drain timeout, so that it can't keep a pump thread blocked.
+ */
+public class ProcessLogPump {
+  public static final long POLL_INTERVAL_MS = 100;
+  public static final long DRAIN_TIMEOUT_MS = 10000;
+  private static final int PUMP_THREADS = 2;
+  private static ProcessLogPump instance;
+
+  private final ScheduledExecutorService scheduler;
+  private final long pollIntervalMs;
+  private final long drainTimeoutMs;
+
+  public ProcessLogPump( ScheduledExecutorService scheduler, long pollIntervalMs ) {
+    this( scheduler, pollIntervalMs, DRAIN_TIMEOUT_MS );
+  }
+
+  public ProcessLogPump( ScheduledExecutorService scheduler, long pollIntervalMs, long drainTimeoutMs ) {
+    this.scheduler = scheduler;
+    this.pollIntervalMs = pollIntervalMs;
+    this.drainTimeoutMs = drainTimeoutMs;
+  }
+
+  public static synchronized ProcessLogPump getInstance() {
+    if ( instance == null ) {
+      AtomicInteger threadNumber = new AtomicInteger();
+      instance = new ProcessLogPump( Executors.newScheduledThreadPool( PUMP_THREADS, runnable -> {
+        Thread thread = new Thread( runnable, "process-log-pump-" + threadNumber.incrementAndGet() );
+        thread.setDaemon( true );
+        return thread;
+      } ), POLL_INTERVAL_MS );
+    }
+    return instance;
+  }
+
+  /**
+   * Starts pumping the streams of a process.
+   *
+   * @param process the process writing to the streams
+   * @param loggers one logger per stream of the process
+   * @return a future that completes once all the streams have been read to the end, their loggers stopped, or the
+   * drain timeout passed after the process exited
+   */
+  public CompletableFuture<Void> pump( Process process, PatternMatchingStreamLogger... loggers ) {
+    CompletableFuture<?>[] done = new CompletableFuture<?>[ loggers.length ];
+    for ( int i = 0; i < loggers.length; i++ ) {
+      CompletableFuture<Void> loggerDone = new CompletableFuture<>();
+      schedule( process, loggers[ i ], loggerDone, 0 );
+      done[ i ] = loggerDone;
+    }
+    return CompletableFuture.allOf( done );
+  }
+
+  private void schedule( Process process, PatternMatchingStreamLogger logger, CompletableFuture<Void> done,
+                         long delayMs ) {
+    scheduler.schedule( () -> pumpOnce( process, logger, done ), delayMs, TimeUnit.MILLISECONDS );
+  }
+
+  private void pumpOnce( Process process, PatternMatchingStreamLogger logger, CompletableFuture<Void> done ) {
+    try {
+      int read = logger.pumpAvailable();
+      if ( read > 0 ) {
+        // a busy stream is given another turn right away, behind the other streams already waiting
+        schedule( process, logger, done, 0 );
+        return;
+      }
+      if ( read == 0 ) {
+        if ( process.isAlive() ) {
+          schedule( process, logger, done, pollIntervalMs );
+          return;
+        }
+        drain( logger, done );
+        return;
+      }
+      done.complete( null );
+    } catch ( RuntimeException e ) {
+      done.completeExceptionally( e );
+    }
+  }
+
+  /**
+   * Reads what the exited process left behind. The streams of a process started by the JVM are buffered in memory once
+   * it exited, so this does not block. Any other stream a child of the process keeps open is closed when the drain
+   * timeout passed, which ends the blocked read and frees the pump thread.
+   */
+  private void drain( PatternMatchingStreamLogger logger, CompletableFuture<Void> done ) {
+    CompletableFuture.runAsync( logger, scheduler ).orTimeout( drainTimeoutMs, TimeUnit.MILLISECONDS )
+      .whenComplete( ( result, e ) -> {
+        if ( e instanceof TimeoutException ) {
+          logger.close();
+          done.complete( null );
+        } else if ( e != null ) {
+          done.completeExceptionally( e instanceof CompletionException ? e.getCause() : e );
+        } else {
+          done.complete( null );
+        }
+      } );
+  }
+}
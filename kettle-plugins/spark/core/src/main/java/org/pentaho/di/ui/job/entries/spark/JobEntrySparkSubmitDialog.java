@@ -121,6 +121,7 @@ public class JobEntrySparkSubmitDialog extends JobEntryDialog implements JobEntr
   private TextVar txtExecutorMemory;
   private TextVar txtDriverMemory;
   private Button chkEnableBlocking;
+  private Button chkUseLauncher;
 
   private JobEntrySparkSubmit jobEntry;
   private boolean backupChanged;
@@ -260,6 +261,11 @@ public class JobEntrySparkSubmitDialog extends JobEntryDialog implements JobEntr
     chkEnableBlocking.setText( BaseMessages.getString( PKG, "JobEntrySparkSubmit.BlockExecution.Label" ) );
     chkEnableBlocking.setLayoutData( fd( fa( 0, 0 ), null, null, fa( sep2, -15 ) ) );
 
+    chkUseLauncher = new Button( shell, SWT.CHECK );
+    props.setLook( chkUseLauncher );
+    chkUseLauncher.setText( BaseMessages.getString( PKG, "JobEntrySparkSubmit.UseLauncher.Label" ) );
+    chkUseLauncher.setLayoutData( fd( fa( chkEnableBlocking, 15 ), null, null, fa( sep2, -15 ) ) );
+
     CTabFolder tabs = new CTabFolder( shell, SWT.BORDER );
     props.setLook( tabs, Props.WIDGET_STYLE_TAB );
     props.setLook( tabs );
@@ -640,6 +646,7 @@ public class JobEntrySparkSubmitDialog extends JobEntryDialog implements JobEntr
 
     txtArguments.setText( Const.nullToEmpty( jobEntry.getArgs() ) );
     chkEnableBlocking.setSelection( jobEntry.isBlockExecution() );
+    chkUseLauncher.setSelection( jobEntry.isUseLauncher() );
 
     List<String> params = jobEntry.getConfigParams();
     for ( int i = 0; i < params.size(); i++ ) {
@@ -699,6 +706,7 @@ public class JobEntrySparkSubmitDialog extends JobEntryDialog implements JobEntr
     }
     jobEntry.setArgs( txtArguments.getText() );
     jobEntry.setBlockExecution( chkEnableBlocking.getSelection() );
+    jobEntry.setUseLauncher( chkUseLauncher.getSelection() );
 
     List<String> configParams = new ArrayList<String>( this.tblUtilityParameters.getItemCount() );
     for ( int i = 0; i < this.tblUtilityParameters.getItemCount(); i++ ) {
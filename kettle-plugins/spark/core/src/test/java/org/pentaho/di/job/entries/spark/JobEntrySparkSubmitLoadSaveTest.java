@@ -40,6 +40,6 @@ public class JobEntrySparkSubmitLoadSaveTest extends JobEntryLoadSaveTestSupport
   @Override
   protected List<String> listCommonAttributes() {
     return asList( "scriptPath", "master", "jar", "className", "args", "configParams", "driverMemory",
-        "executorMemory", "blockExecution", "jobType", "pyFile", "libs" );
+        "executorMemory", "blockExecution", "jobType", "pyFile", "libs", "useLauncher" );
   }
 }
@@ -19,6 +19,7 @@ import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import org.apache.spark.launcher.SparkLauncher;
 import org.junit.Assert;
 import org.junit.Test;
 import org.pentaho.di.core.CheckResultInterface;
@@ -67,6 +68,74 @@ public class JobEntrySparkSubmitTest {
     Assert.assertArrayEquals( expected, ss.getCmds().toArray() );
   }
 
+  @Test
+  public void testCreateLauncher() throws IOException {
+    JobEntrySparkSubmit ss = new JobEntrySparkSubmit();
+    ss.setScriptPath( "/opt/spark/bin/spark-submit" );
+    ss.setMaster( "master_url" );
+    ss.setJobType( JOB_TYPE_JAVA_SCALA );
+    ss.setJar( "jar_path" );
+    ss.setArgs( "arg1 arg2" );
+    ss.setClassName( "class_name" );
+    ss.setDriverMemory( "driverMemory" );
+    ss.setExecutorMemory( "executorMemory" );
+    ss.setBlockExecution( false );
+    ss.setParentJobMeta( new JobMeta() );
+
+    List<String> configParams = new ArrayList<String>();
+    configParams.add( "spark.name1=value1" );
+    configParams.add( "name2=value 2" );
+    ss.setConfigParams( configParams );
+
+    Map<String, String> libs = new LinkedHashMap<>();
+    libs.put( "file:///path/to/lib1", "Local" );
+    ss.setLibs( libs );
+
+    // every option of spark-submit has to be accepted by the launcher, spark is not on the test classpath
+    Assert.assertTrue( ss.createLauncher() instanceof SparkLauncher );
+
+    String[] expected = new String[] { "--master", "master_url", "--conf", "spark.name1=value1", "--conf",
+        "name2=value 2", "--driver-memory", "driverMemory", "--executor-memory", "executorMemory", "--class",
+        "class_name", "--jars", "file:///path/to/lib1" };
+    Assert.assertArrayEquals( expected, ss.getSubmitOptions().toArray() );
+  }
+
+  @Test
+  public void testLegacyYarnMaster() {
+    JobEntrySparkSubmit ss = new JobEntrySparkSubmit();
+    ss.setMaster( "yarn-cluster" );
+    ss.setJobType( JOB_TYPE_JAVA_SCALA );
+    ss.setParentJobMeta( new JobMeta() );
+    Assert.assertEquals( Arrays.asList( "--master", "yarn", "--deploy-mode", "cluster" ), ss.getSubmitOptions() );
+
+    ss.setMaster( "yarn-client" );
+    Assert.assertEquals( Arrays.asList( "--master", "yarn", "--deploy-mode", "client" ), ss.getSubmitOptions() );
+
+    List<String> configParams = new ArrayList<String>();
+    configParams.add( "spark.submit.deployMode=cluster" );
+    ss.setConfigParams( configParams );
+    Assert.assertEquals( "the config property decides the deploy mode",
+      Arrays.asList( "--master", "yarn", "--conf", "spark.submit.deployMode=cluster" ), ss.getSubmitOptions() );
+  }
+
+  @Test
+  public void testIsClusterMode() {
+    JobEntrySparkSubmit ss = new JobEntrySparkSubmit();
+    ss.setMaster( "yarn-cluster" );
+    Assert.assertTrue( ss.isClusterMode() );
+    ss.setMaster( "yarn-client" );
+    Assert.assertFalse( ss.isClusterMode() );
+    ss.setMaster( "yarn" );
+    Assert.assertFalse( "client mode by default", ss.isClusterMode() );
+
+    List<String> configParams = new ArrayList<String>();
+    configParams.add( "spark.submit.deployMode = cluster" );
+    ss.setConfigParams( configParams );
+    Assert.assertTrue( ss.isClusterMode() );
+    configParams.add( "spark.submit.deployMode=client" );
+    Assert.assertFalse( ss.isClusterMode() );
+  }
+
   @Test
   public void testValidate () {
     JobEntrySparkSubmit ss = spy( new JobEntrySparkSubmit() );
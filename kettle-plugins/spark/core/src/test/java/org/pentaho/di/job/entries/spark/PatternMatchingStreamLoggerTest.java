@@ -13,10 +13,15 @@
 
 package org.pentaho.di.job.entries.spark;
 
+import static org.junit.Assert.assertEquals;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -27,6 +32,7 @@ import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.pentaho.di.core.Const;
 import org.pentaho.di.core.logging.LogChannelInterface;
 import org.pentaho.di.core.util.Assert;
 
@@ -78,4 +84,43 @@ public class PatternMatchingStreamLoggerTest {
   public void negativeTest() throws InterruptedException, TimeoutException, ExecutionException {
     doTest( nonMatchingPatterns, false );
   }
+
+  @Test
+  public void testLinesAreLoggedInOneBatch() {
+    LogChannelInterface logChannel = mock( LogChannelInterface.class );
+    new PatternMatchingStreamLogger( logChannel, new ByteArrayInputStream( "a\r\nb\nc".getBytes() ),
+      nonMatchingPatterns, stop ).run();
+
+    verify( logChannel ).logBasic( "a" + Const.CR + "b" + Const.CR + "c" );
+  }
+
+  @Test
+  public void testEachPatternIsReportedOnce() {
+    final List<String> found = new ArrayList<>();
+    PatternMatchingStreamLogger testee = new PatternMatchingStreamLogger( mock( LogChannelInterface.class ),
+      new ByteArrayInputStream( "first first\nsecond and first\n".getBytes() ), new String[] { "first", "second" },
+      stop );
+    testee.addPatternMatchedListener( new PatternMatchingStreamLogger.PatternMatchedListener() {
+      @Override public void onPatternFound( String pattern ) {
+        found.add( pattern );
+      }
+    } );
+
+    testee.run();
+
+    assertEquals( Arrays.asList( "first", "second" ), found );
+  }
+
+  @Test
+  public void testPumpAvailable() {
+    LogChannelInterface logChannel = mock( LogChannelInterface.class );
+    PatternMatchingStreamLogger testee =
+      new PatternMatchingStreamLogger( logChannel, input, nonMatchingPatterns, stop );
+
+    Assert.assertTrue( testee.pumpAvailable() == log.length() );
+    verify( logChannel ).logBasic( "Line1" + Const.CR + "Some other line" + Const.CR + "One more line" );
+
+    stop.set( true );
+    Assert.assertTrue( testee.pumpAvailable() == -1 );
+  }
 }
@@ -0,0 +1,117 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.job.entries.spark;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.di.core.logging.LogChannelInterface;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ProcessLogPumpTest {
+  private ScheduledExecutorService scheduler;
+  private ProcessLogPump pump;
+
+  @Before
+  public void setup() {
+    scheduler = Executors.newSingleThreadScheduledExecutor();
+    pump = new ProcessLogPump( scheduler, 10 );
+  }
+
+  @After
+  public void teardown() {
+    scheduler.shutdownNow();
+  }
+
+  @Test
+  public void testPumpsAllStreams() throws Exception {
+    Process process = mock( Process.class );
+    when( process.isAlive() ).thenReturn( true, true, false );
+    LogChannelInterface outLog = mock( LogChannelInterface.class );
+    LogChannelInterface errLog = mock( LogChannelInterface.class );
+    AtomicBoolean stop = new AtomicBoolean( false );
+    PatternMatchingStreamLogger out =
+      new PatternMatchingStreamLogger( outLog, new ByteArrayInputStream( "out1\nout2\n".getBytes() ), null, stop );
+    PatternMatchingStreamLogger err =
+      new PatternMatchingStreamLogger( errLog, new ByteArrayInputStream( "err\n".getBytes() ), null, stop );
+
+    pump.pump( process, out, err ).get( 5, TimeUnit.SECONDS );
+
+    verify( outLog, times( 1 ) ).logBasic( anyString() );
+    verify( errLog ).logBasic( "err" );
+  }
+
+  @Test
+  public void testStopsWithTheLogger() throws Exception {
+    Process process = mock( Process.class );
+    when( process.isAlive() ).thenReturn( true );
+    AtomicBoolean stop = new AtomicBoolean( true );
+    PatternMatchingStreamLogger logger = new PatternMatchingStreamLogger( mock( LogChannelInterface.class ),
+      new ByteArrayInputStream( "line\n".getBytes() ), new String[] { "line" }, stop );
+
+    pump.pump( process, logger ).get( 5, TimeUnit.SECONDS );
+
+    assertTrue( stop.get() );
+  }
+
+  @Test
+  public void testDrainOfAStreamHeldOpenIsBounded() throws Exception {
+    Process process = mock( Process.class );
+    when( process.isAlive() ).thenReturn( false );
+    final CountDownLatch closed = new CountDownLatch( 1 );
+    // a stream a child of the exited process still holds open
+    InputStream heldOpen = new InputStream() {
+      @Override public int read() throws IOException {
+        try {
+          closed.await();
+        } catch ( InterruptedException e ) {
+          Thread.currentThread().interrupt();
+        }
+        throw new IOException( "Stream closed" );
+      }
+
+      @Override public void close() {
+        closed.countDown();
+      }
+    };
+    LogChannelInterface log = mock( LogChannelInterface.class );
+    PatternMatchingStreamLogger logger =
+      new PatternMatchingStreamLogger( log, heldOpen, null, new AtomicBoolean( false ) );
+
+    new ProcessLogPump( scheduler, 10, 50 ).pump( process, logger ).get( 5, TimeUnit.SECONDS );
+
+    assertEquals( "the stream is closed once the drain timed out", 0, closed.getCount() );
+    // the blocked read ends and the pump thread is free again
+    scheduler.submit( () -> null ).get( 5, TimeUnit.SECONDS );
+    verify( log, never() ).logError( anyString(), any( Throwable.class ) );
+  }
+}
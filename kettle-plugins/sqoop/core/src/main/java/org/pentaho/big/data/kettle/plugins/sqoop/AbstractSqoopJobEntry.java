@@ -56,6 +56,7 @@ import org.w3c.dom.Node;
 
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
@@ -332,9 +333,17 @@ public abstract class AbstractSqoopJobEntry<S extends SqoopConfig> extends Abstr
 
       HadoopClientServices hadoopClientServices = namedClusterServiceLocator.getService( namedCluster, HadoopClientServices.class );
 
-      int result = hadoopClientServices.runSqoop( args, properties );
-      if ( result != 0 ) {
-        setJobResultFailed( jobResult );
+      boolean succeeded = true;
+      for ( List<String> toolArgs : planExecution( config, args ) ) {
+        int result = hadoopClientServices.runSqoop( toolArgs, properties );
+        if ( result != 0 ) {
+          setJobResultFailed( jobResult );
+          succeeded = false;
+          break;
+        }
+      }
+      if ( succeeded ) {
+        executionSucceeded( config );
       }
     } catch ( Exception ex ) {
       logError( getString( "ErrorRunningSqoopTool" ), ex );
@@ -344,6 +353,34 @@ public abstract class AbstractSqoopJobEntry<S extends SqoopConfig> extends Abstr
     }
   }
 
+  /**
+   * Plan the Sqoop tool runs needed to execute this job entry. They run one after the other and stop at the first one
+   * failing.
+   *
+   * @param sqoopConfig
+   *          Sqoop configuration settings
+   * @param args
+   *          Command-line arguments for the Sqoop tool, starting with the tool name
+   * @return the command-line arguments of every run, by default a single run with {@code args}
+   * @throws KettleException
+   *           when the runs could not be planned
+   */
+  protected List<List<String>> planExecution( S sqoopConfig, List<String> args ) throws KettleException {
+    return Collections.singletonList( args );
+  }
+
+  /**
+   * Called once all the Sqoop tool runs planned by {@link #planExecution(SqoopConfig, List)} succeeded.
+   *
+   * @param sqoopConfig
+   *          Sqoop configuration settings
+   * @throws KettleException
+   *           when the state following the execution could not be saved, which fails the job entry
+   */
+  protected void executionSucceeded( S sqoopConfig ) throws KettleException {
+    // nothing to do by default
+  }
+
   /**
    * Configure the Hadoop environment
    *
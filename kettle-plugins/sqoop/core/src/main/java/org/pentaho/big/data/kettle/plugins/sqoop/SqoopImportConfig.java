@@ -43,6 +43,7 @@ public class SqoopImportConfig extends SqoopConfig {
   public static final String CHECK_COLUMN = "checkColumn";
   public static final String INCREMENTAL = "incremental";
   public static final String LAST_VALUE = "lastValue";
+  public static final String TRACK_LAST_VALUE = "trackLastValue";
 
   // Hive arguments
   public static final String HIVE_IMPORT = "hiveImport";
@@ -83,6 +84,10 @@ public class SqoopImportConfig extends SqoopConfig {
   public static final String ACCUMULO_USER = "accumuloUser";
   public static final String ACCUMULO_VISIBILITY = "accumuloVisibility";
   public static final String ACCUMULO_ZOOKEPERS = "accumuloZookeepers";
+
+  // Split planning arguments
+  public static final String AUTO_SPLIT = "autoSplit";
+  public static final String ROWS_PER_MAPPER = "rowsPerMapper";
   private final SqoopImportJobEntry jobEntry;
 
   // Import control arguments
@@ -204,6 +209,13 @@ public class SqoopImportConfig extends SqoopConfig {
   private String hbaseZookeeperQuorum;
   private String hbaseZookeeperClientPort;
 
+  // Non command line argument for keeping the last value of incremental imports in the watermark store
+  private String trackLastValue;
+
+  // Non command line arguments for planning the splits from the distribution of the split column
+  private String autoSplit;
+  private String rowsPerMapper;
+
   public SqoopImportConfig( SqoopImportJobEntry jobEntry ) {
     this.jobEntry = jobEntry;
   }
@@ -464,6 +476,30 @@ public class SqoopImportConfig extends SqoopConfig {
       propertyChange( HBASE_ZOOKEEPER_CLIENT_PORT, this.hbaseZookeeperClientPort, hbaseZookeeperClientPort );
   }
 
+  public String getTrackLastValue() {
+    return trackLastValue;
+  }
+
+  public void setTrackLastValue( String trackLastValue ) {
+    this.trackLastValue = propertyChange( TRACK_LAST_VALUE, this.trackLastValue, trackLastValue );
+  }
+
+  public String getAutoSplit() {
+    return autoSplit;
+  }
+
+  public void setAutoSplit( String autoSplit ) {
+    this.autoSplit = propertyChange( AUTO_SPLIT, this.autoSplit, autoSplit );
+  }
+
+  public String getRowsPerMapper() {
+    return rowsPerMapper;
+  }
+
+  public void setRowsPerMapper( String rowsPerMapper ) {
+    this.rowsPerMapper = propertyChange( ROWS_PER_MAPPER, this.rowsPerMapper, rowsPerMapper );
+  }
+
   @Override
   public AbstractModelList<ArgumentWrapper> getAdvancedArgumentsList() {
     AbstractModelList<ArgumentWrapper> items = super.getAdvancedArgumentsList();
@@ -487,6 +523,15 @@ public class SqoopImportConfig extends SqoopConfig {
           "HBaseZookeeperClientPort.Label" ),
           false, "", 0, this, getClass().getMethod( "getHbaseZookeeperClientPort" ),
           getClass().getMethod( "setHbaseZookeeperClientPort", String.class ) ) );
+      items.add( new ArgumentWrapper( TRACK_LAST_VALUE, BaseMessages.getString( getClass(), "TrackLastValue.Label" ),
+          false, "", 0, this, getClass().getMethod( "getTrackLastValue" ),
+          getClass().getMethod( "setTrackLastValue", String.class ) ) );
+      items.add( new ArgumentWrapper( AUTO_SPLIT, BaseMessages.getString( getClass(), "AutoSplit.Label" ),
+          false, "", 0, this, getClass().getMethod( "getAutoSplit" ),
+          getClass().getMethod( "setAutoSplit", String.class ) ) );
+      items.add( new ArgumentWrapper( ROWS_PER_MAPPER, BaseMessages.getString( getClass(), "RowsPerMapper.Label" ),
+          false, "", 0, this, getClass().getMethod( "getRowsPerMapper" ),
+          getClass().getMethod( "setRowsPerMapper", String.class ) ) );
     } catch ( NoSuchMethodException ex ) {
       throw new RuntimeException( ex );
     }
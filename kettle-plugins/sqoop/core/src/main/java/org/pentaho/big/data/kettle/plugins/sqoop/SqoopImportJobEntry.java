@@ -13,18 +13,33 @@
 
 package org.pentaho.big.data.kettle.plugins.sqoop;
 
+import com.google.common.annotations.VisibleForTesting;
 import org.pentaho.big.data.api.services.BigDataServicesHelper;
+import org.pentaho.big.data.kettle.plugins.job.JobEntryUtils;
+import org.pentaho.big.data.kettle.plugins.sqoop.SqoopSplitPlanner.SplitRange;
+import org.pentaho.big.data.kettle.plugins.sqoop.SqoopWatermarkStore.Watermark;
 import org.pentaho.hadoop.shim.api.cluster.NamedClusterService;
 import org.pentaho.hadoop.shim.api.cluster.NamedClusterServiceLocator;
 import org.pentaho.di.core.annotations.JobEntry;
 import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.util.StringUtil;
+import org.pentaho.di.i18n.BaseMessages;
 import org.pentaho.runtime.test.RuntimeTester;
 import org.pentaho.runtime.test.action.RuntimeTestActionService;
 import org.pentaho.runtime.test.action.impl.RuntimeTestActionServiceImpl;
 import org.pentaho.runtime.test.impl.RuntimeTesterImpl;
 import org.pentaho.big.data.impl.cluster.NamedClusterManager;
 
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Properties;
+import java.util.stream.Collectors;
 
 /**
  * Provides a way to orchestrate <a href="http://sqoop.apache.org/">Sqoop</a> imports.
@@ -35,6 +50,12 @@ import java.util.Properties;
     documentationUrl = "https://pentaho-community.atlassian.net/wiki/display/EAI/Sqoop+Import" )
 public class SqoopImportJobEntry extends AbstractSqoopJobEntry<SqoopImportConfig> {
 
+  private SqoopWatermarkStore watermarkStore = SqoopWatermarkStore.getInstance();
+
+  // The last value of the running incremental import, stored once it succeeded
+  private String pendingTarget;
+  private Watermark pendingWatermark;
+
   public SqoopImportJobEntry() {
     super( NamedClusterManager.getInstance(),
             BigDataServicesHelper.getNamedClusterServiceLocator(),
@@ -71,4 +92,189 @@ public class SqoopImportJobEntry extends AbstractSqoopJobEntry<SqoopImportConfig
           environmentSubstitute( sqoopConfig.getHbaseZookeeperClientPort() ) );
     }
   }
+
+  @Override
+  public List<String> getValidationWarnings( SqoopConfig config ) {
+    List<String> warnings = super.getValidationWarnings( config );
+    if ( config instanceof SqoopImportConfig ) {
+      String rowsPerMapper = ( (SqoopImportConfig) config ).getRowsPerMapper();
+      try {
+        JobEntryUtils.asLong( rowsPerMapper, variables );
+      } catch ( NumberFormatException ex ) {
+        warnings.add( getString( "ValidationError.RowsPerMapper.Message", rowsPerMapper ) );
+      }
+    }
+    return warnings;
+  }
+
+  /**
+   * Plans the import from the distribution of the split column when split planning is enabled: the mapper count
+   * follows from the number of rows to import, and a skewed table is imported in a few range-restricted runs that
+   * each get evenly sized splits.
+   */
+  @Override
+  protected List<List<String>> planExecution( SqoopImportConfig sqoopConfig, List<String> args )
+    throws KettleException {
+    pendingWatermark = null;
+    if ( SqoopUtils.getArgumentValue( args, SqoopImportConfig.INCREMENTAL ) != null
+      && Boolean.parseBoolean( environmentSubstitute( sqoopConfig.getTrackLastValue() ) ) ) {
+      return Collections.singletonList( applyLastValue( sqoopConfig, args ) );
+    }
+    if ( !Boolean.parseBoolean( environmentSubstitute( sqoopConfig.getAutoSplit() ) ) ) {
+      return super.planExecution( sqoopConfig, args );
+    }
+    String table = SqoopUtils.getArgumentValue( args, SqoopConfig.TABLE );
+    String splitBy = SqoopUtils.getArgumentValue( args, "split-by" );
+    if ( StringUtil.isEmpty( table ) || StringUtil.isEmpty( splitBy )
+      || SqoopUtils.getArgumentValue( args, SqoopImportConfig.QUERY ) != null
+      || SqoopUtils.getArgumentValue( args, SqoopImportConfig.INCREMENTAL ) != null ) {
+      logBasic( getString( "SplitPlanning.Unsupported" ) );
+      return super.planExecution( sqoopConfig, args );
+    }
+
+    List<SplitRange> ranges;
+    try ( Connection connection = connect( args ) ) {
+      String numMappers = SqoopUtils.getArgumentValue( args, "num-mappers" );
+      Long rowsPerMapper = JobEntryUtils.asLong( sqoopConfig.getRowsPerMapper(), variables );
+      ranges = new SqoopSplitPlanner( connection ).plan( table,
+        SqoopUtils.getArgumentValue( args, SqoopImportConfig.WHERE ), splitBy,
+        StringUtil.isEmpty( numMappers ) ? SqoopSplitPlanner.DEFAULT_NUM_MAPPERS : Integer.parseInt( numMappers ),
+        rowsPerMapper == null ? SqoopSplitPlanner.DEFAULT_ROWS_PER_MAPPER : rowsPerMapper );
+    } catch ( SQLException | ClassNotFoundException | NumberFormatException ex ) {
+      logError( getString( "ErrorPlanningSplits" ), ex );
+      return super.planExecution( sqoopConfig, args );
+    }
+    logBasic( getString( "SplitPlanning.Plan", table, String.valueOf( ranges.size() ), ranges.stream()
+      .map( range -> getString( "SplitPlanning.Range", String.valueOf( range.getEstimatedRows() ),
+        String.valueOf( range.getNumMappers() ) ) ).collect( Collectors.joining( ", " ) ) ) );
+    return toToolArgs( args, ranges );
+  }
+
+  /**
+   * Continues the incremental import from the last value stored for its target, and reads the mark it is restricted
+   * to, which is stored as the next last value once the import succeeded. The mark of an <code>append</code> import is
+   * the highest value of the check column, the rows up to it included. The mark of a <code>lastmodified</code> import
+   * is the current time of the database, the rows before it included, as Sqoop imports the rows at the last value again
+   * in that mode.
+   */
+  private List<String> applyLastValue( SqoopImportConfig sqoopConfig, List<String> args ) throws KettleException {
+    String table = SqoopUtils.getArgumentValue( args, SqoopConfig.TABLE );
+    String checkColumn = SqoopUtils.getArgumentValue( args, "check-column" );
+    if ( StringUtil.isEmpty( table ) || StringUtil.isEmpty( checkColumn ) ) {
+      logBasic( getString( "LastValue.Unsupported" ) );
+      return args;
+    }
+    String clusterName = sqoopConfig.getNamedCluster().getName();
+    String target = getTarget( args );
+    List<String> runArgs = new ArrayList<>( args );
+    try {
+      String lastValue = watermarkStore.getLastValue( clusterName, target );
+      if ( lastValue != null ) {
+        logBasic( getString( "LastValue.Stored", target, lastValue ) );
+        SqoopUtils.setArgumentValue( runArgs, "last-value", lastValue );
+      }
+    } catch ( IOException ex ) {
+      throw new KettleException( getString( "ErrorLoadingLastValue", target ), ex );
+    }
+
+    Watermark watermark;
+    String where = SqoopUtils.getArgumentValue( args, SqoopImportConfig.WHERE );
+    boolean lastModified = "lastmodified".equalsIgnoreCase( SqoopUtils.getArgumentValue( args, "incremental" ) );
+    try ( Connection connection = connect( args ) ) {
+      watermark = lastModified
+        ? SqoopWatermarkStore.readModificationMark( connection, table )
+        : SqoopWatermarkStore.readHighWaterMark( connection, table, where, checkColumn );
+    } catch ( SQLException | ClassNotFoundException ex ) {
+      throw new KettleException( getString( "ErrorReadingLastValue", checkColumn ), ex );
+    }
+    if ( watermark != null ) {
+      // rows arriving while the import runs are left to the next one, which starts from the stored value
+      String upTo = checkColumn + ( lastModified ? " < " : " <= " ) + watermark.getLiteral();
+      SqoopUtils.setArgumentValue( runArgs, SqoopImportConfig.WHERE,
+        StringUtil.isEmpty( where ) ? upTo : "(" + where + ") AND " + upTo );
+      pendingTarget = target;
+      pendingWatermark = watermark;
+    }
+    return runArgs;
+  }
+
+  /**
+   * @return where the import writes to, identifying its last value within the cluster
+   */
+  static String getTarget( List<String> args ) {
+    for ( String name : Arrays.asList( "target-dir", "hive-table", "hbase-table", "hcatalog-table",
+      "accumulo-table" ) ) {
+      String target = SqoopUtils.getArgumentValue( args, name );
+      if ( !StringUtil.isEmpty( target ) ) {
+        return name + ":" + target;
+      }
+    }
+    String warehouseDir = SqoopUtils.getArgumentValue( args, "warehouse-dir" );
+    return "table:" + ( StringUtil.isEmpty( warehouseDir ) ? "" : warehouseDir + "/" )
+      + SqoopUtils.getArgumentValue( args, SqoopConfig.TABLE );
+  }
+
+  @Override
+  protected void executionSucceeded( SqoopImportConfig sqoopConfig ) throws KettleException {
+    if ( pendingWatermark == null ) {
+      return;
+    }
+    try {
+      watermarkStore.commit( sqoopConfig.getNamedCluster().getName(), pendingTarget, pendingWatermark.getValue() );
+      logBasic( getString( "LastValue.Committed", pendingTarget, pendingWatermark.getValue() ) );
+    } catch ( IOException ex ) {
+      throw new KettleException( getString( "ErrorStoringLastValue", pendingTarget ), ex );
+    } finally {
+      pendingWatermark = null;
+    }
+  }
+
+  @VisibleForTesting
+  void setWatermarkStore( SqoopWatermarkStore watermarkStore ) {
+    this.watermarkStore = watermarkStore;
+  }
+
+  /**
+   * Turns the planned ranges into the arguments of the Sqoop runs. The runs after the first one append to the data
+   * imported by the first one.
+   */
+  static List<List<String>> toToolArgs( List<String> args, List<SplitRange> ranges ) {
+    boolean appendable = args.stream().noneMatch( Arrays.asList( "--hive-import", "--hbase-table", "--hcatalog-table",
+      "--accumulo-table" )::contains );
+    List<List<String>> toolArgs = new ArrayList<>();
+    for ( SplitRange range : ranges ) {
+      List<String> rangeArgs = new ArrayList<>( args );
+      SqoopUtils.setArgumentValue( rangeArgs, "num-mappers", String.valueOf( range.getNumMappers() ) );
+      if ( range.getWhere() != null ) {
+        SqoopUtils.setArgumentValue( rangeArgs, SqoopImportConfig.WHERE, range.getWhere() );
+      }
+      if ( !toolArgs.isEmpty() ) {
+        rangeArgs.remove( "--delete-target-dir" );
+        rangeArgs.remove( "--hive-overwrite" );
+        if ( appendable && !rangeArgs.contains( "--" + SqoopImportConfig.APPEND ) ) {
+          rangeArgs.add( "--" + SqoopImportConfig.APPEND );
+        }
+      }
+      toolArgs.add( rangeArgs );
+    }
+    return toolArgs;
+  }
+
+  /**
+   * Opens a JDBC connection to the source database of the import, to sample the split column.
+   */
+  @VisibleForTesting
+  Connection connect( List<String> args ) throws SQLException, ClassNotFoundException {
+    String driver = SqoopUtils.getArgumentValue( args, SqoopConfig.DRIVER );
+    if ( !StringUtil.isEmpty( driver ) ) {
+      Class.forName( driver );
+    }
+    return DriverManager.getConnection( SqoopUtils.getArgumentValue( args, SqoopConfig.CONNECT ),
+      SqoopUtils.getArgumentValue( args, SqoopConfig.USERNAME ),
+      SqoopUtils.getArgumentValue( args, SqoopConfig.PASSWORD ) );
+  }
+
+  private static String getString( String key, String... parameters ) {
+    return BaseMessages.getString( SqoopImportJobEntry.class, key, parameters );
+  }
 }
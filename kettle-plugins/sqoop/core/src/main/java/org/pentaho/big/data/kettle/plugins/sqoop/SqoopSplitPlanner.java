@@ -0,0 +1,287 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.big.data.kettle.plugins.sqoop;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Plans how a Sqoop import is split over its mappers from the distribution of the split column in the source table.
+ * <p>
+ * Sqoop splits the range between the minimum and the maximum of the split column into equally wide ranges, one per
+ * mapper, which leaves most of the rows to a few mappers when the values are skewed. The planner samples a histogram of
+ * the column over JDBC and, when the rows are concentrated in part of the range, cuts the import into a few
+ * range-restricted sub-imports that are each split evenly by Sqoop. The mapper count of every import follows from the
+ * number of rows it reads.
+ */
+public class SqoopSplitPlanner {
+  public static final long DEFAULT_ROWS_PER_MAPPER = 1000000L;
+  /**
+   * The number of mappers Sqoop uses when none is configured
+   */
+  public static final int DEFAULT_NUM_MAPPERS = 4;
+  /**
+   * The number of equally wide buckets of the sampled histogram
+   */
+  static final int BUCKETS = 64;
+  static final int MAX_SUB_IMPORTS = 4;
+  /**
+   * Each additional sub-import has to cut the rows read by the slowest mapper at least by this factor to be worth
+   * launching another job
+   */
+  static final double SKEW_FACTOR = 2.0;
+
+  private final Connection connection;
+
+  /**
+   * A range of the split column imported by one Sqoop run.
+   */
+  public static class SplitRange {
+    private final String where;
+    private final int numMappers;
+    private final long estimatedRows;
+
+    SplitRange( String where, int numMappers, long estimatedRows ) {
+      this.where = where;
+      this.numMappers = numMappers;
+      this.estimatedRows = estimatedRows;
+    }
+
+    /**
+     * @return the condition restricting the import to this range, or null if the import isn't restricted
+     */
+    public String getWhere() {
+      return where;
+    }
+
+    public int getNumMappers() {
+      return numMappers;
+    }
+
+    public long getEstimatedRows() {
+      return estimatedRows;
+    }
+  }
+
+  public SqoopSplitPlanner( Connection connection ) {
+    this.connection = connection;
+  }
+
+  /**
+   * Samples the split column and plans the imports.
+   *
+   * @param table         the source table, as passed to Sqoop
+   * @param where         the condition the import is restricted to, or null
+   * @param splitBy       the split column
+   * @param maxMappers    the most mappers any import may use
+   * @param rowsPerMapper the number of rows a mapper should read
+   * @return the ranges to import one after the other, covering all rows of the table matching {@code where}
+   */
+  public List<SplitRange> plan( String table, String where, String splitBy, int maxMappers, long rowsPerMapper )
+    throws SQLException {
+    String from = " FROM " + table + ( isEmpty( where ) ? "" : " WHERE " + where );
+    long rowCount;
+    BigDecimal min;
+    BigDecimal max;
+    boolean integral;
+    try ( Statement statement = connection.createStatement();
+          ResultSet resultSet = statement.executeQuery(
+            "SELECT COUNT(*), MIN(" + splitBy + "), MAX(" + splitBy + ")" + from ) ) {
+      if ( !resultSet.next() ) {
+        return Collections.singletonList( new SplitRange( null, 1, 0 ) );
+      }
+      rowCount = resultSet.getLong( 1 );
+      int type = resultSet.getMetaData().getColumnType( 2 );
+      if ( !isNumeric( type ) ) {
+        // only numeric ranges can be cut into buckets, the mapper count still follows from the size of the table
+        return Collections.singletonList( new SplitRange( null, mappers( rowCount, maxMappers, rowsPerMapper ),
+          rowCount ) );
+      }
+      integral = isIntegral( type );
+      min = resultSet.getBigDecimal( 2 );
+      max = resultSet.getBigDecimal( 3 );
+    }
+
+    int numMappers = mappers( rowCount, maxMappers, rowsPerMapper );
+    if ( numMappers == 1 || min == null || max == null || min.compareTo( max ) == 0 ) {
+      return Collections.singletonList( new SplitRange( null, numMappers, rowCount ) );
+    }
+
+    long[] histogram = histogram( from, splitBy, min, max );
+    int[] cuts = cut( histogram );
+    if ( cuts.length == 0 ) {
+      return Collections.singletonList( new SplitRange( null, numMappers, rowCount ) );
+    }
+
+    long nulls = rowCount;
+    for ( long rows : histogram ) {
+      nulls -= rows;
+    }
+    List<SplitRange> ranges = new ArrayList<>();
+    int start = 0;
+    String lower = null;
+    for ( int i = 0; i <= cuts.length; i++ ) {
+      int end = i < cuts.length ? cuts[ i ] : BUCKETS;
+      String upper = i < cuts.length ? bound( min, max, cuts[ i ], integral ) : null;
+      StringBuilder range = new StringBuilder();
+      if ( lower != null ) {
+        range.append( splitBy ).append( " >= " ).append( lower );
+      }
+      if ( upper != null ) {
+        range.append( lower != null ? " AND " : "" ).append( splitBy ).append( " < " ).append( upper );
+      }
+      if ( lower == null ) {
+        // the rows without a value go with the first range
+        range.insert( 0, '(' ).append( " OR " ).append( splitBy ).append( " IS NULL)" );
+      }
+      long rows = lower == null ? nulls : 0;
+      for ( int bucket = start; bucket < end; bucket++ ) {
+        rows += histogram[ bucket ];
+      }
+      String condition = isEmpty( where ) ? range.toString() : "(" + where + ") AND " + range;
+      ranges.add( new SplitRange( condition, mappers( rows, maxMappers, rowsPerMapper ), rows ) );
+      start = end;
+      lower = upper;
+    }
+    return ranges;
+  }
+
+  private long[] histogram( String from, String splitBy, BigDecimal min, BigDecimal max ) throws SQLException {
+    String bucket = "FLOOR((" + splitBy + " - " + min.toPlainString() + ") * " + BUCKETS + " / ("
+      + max.subtract( min ).toPlainString() + "))";
+    String sql = "SELECT " + bucket + ", COUNT(*)" + from + " GROUP BY " + bucket;
+    long[] histogram = new long[ BUCKETS ];
+    try ( Statement statement = connection.createStatement();
+          ResultSet resultSet = statement.executeQuery( sql ) ) {
+      while ( resultSet.next() ) {
+        // the nulls have no bucket, the maximum falls right after the last one
+        if ( resultSet.getObject( 1 ) != null ) {
+          int index = (int) Math.max( 0, Math.min( BUCKETS - 1, resultSet.getLong( 1 ) ) );
+          histogram[ index ] += resultSet.getLong( 2 );
+        }
+      }
+    }
+    return histogram;
+  }
+
+  /**
+   * Chooses where to cut the histogram into sub-imports.
+   * <p>
+   * Sqoop splits every import evenly between the smallest and largest value it reads, so its slowest mapper reads
+   * about the densest bucket times the number of buckets spanned. The cuts minimize the sum of that cost over the
+   * sub-imports, which run one after the other with all their mappers.
+   *
+   * @return the indexes of the buckets starting a new sub-import, empty to import all rows at once
+   */
+  static int[] cut( long[] histogram ) {
+    int n = histogram.length;
+    long[][] cost = new long[ n + 1 ][ n + 1 ];
+    for ( int from = 0; from < n; from++ ) {
+      long peak = 0;
+      int first = -1;
+      int last = -1;
+      for ( int to = from + 1; to <= n; to++ ) {
+        if ( histogram[ to - 1 ] > 0 ) {
+          peak = Math.max( peak, histogram[ to - 1 ] );
+          first = first < 0 ? to - 1 : first;
+          last = to - 1;
+        }
+        // empty buckets at the ends of a range don't widen the splits Sqoop makes
+        cost[ from ][ to ] = first < 0 ? 0 : peak * ( last - first + 1 );
+      }
+    }
+
+    // best[ k ][ to ] is the cost of importing the first buckets up to 'to' with k + 1 imports
+    long[][] best = new long[ MAX_SUB_IMPORTS ][ n + 1 ];
+    int[][] previous = new int[ MAX_SUB_IMPORTS ][ n + 1 ];
+    for ( int to = 1; to <= n; to++ ) {
+      best[ 0 ][ to ] = cost[ 0 ][ to ];
+    }
+    for ( int k = 1; k < MAX_SUB_IMPORTS; k++ ) {
+      for ( int to = k + 1; to <= n; to++ ) {
+        best[ k ][ to ] = Long.MAX_VALUE;
+        for ( int from = k; from < to; from++ ) {
+          long total = best[ k - 1 ][ from ] + cost[ from ][ to ];
+          if ( total < best[ k ][ to ] ) {
+            best[ k ][ to ] = total;
+            previous[ k ][ to ] = from;
+          }
+        }
+      }
+    }
+
+    int imports = 0;
+    for ( int k = 1; k < MAX_SUB_IMPORTS && k < n; k++ ) {
+      if ( best[ k ][ n ] * SKEW_FACTOR <= best[ imports ][ n ] ) {
+        imports = k;
+      }
+    }
+    int[] cuts = new int[ imports ];
+    int to = n;
+    for ( int k = imports; k > 0; k-- ) {
+      to = previous[ k ][ to ];
+      cuts[ k - 1 ] = to;
+    }
+    return cuts;
+  }
+
+  private static String bound( BigDecimal min, BigDecimal max, int bucket, boolean integral ) {
+    BigDecimal bound = max.subtract( min ).multiply( BigDecimal.valueOf( bucket ) )
+      .divide( BigDecimal.valueOf( BUCKETS ), 10, RoundingMode.CEILING ).add( min );
+    // integral values at or above the rounded up bound are exactly the ones in the later buckets
+    return ( integral ? bound.setScale( 0, RoundingMode.CEILING ) : bound.stripTrailingZeros() ).toPlainString();
+  }
+
+  static int mappers( long rows, int maxMappers, long rowsPerMapper ) {
+    long mappers = ( rows + rowsPerMapper - 1 ) / rowsPerMapper;
+    return (int) Math.max( 1, Math.min( maxMappers, mappers ) );
+  }
+
+  private static boolean isNumeric( int type ) {
+    switch ( type ) {
+      case Types.FLOAT:
+      case Types.REAL:
+      case Types.DOUBLE:
+      case Types.NUMERIC:
+      case Types.DECIMAL:
+        return true;
+      default:
+        return isIntegral( type );
+    }
+  }
+
+  private static boolean isIntegral( int type ) {
+    switch ( type ) {
+      case Types.TINYINT:
+      case Types.SMALLINT:
+      case Types.INTEGER:
+      case Types.BIGINT:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  private static boolean isEmpty( String value ) {
+    return value == null || value.trim().isEmpty();
+  }
+}
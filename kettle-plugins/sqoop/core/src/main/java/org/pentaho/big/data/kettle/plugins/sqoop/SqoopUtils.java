@@ -336,6 +336,40 @@ public class SqoopUtils {
     }
   }
 
+  /**
+   * Find the value of an argument in a list of command-line arguments.
+   *
+   * @param args
+   *          Command-line arguments, e.g. as returned by {@link #getCommandLineArgs(SqoopConfig, VariableSpace)}
+   * @param name
+   *          Name of the argument without its prefix, e.g. "table"
+   * @return the value following the argument, or {@code null} if the argument isn't set
+   */
+  public static String getArgumentValue( List<String> args, String name ) {
+    int index = args.indexOf( ARG_PREFIX + name );
+    return index >= 0 && index + 1 < args.size() ? args.get( index + 1 ) : null;
+  }
+
+  /**
+   * Set the value of an argument in a list of command-line arguments, replacing its current value if it's set.
+   *
+   * @param args
+   *          Command-line arguments to update
+   * @param name
+   *          Name of the argument without its prefix
+   * @param value
+   *          New value of the argument
+   */
+  public static void setArgumentValue( List<String> args, String name, String value ) {
+    int index = args.indexOf( ARG_PREFIX + name );
+    if ( index >= 0 && index + 1 < args.size() ) {
+      args.set( index + 1, value );
+    } else {
+      args.add( ARG_PREFIX + name );
+      args.add( value );
+    }
+  }
+
   /**
    * Generate a command line string for the given configuration. Replace variables with the values from
    * {@code variableSpace} if provided.
@@ -0,0 +1,192 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.big.data.kettle.plugins.sqoop;
+
+import org.pentaho.di.core.Const;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.Properties;
+
+/**
+ * Keeps the high-water marks of incremental Sqoop imports, the <code>--last-value</code> of the next import, in a
+ * properties file of the Kettle home directory. The marks are kept per named cluster and import target, and a mark is
+ * only replaced once the import reading up to it succeeded.
+ */
+public class SqoopWatermarkStore {
+  public static final String FILE_NAME = "sqoop-watermarks.properties";
+
+  private static SqoopWatermarkStore instance;
+
+  private final File file;
+
+  /**
+   * The highest value of the check column of an import, read before it runs.
+   */
+  public static class Watermark {
+    private final String value;
+    private final String literal;
+
+    Watermark( String value, String literal ) {
+      this.value = value;
+      this.literal = literal;
+    }
+
+    /**
+     * @return the value, as passed to <code>--last-value</code>
+     */
+    public String getValue() {
+      return value;
+    }
+
+    /**
+     * @return the value as an SQL literal
+     */
+    public String getLiteral() {
+      return literal;
+    }
+  }
+
+  public SqoopWatermarkStore( File file ) {
+    this.file = file;
+  }
+
+  public static synchronized SqoopWatermarkStore getInstance() {
+    if ( instance == null ) {
+      instance = new SqoopWatermarkStore( new File( Const.getKettleDirectory(), FILE_NAME ) );
+    }
+    return instance;
+  }
+
+  /**
+   * @return the last value committed for the target of the cluster, or null if there is none
+   */
+  public synchronized String getLastValue( String clusterName, String target ) throws IOException {
+    return load().getProperty( key( clusterName, target ) );
+  }
+
+  /**
+   * Stores the last value imported to the target of the cluster.
+   */
+  public synchronized void commit( String clusterName, String target, String lastValue ) throws IOException {
+    Properties watermarks = load();
+    watermarks.setProperty( key( clusterName, target ), lastValue );
+
+    // write a copy and move it over the store, so that a failing write doesn't lose the other marks
+    Path path = file.toPath();
+    if ( path.getParent() != null ) {
+      Files.createDirectories( path.getParent() );
+    }
+    Path temp = Files.createTempFile( path.toAbsolutePath().getParent(), FILE_NAME, ".tmp" );
+    try {
+      try ( OutputStream out = Files.newOutputStream( temp ) ) {
+        watermarks.store( out, "Last values of incremental Sqoop imports" );
+      }
+      try {
+        Files.move( temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+      } catch ( AtomicMoveNotSupportedException e ) {
+        Files.move( temp, path, StandardCopyOption.REPLACE_EXISTING );
+      }
+    } finally {
+      Files.deleteIfExists( temp );
+    }
+  }
+
+  private Properties load() throws IOException {
+    Properties watermarks = new Properties();
+    if ( file.exists() ) {
+      try ( InputStream in = Files.newInputStream( file.toPath() ) ) {
+        watermarks.load( in );
+      }
+    }
+    return watermarks;
+  }
+
+  static String key( String clusterName, String target ) {
+    return ( clusterName == null ? "" : clusterName ) + "|" + target;
+  }
+
+  /**
+   * Reads the highest value of the check column the import can see.
+   *
+   * @param connection  connection to the source database
+   * @param table       the source table, as passed to Sqoop
+   * @param where       the condition the import is restricted to, or null
+   * @param checkColumn the check column of the incremental import
+   * @return the highest value, or null if the table has no values yet
+   */
+  public static Watermark readHighWaterMark( Connection connection, String table, String where, String checkColumn )
+    throws SQLException {
+    String sql = "SELECT MAX(" + checkColumn + ") FROM " + table
+      + ( where == null || where.trim().isEmpty() ? "" : " WHERE " + where );
+    try ( Statement statement = connection.createStatement();
+          ResultSet resultSet = statement.executeQuery( sql ) ) {
+      if ( !resultSet.next() || resultSet.getObject( 1 ) == null ) {
+        return null;
+      }
+      String value;
+      switch ( resultSet.getMetaData().getColumnType( 1 ) ) {
+        case Types.TINYINT:
+        case Types.SMALLINT:
+        case Types.INTEGER:
+        case Types.BIGINT:
+        case Types.NUMERIC:
+        case Types.DECIMAL:
+          value = resultSet.getBigDecimal( 1 ).toPlainString();
+          return new Watermark( value, value );
+        case Types.TIMESTAMP:
+          // the JDBC escape format Sqoop itself uses for the last value of timestamps
+          value = resultSet.getTimestamp( 1 ).toString();
+          break;
+        default:
+          value = resultSet.getString( 1 );
+      }
+      return quoted( value );
+    }
+  }
+
+  /**
+   * Reads the current time of the database, the exclusive upper bound of a <code>lastmodified</code> import. Sqoop
+   * imports the rows whose check column is at or after the last value in that mode, so an import bounded by the mark
+   * of the last one stops right where the next one starts.
+   *
+   * @param connection connection to the source database
+   * @param table      the source table, as passed to Sqoop
+   * @return the current time of the database
+   */
+  public static Watermark readModificationMark( Connection connection, String table ) throws SQLException {
+    // the count makes the query return exactly one row whatever the table holds, on any database
+    String sql = "SELECT COUNT(*), CURRENT_TIMESTAMP FROM " + table + " WHERE 1 = 0";
+    try ( Statement statement = connection.createStatement();
+          ResultSet resultSet = statement.executeQuery( sql ) ) {
+      resultSet.next();
+      return quoted( resultSet.getTimestamp( 2 ).toString() );
+    }
+  }
+
+  private static Watermark quoted( String value ) {
+    return new Watermark( value, "'" + value.replace( "'", "''" ) + "'" );
+  }
+}
@@ -0,0 +1,196 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.big.data.kettle.plugins.sqoop;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.big.data.kettle.plugins.sqoop.SqoopSplitPlanner.SplitRange;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SqoopSplitPlannerTest {
+  private Connection connection;
+
+  @Before
+  public void setUp() throws Exception {
+    connection = DriverManager.getConnection( "jdbc:h2:mem:sqoopsplits" );
+    try ( Statement statement = connection.createStatement() ) {
+      statement.execute( "CREATE TABLE orders ( id BIGINT, region VARCHAR(10), amount DOUBLE )" );
+    }
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    try ( Statement statement = connection.createStatement() ) {
+      statement.execute( "DROP TABLE orders" );
+    }
+    connection.close();
+  }
+
+  private void insert( long from, long to, long step ) throws Exception {
+    try ( PreparedStatement statement = connection.prepareStatement( "INSERT INTO orders VALUES ( ?, ?, ? )" ) ) {
+      for ( long id = from; id < to; id += step ) {
+        statement.setLong( 1, id );
+        statement.setString( 2, id % 2 == 0 ? "eu" : "us" );
+        statement.setDouble( 3, id / 10.0 );
+        statement.addBatch();
+      }
+      statement.executeBatch();
+    }
+  }
+
+  private long count( String where ) throws Exception {
+    try ( Statement statement = connection.createStatement();
+          ResultSet resultSet = statement.executeQuery( "SELECT COUNT(*) FROM orders"
+            + ( where == null ? "" : " WHERE " + where ) ) ) {
+      resultSet.next();
+      return resultSet.getLong( 1 );
+    }
+  }
+
+  /**
+   * The ranges have to cover every row exactly once, or the import would lose or duplicate rows.
+   */
+  private void assertCoversAllRows( List<SplitRange> ranges, String where ) throws Exception {
+    long total = 0;
+    for ( SplitRange range : ranges ) {
+      long rows = count( range.getWhere() );
+      assertEquals( range.getEstimatedRows(), rows );
+      total += rows;
+    }
+    assertEquals( count( where ), total );
+  }
+
+  @Test
+  public void testUniformTableIsImportedAtOnce() throws Exception {
+    insert( 0, 5000, 1 );
+
+    List<SplitRange> ranges = new SqoopSplitPlanner( connection ).plan( "orders", null, "id", 8, 1000 );
+
+    assertEquals( 1, ranges.size() );
+    assertNull( ranges.get( 0 ).getWhere() );
+    assertEquals( 5, ranges.get( 0 ).getNumMappers() );
+    assertEquals( 5000, ranges.get( 0 ).getEstimatedRows() );
+  }
+
+  @Test
+  public void testMappersAreCappedAndFollowTheRowCount() throws Exception {
+    insert( 0, 100, 1 );
+
+    assertEquals( 1, new SqoopSplitPlanner( connection ).plan( "orders", null, "id", 8, 1000 ).get( 0 )
+      .getNumMappers() );
+    assertEquals( 4, new SqoopSplitPlanner( connection ).plan( "orders", null, "id", 4, 10 ).get( 0 )
+      .getNumMappers() );
+  }
+
+  @Test
+  public void testOutliersAreImportedSeparately() throws Exception {
+    // the sentinel ids stretch the range Sqoop splits evenly, leaving all rows to the first mapper
+    insert( 0, 8000, 1 );
+    insert( 1000000000L, 1000000003L, 1 );
+    try ( Statement statement = connection.createStatement() ) {
+      statement.execute( "INSERT INTO orders VALUES ( NULL, 'eu', 0 )" );
+    }
+
+    List<SplitRange> ranges = new SqoopSplitPlanner( connection ).plan( "orders", null, "id", 8, 1000 );
+
+    assertEquals( 2, ranges.size() );
+    assertEquals( 8, ranges.get( 0 ).getNumMappers() );
+    assertEquals( 1, ranges.get( 1 ).getNumMappers() );
+    assertTrue( ranges.get( 0 ).getWhere().endsWith( " OR id IS NULL)" ) );
+    assertCoversAllRows( ranges, null );
+  }
+
+  @Test
+  public void testRangesKeepTheImportCondition() throws Exception {
+    insert( 0, 8000, 1 );
+    insert( 1000000000L, 1000000004L, 1 );
+
+    List<SplitRange> ranges =
+      new SqoopSplitPlanner( connection ).plan( "orders", "region = 'eu'", "id", 8, 1000 );
+
+    assertEquals( 2, ranges.size() );
+    assertTrue( ranges.get( 1 ).getWhere().startsWith( "(region = 'eu') AND id >= " ) );
+    assertCoversAllRows( ranges, "region = 'eu'" );
+  }
+
+  @Test
+  public void testDecimalSplitColumn() throws Exception {
+    insert( 0, 8000, 1 );
+    insert( 1000000000L, 1000000003L, 1 );
+
+    List<SplitRange> ranges = new SqoopSplitPlanner( connection ).plan( "orders", null, "amount", 8, 1000 );
+
+    assertEquals( 2, ranges.size() );
+    assertCoversAllRows( ranges, null );
+  }
+
+  @Test
+  public void testTextSplitColumnOnlyPlansTheMappers() throws Exception {
+    insert( 0, 3000, 1 );
+
+    List<SplitRange> ranges = new SqoopSplitPlanner( connection ).plan( "orders", null, "region", 8, 1000 );
+
+    assertEquals( 1, ranges.size() );
+    assertNull( ranges.get( 0 ).getWhere() );
+    assertEquals( 3, ranges.get( 0 ).getNumMappers() );
+  }
+
+  @Test
+  public void testEmptyTable() throws Exception {
+    List<SplitRange> ranges = new SqoopSplitPlanner( connection ).plan( "orders", null, "id", 8, 1000 );
+
+    assertEquals( 1, ranges.size() );
+    assertEquals( 1, ranges.get( 0 ).getNumMappers() );
+  }
+
+  @Test
+  public void testCut() {
+    long[] uniform = new long[ SqoopSplitPlanner.BUCKETS ];
+    Arrays.fill( uniform, 10 );
+    assertArrayEquals( new int[ 0 ], SqoopSplitPlanner.cut( uniform ) );
+
+    long[] hotSpot = uniform.clone();
+    hotSpot[ 40 ] = 100000;
+    assertArrayEquals( new int[] { 40, 41 }, SqoopSplitPlanner.cut( hotSpot ) );
+  }
+
+  @Test
+  public void testToToolArgs() {
+    List<String> args = Arrays.asList( "import", "--table", "orders", "--split-by", "id", "--num-mappers", "8",
+      "--target-dir", "/data/orders", "--delete-target-dir" );
+    List<SplitRange> ranges = Arrays.asList( new SplitRange( "(id < 100 OR id IS NULL)", 8, 8000 ),
+      new SplitRange( "id >= 100", 1, 3 ) );
+
+    List<List<String>> toolArgs = SqoopImportJobEntry.toToolArgs( args, ranges );
+
+    assertEquals( Arrays.asList( "import", "--table", "orders", "--split-by", "id", "--num-mappers", "8",
+      "--target-dir", "/data/orders", "--delete-target-dir", "--where", "(id < 100 OR id IS NULL)" ),
+      toolArgs.get( 0 ) );
+    assertEquals( Arrays.asList( "import", "--table", "orders", "--split-by", "id", "--num-mappers", "1",
+      "--target-dir", "/data/orders", "--where", "id >= 100", "--append" ), toolArgs.get( 1 ) );
+  }
+}
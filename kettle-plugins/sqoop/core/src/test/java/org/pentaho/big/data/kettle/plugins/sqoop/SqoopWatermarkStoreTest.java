@@ -0,0 +1,187 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.big.data.kettle.plugins.sqoop;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.pentaho.big.data.kettle.plugins.sqoop.SqoopWatermarkStore.Watermark;
+import org.pentaho.di.core.logging.LogChannelInterface;
+import org.pentaho.hadoop.shim.api.cluster.NamedCluster;
+import org.pentaho.hadoop.shim.api.cluster.NamedClusterService;
+import org.pentaho.hadoop.shim.api.cluster.NamedClusterServiceLocator;
+import org.pentaho.runtime.test.RuntimeTester;
+import org.pentaho.runtime.test.action.RuntimeTestActionService;
+
+import java.io.File;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class SqoopWatermarkStoreTest {
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private File file;
+  private Connection connection;
+
+  @Before
+  public void setUp() throws Exception {
+    file = new File( temporaryFolder.getRoot(), "kettle/" + SqoopWatermarkStore.FILE_NAME );
+    connection = DriverManager.getConnection( "jdbc:h2:mem:sqoopwatermarks" );
+    try ( Statement statement = connection.createStatement() ) {
+      statement.execute( "CREATE TABLE orders ( id BIGINT, code VARCHAR(10), updated TIMESTAMP )" );
+    }
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    try ( Statement statement = connection.createStatement() ) {
+      statement.execute( "DROP TABLE orders" );
+    }
+    connection.close();
+  }
+
+  private void insert( String values ) throws Exception {
+    try ( Statement statement = connection.createStatement() ) {
+      statement.execute( "INSERT INTO orders VALUES " + values );
+    }
+  }
+
+  @Test
+  public void testLastValuesArePersistedPerClusterAndTarget() throws Exception {
+    SqoopWatermarkStore store = new SqoopWatermarkStore( file );
+    assertNull( store.getLastValue( "cluster", "target-dir:/data/orders" ) );
+
+    store.commit( "cluster", "target-dir:/data/orders", "42" );
+    store.commit( "other", "target-dir:/data/orders", "7" );
+    store.commit( "cluster", "target-dir:/data/orders", "43" );
+
+    SqoopWatermarkStore reopened = new SqoopWatermarkStore( file );
+    assertEquals( "43", reopened.getLastValue( "cluster", "target-dir:/data/orders" ) );
+    assertEquals( "7", reopened.getLastValue( "other", "target-dir:/data/orders" ) );
+    assertNull( reopened.getLastValue( "cluster", "hive-table:orders" ) );
+    assertEquals( 1, file.getParentFile().list().length );
+  }
+
+  @Test
+  public void testReadHighWaterMark() throws Exception {
+    assertNull( SqoopWatermarkStore.readHighWaterMark( connection, "orders", null, "id" ) );
+
+    insert( "( 1, 'a', TIMESTAMP '2024-01-01 10:00:00' ), ( 5, 'o''b', TIMESTAMP '2024-03-01 12:30:00' )" );
+
+    Watermark id = SqoopWatermarkStore.readHighWaterMark( connection, "orders", "code = 'a'", "id" );
+    assertEquals( "1", id.getValue() );
+    assertEquals( "1", id.getLiteral() );
+    Watermark code = SqoopWatermarkStore.readHighWaterMark( connection, "orders", null, "code" );
+    assertEquals( "o'b", code.getValue() );
+    assertEquals( "'o''b'", code.getLiteral() );
+    Watermark updated = SqoopWatermarkStore.readHighWaterMark( connection, "orders", null, "updated" );
+    assertEquals( "2024-03-01 12:30:00.0", updated.getValue() );
+  }
+
+  private SqoopImportJobEntry createEntry( SqoopWatermarkStore store ) {
+    SqoopImportJobEntry entry = new SqoopImportJobEntry( mock( NamedClusterService.class ),
+      mock( NamedClusterServiceLocator.class ), mock( RuntimeTestActionService.class ), mock( RuntimeTester.class ) ) {
+      @Override Connection connect( List<String> args ) {
+        return unclosable( connection );
+      }
+    };
+    entry.setWatermarkStore( store );
+    entry.setLogChannel( mock( LogChannelInterface.class ) );
+    return entry;
+  }
+
+  private static SqoopImportConfig createConfig() {
+    SqoopImportConfig config = mock( SqoopImportConfig.class );
+    when( config.getTrackLastValue() ).thenReturn( "true" );
+    NamedCluster namedCluster = mock( NamedCluster.class );
+    when( namedCluster.getName() ).thenReturn( "cluster" );
+    when( config.getNamedCluster() ).thenReturn( namedCluster );
+    return config;
+  }
+
+  @Test
+  public void testLastValueIsOnlyCommittedAfterTheImportSucceeded() throws Exception {
+    insert( "( 1, 'a', NULL ), ( 5, 'b', NULL )" );
+    SqoopWatermarkStore store = new SqoopWatermarkStore( file );
+    store.commit( "cluster", "target-dir:/data/orders", "1" );
+    SqoopImportJobEntry entry = createEntry( store );
+    SqoopImportConfig config = createConfig();
+
+    List<String> args = Arrays.asList( "import", "--table", "orders", "--target-dir", "/data/orders",
+      "--incremental", "append", "--check-column", "id", "--last-value", "0" );
+    List<List<String>> toolArgs = entry.planExecution( config, args );
+
+    assertEquals( 1, toolArgs.size() );
+    assertEquals( Arrays.asList( "import", "--table", "orders", "--target-dir", "/data/orders",
+      "--incremental", "append", "--check-column", "id", "--last-value", "1", "--where", "id <= 5" ),
+      toolArgs.get( 0 ) );
+    // nothing is stored until the import succeeded
+    assertEquals( "1", store.getLastValue( "cluster", "target-dir:/data/orders" ) );
+
+    entry.executionSucceeded( config );
+    assertEquals( "5", store.getLastValue( "cluster", "target-dir:/data/orders" ) );
+  }
+
+  @Test
+  public void testLastModifiedImportStopsWhereTheNextOneStarts() throws Exception {
+    insert( "( 1, 'a', TIMESTAMP '2024-01-01 10:00:00' ), ( 5, 'b', TIMESTAMP '2024-03-01 12:30:00' )" );
+    SqoopWatermarkStore store = new SqoopWatermarkStore( file );
+    SqoopImportJobEntry entry = createEntry( store );
+    SqoopImportConfig config = createConfig();
+
+    List<String> args = Arrays.asList( "import", "--table", "orders", "--target-dir", "/data/orders",
+      "--incremental", "lastmodified", "--check-column", "updated", "--last-value", "2024-01-01 00:00:00.0" );
+    String where = SqoopUtils.getArgumentValue( entry.planExecution( config, args ).get( 0 ), "where" );
+    entry.executionSucceeded( config );
+
+    // Sqoop imports the rows at the last value again, so the upper bound is exclusive and becomes the next last value
+    String lastValue = store.getLastValue( "cluster", "target-dir:/data/orders" );
+    assertEquals( "updated < '" + lastValue + "'", where );
+    assertTrue( Timestamp.valueOf( lastValue ).after( Timestamp.valueOf( "2024-03-01 12:30:00" ) ) );
+
+    List<String> next = entry.planExecution( config, args ).get( 0 );
+    assertEquals( lastValue, SqoopUtils.getArgumentValue( next, "last-value" ) );
+  }
+
+  /**
+   * Keeps the shared in-memory database open when the job entry closes its connection.
+   */
+  private static Connection unclosable( Connection connection ) {
+    return (Connection) Proxy.newProxyInstance( Connection.class.getClassLoader(),
+      new Class<?>[] { Connection.class }, ( proxy, method, methodArgs ) ->
+        "close".equals( method.getName() ) ? null : method.invoke( connection, methodArgs ) );
+  }
+
+  @Test
+  public void testGetTarget() {
+    assertEquals( "hive-table:orders", SqoopImportJobEntry.getTarget(
+      Arrays.asList( "import", "--table", "src", "--hive-import", "--hive-table", "orders" ) ) );
+    assertEquals( "table:/warehouse/src", SqoopImportJobEntry.getTarget(
+      Arrays.asList( "import", "--table", "src", "--warehouse-dir", "/warehouse" ) ) );
+  }
+}
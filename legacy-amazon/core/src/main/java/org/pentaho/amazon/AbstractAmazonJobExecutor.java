@@ -210,7 +210,11 @@ public abstract class AbstractAmazonJobExecutor extends AbstractAmazonJobEntry {
   }
 
   private void logError( String stagingBucketName, String stepId ) {
-    logError( s3Client.readStepLogsFromS3( stagingBucketName, hadoopJobFlowId, stepId ) );
+    // the logs of the step go to the job log as a single entry, not as an entry per line
+    StringBuilder stepLogs = new StringBuilder();
+    s3Client.streamStepLogsFromS3( stagingBucketName, hadoopJobFlowId, stepId,
+      line -> stepLogs.append( line ).append( Const.CR ) );
+    logError( stepLogs.toString() );
   }
 
   private void initAmazonClients() {
@@ -236,15 +240,8 @@ public abstract class AbstractAmazonJobExecutor extends AbstractAmazonJobEntry {
 
       File tmpFile = createStagingFile();
 
-      // delete old jar if needed
-      try {
-        s3Client.deleteObjectFromBucket( stagingBucketName, key );
-      } catch ( Exception ex ) {
-        logError( Const.getStackTracker( ex ) );
-      }
-
-      // put jar in s3 staging bucket
-      s3Client.putObjectInBucket( stagingBucketName, key, tmpFile );
+      // put jar in s3 staging bucket, unless the same content is staged already
+      key = s3Client.stageObjectInBucket( stagingBucketName, key, tmpFile );
       String stagingS3FileUrl = getStagingS3FileUrl( stagingBucketName );
 
       if ( runOnNewCluster ) {
@@ -14,6 +14,8 @@
 package org.pentaho.amazon.client.api;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.function.Consumer;
 
 /**
  * Created by Aliaksandr_Zhuk on 2/5/2018.
@@ -33,5 +35,19 @@ public interface S3Client {
 
   void putObjectInBucket( String stagingBucketName, String key, File tmpFile );
 
+  /**
+   * Uploads a file under a key derived from its content: the hash of the content is put in front of the file name of
+   * {@code key}. A file with the same content that is already staged isn't uploaded again.
+   *
+   * @return the key the file is staged at
+   */
+  String stageObjectInBucket( String stagingBucketName, String key, File tmpFile ) throws IOException;
+
   String readStepLogsFromS3( String stagingBucketName, String hadoopJobFlowId, String stepId );
+
+  /**
+   * Hands over the lines of the logs of a step while they are downloaded, instead of reading them all first.
+   */
+  void streamStepLogsFromS3( String stagingBucketName, String hadoopJobFlowId, String stepId,
+                             Consumer<String> lines );
 }
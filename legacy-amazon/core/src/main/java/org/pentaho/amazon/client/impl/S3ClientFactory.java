@@ -14,6 +14,7 @@
 package org.pentaho.amazon.client.impl;
 
 import com.amazonaws.auth.AWSStaticCredentialsProvider;
+import com.amazonaws.client.builder.AwsClientBuilder;
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.AmazonS3ClientBuilder;
 import org.pentaho.amazon.client.AmazonClientCredentials;
@@ -25,13 +26,26 @@ import org.pentaho.amazon.client.api.S3Client;
  */
 public class S3ClientFactory extends AbstractClientFactory<S3Client> {
 
+  /**
+   * System property pointing the staging at an S3 compatible endpoint instead of AWS, e.g. a local object store
+   */
+  public static final String ENDPOINT_PROPERTY = "pentaho.amazon.s3.endpoint";
+
   @Override
   public S3Client createClient( String accessKey, String secretKey, String sessionToken, String region ) {
     AmazonClientCredentials clientCredentials = new AmazonClientCredentials( accessKey, secretKey, sessionToken, region );
 
-    AmazonS3 awsS3Client =
-      AmazonS3ClientBuilder.standard().withRegion( clientCredentials.getRegion() )
-        .withCredentials( new AWSStaticCredentialsProvider( clientCredentials.getAWSCredentials() ) ).build();
+    AmazonS3ClientBuilder builder = AmazonS3ClientBuilder.standard()
+      .withCredentials( new AWSStaticCredentialsProvider( clientCredentials.getAWSCredentials() ) );
+    String endpoint = System.getProperty( ENDPOINT_PROPERTY );
+    if ( endpoint != null && !endpoint.isEmpty() ) {
+      builder.withEndpointConfiguration(
+        new AwsClientBuilder.EndpointConfiguration( endpoint, clientCredentials.getRegion() ) )
+        .withPathStyleAccessEnabled( true );
+    } else {
+      builder.withRegion( clientCredentials.getRegion() );
+    }
+    AmazonS3 awsS3Client = builder.build();
 
     S3Client s3Client = new S3ClientImpl( awsS3Client );
 
@@ -13,15 +13,27 @@
 
 package org.pentaho.amazon.client.impl;
 
+import com.amazonaws.SdkClientException;
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.model.PutObjectRequest;
 import com.amazonaws.services.s3.model.S3Object;
-import com.amazonaws.services.s3.model.S3ObjectInputStream;
+import com.amazonaws.services.s3.transfer.TransferManager;
+import com.amazonaws.services.s3.transfer.TransferManagerBuilder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.pentaho.amazon.client.api.S3Client;
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
-import java.util.Scanner;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
 import java.util.zip.GZIPInputStream;
 
 /**
@@ -29,10 +41,31 @@ import java.util.zip.GZIPInputStream;
  */
 public class S3ClientImpl implements S3Client {
 
+  /**
+   * Files at least this large are uploaded in parts, in parallel
+   */
+  public static final long DEFAULT_MULTIPART_THRESHOLD = 64L * 1024 * 1024;
+  public static final long DEFAULT_PART_SIZE = 16L * 1024 * 1024;
+  public static final int DEFAULT_UPLOAD_THREADS = 4;
+
+  private static final String[] LOG_ARCHIVES = { "/controller.gz", "/stdout.gz", "/syslog.gz", "/stderr.gz" };
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final Logger logger = LogManager.getLogger( S3ClientImpl.class );
+
   private AmazonS3 s3Client;
+  private final long multipartThreshold;
+  private final long partSize;
+  private final int uploadThreads;
 
   public S3ClientImpl( AmazonS3 s3Client ) {
+    this( s3Client, DEFAULT_MULTIPART_THRESHOLD, DEFAULT_PART_SIZE, DEFAULT_UPLOAD_THREADS );
+  }
+
+  public S3ClientImpl( AmazonS3 s3Client, long multipartThreshold, long partSize, int uploadThreads ) {
     this.s3Client = s3Client;
+    this.multipartThreshold = multipartThreshold;
+    this.partSize = partSize;
+    this.uploadThreads = uploadThreads;
   }
 
   @Override
@@ -49,19 +82,74 @@ public class S3ClientImpl implements S3Client {
 
   @Override
   public void putObjectInBucket( String stagingBucketName, String key, File tmpFile ) {
-    s3Client.putObject( new PutObjectRequest( stagingBucketName, key, tmpFile ) );
+    if ( tmpFile.length() < multipartThreshold ) {
+      s3Client.putObject( new PutObjectRequest( stagingBucketName, key, tmpFile ) );
+      return;
+    }
+    TransferManager transferManager = TransferManagerBuilder.standard()
+      .withS3Client( s3Client )
+      .withMultipartUploadThreshold( multipartThreshold )
+      .withMinimumUploadPartSize( partSize )
+      .withExecutorFactory( () -> Executors.newFixedThreadPool( uploadThreads ) )
+      .build();
+    try {
+      transferManager.upload( new PutObjectRequest( stagingBucketName, key, tmpFile ) ).waitForCompletion();
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      throw new SdkClientException( "Interrupted while uploading " + key, e );
+    } finally {
+      // the S3 client isn't ours to shut down
+      transferManager.shutdownNow( false );
+    }
+  }
+
+  @Override
+  public String stageObjectInBucket( String stagingBucketName, String key, File tmpFile ) throws IOException {
+    String stagedKey = contentAddressedKey( key, sha256( tmpFile ) );
+    if ( !s3Client.doesObjectExist( stagingBucketName, stagedKey ) ) {
+      putObjectInBucket( stagingBucketName, stagedKey, tmpFile );
+    }
+    return stagedKey;
+  }
+
+  /**
+   * Puts the content hash in front of the file name of the key, so that the file name stays as it is.
+   */
+  static String contentAddressedKey( String key, String hash ) {
+    int slash = key.lastIndexOf( '/' );
+    return key.substring( 0, slash + 1 ) + hash + "/" + key.substring( slash + 1 );
+  }
+
+  static String sha256( File file ) throws IOException {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance( "SHA-256" );
+    } catch ( NoSuchAlgorithmException e ) {
+      throw new IOException( e );
+    }
+    byte[] buffer = new byte[ BUFFER_SIZE ];
+    try ( InputStream in = Files.newInputStream( file.toPath() ) ) {
+      int read;
+      while ( ( read = in.read( buffer ) ) != -1 ) {
+        digest.update( buffer, 0, read );
+      }
+    }
+    StringBuilder hex = new StringBuilder();
+    for ( byte b : digest.digest() ) {
+      hex.append( String.format( "%02x", b ) );
+    }
+    return hex.toString();
   }
 
   @Override
   public String readStepLogsFromS3( String stagingBucketName, String hadoopJobFlowId, String stepId ) {
 
     String lineSeparator = System.getProperty( "line.separator" );
-    String[] logArchives = { "/controller.gz", "/stdout.gz", "/syslog.gz", "/stderr.gz" };
     StringBuilder logContents = new StringBuilder();
     String logFromS3File = "";
     String pathToStepLogs = "";
 
-    for ( String gzLogFile : logArchives ) {
+    for ( String gzLogFile : LOG_ARCHIVES ) {
       logFromS3File = readLogFromS3( stagingBucketName, hadoopJobFlowId + "/steps/" + stepId + gzLogFile );
       if ( logFromS3File != null && !logFromS3File.isEmpty() ) {
         logContents.append( logFromS3File + lineSeparator );
@@ -74,44 +162,49 @@ public class S3ClientImpl implements S3Client {
     return logContents.toString();
   }
 
-  protected String readLogFromS3( String stagingBucketName, String key ) {
+  @Override
+  public void streamStepLogsFromS3( String stagingBucketName, String hadoopJobFlowId, String stepId,
+                                    Consumer<String> lines ) {
+    boolean found = false;
+    for ( String gzLogFile : LOG_ARCHIVES ) {
+      found |= streamLogFromS3( stagingBucketName, hadoopJobFlowId + "/steps/" + stepId + gzLogFile, lines );
+    }
+    if ( !found ) {
+      lines.accept( "Step " + stepId + " failed. See logs here: s3://" + stagingBucketName + "/" + hadoopJobFlowId
+        + "/steps/" + stepId );
+    }
+  }
 
-    Scanner logScanner = null;
-    S3ObjectInputStream s3ObjectInputStream = null;
-    GZIPInputStream gzipInputStream = null;
+  protected String readLogFromS3( String stagingBucketName, String key ) {
     String lineSeparator = System.getProperty( "line.separator" );
     StringBuilder logContents = new StringBuilder();
-    S3Object outObject;
+    streamLogFromS3( stagingBucketName, key, line -> logContents.append( line ).append( lineSeparator ) );
+    return logContents.toString();
+  }
 
+  /**
+   * Decompresses a gzipped log while it is downloaded, handing over its lines one by one.
+   *
+   * @return whether the log had any lines
+   */
+  protected boolean streamLogFromS3( String stagingBucketName, String key, Consumer<String> lines ) {
+    boolean found = false;
     try {
       if ( s3Client.doesObjectExist( stagingBucketName, key ) ) {
-
-        outObject = s3Client.getObject( stagingBucketName, key );
-        s3ObjectInputStream = outObject.getObjectContent();
-        gzipInputStream = new GZIPInputStream( s3ObjectInputStream );
-
-        logScanner = new Scanner( gzipInputStream );
-        while ( logScanner.hasNextLine() ) {
-          logContents.append( logScanner.nextLine() + lineSeparator );
+        try ( S3Object outObject = s3Client.getObject( stagingBucketName, key );
+              BufferedReader reader = new BufferedReader( new InputStreamReader(
+                new GZIPInputStream( outObject.getObjectContent(), BUFFER_SIZE ), StandardCharsets.UTF_8 ),
+                BUFFER_SIZE ) ) {
+          String line;
+          while ( ( line = reader.readLine() ) != null ) {
+            lines.accept( line );
+            found = true;
+          }
         }
       }
     } catch ( IOException e ) {
-      e.printStackTrace();
-    } finally {
-      try {
-        if ( logScanner != null ) {
-          logScanner.close();
-        }
-        if ( s3ObjectInputStream != null ) {
-          s3ObjectInputStream.close();
-        }
-        if ( gzipInputStream != null ) {
-          gzipInputStream.close();
-        }
-      } catch ( IOException e ) {
-        //do nothing
-      }
+      logger.warn( "Unable to read the log " + key + " from " + stagingBucketName, e );
     }
-    return logContents.toString();
+    return found;
   }
 }
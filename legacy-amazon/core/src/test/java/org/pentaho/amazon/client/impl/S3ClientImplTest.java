@@ -14,8 +14,17 @@
 package org.pentaho.amazon.client.impl;
 
 import com.amazonaws.services.s3.AmazonS3Client;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadResult;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadResult;
+import com.amazonaws.services.s3.model.ListPartsRequest;
+import com.amazonaws.services.s3.model.PartListing;
+import com.amazonaws.services.s3.model.PutObjectRequest;
 import com.amazonaws.services.s3.model.S3Object;
 import com.amazonaws.services.s3.model.S3ObjectInputStream;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import com.amazonaws.services.s3.model.UploadPartResult;
 import org.apache.commons.io.FileUtils;
 import org.junit.Assert;
 import org.junit.Before;
@@ -30,14 +39,20 @@ import org.mockito.junit.MockitoJUnitRunner;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Paths;
 import java.util.zip.GZIPOutputStream;
 
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doCallRealMethod;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 
 /**
@@ -144,6 +159,69 @@ public class S3ClientImplTest {
     }
   }
 
+  @Test
+  public void testStageObjectInBucket_whenContentIsNew() throws Exception {
+    File jar = temporaryFolder.newFile( "job.jar" );
+    FileUtils.writeStringToFile( jar, "hello", StandardCharsets.UTF_8 );
+    String expectedKey = "staging/2cf24dba5fb0a30e26e83b2ac5b9e29e1b161e5c1fa7425e73043362938b9824/job.jar";
+
+    Mockito.when( awsS3Client.doesObjectExist( "alzhk", expectedKey ) ).thenReturn( false );
+
+    Assert.assertEquals( expectedKey, s3Client.stageObjectInBucket( "alzhk", "staging/job.jar", jar ) );
+    verify( awsS3Client ).putObject( any( PutObjectRequest.class ) );
+  }
+
+  @Test
+  public void testStageObjectInBucket_whenContentIsStagedAlready() throws Exception {
+    File jar = temporaryFolder.newFile( "job.jar" );
+    FileUtils.writeStringToFile( jar, "hello", StandardCharsets.UTF_8 );
+    String expectedKey = "2cf24dba5fb0a30e26e83b2ac5b9e29e1b161e5c1fa7425e73043362938b9824/job.jar";
+
+    Mockito.when( awsS3Client.doesObjectExist( "alzhk", expectedKey ) ).thenReturn( true );
+
+    Assert.assertEquals( expectedKey, s3Client.stageObjectInBucket( "alzhk", "job.jar", jar ) );
+    verify( awsS3Client, never() ).putObject( any( PutObjectRequest.class ) );
+  }
+
+  @Test
+  public void testPutObjectInBucket_whenFileIsBelowMultipartThreshold() throws Exception {
+    File jar = temporaryFolder.newFile( "small.jar" );
+    FileUtils.writeByteArrayToFile( jar, new byte[ 3000 ] );
+
+    new S3ClientImpl( awsS3Client, 4096, 1024, 2 ).putObjectInBucket( "alzhk", "staging/small.jar", jar );
+
+    verify( awsS3Client ).putObject( any( PutObjectRequest.class ) );
+    verify( awsS3Client, never() ).initiateMultipartUpload( any( InitiateMultipartUploadRequest.class ) );
+  }
+
+  @Test
+  public void testPutObjectInBucket_whenFileIsAboveMultipartThreshold() throws Exception {
+    File jar = temporaryFolder.newFile( "large.jar" );
+    FileUtils.writeByteArrayToFile( jar, new byte[ 3000 ] );
+
+    InitiateMultipartUploadResult initiated = new InitiateMultipartUploadResult();
+    initiated.setUploadId( "upload" );
+    Mockito.when( awsS3Client.initiateMultipartUpload( any( InitiateMultipartUploadRequest.class ) ) )
+      .thenReturn( initiated );
+    // the transfer manager looks for parts to resume, depending on the version of the SDK
+    lenient().when( awsS3Client.listParts( any( ListPartsRequest.class ) ) ).thenReturn( new PartListing() );
+    Mockito.when( awsS3Client.uploadPart( any( UploadPartRequest.class ) ) ).thenAnswer( invocation -> {
+      UploadPartRequest request = invocation.getArgument( 0 );
+      UploadPartResult result = new UploadPartResult();
+      result.setPartNumber( request.getPartNumber() );
+      result.setETag( "etag" + request.getPartNumber() );
+      return result;
+    } );
+    Mockito.when( awsS3Client.completeMultipartUpload( any( CompleteMultipartUploadRequest.class ) ) )
+      .thenReturn( new CompleteMultipartUploadResult() );
+
+    new S3ClientImpl( awsS3Client, 1024, 1024, 2 ).putObjectInBucket( "alzhk", "staging/large.jar", jar );
+
+    verify( awsS3Client, times( 3 ) ).uploadPart( any( UploadPartRequest.class ) );
+    verify( awsS3Client ).completeMultipartUpload( any( CompleteMultipartUploadRequest.class ) );
+    verify( awsS3Client, never() ).putObject( any( PutObjectRequest.class ) );
+  }
+
   private void createGzArchive() throws Exception {
 
     try ( FileInputStream fileInputStream = new FileInputStream( logFileName );
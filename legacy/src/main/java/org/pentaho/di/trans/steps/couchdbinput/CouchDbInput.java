@@ -23,11 +23,11 @@ import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.protocol.HttpClientContext;
 import org.apache.http.impl.auth.BasicScheme;
 import org.apache.http.impl.client.BasicAuthCache;
+import org.apache.http.util.EntityUtils;
 import org.pentaho.di.cluster.SlaveConnectionManager;
 import org.pentaho.di.core.Const;
 import org.pentaho.di.core.encryption.Encr;
 import org.pentaho.di.core.exception.KettleException;
-import org.pentaho.di.core.exception.KettleStepException;
 import org.pentaho.di.core.row.RowDataUtil;
 import org.pentaho.di.core.row.RowMeta;
 import org.pentaho.di.core.util.HttpClientManager;
@@ -40,8 +40,10 @@ import org.pentaho.di.trans.step.StepInterface;
 import org.pentaho.di.trans.step.StepMeta;
 import org.pentaho.di.trans.step.StepMetaInterface;
 
-import java.io.BufferedInputStream;
 import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 
 public class CouchDbInput extends BaseStep implements StepInterface {
   private static Class<?> PKG = CouchDbInputMeta.class; // for i18n purposes, needed by Translator2!! $NON-NLS-1$
@@ -79,6 +81,30 @@ public class CouchDbInput extends BaseStep implements StepInterface {
     return url;
   }
 
+  /**
+   * Adds the paging parameters to the view URL.
+   *
+   * @param pageSize   the number of rows of a page, or 0 to read the whole view at once
+   * @param startKey   the key of the last row of the previous page as JSON, or null for the first page
+   * @param startDocId the document id of the last row of the previous page, or null
+   */
+  public static String buildPageUrl( String url, int pageSize, String startKey, String startDocId )
+    throws UnsupportedEncodingException {
+    if ( pageSize <= 0 ) {
+      return url;
+    }
+    StringBuilder pageUrl = new StringBuilder( url ).append( "?limit=" ).append( pageSize );
+    if ( startKey != null ) {
+      // the page starts at the last row of the previous one
+      pageUrl.append( "&startkey=" ).append( URLEncoder.encode( startKey, "UTF-8" ) );
+      if ( startDocId != null ) {
+        pageUrl.append( "&startkey_docid=" ).append( URLEncoder.encode( startDocId, "UTF-8" ) );
+      }
+      pageUrl.append( "&skip=1" );
+    }
+    return pageUrl.toString();
+  }
+
   public boolean processRow( StepMetaInterface smi, StepDataInterface sdi ) throws KettleException {
     try {
       if ( first ) {
@@ -87,144 +113,56 @@ public class CouchDbInput extends BaseStep implements StepInterface {
         data.outputRowMeta = new RowMeta();
         meta.getFields( getTransMeta().getBowl(), data.outputRowMeta, getStepname(), null, null, this, repository,
                         metaStore );
-
-        // Skip over first introduction row containing the number of results...
-        //
-        // Example: {"total_rows":3,"offset":0,"rows":[
-        //
-        data.buffer = new StringBuilder( 1000 );
-        data.open = 0;
-        boolean cont = true;
-        int c = data.bufferedInputStream.read();
-        while ( c >= 0 && cont && !isStopped() ) {
-          data.buffer.append( (char) c );
-
-          switch ( (char) c ) {
-            case '{':
-              data.open++;
-
-              // Second JSON nested block means: another row of data...
-              if ( data.open == 2 ) {
-                logBasic( "Read header: >>" + data.buffer.substring( 0, data.buffer.length() - 1 ) + "<<" );
-                data.buffer.delete( 0, data.buffer.length() - 1 );
-                cont = false; // Stop the while loop.
-              }
-
-              break;
-            case '}':
-              data.open--;
-              break;
-
-            case '"':
-              // skip until the next "
-              //
-              int prev = c;
-              c = data.bufferedInputStream.read();
-              while ( c != '"' && prev != '\\' && c >= 0 ) {
-                data.buffer.append( (char) c );
-                prev = c;
-                c = data.bufferedInputStream.read();
-              }
-          }
-
-          if ( cont ) {
-            c = data.bufferedInputStream.read();
-          }
-        }
-
-        if ( c < 0 ) {
-          setOutputDone();
-          return false;
-        }
       }
 
-      // read one JSON block from the data until no data is left on the input stream
-      //
-      boolean cont = true;
-      int c = data.bufferedInputStream.read();
-      while ( c >= 0 && cont && !isStopped() ) {
-        data.buffer.append( (char) c );
-
-        switch ( (char) c ) {
-          case '{':
-            data.open++;
-
-            // Second JSON nested block means: another row of data...
-            if ( data.open == 2 ) {
-
-              sendBufferRow( false );
-
-              cont = false; // Stop the while loop.
-            }
-
-            break;
-          case '}':
-            data.open--;
-            break;
-        }
-
-        if ( cont ) {
-          c = data.bufferedInputStream.read();
-        }
+      String json = data.reader.nextRow();
+      while ( json == null && data.pageSize > 0 && data.reader.getRowsRead() == data.pageSize && !isStopped() ) {
+        openPage( data.reader.getLastKey(), data.reader.getLastId() );
+        json = data.reader.nextRow();
       }
-
-      if ( c < 0 ) {
-        if ( data.buffer.length() > 0 ) {
-          sendBufferRow( true );
-        }
+      if ( json == null || isStopped() ) {
         setOutputDone();
         return false;
       }
 
+      if ( log.isDebug() ) {
+        logDebug( "Read row: " + json );
+      }
+      Object[] row = RowDataUtil.allocateRowData( data.outputRowMeta.size() );
+      int index = 0;
+      row[ index++ ] = json;
+
+      // putRow will send the row on to the default output hop.
+      //
+      putRow( data.outputRowMeta, row );
       return true;
     } catch ( IOException e ) {
       throw new KettleException( "Unable to read from the CouchDB REST web service", e );
     }
   }
 
-  private void sendBufferRow( boolean lastRow ) throws KettleStepException {
-
-    int pos = data.buffer.length() - 2;
+  private void openPage( String startKey, String startDocId ) throws IOException, KettleException {
+    closeReader();
 
-    if ( lastRow ) {
-      // Get rid of any ]} at the end of the last row.
-      //
-      pos = removeTrailingSpaces( data.buffer, pos );
-      pos = removeTrailingCharacter( data.buffer, pos, '}' );
-      pos = removeTrailingSpaces( data.buffer, pos );
-      pos = removeTrailingCharacter( data.buffer, pos, ']' );
+    HttpGet method = getMethodFactory.create( buildPageUrl( data.url, data.pageSize, startKey, startDocId ) );
+    HttpResponse httpResponse =
+      data.context != null ? data.client.execute( method, data.context ) : data.client.execute( method );
+    int result = httpResponse.getStatusLine().getStatusCode();
+    if ( result < 200 || result >= 300 ) {
+      throw new KettleException( "Web request returned code " + result + " : "
+        + EntityUtils.toString( httpResponse.getEntity(), StandardCharsets.UTF_8 ) );
     }
 
-    pos = removeTrailingSpaces( data.buffer, pos );
-    pos = removeTrailingCharacter( data.buffer, pos, ',' );
-
-    String json = data.buffer.substring( 0, pos + 1 );
-    data.buffer.delete( 0, data.buffer.length() - 1 );
-
-    if ( log.isDebug() ) {
-      logDebug( "Read row: " + json );
-    }
-    Object[] row = RowDataUtil.allocateRowData( data.outputRowMeta.size() );
-    int index = 0;
-    row[ index++ ] = json;
-
-    // putRow will send the row on to the default output hop.
-    //
-    putRow( data.outputRowMeta, row );
+    // the response
+    data.inputStream = httpResponse.getEntity().getContent();
+    data.reader = new CouchDbViewReader( data.inputStream );
   }
 
-  private int removeTrailingCharacter( StringBuilder buffer, int pos, char c ) {
-    if ( data.buffer.charAt( pos ) == c ) {
-      pos--;
+  private void closeReader() throws IOException {
+    if ( data.reader != null ) {
+      data.reader.close();
+      data.reader = null;
     }
-    return pos;
-  }
-
-  private int removeTrailingSpaces( StringBuilder buffer, int pos ) {
-    while ( pos >= 0 && Const.isSpace( data.buffer.charAt( pos ) ) ) {
-      pos--;
-    }
-    return pos;
   }
 
   public boolean init( StepMetaInterface stepMetaInterface, StepDataInterface stepDataInterface ) {
@@ -256,38 +194,22 @@ public class CouchDbInput extends BaseStep implements StepInterface {
 
       logBasic( "Querying CouchDB view on URL: " + url );
 
-      try {
-        HttpClient client = createHttpClient( realUser, realPass );
-
-        HttpGet method = getMethodFactory.create( url );
+      data.url = url;
+      data.pageSize = Const.toInt( environmentSubstitute( meta.getPageSize() ), 0 );
 
-        // Execute request
-        data.inputStream = null;
-        data.bufferedInputStream = null;
+      try {
+        data.client = createHttpClient( realUser, realPass );
 
         //Client Preemptive Basic Authentication
-        HttpClientContext context = null;
+        data.context = null;
         if ( StringUtils.isNotBlank( hostname ) ) {
-          context = getHttpClientContext( hostname, port );
+          data.context = getHttpClientContext( hostname, port );
         }
 
-        HttpResponse httpResponse =
-          context != null ? client.execute( method, context ) : client.execute( method );
-        int result = httpResponse.getStatusLine().getStatusCode();
-
-        // the response
-        data.inputStream = httpResponse.getEntity().getContent();
-        data.bufferedInputStream = new BufferedInputStream( data.inputStream, 1000 );
-
-        if ( result < 200 || result >= 300 ) {
-          StringBuilder err = new StringBuilder();
-          int c;
-          while ( ( c = data.bufferedInputStream.read() ) >= 0 ) {
-            err.append( (char) c );
-          }
-          logError( "Web request returned code " + result + " : " + err.toString() );
-          return false;
-        }
+        // Execute request
+        data.inputStream = null;
+        data.reader = null;
+        openPage( null, null );
 
         data.counter = 0;
 
@@ -304,13 +226,11 @@ public class CouchDbInput extends BaseStep implements StepInterface {
   @Override
   public void dispose( StepMetaInterface smi, StepDataInterface sdi ) {
 
-    if ( data.bufferedInputStream != null ) {
-      try {
-        data.bufferedInputStream.close();
-      } catch ( Exception e ) {
-        setErrors( 1 );
-        logError( "Error closing data stream", e );
-      }
+    try {
+      closeReader();
+    } catch ( Exception e ) {
+      setErrors( 1 );
+      logError( "Error closing data stream", e );
     }
 
     super.dispose( smi, sdi );
@@ -13,9 +13,10 @@
 
 package org.pentaho.di.trans.steps.couchdbinput;
 
-import java.io.BufferedInputStream;
 import java.io.InputStream;
 
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.protocol.HttpClientContext;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.trans.step.BaseStepData;
 import org.pentaho.di.trans.step.StepDataInterface;
@@ -29,10 +30,11 @@ public class CouchDbInputData extends BaseStepData implements StepDataInterface
 
   public int counter;
 
-  public InputStream inputStream;
-  public BufferedInputStream bufferedInputStream;
-
-  public StringBuilder buffer;
+  public HttpClient client;
+  public HttpClientContext context;
+  public String url;
+  public int pageSize;
 
-  public int open;
+  public InputStream inputStream;
+  public CouchDbViewReader reader;
 }
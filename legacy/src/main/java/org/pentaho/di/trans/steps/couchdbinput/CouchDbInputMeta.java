@@ -82,6 +82,9 @@ public class CouchDbInputMeta extends BaseStepMeta implements StepMetaInterface
   @Injection( name = "AUTHENTICATION_PASSWORD" )
   private String authenticationPassword;
 
+  @Injection( name = "PAGE_SIZE" )
+  private String pageSize;
+
   @Override
   public void loadXML( Node stepnode, List<DatabaseMeta> databases, IMetaStore metaStore )
     throws KettleXMLException {
@@ -94,6 +97,7 @@ public class CouchDbInputMeta extends BaseStepMeta implements StepMetaInterface
       authenticationUser = XMLHandler.getTagValue( stepnode, "auth_user" ); //$NON-NLS-1$
       authenticationPassword =
         Encr.decryptPasswordOptionallyEncrypted( XMLHandler.getTagValue( stepnode, "auth_password" ) ); //$NON-NLS-1$
+      pageSize = XMLHandler.getTagValue( stepnode, "page_size" ); //$NON-NLS-1$
     } catch ( Exception e ) {
       throw new KettleXMLException( BaseMessages.getString( PKG, "CouchDbInputMeta.Exception.UnableToLoadStepInfo" ),
         e ); //$NON-NLS-1$
@@ -134,6 +138,7 @@ public class CouchDbInputMeta extends BaseStepMeta implements StepMetaInterface
     retval.append( "    " ).append( XMLHandler.addTagValue( "auth_user", authenticationUser ) );
     retval.append( "    " ).append(
       XMLHandler.addTagValue( "auth_password", Encr.encryptPasswordIfNotUsingVariables( authenticationPassword ) ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( "page_size", pageSize ) ); //$NON-NLS-1$ //$NON-NLS-2$
 
     return retval.toString();
   }
@@ -150,6 +155,7 @@ public class CouchDbInputMeta extends BaseStepMeta implements StepMetaInterface
       authenticationUser = rep.getStepAttributeString( id_step, "auth_user" );
       authenticationPassword =
         Encr.decryptPasswordOptionallyEncrypted( rep.getStepAttributeString( id_step, "auth_password" ) );
+      pageSize = rep.getStepAttributeString( id_step, "page_size" ); //$NON-NLS-1$
     } catch ( Exception e ) {
       throw new KettleException( BaseMessages.getString( PKG,
         "CouchDbInputMeta.Exception.UnexpectedErrorWhileReadingStepInfo" ), e ); //$NON-NLS-1$
@@ -168,6 +174,7 @@ public class CouchDbInputMeta extends BaseStepMeta implements StepMetaInterface
       rep.saveStepAttribute( id_transformation, id_step, "auth_user", authenticationUser );
       rep.saveStepAttribute( id_transformation, id_step, "auth_password", Encr
         .encryptPasswordIfNotUsingVariables( authenticationPassword ) );
+      rep.saveStepAttribute( id_transformation, id_step, "page_size", pageSize ); //$NON-NLS-1$
     } catch ( Exception e ) {
       throw new KettleException(
         BaseMessages.getString( PKG, "CouchDbInputMeta.Exception.UnableToSaveStepInfo" ) + id_step, e ); //$NON-NLS-1$
@@ -283,4 +290,18 @@ public class CouchDbInputMeta extends BaseStepMeta implements StepMetaInterface
     this.designDocument = designDocument;
   }
 
+  /**
+   * @return the number of rows to read per request, empty to read the whole view at once
+   */
+  public String getPageSize() {
+    return pageSize;
+  }
+
+  /**
+   * @param pageSize the number of rows to read per request
+   */
+  public void setPageSize( String pageSize ) {
+    this.pageSize = pageSize;
+  }
+
 }
@@ -0,0 +1,127 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+
+package org.pentaho.di.trans.steps.couchdbinput;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads the rows of a CouchDB view response one at a time while it is downloaded.
+ * <p>
+ * Example: {"total_rows":3,"offset":0,"rows":[{"id":"a","key":1,"value":null}, ...]}
+ */
+public class CouchDbViewReader implements Closeable {
+  private static final ObjectMapper MAPPER = new ObjectMapper()
+    .enable( DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS )
+    .setNodeFactory( JsonNodeFactory.withExactBigDecimals( true ) );
+
+  private final InputStream inputStream;
+  private JsonParser parser;
+  private boolean done;
+
+  private long totalRows = -1;
+  private long rowsRead;
+  private JsonNode lastKey;
+  private String lastId;
+
+  public CouchDbViewReader( InputStream inputStream ) {
+    this.inputStream = inputStream;
+  }
+
+  /**
+   * @return the next row of the view as JSON, or null once all rows are read
+   */
+  public String nextRow() throws IOException {
+    if ( parser == null ) {
+      // the parser detects the encoding and decodes the stream in large chunks
+      parser = MAPPER.getFactory().createParser( inputStream );
+      skipToRows();
+    }
+    if ( done ) {
+      return null;
+    }
+    if ( parser.nextToken() != JsonToken.START_OBJECT ) {
+      done = true;
+      return null;
+    }
+    JsonNode row = MAPPER.readTree( parser );
+    lastKey = row.get( "key" );
+    JsonNode id = row.get( "id" );
+    lastId = id == null || id.isNull() ? null : id.asText();
+    rowsRead++;
+    return MAPPER.writeValueAsString( row );
+  }
+
+  private void skipToRows() throws IOException {
+    if ( parser.nextToken() != JsonToken.START_OBJECT ) {
+      throw new IOException( "The CouchDB view response is not a JSON object" );
+    }
+    while ( parser.nextToken() == JsonToken.FIELD_NAME ) {
+      String name = parser.getCurrentName();
+      JsonToken value = parser.nextToken();
+      if ( "rows".equals( name ) && value == JsonToken.START_ARRAY ) {
+        return;
+      }
+      if ( "total_rows".equals( name ) && value.isNumeric() ) {
+        totalRows = parser.getLongValue();
+      }
+      parser.skipChildren();
+    }
+    done = true;
+  }
+
+  /**
+   * @return the total number of rows of the view, or -1 if the response doesn't tell
+   */
+  public long getTotalRows() {
+    return totalRows;
+  }
+
+  public long getRowsRead() {
+    return rowsRead;
+  }
+
+  /**
+   * @return the key of the last row read as JSON, or null if there is none
+   */
+  public String getLastKey() throws IOException {
+    return lastKey == null ? null : MAPPER.writeValueAsString( lastKey );
+  }
+
+  /**
+   * @return the id of the document of the last row read, or null if there is none
+   */
+  public String getLastId() {
+    return lastId;
+  }
+
+  @Override
+  public void close() throws IOException {
+    if ( parser != null ) {
+      parser.close();
+    }
+    if ( inputStream != null ) {
+      inputStream.close();
+    }
+  }
+}
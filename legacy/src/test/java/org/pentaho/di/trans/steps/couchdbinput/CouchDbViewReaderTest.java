@@ -0,0 +1,78 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+
+package org.pentaho.di.trans.steps.couchdbinput;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class CouchDbViewReaderTest {
+
+  private static CouchDbViewReader reader( String json ) {
+    return new CouchDbViewReader( new ByteArrayInputStream( json.getBytes( StandardCharsets.UTF_8 ) ) );
+  }
+
+  @Test
+  public void testRowsAreReadOneByOne() throws Exception {
+    CouchDbViewReader reader = reader( "{\"total_rows\":3,\"offset\":0,\"rows\":[\n"
+      + "{\"id\":\"a\",\"key\":[\"x\",1],\"value\":{\"name\":\"Zo\u00eb {\\\"quoted\\\"}\"}},\n"
+      + "{\"id\":\"b\",\"key\":[\"x\",2],\"value\":1.10},\n"
+      + "{\"id\":\"c\",\"key\":[\"y\",1],\"value\":\"\u65e5\u672c\"}\n"
+      + "]}" );
+
+    assertEquals( "{\"id\":\"a\",\"key\":[\"x\",1],\"value\":{\"name\":\"Zo\u00eb {\\\"quoted\\\"}\"}}",
+      reader.nextRow() );
+    assertEquals( 3, reader.getTotalRows() );
+    assertEquals( "{\"id\":\"b\",\"key\":[\"x\",2],\"value\":1.10}", reader.nextRow() );
+    assertEquals( "{\"id\":\"c\",\"key\":[\"y\",1],\"value\":\"\u65e5\u672c\"}", reader.nextRow() );
+    assertNull( reader.nextRow() );
+    assertNull( reader.nextRow() );
+
+    assertEquals( 3, reader.getRowsRead() );
+    assertEquals( "[\"y\",1]", reader.getLastKey() );
+    assertEquals( "c", reader.getLastId() );
+    reader.close();
+  }
+
+  @Test
+  public void testReducedView() throws Exception {
+    CouchDbViewReader reader = reader( "{\"rows\":[{\"key\":null,\"value\":42}]}" );
+
+    assertEquals( "{\"key\":null,\"value\":42}", reader.nextRow() );
+    assertNull( reader.nextRow() );
+    assertEquals( -1, reader.getTotalRows() );
+    assertEquals( "null", reader.getLastKey() );
+    assertNull( reader.getLastId() );
+  }
+
+  @Test
+  public void testEmptyView() throws Exception {
+    assertNull( reader( "{\"total_rows\":0,\"offset\":0,\"rows\":[]}" ).nextRow() );
+    assertNull( reader( "{\"error\":\"not_found\",\"reason\":\"missing\"}" ).nextRow() );
+  }
+
+  @Test
+  public void testBuildPageUrl() throws Exception {
+    String url = "http://localhost:5984/db/_design/doc/_view/view";
+    assertEquals( url, CouchDbInput.buildPageUrl( url, 0, null, null ) );
+    assertEquals( url + "?limit=100", CouchDbInput.buildPageUrl( url, 100, null, null ) );
+    assertEquals( url + "?limit=100&startkey=%5B%22y%22%2C1%5D&startkey_docid=c%2F1&skip=1",
+      CouchDbInput.buildPageUrl( url, 100, "[\"y\",1]", "c/1" ) );
+  }
+}
@@ -63,9 +63,13 @@ import org.pentaho.di.core.vfs.KettleVFS;
 import org.pentaho.hadoop.shim.HadoopConfiguration;
 import org.pentaho.hadoop.shim.HadoopConfigurationLocator;
 import org.pentaho.hadoop.shim.api.ConfigurationException;
+import org.pentaho.hadoop.shim.api.HadoopClientServices;
 import org.pentaho.hadoop.shim.api.core.ShimIdentifierInterface;
+import org.pentaho.hadoop.shim.api.format.FormatService;
+import org.pentaho.hadoop.shim.api.hbase.HBaseService;
 import org.pentaho.hadoop.shim.api.hdfs.HadoopFileSystemFactory;
 import org.pentaho.hadoop.shim.api.jdbc.JdbcUrlParser;
+import org.pentaho.hadoop.shim.api.mapreduce.MapReduceService;
 import org.pentaho.hadoop.shim.api.services.BigDataServicesInitializer;
 import org.pentaho.hadoop.shim.common.CommonFormatShim;
 import org.pentaho.hadoop.shim.spi.HadoopShim;
@@ -85,14 +89,25 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @ServiceProvider(id = "BigDataCEServiceInitializer", description = "", provides = BigDataServicesInitializer.class)
 public class BigDataCEServiceInitializerImpl implements BigDataServicesInitializer, ServiceProviderInterface<BigDataServicesInitializer> {
   protected static final Logger logger = LogManager.getLogger( BigDataCEServiceInitializerImpl.class );
   private static final String LOGGING_PROPERTIES_FILE = "bigdata-logging.properties";
   private static final String LOGGER_PREFIX = "logger.";
+  /**
+   * System property that controls whether the lazily registered service factories are warmed up on background
+   * threads after bootstrap. Defaults to true; set it to false for short-lived processes that should only pay for the
+   * services they actually use.
+   */
+  public static final String WARMUP_PROPERTY = "pentaho.big.data.services.warmup";
+  private static final int MAX_WARMUP_THREADS = 4;
 
+  private final List<LazyNamedClusterServiceFactory<?>> lazyFactories = new CopyOnWriteArrayList<>();
 
   @Override
   public void doInitialize() {
@@ -112,22 +127,34 @@ public class BigDataCEServiceInitializerImpl implements BigDataServicesInitializ
       List<String> shimAvailableServices = hadoopShim.getAvailableServices();
       AuthenticationMappingManager authenticationMappingManager =
         initializeAuthenticationManager( hadoopShim, shimAvailableServices );
+      long start = System.currentTimeMillis();
       HadoopFileSystemLocatorImpl hadoopFileSystemLocator =
         initializeHdfsServices( hadoopShim, shimAvailableServices, authenticationMappingManager );
+      logElapsed( "HDFS", start );
       NamedClusterServiceLocatorImpl namedClusterServiceLocator = NamedClusterServiceLocatorImpl
         .getInstance( hadoopShim.getShimIdentifier().getId() );
+      // The locator backed services are registered as lazy factories, they are built on first use or warm up below
       initializeFormatServices( hadoopShim, shimAvailableServices, namedClusterServiceLocator );
       initializeMapReduceServices( hadoopShim, shimAvailableServices, authenticationMappingManager,
         namedClusterServiceLocator );
       initializeSqoopServices( hadoopShim, shimAvailableServices, authenticationMappingManager,
         namedClusterServiceLocator );
+      start = System.currentTimeMillis();
       initializeHiveServices( hadoopShim, shimAvailableServices, authenticationMappingManager );
+      logElapsed( "Hive", start );
       initializeHBaseServices( hadoopShim, shimAvailableServices, authenticationMappingManager,
         namedClusterServiceLocator );
+      start = System.currentTimeMillis();
       initializeYarnServices( hadoopShim, shimAvailableServices, authenticationMappingManager,
         hadoopFileSystemLocator, namedClusterServiceLocator );
+      logElapsed( "Yarn", start );
+      start = System.currentTimeMillis();
       initializeRuntimeTests( hadoopFileSystemLocator, namedClusterServiceLocator );
+      logElapsed( "runtime test", start );
+      start = System.currentTimeMillis();
       registerBigDataDatabaseDialects();
+      logElapsed( "database dialect", start );
+      warmUpLazyFactories();
 
     } catch ( ConfigurationException | ClassNotFoundException | IllegalAccessException | InstantiationException |
               KettlePluginException e ) {
@@ -210,6 +237,60 @@ public class BigDataCEServiceInitializerImpl implements BigDataServicesInitializ
     }
   }
 
+  /**
+   * Registers a factory with the locator whose creation is deferred until the locator first asks it for a service.
+   *
+   * @param namedClusterServiceLocator the service locator
+   * @param lazyFactory                the lazy factory wrapping the real one
+   * @param properties                 the registration properties ("shim" and "service")
+   */
+  protected void registerLazyFactory( NamedClusterServiceLocatorImpl namedClusterServiceLocator,
+                                      LazyNamedClusterServiceFactory<?> lazyFactory, Map properties ) {
+    lazyFactories.add( lazyFactory );
+    namedClusterServiceLocator.factoryAdded( lazyFactory, properties );
+  }
+
+  /**
+   * Builds the lazily registered factories on a small pool of daemon threads so that the first service lookup does
+   * not have to wait for them. The groups are independent of each other, so they are warmed up in parallel. Nothing
+   * is done when {@link #WARMUP_PROPERTY} is set to false; the factories are then only built on demand.
+   */
+  protected void warmUpLazyFactories() {
+    List<LazyNamedClusterServiceFactory<?>> pending = new ArrayList<>();
+    for ( LazyNamedClusterServiceFactory<?> lazyFactory : lazyFactories ) {
+      if ( !lazyFactory.isInitialized() ) {
+        pending.add( lazyFactory );
+      }
+    }
+    if ( pending.isEmpty() || !Boolean.parseBoolean( System.getProperty( WARMUP_PROPERTY, "true" ) ) ) {
+      return;
+    }
+    int threads = Math.min( pending.size(),
+      Math.min( MAX_WARMUP_THREADS, Runtime.getRuntime().availableProcessors() ) );
+    AtomicInteger threadNumber = new AtomicInteger();
+    ExecutorService warmUpExecutor = Executors.newFixedThreadPool( Math.max( 1, threads ), runnable -> {
+      Thread thread = new Thread( runnable, "big-data-service-warmup-" + threadNumber.incrementAndGet() );
+      thread.setDaemon( true );
+      return thread;
+    } );
+    for ( LazyNamedClusterServiceFactory<?> lazyFactory : pending ) {
+      logger.debug( "Warming up the {} service factory in the background.", lazyFactory.getName() );
+      warmUpExecutor.execute( lazyFactory::initialize );
+    }
+    warmUpExecutor.shutdown();
+  }
+
+  /**
+   * @return the lazily registered factories, in registration order
+   */
+  protected List<LazyNamedClusterServiceFactory<?>> getLazyFactories() {
+    return lazyFactories;
+  }
+
+  private void logElapsed( String group, long start ) {
+    logger.info( "Initialized the {} services in {} ms.", group, System.currentTimeMillis() - start );
+  }
+
   @Override
   public int getPriority() {
     return 100;
@@ -382,12 +463,13 @@ public class BigDataCEServiceInitializerImpl implements BigDataServicesInitializ
                                            NamedClusterServiceLocatorImpl namedClusterServiceLocator ) {
     logger.debug( "Bootstrap the common format service factories." );
     if ( shimAvailableServices.contains( "common_formats" ) ) {
-      CommonFormatShim commonFormatShim = new CommonFormatShim();
-      FormatServiceFactory formatServiceFactory = new FormatServiceFactory( commonFormatShim );
       Map formatFactoryMap = new HashMap<String, String>();
       formatFactoryMap.put( "shim", hadoopShim.getShimIdentifier().getId() );
       formatFactoryMap.put( "service", "format" );
-      namedClusterServiceLocator.factoryAdded( formatServiceFactory, formatFactoryMap );
+      registerLazyFactory( namedClusterServiceLocator,
+        new LazyNamedClusterServiceFactory<>( "format", FormatService.class,
+          () -> new FormatServiceFactory( new CommonFormatShim() ) ),
+        formatFactoryMap );
     } else {
       logger.debug( "No common format service factories defined." );
     }
@@ -415,12 +497,14 @@ public class BigDataCEServiceInitializerImpl implements BigDataServicesInitializ
 
       if ( availableMapreduceOptions.contains( "mapreduce" ) ) {
         logger.debug( "Adding 'mapreduce' factory." );
-        MapReduceServiceFactoryImpl mapReduceServiceFactory = new MapReduceServiceFactoryImpl(
-          hadoopShim,
-          Executors.newCachedThreadPool(),
-          visitorServices
-        );
-        namedClusterServiceLocator.factoryAdded( mapReduceServiceFactory, mapReducefactoryMap );
+        registerLazyFactory( namedClusterServiceLocator,
+          new LazyNamedClusterServiceFactory<>( "mapreduce", MapReduceService.class,
+            () -> new MapReduceServiceFactoryImpl(
+              hadoopShim,
+              Executors.newCachedThreadPool(),
+              visitorServices
+            ) ),
+          mapReducefactoryMap );
       }
     } else {
       logger.debug( "No mapreduce service factories defined." );
@@ -448,8 +532,10 @@ public class BigDataCEServiceInitializerImpl implements BigDataServicesInitializ
 
       if ( availableSqoopOptions.contains( "sqoop" ) ) {
         logger.debug( "Adding 'sqoop' factory." );
-        HadoopClientServicesFactory hadoopClientServicesFactory = new HadoopClientServicesFactory( hadoopShim );
-        namedClusterServiceLocator.factoryAdded( hadoopClientServicesFactory, hadoopClientFactoryMap );
+        registerLazyFactory( namedClusterServiceLocator,
+          new LazyNamedClusterServiceFactory<>( "sqoop", HadoopClientServices.class,
+            () -> new HadoopClientServicesFactory( hadoopShim ) ),
+          hadoopClientFactoryMap );
       }
     } else {
       logger.debug( "No hadoop client (Sqoop) service factories defined." );
@@ -602,15 +688,16 @@ public class BigDataCEServiceInitializerImpl implements BigDataServicesInitializ
     logger.debug( "Bootstrap the HBase services." );
     if ( shimAvailableServices.contains( "hbase" ) ) {
       List<String> availableHbaseOptions = hadoopShim.getServiceOptions( "hbase" );
-      HBaseShimImpl hBaseShim = new HBaseShimImpl();
       Map hBaseServiceFactoryMap = new HashMap<String, String>();
       hBaseServiceFactoryMap.put( "shim", hadoopShim.getShimIdentifier().getId() );
       hBaseServiceFactoryMap.put( "service", "hbase" );
 
       if ( availableHbaseOptions.contains( "hbase" ) ) {
         logger.debug( "Adding 'hbase' factory." );
-        HBaseServiceFactory hBaseServiceFactory = new HBaseServiceFactory( hBaseShim );
-        namedClusterServiceLocator.factoryAdded( hBaseServiceFactory, hBaseServiceFactoryMap );
+        registerLazyFactory( namedClusterServiceLocator,
+          new LazyNamedClusterServiceFactory<>( "hbase", HBaseService.class,
+            () -> new HBaseServiceFactory( new HBaseShimImpl() ) ),
+          hBaseServiceFactoryMap );
       }
     } else {
       logger.debug( "No HBase services defined." );
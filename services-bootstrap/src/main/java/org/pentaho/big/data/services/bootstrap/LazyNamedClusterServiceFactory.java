@@ -0,0 +1,100 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.big.data.services.bootstrap;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.pentaho.hadoop.shim.api.cluster.NamedCluster;
+import org.pentaho.hadoop.shim.api.cluster.NamedClusterServiceFactory;
+
+import java.util.concurrent.Callable;
+
+/**
+ * A {@link NamedClusterServiceFactory} that defers building the real factory until the first time the
+ * {@link org.pentaho.hadoop.shim.api.cluster.NamedClusterServiceLocator} asks it for a service, or until it is
+ * warmed up in the background by the bootstrap process. The service class is known up front so the factory can be
+ * registered with the locator without touching the shim.
+ *
+ * @param <T> the service type produced by the underlying factory
+ */
+public class LazyNamedClusterServiceFactory<T> implements NamedClusterServiceFactory<T> {
+  private static final Logger logger = LogManager.getLogger( LazyNamedClusterServiceFactory.class );
+
+  private final String name;
+  private final Class<T> serviceClass;
+  private final Callable<? extends NamedClusterServiceFactory<T>> initializer;
+  private final Object lock = new Object();
+  private volatile NamedClusterServiceFactory<T> delegate;
+  private volatile boolean failed;
+
+  public LazyNamedClusterServiceFactory( String name, Class<T> serviceClass,
+                                         Callable<? extends NamedClusterServiceFactory<T>> initializer ) {
+    this.name = name;
+    this.serviceClass = serviceClass;
+    this.initializer = initializer;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  @Override
+  public Class<T> getServiceClass() {
+    return serviceClass;
+  }
+
+  @Override
+  public boolean canHandle( NamedCluster namedCluster ) {
+    NamedClusterServiceFactory<T> factory = getDelegate();
+    return factory != null && factory.canHandle( namedCluster );
+  }
+
+  @Override
+  public T create( NamedCluster namedCluster ) {
+    NamedClusterServiceFactory<T> factory = getDelegate();
+    return factory == null ? null : factory.create( namedCluster );
+  }
+
+  /**
+   * Builds the underlying factory if that has not happened yet. Safe to call from several threads, only one of them
+   * will run the initializer.
+   */
+  public void initialize() {
+    getDelegate();
+  }
+
+  public boolean isInitialized() {
+    return delegate != null || failed;
+  }
+
+  NamedClusterServiceFactory<T> getDelegate() {
+    NamedClusterServiceFactory<T> result = delegate;
+    if ( result != null || failed ) {
+      return result;
+    }
+    synchronized ( lock ) {
+      if ( delegate == null && !failed ) {
+        long start = System.currentTimeMillis();
+        try {
+          delegate = initializer.call();
+          logger.info( "Initialized the {} service factory in {} ms.", name, System.currentTimeMillis() - start );
+        } catch ( Exception | LinkageError e ) {
+          failed = true;
+          logger.error( "Unable to initialize the " + name + " service factory. The service will not be available.",
+            e );
+        }
+      }
+      return delegate;
+    }
+  }
+}
@@ -21,6 +21,7 @@ import org.mockito.Mock;
 import org.mockito.MockedStatic;
 import org.mockito.Mockito;
 import org.mockito.junit.MockitoJUnitRunner;
+import org.pentaho.big.data.api.cluster.service.locator.impl.NamedClusterServiceLocatorImpl;
 import org.pentaho.big.data.hadoop.bootstrap.HadoopConfigurationBootstrap;
 import org.pentaho.big.data.api.jdbc.impl.JdbcUrlParserImpl;
 import org.pentaho.big.data.api.jdbc.impl.DriverLocatorImpl;
@@ -28,12 +29,17 @@ import org.pentaho.big.data.impl.cluster.NamedClusterManager;
 import org.pentaho.hadoop.shim.HadoopConfiguration;
 import org.pentaho.hadoop.shim.HadoopConfigurationLocator;
 import org.pentaho.hadoop.shim.api.ConfigurationException;
+import org.pentaho.hadoop.shim.api.cluster.NamedClusterServiceFactory;
 import org.pentaho.hadoop.shim.api.internal.ShimIdentifier;
 import org.pentaho.hadoop.shim.spi.HadoopShim;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
@@ -377,6 +383,37 @@ public class BigDataCEServiceInitializerImplTest {
     verify( driverLocator, never() ).registerDriver( any() );
   }
 
+  @Test
+  @SuppressWarnings( "unchecked" )
+  public void testWarmUpLazyFactoriesInParallel() throws Exception {
+    NamedClusterServiceLocatorImpl namedClusterServiceLocator = mock( NamedClusterServiceLocatorImpl.class );
+    Set<String> warmUpThreads = ConcurrentHashMap.newKeySet();
+    for ( String name : Arrays.asList( "format", "mapreduce" ) ) {
+      initializer.registerLazyFactory( namedClusterServiceLocator,
+        new LazyNamedClusterServiceFactory<>( name, Object.class, () -> {
+          warmUpThreads.add( Thread.currentThread().getName() );
+          return mock( NamedClusterServiceFactory.class );
+        } ), new HashMap<String, String>() );
+    }
+    assertEquals( 2, initializer.getLazyFactories().size() );
+    verify( namedClusterServiceLocator, times( 2 ) ).factoryAdded( any(), any() );
+
+    initializer.warmUpLazyFactories();
+
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos( 10 );
+    for ( LazyNamedClusterServiceFactory<?> lazyFactory : initializer.getLazyFactories() ) {
+      while ( !lazyFactory.isInitialized() && System.nanoTime() < deadline ) {
+        Thread.sleep( 10 );
+      }
+      assertTrue( lazyFactory.getName(), lazyFactory.isInitialized() );
+    }
+    // a warm-up thread per factory, as far as there are processors for them
+    assertEquals( Math.min( 2, Runtime.getRuntime().availableProcessors() ), warmUpThreads.size() );
+    for ( String thread : warmUpThreads ) {
+      assertTrue( thread, thread.startsWith( "big-data-service-warmup-" ) );
+    }
+  }
+
   @Test
   public void testInitializeUINamedClusterProvider() {
     // Should not throw exception even if UI provider is not available
@@ -0,0 +1,109 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.big.data.services.bootstrap;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.hadoop.shim.api.cluster.NamedCluster;
+import org.pentaho.hadoop.shim.api.cluster.NamedClusterServiceFactory;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit test for LazyNamedClusterServiceFactory
+ */
+public class LazyNamedClusterServiceFactoryTest {
+
+  private NamedClusterServiceFactory<Object> delegate;
+  private NamedCluster namedCluster;
+  private AtomicInteger initializations;
+  private LazyNamedClusterServiceFactory<Object> lazyFactory;
+
+  @Before
+  @SuppressWarnings( "unchecked" )
+  public void setUp() {
+    delegate = mock( NamedClusterServiceFactory.class );
+    namedCluster = mock( NamedCluster.class );
+    initializations = new AtomicInteger();
+    lazyFactory = new LazyNamedClusterServiceFactory<>( "test", Object.class, () -> {
+      initializations.incrementAndGet();
+      return delegate;
+    } );
+  }
+
+  @Test
+  public void testServiceClassDoesNotInitialize() {
+    assertEquals( Object.class, lazyFactory.getServiceClass() );
+    assertEquals( 0, initializations.get() );
+    assertFalse( lazyFactory.isInitialized() );
+  }
+
+  @Test
+  public void testInitializesOnFirstUse() {
+    Object service = new Object();
+    when( delegate.canHandle( namedCluster ) ).thenReturn( true );
+    when( delegate.create( namedCluster ) ).thenReturn( service );
+
+    assertTrue( lazyFactory.canHandle( namedCluster ) );
+    assertSame( service, lazyFactory.create( namedCluster ) );
+    assertTrue( lazyFactory.isInitialized() );
+    assertEquals( 1, initializations.get() );
+  }
+
+  @Test
+  public void testConcurrentInitializationRunsOnce() throws InterruptedException {
+    ExecutorService executorService = Executors.newFixedThreadPool( 8 );
+    CountDownLatch startLatch = new CountDownLatch( 1 );
+    for ( int i = 0; i < 8; i++ ) {
+      executorService.execute( () -> {
+        try {
+          startLatch.await();
+        } catch ( InterruptedException e ) {
+          Thread.currentThread().interrupt();
+        }
+        lazyFactory.initialize();
+      } );
+    }
+    startLatch.countDown();
+    executorService.shutdown();
+    assertTrue( executorService.awaitTermination( 10, TimeUnit.SECONDS ) );
+    assertEquals( 1, initializations.get() );
+  }
+
+  @Test
+  public void testFailedInitializationIsNotRetried() {
+    AtomicInteger attempts = new AtomicInteger();
+    LazyNamedClusterServiceFactory<Object> failing = new LazyNamedClusterServiceFactory<>( "failing", Object.class,
+      () -> {
+        attempts.incrementAndGet();
+        throw new IllegalStateException( "boom" );
+      } );
+
+    assertFalse( failing.canHandle( namedCluster ) );
+    assertNull( failing.create( namedCluster ) );
+    assertTrue( failing.isInitialized() );
+    assertEquals( 1, attempts.get() );
+  }
+}